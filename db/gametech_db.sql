@@ -43,8 +43,10 @@ CREATE TABLE IF NOT EXISTS `gametech_db`.`productos` (
   `stock_minimo` INT NOT NULL,
   `stock_actual` INT NOT NULL,
   `id_deposito` INT NULL DEFAULT NULL,
+  `actualizado_en` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   PRIMARY KEY (`codigo`),
   INDEX `id_deposito` (`id_deposito` ASC) VISIBLE,
+  INDEX `actualizado_en` (`actualizado_en` ASC) VISIBLE,
   CONSTRAINT `productos_ibfk_1`
     FOREIGN KEY (`id_deposito`)
     REFERENCES `gametech_db`.`depositos` (`id`))
@@ -61,14 +63,15 @@ CREATE TABLE IF NOT EXISTS `gametech_db`.`alertas` (
   `tipo` ENUM('CRITICO', 'EXCEDENTE') NOT NULL,
   `producto_codigo` VARCHAR(20) NULL DEFAULT NULL,
   `fecha_emision` DATETIME NOT NULL,
-  PRIMARY KEY (`id`),
-  INDEX `producto_codigo` (`producto_codigo` ASC) VISIBLE,
-  CONSTRAINT `alertas_ibfk_1`
-    FOREIGN KEY (`producto_codigo`)
-    REFERENCES `gametech_db`.`productos` (`codigo`))
+  PRIMARY KEY (`id`, `fecha_emision`),
+  INDEX `producto_fecha` (`producto_codigo` ASC, `fecha_emision` ASC) VISIBLE)
 ENGINE = InnoDB
 DEFAULT CHARACTER SET = utf8mb4
-COLLATE = utf8mb4_0900_ai_ci;
+COLLATE = utf8mb4_0900_ai_ci
+-- Particionada por mes: la aplicación crea las particiones mensuales al iniciar (ver MigracionesBD).
+-- Las tablas particionadas no admiten claves foráneas.
+PARTITION BY RANGE COLUMNS(`fecha_emision`) (
+  PARTITION `pmax` VALUES LESS THAN (MAXVALUE));
 
 
 -- -----------------------------------------------------
@@ -87,6 +90,27 @@ DEFAULT CHARACTER SET = utf8mb4
 COLLATE = utf8mb4_0900_ai_ci;
 
 
+-- -----------------------------------------------------
+-- Table `gametech_db`.`remitos`
+-- Cabecera de los documentos de stock con varias líneas
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`remitos` (
+  `id` INT NOT NULL AUTO_INCREMENT,
+  `tipo` ENUM('INGRESO', 'EGRESO', 'AJUSTE') NOT NULL,
+  `numero` VARCHAR(30) NOT NULL DEFAULT '',
+  `fecha` DATETIME NOT NULL,
+  `observaciones` TEXT NULL DEFAULT NULL,
+  `usuario_id` INT NULL DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `usuario_id` (`usuario_id` ASC) VISIBLE,
+  CONSTRAINT `remitos_ibfk_1`
+    FOREIGN KEY (`usuario_id`)
+    REFERENCES `gametech_db`.`usuarios` (`id`))
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci;
+
+
 -- -----------------------------------------------------
 -- Table `gametech_db`.`movimientos`
 -- -----------------------------------------------------
@@ -98,15 +122,96 @@ CREATE TABLE IF NOT EXISTS `gametech_db`.`movimientos` (
   `justificacion` TEXT NULL DEFAULT NULL,
   `producto_codigo` VARCHAR(20) NULL DEFAULT NULL,
   `usuario_id` INT NULL DEFAULT NULL,
-  PRIMARY KEY (`id`),
-  INDEX `producto_codigo` (`producto_codigo` ASC) VISIBLE,
+  `remito_id` INT NULL DEFAULT NULL,
+  `costo_unitario` DECIMAL(14,4) NULL DEFAULT NULL,
+  PRIMARY KEY (`id`, `fecha`),
+  INDEX `producto_fecha` (`producto_codigo` ASC, `fecha` ASC) VISIBLE,
+  INDEX `fecha` (`fecha` ASC) VISIBLE,
   INDEX `usuario_id` (`usuario_id` ASC) VISIBLE,
-  CONSTRAINT `movimientos_ibfk_1`
+  INDEX `remito_id` (`remito_id` ASC) VISIBLE)
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci
+-- Particionada por mes: la aplicación crea las particiones mensuales al iniciar (ver MigracionesBD).
+-- Las tablas particionadas no admiten claves foráneas: la aplicación valida productos y usuarios.
+PARTITION BY RANGE COLUMNS(`fecha`) (
+  PARTITION `pmax` VALUES LESS THAN (MAXVALUE));
+
+-- -----------------------------------------------------
+-- Table `gametech_db`.`movimientos_archivados`
+-- Totales por producto de los movimientos movidos al archivo frío
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`movimientos_archivados` (
+  `producto_codigo` VARCHAR(20) NOT NULL,
+  `cantidad` BIGINT NOT NULL DEFAULT 0,
+  `movimientos` BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (`producto_codigo`),
+  CONSTRAINT `movimientos_archivados_ibfk_1`
     FOREIGN KEY (`producto_codigo`)
-    REFERENCES `gametech_db`.`productos` (`codigo`),
-  CONSTRAINT `movimientos_ibfk_2`
-    FOREIGN KEY (`usuario_id`)
-    REFERENCES `gametech_db`.`usuarios` (`id`))
+    REFERENCES `gametech_db`.`productos` (`codigo`))
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci;
+
+-- -----------------------------------------------------
+-- Table `gametech_db`.`series`
+-- Números de serie de los productos de alto valor (estado actual de cada unidad)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`series` (
+  `numero` VARCHAR(64) NOT NULL,
+  `producto_codigo` VARCHAR(20) NOT NULL,
+  `en_stock` TINYINT(1) NOT NULL,
+  `movimiento_ingreso` INT NOT NULL,
+  `movimiento_egreso` INT NULL DEFAULT NULL,
+  PRIMARY KEY (`numero`),
+  INDEX `producto_stock` (`producto_codigo` ASC, `en_stock` ASC) VISIBLE,
+  INDEX `movimiento_egreso` (`movimiento_egreso` ASC) VISIBLE,
+  INDEX `movimiento_ingreso` (`movimiento_ingreso` ASC) VISIBLE)
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci;
+
+-- -----------------------------------------------------
+-- Table `gametech_db`.`movimientos_ids`
+-- Ids generados por el cliente de cada movimiento guardado (evita duplicados al reintentar un guardado)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`movimientos_ids` (
+  `id_cliente` BINARY(16) NOT NULL,
+  `movimiento_id` INT NOT NULL,
+  `creado_en` DATETIME NOT NULL,
+  PRIMARY KEY (`id_cliente`),
+  INDEX `creado_en` (`creado_en` ASC) VISIBLE)
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci;
+
+-- -----------------------------------------------------
+-- Table `gametech_db`.`reservas`
+-- Reservas de stock vigentes (unidades apartadas hasta su vencimiento)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`reservas` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `producto_codigo` VARCHAR(20) NOT NULL,
+  `cantidad` INT NOT NULL,
+  `vence` DATETIME NOT NULL,
+  `referencia` VARCHAR(100) NULL DEFAULT NULL,
+  `usuario_id` INT NULL DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  INDEX `vence` (`vence` ASC) VISIBLE,
+  INDEX `producto_vence` (`producto_codigo` ASC, `vence` ASC) VISIBLE)
+ENGINE = InnoDB
+DEFAULT CHARACTER SET = utf8mb4
+COLLATE = utf8mb4_0900_ai_ci;
+
+-- -----------------------------------------------------
+-- Table `gametech_db`.`schema_version`
+-- Migraciones aplicadas (este script ya incluye todas las listadas abajo)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `gametech_db`.`schema_version` (
+  `version` INT NOT NULL,
+  `descripcion` VARCHAR(200) NOT NULL,
+  `aplicada_en` DATETIME NOT NULL,
+  PRIMARY KEY (`version`))
 ENGINE = InnoDB
 DEFAULT CHARACTER SET = utf8mb4
 COLLATE = utf8mb4_0900_ai_ci;
@@ -115,6 +220,21 @@ COLLATE = utf8mb4_0900_ai_ci;
 -- Inserciones
 -- -----------------------------------------------------
 
+-- Versiones del esquema incluidas en este script
+INSERT INTO schema_version (version, descripcion, aplicada_en) VALUES
+(1, 'Tabla movimientos_archivados', NOW()),
+(2, 'Tabla remitos y columna movimientos.remito_id', NOW()),
+(3, 'Columna productos.actualizado_en', NOW()),
+(4, 'Índices por producto y fecha en movimientos y alertas', NOW()),
+(5, 'Particionado mensual de movimientos y alertas', NOW()),
+(6, 'Columna movimientos.costo_unitario', NOW()),
+(7, 'Tabla series', NOW()),
+(8, 'Tabla movimientos_ids', NOW()),
+(9, 'Trigger de movimientos omitido al restaurar respaldos', NOW()),
+(10, 'Tabla reservas', NOW()),
+(11, 'Índice por producto en reservas', NOW()),
+(12, 'Índice de series por movimiento de ingreso', NOW());
+
 -- Insertar depósitos
 INSERT INTO depositos (ubicacion, capacidad) VALUES
 ('Buenos Aires', 1000),
@@ -147,24 +267,27 @@ BEGIN
   DECLARE stock_minimo INT;
   DECLARE final_stock INT;
 
-  -- Obtener valores actuales
-  SELECT p.stock_actual, p.stock_minimo
-  INTO stock_actual, stock_minimo
-  FROM productos p
-  WHERE p.codigo = NEW.producto_codigo;
+  -- Al restaurar un respaldo el stock y las alertas ya vienen restaurados (ver RespaldoBD)
+  IF @gametech_restauracion IS NULL THEN
+    -- Obtener valores actuales
+    SELECT p.stock_actual, p.stock_minimo
+    INTO stock_actual, stock_minimo
+    FROM productos p
+    WHERE p.codigo = NEW.producto_codigo;
 
-  -- Calcular cómo quedará el stock luego del movimiento
-  SET final_stock = stock_actual + NEW.cantidad;
+    -- Calcular cómo quedará el stock luego del movimiento
+    SET final_stock = stock_actual + NEW.cantidad;
 
-  -- Actualizar el stock
-  UPDATE productos
-  SET stock_actual = final_stock
-  WHERE codigo = NEW.producto_codigo;
+    -- Actualizar el stock
+    UPDATE productos
+    SET stock_actual = final_stock
+    WHERE codigo = NEW.producto_codigo;
 
-  -- Insertar alerta si el nuevo stock es menor al mínimo
-  IF final_stock < stock_minimo THEN
-    INSERT INTO alertas (tipo, producto_codigo, fecha_emision)
-    VALUES ('CRITICO', NEW.producto_codigo, NOW());
+    -- Insertar alerta si el nuevo stock es menor al mínimo
+    IF final_stock < stock_minimo THEN
+      INSERT INTO alertas (tipo, producto_codigo, fecha_emision)
+      VALUES ('CRITICO', NEW.producto_codigo, NOW());
+    END IF;
   END IF;
 END$$
 
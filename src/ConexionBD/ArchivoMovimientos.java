@@ -0,0 +1,576 @@
+package ConexionBD;
+
+import gametechstock.Configuracion;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import monitoreo.EventoBD;
+
+/**
+ * Archivo "frío" de movimientos antiguos.
+ * Los movimientos más viejos que un horizonte configurable se mueven de la tabla movimientos
+ * a archivos locales comprimidos e inmutables (segmentos), uno por mes. Un índice guarda el
+ * rango de ids y fechas de cada segmento para poder saltear los que no interesan.
+ *
+ * Siempre se archiva un prefijo de ids: todo movimiento con id menor o igual al último id
+ * archivado está en los segmentos, y el resto sigue en la base de datos. Así las consultas
+ * combinan ambas fuentes sin duplicar filas.
+ *
+ * Las sumas archivadas por producto se acumulan en la tabla movimientos_archivados, de modo que
+ * la suma de movimientos (activos + archivados) sigue conciliando con productos.stock_actual.
+ */
+public class ArchivoMovimientos {
+
+    // Marca al inicio de cada segmento y versión del formato (la 2 agrega el costo unitario;
+    // los segmentos de la versión 1 se siguen leyendo, sin costo)
+    private static final int MAGIA = 0x47534547; // "GSEG"
+    private static final int VERSION = 2;
+
+    // Archivo de índice dentro del directorio de segmentos
+    private static final String INDICE = "segmentos.idx";
+
+    /**
+     * Datos de un segmento según el índice.
+     */
+    public static class Segmento {
+        final String archivo;
+        final long minId, maxId;
+        final long minSegundos, maxSegundos;
+        final int filas;
+
+        Segmento(String archivo, long minId, long maxId, long minSegundos, long maxSegundos, int filas) {
+            this.archivo = archivo;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.minSegundos = minSegundos;
+            this.maxSegundos = maxSegundos;
+            this.filas = filas;
+        }
+
+        public String getArchivo() { return archivo; }
+
+        public int getFilas() { return filas; }
+
+        public LocalDateTime getDesde() { return LocalDateTime.ofEpochSecond(minSegundos, 0, ZoneOffset.UTC); }
+
+        public LocalDateTime getHasta() { return LocalDateTime.ofEpochSecond(maxSegundos, 0, ZoneOffset.UTC); }
+    }
+
+    /**
+     * Devuelve el directorio donde se guardan los segmentos (clave archivo.directorio).
+     * @return directorio de segmentos
+     */
+    public static File getDirectorio() {
+        return new File(Configuracion.get("archivo.directorio", "archivo"));
+    }
+
+    /**
+     * Lee el índice de segmentos.
+     * @return segmentos ordenados por id
+     * @throws IOException si el índice no se puede leer
+     */
+    public static synchronized List<Segmento> leerIndice() throws IOException {
+        List<Segmento> lista = new ArrayList<>();
+        File indice = new File(getDirectorio(), INDICE);
+        if (!indice.isFile()) return lista;
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(indice), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                if (linea.isBlank() || linea.startsWith("#")) continue;
+                String[] c = linea.split(";");
+                lista.add(new Segmento(c[0], Long.parseLong(c[1]), Long.parseLong(c[2]),
+                        Long.parseLong(c[3]), Long.parseLong(c[4]), Integer.parseInt(c[5])));
+            }
+        }
+        lista.sort(Comparator.comparingLong(s -> s.minId));
+        return lista;
+    }
+
+    /**
+     * Devuelve el mayor id archivado (0 si todavía no se archivó nada).
+     * Los movimientos con id mayor a este valor están en la base de datos.
+     * @return último id archivado
+     */
+    public static long ultimoIdArchivado() {
+        long max = 0;
+        try {
+            for (Segmento s : leerIndice()) max = Math.max(max, s.maxId);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return max;
+    }
+
+    /**
+     * Recorre los movimientos archivados dentro de un rango de fechas.
+     * Solo se abren los segmentos cuyo rango de fechas se cruza con el pedido.
+     * @param desde fecha mínima inclusive (null = sin límite)
+     * @param hasta fecha máxima exclusiva (null = sin límite)
+     * @param consumidor acción a ejecutar por cada movimiento
+     * @throws IOException si un segmento no se puede leer
+     */
+    public static void recorrer(LocalDateTime desde, LocalDateTime hasta, Consumer<RegistroMovimiento> consumidor) throws IOException {
+        long min = desde == null ? Long.MIN_VALUE : desde.toEpochSecond(ZoneOffset.UTC);
+        long max = hasta == null ? Long.MAX_VALUE : hasta.toEpochSecond(ZoneOffset.UTC);
+
+        for (Segmento s : leerIndice()) {
+            if (s.maxSegundos < min || s.minSegundos >= max) continue; // El segmento queda fuera del rango
+
+            try (LectorSegmento in = abrir(new File(getDirectorio(), s.archivo))) {
+                while (in.readBoolean()) {
+                    RegistroMovimiento r = leerFila(in);
+                    long seg = r.fecha().toEpochSecond(ZoneOffset.UTC);
+                    if (seg >= min && seg < max) consumidor.accept(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recorre los movimientos archivados con id mayor al indicado.
+     * Solo se abren los segmentos que contienen ids posteriores.
+     * @param idMinimo se entregan los movimientos con id mayor a este valor
+     * @param consumidor acción a ejecutar por cada movimiento
+     * @throws IOException si un segmento no se puede leer
+     */
+    public static void recorrerDesdeId(long idMinimo, Consumer<RegistroMovimiento> consumidor) throws IOException {
+        for (Segmento s : leerIndice()) {
+            if (s.maxId <= idMinimo) continue; // Todo el segmento es anterior
+
+            try (LectorSegmento in = abrir(new File(getDirectorio(), s.archivo))) {
+                while (in.readBoolean()) {
+                    RegistroMovimiento r = leerFila(in);
+                    if (r.id() > idMinimo) consumidor.accept(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Archiva los movimientos anteriores al horizonte indicado.
+     * 1) dentro de una instantánea consistente elige el último id a archivar y lee las filas,
+     * 2) escribe los segmentos y los verifica releyéndolos,
+     * 3) en una transacción bloquea el rango de ids y comprueba que sigue teniendo exactamente las
+     *    filas archivadas (otra terminal pudo confirmar un movimiento con un id del rango después de
+     *    la lectura); recién entonces agrega los segmentos al índice, acumula los totales por
+     *    producto y borra las filas.
+     *
+     * @param horizonteDias antigüedad mínima (en días) de los movimientos a archivar
+     * @return resumen de lo archivado
+     * @throws Exception si ocurre un error (las filas solo se borran si los segmentos quedaron verificados)
+     */
+    public static synchronized String archivar(int horizonteDias) throws Exception {
+        File dir = getDirectorio();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear el directorio " + dir.getAbsolutePath());
+        }
+
+        long desde = ultimoIdArchivado();
+        LocalDateTime limite = LocalDateTime.now().minusDays(horizonteDias);
+
+        try (EventoBD evento = EventoBD.iniciar("ArchivoMovimientos.archivar");
+             Connection conn = ConexionBD.obtenerConexion()) {
+            // Si una ejecución anterior escribió los segmentos pero no llegó a borrar las filas, se completa ahora
+            int rezagados = completarPendiente(conn, desde);
+
+            // 1) Corte y lectura dentro de la misma instantánea
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            }
+
+            // Último id a archivar: el mayor id con fecha anterior al horizonte
+            long corte = 0;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT MAX(id) FROM movimientos WHERE id > ? AND fecha < ?")) {
+                ps.setLong(1, desde);
+                ps.setTimestamp(2, Timestamp.valueOf(limite));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) corte = rs.getLong(1);
+                }
+            }
+            if (corte == 0) {
+                conn.commit();
+                conn.setAutoCommit(true);
+                evento.filas = rezagados;
+                return "No hay movimientos anteriores al " + limite.toLocalDate() + " para archivar."
+                        + (rezagados > 0 ? "\nSe archivaron " + rezagados + " movimientos rezagados de una ejecución anterior." : "");
+            }
+
+            // 2) Escritura de segmentos (uno por mes), acumulando totales por producto
+            Map<String, EscritorSegmento> escritores = new TreeMap<>();
+            Map<String, long[]> totales = new HashMap<>(); // codigo -> {suma, filas}
+            int filas = 0;
+            long suma = 0;
+
+            List<Segmento> nuevos = new ArrayList<>();
+            boolean indexados = false;
+            try {
+                String sql = "SELECT id, tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario " +
+                             "FROM movimientos WHERE id > ? AND id <= ? ORDER BY id";
+                try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(Integer.MIN_VALUE); // Lectura fila por fila
+                    ps.setLong(1, desde);
+                    ps.setLong(2, corte);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            RegistroMovimiento r = new RegistroMovimiento(rs.getLong(1), rs.getString(2),
+                                    rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4), rs.getString(5),
+                                    rs.getString(6), rs.getInt(7), rs.getBigDecimal(8));
+
+                            String mes = String.format("%04d-%02d", r.fecha().getYear(), r.fecha().getMonthValue());
+                            EscritorSegmento w = escritores.get(mes);
+                            if (w == null) {
+                                w = new EscritorSegmento(new File(dir, String.format("movimientos-%s-%010d.seg.gz", mes, r.id())));
+                                escritores.put(mes, w);
+                            }
+                            w.escribir(r);
+                            if (r.productoCodigo() != null) {
+                                long[] t = totales.computeIfAbsent(r.productoCodigo(), k -> new long[2]);
+                                t[0] += r.cantidad();
+                                t[1]++;
+                            }
+                            suma += r.cantidad();
+                            filas++;
+                        }
+                    }
+                }
+                conn.commit(); // Fin de la instantánea
+
+                // Cierre, sincronización a disco y verificación de cada segmento
+                for (EscritorSegmento w : escritores.values()) {
+                    nuevos.add(w.cerrar());
+                }
+                verificar(nuevos, totales);
+
+                // 3) El rango queda bloqueado hasta el commit: nadie puede confirmar filas nuevas en él
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT COUNT(*), COALESCE(SUM(cantidad), 0) FROM movimientos WHERE id > ? AND id <= ? FOR UPDATE")) {
+                    ps.setLong(1, desde);
+                    ps.setLong(2, corte);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        if (rs.getLong(1) != filas || rs.getLong(2) != suma) {
+                            throw new IOException("Se confirmaron movimientos en el rango mientras se archivaba; "
+                                    + "no se borró nada, vuelva a intentarlo.");
+                        }
+                    }
+                }
+
+                // Alta en el índice: desde este momento las filas se leen desde los segmentos
+                agregarAlIndice(nuevos);
+                indexados = true;
+
+                // Totales y borrado (el rango contiene exactamente las filas archivadas)
+                acumularTotales(conn, totales);
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM movimientos WHERE id > ? AND id <= ?")) {
+                    ps.setLong(1, desde);
+                    ps.setLong(2, corte);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                ConexionBD.registrarEscritura();
+                evento.filas = filas + rezagados;
+            } catch (Exception e) {
+                conn.rollback(); // Si los segmentos ya están en el índice, la próxima ejecución lo completa con completarPendiente
+                if (!indexados) {
+                    // Segmentos descartados: se borran para que el próximo intento pueda reescribirlos
+                    for (EscritorSegmento w : escritores.values()) w.descartar();
+                }
+                throw e;
+            }
+
+            // 4) Las particiones mensuales que quedaron vacías se eliminan (no afecta lo ya archivado)
+            int particiones = 0;
+            try {
+                conn.setAutoCommit(true);
+                particiones = MigracionesBD.eliminarParticionesVacias(conn, limite.toLocalDate());
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+
+            return "Se archivaron " + filas + " movimientos en " + nuevos.size() + " segmento(s) en " + dir.getAbsolutePath()
+                    + (rezagados > 0 ? "\nMovimientos rezagados de una ejecución anterior: " + rezagados : "")
+                    + (particiones > 0 ? "\nParticiones vacías eliminadas: " + particiones : "");
+        }
+    }
+
+    /**
+     * Completa una ejecución interrumpida: las filas con id menor o igual al último archivado que
+     * siguen en la base se borran si figuran en los segmentos. Las que no figuran (un movimiento
+     * confirmado tarde con un id ya archivado) se archivan antes en un segmento propio, así la
+     * base sigue teniendo solo ids posteriores al último archivado y ninguna fila se pierde.
+     * @return cantidad de filas rezagadas archivadas
+     */
+    private static int completarPendiente(Connection conn, long hastaId) throws Exception {
+        if (hastaId == 0) return 0;
+
+        conn.setAutoCommit(false);
+        Segmento extra = null;
+        EscritorSegmento escritor = null;
+        try {
+            // Filas pendientes, bloqueadas hasta el commit (normalmente ninguna)
+            List<RegistroMovimiento> pendientes = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT id, tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario " +
+                    "FROM movimientos WHERE id <= ? ORDER BY id FOR UPDATE")) {
+                ps.setLong(1, hastaId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        pendientes.add(new RegistroMovimiento(rs.getLong(1), rs.getString(2),
+                                rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4), rs.getString(5),
+                                rs.getString(6), rs.getInt(7), rs.getBigDecimal(8)));
+                    }
+                }
+            }
+            if (pendientes.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+
+            // Ids que ya están en los segmentos (solo se abren los que cubren el rango pendiente)
+            Set<Long> archivados = idsArchivados(pendientes.get(0).id(), pendientes.get(pendientes.size() - 1).id());
+
+            Map<String, long[]> totales = new HashMap<>();
+            Map<String, long[]> totalesRezagados = new HashMap<>();
+            for (RegistroMovimiento r : pendientes) {
+                boolean rezagado = !archivados.contains(r.id());
+                if (rezagado) {
+                    if (escritor == null) {
+                        escritor = new EscritorSegmento(new File(getDirectorio(), String.format("movimientos-rezagados-%010d.seg.gz", r.id())));
+                    }
+                    escritor.escribir(r);
+                }
+                if (r.productoCodigo() != null) {
+                    long[] t = totales.computeIfAbsent(r.productoCodigo(), k -> new long[2]);
+                    t[0] += r.cantidad();
+                    t[1]++;
+                    if (rezagado) {
+                        long[] tr = totalesRezagados.computeIfAbsent(r.productoCodigo(), k -> new long[2]);
+                        tr[0] += r.cantidad();
+                        tr[1]++;
+                    }
+                }
+            }
+            if (escritor != null) {
+                extra = escritor.cerrar();
+                verificar(List.of(extra), totalesRezagados);
+                agregarAlIndice(List.of(extra));
+                escritor = null; // Ya está en el índice: no se descarta
+            }
+
+            // Borrado de exactamente las filas que ahora están en los segmentos
+            acumularTotales(conn, totales);
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM movimientos WHERE id = ?")) {
+                for (RegistroMovimiento r : pendientes) {
+                    ps.setLong(1, r.id());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+            ConexionBD.registrarEscritura();
+            return extra != null ? extra.filas : 0;
+        } catch (Exception e) {
+            conn.rollback();
+            if (escritor != null) escritor.descartar();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Devuelve los ids archivados dentro de un rango, leyendo solo los segmentos que lo cubren.
+     */
+    private static Set<Long> idsArchivados(long minId, long maxId) throws IOException {
+        Set<Long> ids = new HashSet<>();
+        for (Segmento s : leerIndice()) {
+            if (s.maxId < minId || s.minId > maxId) continue;
+            try (LectorSegmento in = abrir(new File(getDirectorio(), s.archivo))) {
+                while (in.readBoolean()) {
+                    long id = leerFila(in).id();
+                    if (id >= minId && id <= maxId) ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Suma los totales archivados por producto en movimientos_archivados.
+     */
+    private static void acumularTotales(Connection conn, Map<String, long[]> totales) throws SQLException {
+        String sql = "INSERT INTO movimientos_archivados (producto_codigo, cantidad, movimientos) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), movimientos = movimientos + VALUES(movimientos)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, long[]> e : totales.entrySet()) {
+                ps.setString(1, e.getKey());
+                ps.setLong(2, e.getValue()[0]);
+                ps.setLong(3, e.getValue()[1]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Relee los segmentos recién escritos y compara filas y sumas por producto con lo leído de la base.
+     */
+    private static void verificar(List<Segmento> segmentos, Map<String, long[]> esperados) throws IOException {
+        Map<String, long[]> leidos = new HashMap<>();
+        for (Segmento s : segmentos) {
+            int filas = 0;
+            try (LectorSegmento in = abrir(new File(getDirectorio(), s.archivo))) {
+                while (in.readBoolean()) {
+                    RegistroMovimiento r = leerFila(in);
+                    if (r.productoCodigo() != null) {
+                        long[] t = leidos.computeIfAbsent(r.productoCodigo(), k -> new long[2]);
+                        t[0] += r.cantidad();
+                        t[1]++;
+                    }
+                    filas++;
+                }
+            }
+            if (filas != s.filas) {
+                throw new IOException("El segmento " + s.archivo + " no contiene las filas esperadas.");
+            }
+        }
+        for (Map.Entry<String, long[]> e : esperados.entrySet()) {
+            long[] t = leidos.get(e.getKey());
+            if (t == null || t[0] != e.getValue()[0] || t[1] != e.getValue()[1]) {
+                throw new IOException("Los totales archivados de " + e.getKey() + " no coinciden con la base de datos.");
+            }
+        }
+    }
+
+    /**
+     * Agrega los segmentos al índice y lo sincroniza a disco.
+     */
+    private static synchronized void agregarAlIndice(List<Segmento> segmentos) throws IOException {
+        File indice = new File(getDirectorio(), INDICE);
+        try (FileOutputStream fos = new FileOutputStream(indice, true);
+             Writer w = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+            for (Segmento s : segmentos) {
+                w.write(s.archivo + ";" + s.minId + ";" + s.maxId + ";" + s.minSegundos + ";" + s.maxSegundos + ";" + s.filas + "\n");
+            }
+            w.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    /**
+     * Segmento abierto para lectura, con la versión de formato leída del encabezado.
+     */
+    private static class LectorSegmento extends DataInputStream {
+        final int version;
+
+        LectorSegmento(InputStream in, int version) {
+            super(in);
+            this.version = version;
+        }
+    }
+
+    /**
+     * Abre un segmento para lectura y valida su encabezado.
+     */
+    private static LectorSegmento abrir(File archivo) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(archivo), 1 << 16)));
+        int version = in.readInt() == MAGIA ? in.readInt() : -1;
+        if (version < 1 || version > VERSION) {
+            in.close();
+            throw new IOException("Formato de segmento inválido: " + archivo.getName());
+        }
+        return new LectorSegmento(in, version);
+    }
+
+    /**
+     * Lee una fila del segmento (el indicador de fila ya fue leído).
+     */
+    private static RegistroMovimiento leerFila(LectorSegmento in) throws IOException {
+        long id = in.readLong();
+        String tipo = in.readUTF();
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+        int cantidad = in.readInt();
+        String justificacion = in.readBoolean() ? in.readUTF() : null;
+        String codigo = in.readBoolean() ? in.readUTF() : null;
+        int usuarioId = in.readInt();
+        BigDecimal costo = in.version >= 2 && in.readBoolean() ? BigDecimal.valueOf(in.readLong(), in.readInt()) : null;
+        return new RegistroMovimiento(id, tipo, fecha, cantidad, justificacion, codigo, usuarioId, costo);
+    }
+
+    /**
+     * Escritor de un segmento nuevo. Cada fila va precedida por 'true' y el segmento termina con 'false'.
+     */
+    private static class EscritorSegmento {
+        private final File archivo;
+        private final FileOutputStream fos;
+        private final GZIPOutputStream gzip;
+        private final DataOutputStream out;
+        private long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE;
+        private long minSeg = Long.MAX_VALUE, maxSeg = Long.MIN_VALUE;
+        private int filas;
+
+        EscritorSegmento(File archivo) throws IOException {
+            if (archivo.exists()) {
+                throw new IOException("El segmento ya existe: " + archivo.getName()); // Los segmentos son inmutables
+            }
+            this.archivo = archivo;
+            this.fos = new FileOutputStream(archivo);
+            this.gzip = new GZIPOutputStream(fos, 1 << 16);
+            this.out = new DataOutputStream(new BufferedOutputStream(gzip));
+            out.writeInt(MAGIA);
+            out.writeInt(VERSION);
+        }
+
+        void escribir(RegistroMovimiento r) throws IOException {
+            long seg = r.fecha().toEpochSecond(ZoneOffset.UTC);
+            out.writeBoolean(true);
+            out.writeLong(r.id());
+            out.writeUTF(r.tipo());
+            out.writeLong(seg);
+            out.writeInt(r.cantidad());
+            out.writeBoolean(r.justificacion() != null);
+            if (r.justificacion() != null) out.writeUTF(r.justificacion());
+            out.writeBoolean(r.productoCodigo() != null);
+            if (r.productoCodigo() != null) out.writeUTF(r.productoCodigo());
+            out.writeInt(r.usuarioId());
+            out.writeBoolean(r.costoUnitario() != null);
+            if (r.costoUnitario() != null) {
+                out.writeLong(r.costoUnitario().unscaledValue().longValueExact());
+                out.writeInt(r.costoUnitario().scale());
+            }
+
+            minId = Math.min(minId, r.id());
+            maxId = Math.max(maxId, r.id());
+            minSeg = Math.min(minSeg, seg);
+            maxSeg = Math.max(maxSeg, seg);
+            filas++;
+        }
+
+        Segmento cerrar() throws IOException {
+            out.writeBoolean(false);
+            out.flush();
+            gzip.finish();      // escribe el final del bloque comprimido
+            fos.getFD().sync(); // asegura que el segmento esté en disco antes de borrar filas
+            out.close();
+            return new Segmento(archivo.getName(), minId, maxId, minSeg, maxSeg, filas);
+        }
+
+        void descartar() {
+            try {
+                out.close();
+            } catch (IOException ignorada) {
+                // El archivo se borra igual
+            }
+            archivo.delete();
+        }
+    }
+}
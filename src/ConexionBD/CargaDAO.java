@@ -0,0 +1,239 @@
+package ConexionBD;
+
+import gametechstock.RolUsuario;
+import gametechstock.Usuario;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Consultas del generador de carga sintética (main.GeneradorCarga): alta de los productos y usuarios
+ * de prueba, lectura de su stock, contadores de bloqueos de InnoDB y limpieza final.
+ * Todos los datos de prueba se identifican por un prefijo en el código de producto y en el usuario,
+ * junto con la marca que pone sembrar() (categoría de los productos, nombre de los usuarios). El prefijo
+ * lo elige quien ejecuta el generador, así que nunca se usa en un LIKE (su '_' o '%' serían comodines
+ * y la intercalación no distingue mayúsculas): se leen las filas con la marca y el formato exacto
+ * (prefijo seguido de números) se comprueba en Java.
+ */
+public class CargaDAO {
+
+    // Marcas de los datos creados por sembrar()
+    private static final String CATEGORIA = "Carga sintética";
+    private static final String NOMBRE_USUARIO = "Terminal de carga ";
+
+    // Máximo de valores por cada IN (...) al borrar
+    private static final int LOTE_BORRADO = 500;
+
+    /**
+     * Crea los productos y usuarios de prueba que todavía no existan.
+     * Los productos se crean con stock 0: el stock inicial se carga después con un movimiento,
+     * así el stock sigue coincidiendo con la suma de los movimientos.
+     * @param prefijo prefijo de los códigos (ej: CARGA) y de los usuarios (carga-01, ...)
+     * @param productos cantidad de productos
+     * @param usuarios cantidad de usuarios
+     * @return códigos de los productos creados en esta llamada
+     * @throws SQLException si falla la inserción
+     */
+    public static List<String> sembrar(String prefijo, int productos, int usuarios) throws SQLException {
+        List<String> nuevos = new ArrayList<>();
+        try (Connection conn = ConexionBD.obtenerConexion()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT IGNORE INTO productos (codigo, nombre, categoria, stock_minimo, stock_actual, id_deposito) "
+                  + "VALUES (?, ?, ?, 0, 0, NULL)")) {
+                for (int i = 1; i <= productos; i++) {
+                    String codigo = codigoProducto(prefijo, i);
+                    ps.setString(1, codigo);
+                    ps.setString(2, "Producto de carga " + i);
+                    ps.setString(3, CATEGORIA);
+                    if (ps.executeUpdate() > 0) nuevos.add(codigo);
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT IGNORE INTO usuarios (nombre, rol, usuario, password_hash) VALUES (?, 'LOGISTICA', ?, SHA2(?, 256))")) {
+                for (int i = 1; i <= usuarios; i++) {
+                    ps.setString(1, NOMBRE_USUARIO + i);
+                    ps.setString(2, usuario(prefijo, i));
+                    ps.setString(3, prefijo + "-" + UUID.randomUUID()); // Clave al azar: no se usa para iniciar sesión
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        return nuevos;
+    }
+
+    /**
+     * Código del producto de prueba número i.
+     */
+    public static String codigoProducto(String prefijo, int i) {
+        return String.format("%s%05d", prefijo, i);
+    }
+
+    /**
+     * Nombre de usuario de la terminal de prueba número i.
+     */
+    public static String usuario(String prefijo, int i) {
+        return String.format("%s-%02d", prefijo.toLowerCase(), i);
+    }
+
+    /**
+     * Indica si un valor es el prefijo exacto seguido de al menos 'digitos' números
+     * (el formato de codigoProducto y de usuario).
+     */
+    private static boolean esDePrueba(String valor, String prefijo, int digitos) {
+        if (valor == null || !valor.startsWith(prefijo) || valor.length() < prefijo.length() + digitos) return false;
+        for (int i = prefijo.length(); i < valor.length(); i++) {
+            if (!Character.isDigit(valor.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve los usuarios de prueba (uno por terminal), en orden.
+     * @param prefijo prefijo de los usuarios
+     * @return usuarios de prueba
+     * @throws SQLException si falla la consulta
+     */
+    public static List<Usuario> usuarios(String prefijo) throws SQLException {
+        try (Connection conn = ConexionBD.obtenerConexion()) {
+            return usuariosDePrueba(conn, prefijo);
+        }
+    }
+
+    /**
+     * Devuelve el stock actual de los productos de prueba.
+     * @param prefijo prefijo de los códigos
+     * @return stock por código
+     * @throws SQLException si falla la consulta
+     */
+    public static Map<String, Integer> stockPorCodigo(String prefijo) throws SQLException {
+        Map<String, Integer> stock = new HashMap<>();
+        try (Connection conn = ConexionBD.obtenerConexion();
+             PreparedStatement ps = conn.prepareStatement("SELECT codigo, stock_actual FROM productos WHERE categoria = ?")) {
+            ps.setString(1, CATEGORIA);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (esDePrueba(rs.getString(1), prefijo, 5)) stock.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return stock;
+    }
+
+    /**
+     * Lee los contadores de bloqueos de InnoDB (esperas por bloqueo de fila y deadlocks).
+     * Son globales del servidor: para medir una corrida se restan los valores de antes y después.
+     * @return contador -> valor (los que no estén disponibles se omiten)
+     * @throws SQLException si falla la consulta
+     */
+    public static Map<String, Long> contadoresBloqueos() throws SQLException {
+        Map<String, Long> contadores = new LinkedHashMap<>();
+        try (Connection conn = ConexionBD.obtenerConexion();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS WHERE Variable_name IN "
+                    + "('Innodb_row_lock_waits', 'Innodb_row_lock_time', 'Innodb_row_lock_current_waits')")) {
+                while (rs.next()) contadores.put(rs.getString(1), rs.getLong(2));
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT NAME, COUNT FROM information_schema.INNODB_METRICS WHERE NAME IN ('lock_deadlocks', 'lock_timeouts')")) {
+                while (rs.next()) contadores.put(rs.getString(1), rs.getLong(2));
+            } catch (SQLException e) {
+                // Sin permiso sobre information_schema.INNODB_METRICS: se informa solo lo anterior
+            }
+        }
+        return contadores;
+    }
+
+    /**
+     * Usuarios creados por sembrar() con este prefijo, en orden.
+     */
+    private static List<Usuario> usuariosDePrueba(Connection conn, String prefijo) throws SQLException {
+        List<Usuario> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, nombre, usuario, password_hash, rol FROM usuarios WHERE rol = 'LOGISTICA' ORDER BY usuario")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String nombre = rs.getString(2);
+                    if (nombre == null || !nombre.startsWith(NOMBRE_USUARIO)) continue;
+                    if (!esDePrueba(rs.getString(3), prefijo.toLowerCase() + "-", 2)) continue;
+                    lista.add(new Usuario(rs.getInt(1), nombre, rs.getString(3), rs.getString(4),
+                            RolUsuario.valueOf(rs.getString(5))));
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Códigos de los productos creados por sembrar() con este prefijo (categoría de carga y formato exacto).
+     */
+    private static List<String> codigosDePrueba(Connection conn, String prefijo) throws SQLException {
+        List<String> codigos = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT codigo FROM productos WHERE categoria = ?")) {
+            ps.setString(1, CATEGORIA);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (esDePrueba(rs.getString(1), prefijo, 5)) codigos.add(rs.getString(1));
+                }
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Borra los datos de prueba de este prefijo: solo los productos y usuarios creados por sembrar()
+     * y, de esos productos, los movimientos (con sus ids de cliente), alertas, series, reservas y
+     * totales archivados. Todo en una transacción.
+     * @param prefijo prefijo de los datos de prueba
+     * @return resumen de lo borrado
+     * @throws SQLException si falla el borrado (no se borra nada)
+     */
+    public static String limpiar(String prefijo) throws SQLException {
+        try (Connection conn = ConexionBD.obtenerConexion()) {
+            conn.setAutoCommit(false);
+            int movimientos, alertas, series, reservas, productos, usuarios;
+            try {
+                List<String> codigos = codigosDePrueba(conn, prefijo);
+                List<Integer> ids = new ArrayList<>();
+                for (Usuario u : usuariosDePrueba(conn, prefijo)) ids.add(u.getId());
+
+                // Los ids de cliente se borran antes que los movimientos a los que apuntan
+                borrar(conn, "DELETE mi FROM movimientos_ids mi JOIN movimientos m ON m.id = mi.movimiento_id "
+                        + "WHERE m.producto_codigo IN (%s)", codigos);
+                movimientos = borrar(conn, "DELETE FROM movimientos WHERE producto_codigo IN (%s)", codigos);
+                alertas = borrar(conn, "DELETE FROM alertas WHERE producto_codigo IN (%s)", codigos);
+                series = borrar(conn, "DELETE FROM series WHERE producto_codigo IN (%s)", codigos);
+                reservas = borrar(conn, "DELETE FROM reservas WHERE producto_codigo IN (%s)", codigos);
+                borrar(conn, "DELETE FROM movimientos_archivados WHERE producto_codigo IN (%s)", codigos);
+                productos = borrar(conn, "DELETE FROM productos WHERE codigo IN (%s)", codigos);
+                usuarios = borrar(conn, "DELETE FROM usuarios WHERE id IN (%s)", ids);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            return "Borrados: " + movimientos + " movimientos, " + alertas + " alertas, " + series + " series, "
+                    + reservas + " reservas, " + productos + " productos y " + usuarios + " usuarios de prueba.";
+        }
+    }
+
+    /**
+     * Ejecuta un borrado con IN (...) por lotes de valores exactos.
+     * @param sql sentencia con %s en el lugar de la lista de parámetros
+     * @return filas borradas
+     */
+    private static int borrar(Connection conn, String sql, List<?> valores) throws SQLException {
+        int borradas = 0;
+        for (int desde = 0; desde < valores.size(); desde += LOTE_BORRADO) {
+            List<?> lote = valores.subList(desde, Math.min(valores.size(), desde + LOTE_BORRADO));
+            String marcas = String.join(",", Collections.nCopies(lote.size(), "?"));
+            try (PreparedStatement ps = conn.prepareStatement(String.format(sql, marcas))) {
+                for (int i = 0; i < lote.size(); i++) ps.setObject(i + 1, lote.get(i));
+                borradas += ps.executeUpdate();
+            }
+        }
+        return borradas;
+    }
+}
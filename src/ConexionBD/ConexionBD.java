@@ -1,20 +1,224 @@
 package ConexionBD;
 
+import gametechstock.Configuracion;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import monitoreo.EventoBD;
 
+/**
+ * Conexiones a la base de datos.
+ * Las escrituras (y las lecturas que necesitan el dato más reciente, como la sincronización) usan
+ * el servidor primario. Las lecturas pesadas (carga inicial, exportaciones, informes) pueden ir a una
+ * réplica de solo lectura configurada con bd.replica.url, para no competir con los movimientos de las
+ * terminales. Se vuelve al primario si la réplica no responde, si está más atrasada de lo que tolera
+ * ese tipo de lectura o si esta terminal escribió hace menos tiempo que el atraso de la réplica
+ * (así siempre lee lo que acaba de guardar).
+ */
 public class ConexionBD {
-    private static final String URL = "jdbc:mysql://localhost:3306/gametech_db";
+    private static final String URL = "jdbc:mysql://localhost:3306/gametech_db?rewriteBatchedStatements=true"; // permite inserciones por lotes en una sola sentencia
     private static final String USER = "root";//usuario del server SQL
     private static final String PASSWORD = "";//colocar clave propia
 
+    /**
+     * Tipos de lectura que pueden ir a la réplica y el atraso máximo que toleran (en segundos,
+     * configurable con bd.replica.tolerancia.carga, .exportacion y .reporte).
+     */
+    public enum Lectura {
+        CARGA_INICIAL("carga", 30),     // Lo que falte lo completa la sincronización con el primario
+        EXPORTACION("exportacion", 300),
+        REPORTE("reporte", 60);
+
+        private final int tolerancia;
+
+        Lectura(String clave, int porDefecto) {
+            this.tolerancia = Configuracion.getInt("bd.replica.tolerancia." + clave, porDefecto);
+        }
+
+        public int getTolerancia() {
+            return tolerancia;
+        }
+    }
+
+    // Réplica de lectura (vacío = no hay réplica y todo va al primario)
+    private static final String URL_REPLICA = Configuracion.get("bd.replica.url", "");
+    private static final String USER_REPLICA = Configuracion.get("bd.replica.usuario", USER);
+    private static final String PASSWORD_REPLICA = Configuracion.get("bd.replica.clave", PASSWORD);
+
+    // Segundos sin intentar la réplica después de una falla de conexión; se duplica con cada falla
+    // seguida hasta el máximo, y vuelve al mínimo cuando la réplica responde
+    private static final int ESPERA_REPLICA_CAIDA = 30;
+    private static final int ESPERA_REPLICA_MAXIMA = 600;
+
+    // Segundos mínimos entre avisos de fallas seguidas de la réplica (la primera falla siempre se informa)
+    private static final int AVISO_REPLICA_CADA = 600;
+
+    // Fallas seguidas de la réplica y momento (System.nanoTime) del último aviso
+    private static volatile int fallasReplica;
+    private static long ultimoAvisoReplica;
+
+    // Atraso de la réplica en segundos (-1 = desconocido o replicación detenida) y cuándo se midió
+    private static volatile int atrasoReplica = -1;
+    private static volatile long atrasoMedidoEn = System.nanoTime() - 2_000_000_000L;
+
+    // Momento (System.nanoTime) hasta el que no se usa la réplica por una falla
+    private static volatile long replicaCaidaHasta;
+
+    // Momento de la última escritura de esta terminal (0 = todavía no escribió)
+    private static volatile long ultimaEscritura;
+
     public static Connection obtenerConexion() throws SQLException {
+        // Cada operación abre su conexión: el evento muestra cuánto tarda conectarse al servidor
+        try (EventoBD evento = EventoBD.iniciar("ConexionBD.obtenerConexion")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.out.println("No se encontró el driver de MySQL.");
+            }
+            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+            evento.filas = 0;
+            return conn;
+        }
+    }
+
+    /**
+     * Devuelve una conexión para una lectura que tolera datos algo atrasados: la réplica si está
+     * configurada, disponible y al día según el tipo de lectura; si no, el primario.
+     * @param tipo tipo de lectura (define el atraso tolerado)
+     * @return conexión de solo lectura a la réplica, o conexión al primario
+     * @throws SQLException si tampoco se pudo conectar al primario
+     */
+    public static Connection obtenerConexionLectura(Lectura tipo) throws SQLException {
+        if (URL_REPLICA.isEmpty() || System.nanoTime() < replicaCaidaHasta) {
+            return obtenerConexion();
+        }
+
+        Connection conn = null;
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.out.println("No se encontró el driver de MySQL.");
+            conn = conectarReplica();
+            int atraso = atraso(conn);
+            if (fallasReplica > 0) replicaDisponible();
+            if (atraso >= 0 && atraso <= tipo.getTolerancia() && !escribioHace(atraso + 1)) {
+                return conn;
+            }
+            conn.close(); // Atrasada, detenida o sin lo que esta terminal acaba de guardar
+        } catch (SQLException e) {
+            replicaFallo(e);
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ignorada) {
+                    // La conexión ya no sirve
+                }
+            }
+        }
+        return obtenerConexion();
+    }
+
+    /**
+     * Registra una falla de la réplica: deja de usarla por un tiempo que crece con cada falla seguida
+     * e informa el error (la primera falla con su traza; las siguientes, como mucho una vez cada
+     * AVISO_REPLICA_CADA segundos, para no llenar la salida mientras la réplica sigue caída).
+     */
+    private static synchronized void replicaFallo(SQLException e) {
+        long ahora = System.nanoTime();
+        fallasReplica++;
+        long espera = Math.min((long) ESPERA_REPLICA_CAIDA << Math.min(fallasReplica - 1, 20), ESPERA_REPLICA_MAXIMA);
+        replicaCaidaHasta = ahora + espera * 1_000_000_000L;
+
+        if (fallasReplica == 1) {
+            System.err.println("Réplica de lectura no disponible, se usa el primario durante " + espera + " s");
+            e.printStackTrace();
+            ultimoAvisoReplica = ahora;
+        } else if (ahora - ultimoAvisoReplica >= AVISO_REPLICA_CADA * 1_000_000_000L) {
+            System.err.println("Réplica de lectura sigue sin responder (" + fallasReplica + " fallas seguidas, próximo intento en "
+                    + espera + " s): " + e.getMessage());
+            ultimoAvisoReplica = ahora;
+        }
+    }
+
+    /**
+     * Registra que la réplica respondió: la próxima falla vuelve a la espera mínima y se informa.
+     */
+    private static synchronized void replicaDisponible() {
+        if (fallasReplica > 0) {
+            System.err.println("Réplica de lectura disponible de nuevo después de " + fallasReplica + " fallas");
+            fallasReplica = 0;
+        }
+    }
+
+    /**
+     * Registra que esta terminal acaba de escribir: sus próximas lecturas van al primario
+     * hasta que la réplica alcance esa escritura.
+     */
+    public static void registrarEscritura() {
+        ultimaEscritura = System.nanoTime();
+    }
+
+    /**
+     * Indica si hay una réplica de lectura configurada.
+     */
+    public static boolean hayReplica() {
+        return !URL_REPLICA.isEmpty();
+    }
+
+    /**
+     * Indica si esta terminal escribió en los últimos segundos indicados.
+     */
+    private static boolean escribioHace(int segundos) {
+        long ultima = ultimaEscritura;
+        return ultima != 0 && System.nanoTime() - ultima < segundos * 1_000_000_000L;
+    }
+
+    /**
+     * Abre una conexión de solo lectura a la réplica (con tiempo de conexión corto para no demorar el fallback).
+     */
+    private static Connection conectarReplica() throws SQLException {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("user", USER_REPLICA);
+        propiedades.setProperty("password", PASSWORD_REPLICA);
+        propiedades.setProperty("connectTimeout", "2000");
+        try (EventoBD evento = EventoBD.iniciar("ConexionBD.conectarReplica")) {
+            Connection conn = DriverManager.getConnection(URL_REPLICA, propiedades);
+            conn.setReadOnly(true);
+            evento.filas = 0;
+            return conn;
+        }
+    }
+
+    /**
+     * Atraso de la réplica en segundos, medido como mucho una vez por segundo.
+     * @return segundos de atraso, o -1 si la replicación está detenida
+     */
+    private static int atraso(Connection conn) throws SQLException {
+        long ahora = System.nanoTime();
+        if (ahora - atrasoMedidoEn < 1_000_000_000L) return atrasoReplica;
+
+        int medido;
+        try (Statement stmt = conn.createStatement()) {
+            // SHOW REPLICA STATUS existe desde MySQL 8.0.22; antes, SHOW SLAVE STATUS
+            String columna = "Seconds_Behind_Source";
+            ResultSet rs;
+            try {
+                rs = stmt.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                rs = stmt.executeQuery("SHOW SLAVE STATUS");
+                columna = "Seconds_Behind_Master";
+            }
+            try (ResultSet estado = rs) {
+                if (!estado.next()) {
+                    medido = 0; // No es una réplica (ej: mismo servidor para pruebas): siempre al día
+                } else {
+                    medido = estado.getInt(columna);
+                    if (estado.wasNull()) medido = -1; // Hilos de replicación detenidos
+                }
+            }
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        atrasoReplica = medido;
+        atrasoMedidoEn = ahora;
+        return medido;
     }
 }
@@ -0,0 +1,335 @@
+package ConexionBD;
+
+import gametechstock.Configuracion;
+import gametechstock.DiarioAuditoria;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import monitoreo.EventoExportacion;
+
+/**
+ * Exportación incremental (delta) para los sistemas externos (e-commerce, contabilidad).
+ * En lugar de regenerar productos.csv y movimientos.csv completos, cada exportación escribe
+ * solo los movimientos nuevos y los productos modificados desde la exportación anterior, en
+ * archivos con fecha y hora dentro del directorio configurado (exportacion.directorio).
+ *
+ * Las marcas de agua (último id de movimiento y última modificación de productos exportados)
+ * se guardan en el archivo "exportacion.estado" del mismo directorio, y se actualizan recién
+ * después de escribir los CSV: si la exportación se corta, la próxima vuelve a exportar el mismo delta.
+ * Los ids de movimientos salteados por debajo de la marca (transacciones que todavía no confirmaron)
+ * también se guardan ahí, y se vuelven a buscar en las exportaciones siguientes hasta que aparecen o
+ * vence su espera (exportacion.esperaHuecoSegundos), como hace SincronizadorStock con sus huecos.
+ *
+ * No usa ventanas ni diálogos, así que se puede ejecutar sin interfaz gráfica.
+ */
+public class ExportacionIncremental {
+
+    // Archivo con las marcas de agua de la última exportación
+    private static final String ESTADO = "exportacion.estado";
+
+    // Máximo de ids salteados pendientes (una ráfaga grande de rollbacks no llena el estado)
+    private static final int MAX_HUECOS = 1000;
+
+    // Formato de fecha y hora usado en el nombre de los archivos generados
+    private static final DateTimeFormatter SELLO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Devuelve el directorio donde se escriben las exportaciones (clave exportacion.directorio).
+     * @return directorio de exportación
+     */
+    public static File getDirectorio() {
+        return new File(Configuracion.get("exportacion.directorio", "exportacion"));
+    }
+
+    /**
+     * Exporta los movimientos nuevos y los productos modificados desde la última exportación.
+     * Solo se exportan cambios con una antigüedad mínima de exportacion.margenSegundos (5 por defecto),
+     * para no saltear transacciones que todavía no se confirmaron cuando se leyó la marca.
+     *
+     * @return resumen de lo exportado
+     * @throws Exception si no se pudo leer la base de datos o escribir los archivos
+     */
+    public static synchronized String exportar() throws Exception {
+        File dir = getDirectorio();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear el directorio " + dir.getAbsolutePath());
+        }
+
+        Properties estado = leerEstado(dir);
+        long ultimoId = Long.parseLong(estado.getProperty("ultimoMovimiento", "0"));
+        Timestamp ultimaModificacion = Timestamp.valueOf(estado.getProperty("ultimaModificacionProductos", "1970-01-01 00:00:00"));
+        int margen = Configuracion.getInt("exportacion.margenSegundos", 5);
+        TreeMap<Long, Long> huecos = leerHuecos(estado.getProperty("huecosMovimientos", ""));
+
+        String sello = LocalDateTime.now().format(SELLO);
+        File archivoMovimientos = new File(dir, "movimientos-" + sello + ".csv");
+        File archivoProductos = new File(dir, "productos-" + sello + ".csv");
+
+        long nuevoUltimoId;
+        int filasProductos;
+        Timestamp limite;
+        try (Connection conn = ConexionBD.obtenerConexion()) {
+            // Límite superior común a las dos consultas, calculado con el reloj de la base
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT NOW(3) - INTERVAL ? SECOND")) {
+                stmt.setInt(1, margen);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    limite = rs.getTimestamp(1);
+                }
+            }
+
+            nuevoUltimoId = exportarMovimientos(conn, ultimoId, huecos, limite, archivoMovimientos);
+            filasProductos = exportarProductos(conn, ultimaModificacion, limite, archivoProductos);
+        }
+
+        // Las marcas se guardan solo cuando los dos archivos ya están completos
+        estado.setProperty("ultimoMovimiento", String.valueOf(nuevoUltimoId));
+        estado.setProperty("huecosMovimientos", escribirHuecos(huecos));
+        estado.setProperty("ultimaModificacionProductos", limite.toString());
+        estado.setProperty("ultimaExportacion", sello);
+        guardarEstado(dir, estado);
+        DiarioAuditoria.registrarExportacion(dir.getAbsolutePath() + " (incremental " + sello + ", movimientos hasta id "
+                + nuevoUltimoId + ")", filasProductos);
+
+        return "Movimientos nuevos: " + (archivoMovimientos.isFile() ? archivoMovimientos.getName() : "ninguno")
+                + " (hasta id " + nuevoUltimoId + (huecos.isEmpty() ? "" : ", " + huecos.size() + " ids salteados pendientes")
+                + ")\nProductos modificados: " + filasProductos
+                + (filasProductos > 0 ? " (" + archivoProductos.getName() + ")" : "")
+                + "\nCarpeta: " + dir.getAbsolutePath();
+    }
+
+    /**
+     * Escribe los movimientos salteados que ya confirmaron y los de id mayor a la marca. Recorre la tabla
+     * por su clave primaria desde la marca, así el costo depende solo de la cantidad de movimientos nuevos.
+     * Actualiza los huecos: quita los exportados y los vencidos, y agrega los ids salteados en esta pasada.
+     * @return mayor id exportado (la marca anterior si no hubo movimientos nuevos)
+     */
+    private static long exportarMovimientos(Connection conn, long ultimoId, TreeMap<Long, Long> huecos, Timestamp limite,
+                                            File archivo) throws Exception {
+        Map<String, String> nombresProductos = new HashMap<>();
+        Map<Integer, String> nombresUsuarios = new HashMap<>();
+        List<RegistroMovimiento> filas = new ArrayList<>();
+
+        // Si se archivaron movimientos que todavía no se exportaron, se leen de los segmentos
+        if (ultimoId < ArchivoMovimientos.ultimoIdArchivado()) {
+            ArchivoMovimientos.recorrerDesdeId(ultimoId, filas::add);
+            filas.sort(Comparator.comparingLong(RegistroMovimiento::id));
+            cargarNombres(conn, nombresProductos, nombresUsuarios);
+        }
+
+        String sql = "SELECT m.id, m.tipo, m.fecha, m.cantidad, m.justificacion, m.producto_codigo, m.usuario_id, p.nombre, u.nombre "
+                   + "FROM movimientos m LEFT JOIN productos p ON p.codigo = m.producto_codigo "
+                   + "LEFT JOIN usuarios u ON u.id = m.usuario_id "
+                   + "WHERE m.id > ? AND m.fecha <= ? ORDER BY m.id";
+
+        long maximo = ultimoId;
+        long escritas = 0;
+        long esperaHueco = Configuracion.getInt("exportacion.esperaHuecoSegundos", 600) * 1000L;
+        File temporal = new File(archivo.getParentFile(), archivo.getName() + ".tmp");
+        try (EventoExportacion evento = EventoExportacion.iniciar("cambios-movimientos", temporal.getPath());
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temporal), StandardCharsets.UTF_8));
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            writer.println("Id,Fecha,Tipo,Cantidad,Justificacion,Codigo Producto,Nombre Producto,Usuario");
+            for (RegistroMovimiento r : filas) {
+                escribirMovimiento(writer, r.id(), r.fecha(), r.tipo(), r.cantidad(), r.justificacion(), r.productoCodigo(),
+                        nombresProductos.get(r.productoCodigo()), nombresUsuarios.get(r.usuarioId()));
+                maximo = Math.max(maximo, r.id());
+                escritas++;
+            }
+
+            // Huecos pendientes: se exportan los que confirmaron y se descartan los vencidos
+            if (!huecos.isEmpty()) {
+                escritas += exportarHuecos(conn, huecos, writer);
+                long ahora = System.currentTimeMillis();
+                huecos.values().removeIf(vence -> vence < ahora);
+            }
+
+            long desde = Math.max(ultimoId, ArchivoMovimientos.ultimoIdArchivado());
+            stmt.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
+            stmt.setLong(1, desde);
+            stmt.setTimestamp(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                long anterior = desde;
+                long vence = System.currentTimeMillis() + esperaHueco;
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    // Un id salteado puede ser de una transacción que confirma después de esta lectura
+                    for (long h = anterior + 1; h < id && huecos.size() < MAX_HUECOS; h++) huecos.put(h, vence);
+                    escribirMovimiento(writer, id, rs.getTimestamp(3).toLocalDateTime(), rs.getString(2), rs.getInt(4),
+                            rs.getString(5), rs.getString(6), rs.getString(8), rs.getString(9));
+                    anterior = id;
+                    maximo = id;
+                    escritas++;
+                }
+            }
+            if (writer.checkError()) throw new IOException("Error al escribir " + temporal.getName());
+            evento.filas = escritas;
+        }
+
+        return publicar(temporal, archivo, escritas > 0) ? maximo : ultimoId;
+    }
+
+    /**
+     * Escribe los movimientos salteados en exportaciones anteriores que ya están en la base y los
+     * quita de los huecos pendientes.
+     * @return cantidad de movimientos escritos
+     */
+    private static int exportarHuecos(Connection conn, TreeMap<Long, Long> huecos, PrintWriter writer) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT m.id, m.tipo, m.fecha, m.cantidad, m.justificacion, m.producto_codigo, p.nombre, u.nombre "
+                + "FROM movimientos m LEFT JOIN productos p ON p.codigo = m.producto_codigo "
+                + "LEFT JOIN usuarios u ON u.id = m.usuario_id WHERE m.id IN (");
+        for (int i = 0; i < huecos.size(); i++) sql.append(i == 0 ? "?" : ",?");
+        sql.append(") ORDER BY m.id");
+
+        int escritas = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (long id : huecos.keySet()) stmt.setLong(i++, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    escribirMovimiento(writer, id, rs.getTimestamp(3).toLocalDateTime(), rs.getString(2), rs.getInt(4),
+                            rs.getString(5), rs.getString(6), rs.getString(7), rs.getString(8));
+                    huecos.remove(id);
+                    escritas++;
+                }
+            }
+        }
+        return escritas;
+    }
+
+    /**
+     * Lee los huecos guardados en el estado ("id:vencimiento" separados por coma, vencimiento en milisegundos).
+     */
+    private static TreeMap<Long, Long> leerHuecos(String texto) {
+        TreeMap<Long, Long> huecos = new TreeMap<>();
+        for (String par : texto.split(",")) {
+            int separador = par.indexOf(':');
+            if (separador > 0) {
+                huecos.put(Long.parseLong(par.substring(0, separador).trim()), Long.parseLong(par.substring(separador + 1).trim()));
+            }
+        }
+        return huecos;
+    }
+
+    private static String escribirHuecos(TreeMap<Long, Long> huecos) {
+        StringBuilder texto = new StringBuilder();
+        huecos.forEach((id, vence) -> texto.append(texto.length() == 0 ? "" : ",").append(id).append(':').append(vence));
+        return texto.toString();
+    }
+
+    /**
+     * Escribe los productos modificados (stock, mínimos o datos) después de la marca.
+     * Usa el índice sobre productos.actualizado_en, que se actualiza solo en cada cambio
+     * (incluidos los que hace el trigger de movimientos).
+     * @return cantidad de productos exportados
+     */
+    private static int exportarProductos(Connection conn, Timestamp desde, Timestamp limite, File archivo) throws Exception {
+        String sql = "SELECT codigo, nombre, categoria, stock_minimo, stock_actual FROM productos "
+                   + "WHERE actualizado_en > ? AND actualizado_en <= ? ORDER BY actualizado_en, codigo";
+
+        int filas = 0;
+        File temporal = new File(archivo.getParentFile(), archivo.getName() + ".tmp");
+        try (EventoExportacion evento = EventoExportacion.iniciar("cambios-productos", temporal.getPath());
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temporal), StandardCharsets.UTF_8));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            // Mismas columnas que la exportación completa de productos
+            writer.println("Codigo,Nombre,Categoria,Stock Minimo,Stock Actual,Stock Crítico");
+            stmt.setTimestamp(1, desde);
+            stmt.setTimestamp(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int minimo = rs.getInt(4);
+                    int actual = rs.getInt(5);
+                    writer.printf("%s,%s,%s,%d,%d,%s%n", csv(rs.getString(1)), csv(rs.getString(2)), csv(rs.getString(3)),
+                            minimo, actual, actual < minimo ? "Sí" : "No");
+                    filas++;
+                }
+            }
+            if (writer.checkError()) throw new IOException("Error al escribir " + temporal.getName());
+            evento.filas = filas;
+        }
+
+        publicar(temporal, archivo, filas > 0);
+        return filas;
+    }
+
+    /**
+     * Escribe una fila del CSV de movimientos (la cantidad conserva el signo de la base: egresos negativos).
+     */
+    private static void escribirMovimiento(PrintWriter writer, long id, LocalDateTime fecha, String tipo, int cantidad,
+                                           String justificacion, String codigo, String producto, String usuario) {
+        writer.printf("%d,%s,%s,%d,%s,%s,%s,%s%n", id, fecha, tipo, cantidad,
+                csv(justificacion), csv(codigo), csv(producto), csv(usuario));
+    }
+
+    /**
+     * Renombra el archivo temporal al nombre final, o lo borra si no tiene filas.
+     * @return true si el archivo quedó publicado
+     */
+    private static boolean publicar(File temporal, File archivo, boolean conFilas) throws IOException {
+        if (!conFilas) {
+            Files.deleteIfExists(temporal.toPath());
+            return false;
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Carga los nombres de productos y usuarios (solo se usa al exportar movimientos archivados).
+     */
+    private static void cargarNombres(Connection conn, Map<String, String> productos, Map<Integer, String> usuarios) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT codigo, nombre FROM productos")) {
+                while (rs.next()) productos.put(rs.getString(1), rs.getString(2));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, nombre FROM usuarios")) {
+                while (rs.next()) usuarios.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+
+    /**
+     * Escapa un valor para CSV (entre comillas si contiene comas, comillas o saltos de línea).
+     */
+    private static String csv(String valor) {
+        if (valor == null) return "";
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) return valor;
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Lee las marcas de agua guardadas (vacío si nunca se exportó).
+     */
+    private static Properties leerEstado(File dir) throws IOException {
+        Properties estado = new Properties();
+        File archivo = new File(dir, ESTADO);
+        if (archivo.isFile()) {
+            try (InputStream in = new FileInputStream(archivo)) {
+                estado.load(in);
+            }
+        }
+        return estado;
+    }
+
+    /**
+     * Guarda las marcas de agua reemplazando el archivo de forma atómica.
+     */
+    private static void guardarEstado(File dir, Properties estado) throws IOException {
+        File temporal = new File(dir, ESTADO + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temporal)) {
+            estado.store(fos, "Marcas de la exportación incremental");
+            fos.getFD().sync();
+        }
+        Files.move(temporal.toPath(), new File(dir, ESTADO).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,506 @@
+package ConexionBD;
+
+import gametechstock.Configuracion;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import monitoreo.EventoBD;
+
+/**
+ * Migraciones versionadas del esquema de la base de datos.
+ * Al iniciar la aplicación se aplican, en orden, las migraciones con versión mayor a la última
+ * registrada en la tabla schema_version. Cada paso verifica antes lo que ya existe, así que
+ * se puede repetir sin error si una ejecución anterior se cortó a mitad de camino (en MySQL
+ * los cambios de estructura no son transaccionales).
+ *
+ * También mantiene las particiones mensuales de movimientos y alertas: crea por adelantado las
+ * de los próximos meses (particiones.mesesAdelanto, 3 por defecto) y elimina las alertas más
+ * viejas que alertas.retencionMeses (0 = se conservan todas).
+ * Además depura los ids de cliente de movimientos (movimientos_ids) más viejos que
+ * movimientos.idsRetencionDias: solo hacen falta mientras un guardado se puede reintentar.
+ */
+public class MigracionesBD {
+
+    /**
+     * Paso de una migración.
+     */
+    private interface Paso {
+        void aplicar(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Migración con su número de versión.
+     */
+    private record Migracion(int version, String descripcion, Paso paso) {
+    }
+
+    // Migraciones en orden de versión (nunca se modifican las ya publicadas: se agregan nuevas)
+    private static final List<Migracion> MIGRACIONES = List.of(
+        new Migracion(1, "Tabla movimientos_archivados", MigracionesBD::tablaArchivados),
+        new Migracion(2, "Tabla remitos y columna movimientos.remito_id", MigracionesBD::remitos),
+        new Migracion(3, "Columna productos.actualizado_en", MigracionesBD::versionProductos),
+        new Migracion(4, "Índices por producto y fecha en movimientos y alertas", MigracionesBD::indicesFecha),
+        new Migracion(5, "Particionado mensual de movimientos y alertas", MigracionesBD::particionar),
+        new Migracion(6, "Columna movimientos.costo_unitario", MigracionesBD::costoUnitario),
+        new Migracion(7, "Tabla series", MigracionesBD::series),
+        new Migracion(8, "Tabla movimientos_ids", MigracionesBD::idsCliente),
+        new Migracion(9, "Trigger de movimientos omitido al restaurar respaldos", MigracionesBD::triggerRestauracion),
+        new Migracion(10, "Tabla reservas", MigracionesBD::reservas),
+        new Migracion(11, "Índice por producto en reservas", MigracionesBD::indiceReservas),
+        new Migracion(12, "Índice de series por movimiento de ingreso", MigracionesBD::indiceSeriesIngreso)
+    );
+
+    // Tablas particionadas por mes y su columna de fecha
+    private static final String[][] PARTICIONADAS = {
+        {"movimientos", "fecha"},
+        {"alertas", "fecha_emision"}
+    };
+
+    /**
+     * Aplica las migraciones pendientes y mantiene las particiones.
+     * Usa un bloqueo con nombre para que dos terminales que arrancan juntas no migren a la vez.
+     * @return descripción de las migraciones aplicadas (vacío si no había pendientes)
+     * @throws SQLException si una migración falla (las siguientes no se aplican)
+     */
+    public static String aplicar() throws SQLException {
+        StringBuilder aplicadas = new StringBuilder();
+
+        try (EventoBD evento = EventoBD.iniciar("MigracionesBD.aplicar");
+             Connection conn = ConexionBD.obtenerConexion()) {
+            if (!"1".equals(ejecutarEscalar(conn, "SELECT GET_LOCK('gametech_migraciones', 60)"))) {
+                throw new SQLException("Otra terminal está migrando la base de datos.");
+            }
+            try {
+                ejecutar(conn, "CREATE TABLE IF NOT EXISTS schema_version ("
+                        + "version INT NOT NULL PRIMARY KEY, "
+                        + "descripcion VARCHAR(200) NOT NULL, "
+                        + "aplicada_en DATETIME NOT NULL)");
+
+                int actual = Integer.parseInt(ejecutarEscalar(conn, "SELECT COALESCE(MAX(version), 0) FROM schema_version"));
+                for (Migracion m : MIGRACIONES) {
+                    if (m.version() <= actual) continue;
+
+                    m.paso().aplicar(conn);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, descripcion, aplicada_en) VALUES (?, ?, NOW())")) {
+                        ps.setInt(1, m.version());
+                        ps.setString(2, m.descripcion());
+                        ps.executeUpdate();
+                    }
+                    aplicadas.append("v").append(m.version()).append(": ").append(m.descripcion()).append('\n');
+                }
+
+                mantenerParticiones(conn);
+                depurarIdsCliente(conn);
+                evento.filas = aplicadas.chars().filter(c -> c == '\n').count(); // Migraciones aplicadas
+            } finally {
+                ejecutarEscalar(conn, "SELECT RELEASE_LOCK('gametech_migraciones')");
+            }
+        }
+        return aplicadas.toString();
+    }
+
+    // --- Migraciones ---
+
+    /**
+     * v1: totales de los movimientos archivados (ver ArchivoMovimientos).
+     */
+    private static void tablaArchivados(Connection conn) throws SQLException {
+        ejecutar(conn, "CREATE TABLE IF NOT EXISTS movimientos_archivados ("
+                + "producto_codigo VARCHAR(20) NOT NULL, "
+                + "cantidad BIGINT NOT NULL DEFAULT 0, "
+                + "movimientos BIGINT NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (producto_codigo), "
+                + "CONSTRAINT movimientos_archivados_ibfk_1 FOREIGN KEY (producto_codigo) REFERENCES productos (codigo))");
+    }
+
+    /**
+     * v2: cabecera de remitos y referencia desde cada movimiento.
+     * (La clave foránea de remito_id no se crea: movimientos queda particionada en la v5.)
+     */
+    private static void remitos(Connection conn) throws SQLException {
+        ejecutar(conn, "CREATE TABLE IF NOT EXISTS remitos ("
+                + "id INT NOT NULL AUTO_INCREMENT, "
+                + "tipo ENUM('INGRESO', 'EGRESO', 'AJUSTE') NOT NULL, "
+                + "numero VARCHAR(30) NOT NULL DEFAULT '', "
+                + "fecha DATETIME NOT NULL, "
+                + "observaciones TEXT NULL DEFAULT NULL, "
+                + "usuario_id INT NULL DEFAULT NULL, "
+                + "PRIMARY KEY (id), "
+                + "INDEX usuario_id (usuario_id), "
+                + "CONSTRAINT remitos_ibfk_1 FOREIGN KEY (usuario_id) REFERENCES usuarios (id))");
+        if (!existeColumna(conn, "movimientos", "remito_id")) {
+            ejecutar(conn, "ALTER TABLE movimientos ADD COLUMN remito_id INT NULL DEFAULT NULL, ADD INDEX remito_id (remito_id)");
+        }
+    }
+
+    /**
+     * v3: versión de cada producto, actualizada automáticamente en cada cambio.
+     */
+    private static void versionProductos(Connection conn) throws SQLException {
+        if (!existeColumna(conn, "productos", "actualizado_en")) {
+            ejecutar(conn, "ALTER TABLE productos ADD COLUMN actualizado_en TIMESTAMP(3) NOT NULL "
+                    + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+        }
+        if (!existeIndice(conn, "productos", "actualizado_en")) {
+            ejecutar(conn, "ALTER TABLE productos ADD INDEX actualizado_en (actualizado_en)");
+        }
+    }
+
+    /**
+     * v4: índices compuestos para las consultas por rango de fechas y por historial de un producto.
+     */
+    private static void indicesFecha(Connection conn) throws SQLException {
+        if (!existeIndice(conn, "movimientos", "producto_fecha")) {
+            ejecutar(conn, "ALTER TABLE movimientos ADD INDEX producto_fecha (producto_codigo, fecha)");
+        }
+        if (!existeIndice(conn, "movimientos", "fecha")) {
+            ejecutar(conn, "ALTER TABLE movimientos ADD INDEX fecha (fecha)");
+        }
+        if (!existeIndice(conn, "alertas", "producto_fecha")) {
+            ejecutar(conn, "ALTER TABLE alertas ADD INDEX producto_fecha (producto_codigo, fecha_emision)");
+        }
+    }
+
+    /**
+     * v6: costo unitario de los ingresos, para la valoración FIFO (ver gametechstock.ValuacionFIFO).
+     * Los movimientos anteriores quedan sin costo (NULL).
+     */
+    private static void costoUnitario(Connection conn) throws SQLException {
+        if (!existeColumna(conn, "movimientos", "costo_unitario")) {
+            ejecutar(conn, "ALTER TABLE movimientos ADD COLUMN costo_unitario DECIMAL(14,4) NULL DEFAULT NULL");
+        }
+    }
+
+    /**
+     * v7: números de serie de los productos de alto valor (ver gametechstock.RegistroSeries).
+     * Sin clave foránea a movimientos: la tabla está particionada y no la admite.
+     */
+    private static void series(Connection conn) throws SQLException {
+        ejecutar(conn, "CREATE TABLE IF NOT EXISTS series ("
+                + "numero VARCHAR(64) NOT NULL, "
+                + "producto_codigo VARCHAR(20) NOT NULL, "
+                + "en_stock TINYINT(1) NOT NULL, "
+                + "movimiento_ingreso INT NOT NULL, "
+                + "movimiento_egreso INT NULL DEFAULT NULL, "
+                + "PRIMARY KEY (numero), "
+                + "INDEX producto_stock (producto_codigo, en_stock), "
+                + "INDEX movimiento_egreso (movimiento_egreso))");
+    }
+
+    /**
+     * v8: ids generados por el cliente para guardar movimientos sin duplicarlos al reintentar (ver MovimientoDAO).
+     * Es una tabla aparte porque en movimientos, particionada por fecha, una clave única tendría que incluir la fecha.
+     */
+    private static void idsCliente(Connection conn) throws SQLException {
+        ejecutar(conn, "CREATE TABLE IF NOT EXISTS movimientos_ids ("
+                + "id_cliente BINARY(16) NOT NULL, "
+                + "movimiento_id INT NOT NULL, "
+                + "creado_en DATETIME NOT NULL, "
+                + "PRIMARY KEY (id_cliente), "
+                + "INDEX creado_en (creado_en))");
+    }
+
+    /**
+     * v10: reservas de stock con vencimiento (ver gametechstock.ReservasStock).
+     * Solo guarda las vigentes: se borran al despacharlas o liberarlas y las vencidas se purgan por el índice de vencimiento.
+     */
+    private static void reservas(Connection conn) throws SQLException {
+        ejecutar(conn, "CREATE TABLE IF NOT EXISTS reservas ("
+                + "id BIGINT NOT NULL AUTO_INCREMENT, "
+                + "producto_codigo VARCHAR(20) NOT NULL, "
+                + "cantidad INT NOT NULL, "
+                + "vence DATETIME NOT NULL, "
+                + "referencia VARCHAR(100) NULL DEFAULT NULL, "
+                + "usuario_id INT NULL DEFAULT NULL, "
+                + "PRIMARY KEY (id), "
+                + "INDEX vence (vence))");
+    }
+
+    /**
+     * v12: índice de series por movimiento de ingreso. La sincronización busca las series de los
+     * movimientos nuevos de otras terminales por su ingreso o su egreso (ver SincronizacionDAO.seriesDeMovimientos).
+     */
+    private static void indiceSeriesIngreso(Connection conn) throws SQLException {
+        if (!existeIndice(conn, "series", "movimiento_ingreso")) {
+            ejecutar(conn, "ALTER TABLE series ADD INDEX movimiento_ingreso (movimiento_ingreso)");
+        }
+    }
+
+    /**
+     * v11: índice por producto y vencimiento en reservas. Cada reserva y cada egreso suman las
+     * reservas vigentes del producto dentro de su transacción (ver ReservaDAO y MovimientoDAO).
+     */
+    private static void indiceReservas(Connection conn) throws SQLException {
+        if (!existeIndice(conn, "reservas", "producto_vence")) {
+            ejecutar(conn, "ALTER TABLE reservas ADD INDEX producto_vence (producto_codigo, vence)");
+        }
+    }
+
+    /**
+     * v9: el trigger de movimientos no actualiza el stock ni genera alertas en la sesión que restaura
+     * un respaldo (variable @gametech_restauracion, ver RespaldoBD): esos datos ya vienen restaurados.
+     * MySQL no permite desactivar un trigger ni reemplazarlo, así que se borra y se vuelve a crear.
+     */
+    private static void triggerRestauracion(Connection conn) throws SQLException {
+        if (contar(conn, "SELECT COUNT(*) FROM information_schema.TRIGGERS WHERE TRIGGER_SCHEMA = DATABASE() "
+                + "AND TRIGGER_NAME = ? AND ACTION_STATEMENT LIKE ?", "actualizar_stock_y_alerta", "%@gametech_restauracion%") > 0) {
+            return;
+        }
+        ejecutar(conn, "DROP TRIGGER IF EXISTS actualizar_stock_y_alerta");
+        ejecutar(conn, """
+                CREATE TRIGGER actualizar_stock_y_alerta
+                AFTER INSERT ON movimientos
+                FOR EACH ROW
+                BEGIN
+                  DECLARE stock_actual INT;
+                  DECLARE stock_minimo INT;
+                  DECLARE final_stock INT;
+
+                  IF @gametech_restauracion IS NULL THEN
+                    SELECT p.stock_actual, p.stock_minimo
+                    INTO stock_actual, stock_minimo
+                    FROM productos p
+                    WHERE p.codigo = NEW.producto_codigo;
+
+                    SET final_stock = stock_actual + NEW.cantidad;
+
+                    UPDATE productos
+                    SET stock_actual = final_stock
+                    WHERE codigo = NEW.producto_codigo;
+
+                    IF final_stock < stock_minimo THEN
+                      INSERT INTO alertas (tipo, producto_codigo, fecha_emision)
+                      VALUES ('CRITICO', NEW.producto_codigo, NOW());
+                    END IF;
+                  END IF;
+                END""");
+    }
+
+    /**
+     * v5: particionado mensual por fecha.
+     * MySQL no admite claves foráneas en tablas particionadas y exige que la clave primaria incluya
+     * la columna de partición, así que se quitan las claves foráneas de movimientos y alertas
+     * (la aplicación siempre inserta códigos y usuarios existentes) y la clave pasa a ser (id, fecha).
+     */
+    private static void particionar(Connection conn) throws SQLException {
+        for (String[] t : PARTICIONADAS) {
+            String tabla = t[0];
+            String columna = t[1];
+            if (estaParticionada(conn, tabla)) continue;
+
+            for (String fk : clavesForaneas(conn, tabla)) {
+                ejecutar(conn, "ALTER TABLE " + tabla + " DROP FOREIGN KEY " + fk);
+            }
+            if (!existeColumnaEnClavePrimaria(conn, tabla, columna)) {
+                ejecutar(conn, "ALTER TABLE " + tabla + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, " + columna + ")");
+            }
+            // El índice simple por producto queda cubierto por el compuesto (producto, fecha)
+            if (existeIndice(conn, tabla, "producto_codigo") && existeIndice(conn, tabla, "producto_fecha")) {
+                ejecutar(conn, "ALTER TABLE " + tabla + " DROP INDEX producto_codigo");
+            }
+
+            // Una partición por mes desde el dato más viejo hasta los meses de adelanto
+            String minimo = ejecutarEscalar(conn, "SELECT MIN(" + columna + ") FROM " + tabla);
+            YearMonth desde = minimo == null ? YearMonth.now() : YearMonth.from(LocalDate.parse(minimo.substring(0, 10)));
+            YearMonth hasta = YearMonth.now().plusMonths(mesesAdelanto());
+
+            StringBuilder sql = new StringBuilder("ALTER TABLE " + tabla + " PARTITION BY RANGE COLUMNS(" + columna + ") (");
+            for (YearMonth mes = desde; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+                sql.append(definicionParticion(mes)).append(", ");
+            }
+            sql.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            ejecutar(conn, sql.toString());
+        }
+    }
+
+    // --- Mantenimiento de particiones ---
+
+    /**
+     * Crea las particiones de los próximos meses (partiendo la partición pmax, que normalmente
+     * está vacía) y elimina las particiones de alertas vencidas.
+     * @param conn conexión abierta
+     * @throws SQLException si falla algún cambio
+     */
+    private static void mantenerParticiones(Connection conn) throws SQLException {
+        YearMonth hasta = YearMonth.now().plusMonths(mesesAdelanto());
+
+        for (String[] t : PARTICIONADAS) {
+            String tabla = t[0];
+            if (!estaParticionada(conn, tabla)) continue;
+
+            // Mes siguiente al último límite definido (o el mes actual si solo existe pmax)
+            YearMonth siguiente = null;
+            for (Particion p : particiones(conn, tabla)) {
+                if (p.limite != null) siguiente = YearMonth.from(p.limite);
+            }
+            if (siguiente == null) siguiente = YearMonth.now();
+            if (siguiente.isAfter(hasta)) continue;
+
+            StringBuilder sql = new StringBuilder("ALTER TABLE " + tabla + " REORGANIZE PARTITION pmax INTO (");
+            for (YearMonth mes = siguiente; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+                sql.append(definicionParticion(mes)).append(", ");
+            }
+            sql.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            ejecutar(conn, sql.toString());
+        }
+
+        int retencion = Configuracion.getInt("alertas.retencionMeses", 0);
+        if (retencion > 0) {
+            eliminarParticiones(conn, "alertas", YearMonth.now().minusMonths(retencion).atDay(1), false);
+        }
+    }
+
+    /**
+     * Borra los ids de cliente más viejos que movimientos.idsRetencionDias (30 por defecto; 0 = se conservan),
+     * en tandas para no bloquear la tabla mientras otras terminales guardan movimientos.
+     * @param conn conexión abierta (en modo autocommit)
+     * @throws SQLException si falla el borrado
+     */
+    private static void depurarIdsCliente(Connection conn) throws SQLException {
+        int dias = Configuracion.getInt("movimientos.idsRetencionDias", 30);
+        if (dias <= 0) return;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM movimientos_ids WHERE creado_en < NOW() - INTERVAL ? DAY LIMIT 10000")) {
+            ps.setInt(1, dias);
+            while (ps.executeUpdate() == 10000) {
+                // Sigue hasta que una tanda borre menos filas que el límite
+            }
+        }
+    }
+
+    /**
+     * Elimina las particiones de movimientos anteriores a una fecha que ya quedaron vacías
+     * (por ejemplo, después de archivar). Borrar una partición es instantáneo, a diferencia
+     * de un DELETE fila por fila.
+     * @param conn conexión abierta (en modo autocommit)
+     * @param antesDe se consideran las particiones cuyo límite superior es menor o igual a esta fecha
+     * @return cantidad de particiones eliminadas
+     * @throws SQLException si falla la consulta o el borrado
+     */
+    public static int eliminarParticionesVacias(Connection conn, LocalDate antesDe) throws SQLException {
+        if (!estaParticionada(conn, "movimientos")) return 0;
+        return eliminarParticiones(conn, "movimientos", antesDe, true);
+    }
+
+    /**
+     * Elimina las particiones de una tabla cuyo límite superior es menor o igual a la fecha indicada.
+     * @param soloVacias si es true, solo se eliminan las particiones sin filas
+     */
+    private static int eliminarParticiones(Connection conn, String tabla, LocalDate antesDe, boolean soloVacias) throws SQLException {
+        List<String> eliminar = new ArrayList<>();
+        for (Particion p : particiones(conn, tabla)) {
+            if (p.limite == null || p.limite.isAfter(antesDe)) continue;
+            if (soloVacias && ejecutarEscalar(conn, "SELECT 1 FROM " + tabla + " PARTITION (" + p.nombre + ") LIMIT 1") != null) continue;
+            eliminar.add(p.nombre);
+        }
+        if (!eliminar.isEmpty()) {
+            ejecutar(conn, "ALTER TABLE " + tabla + " DROP PARTITION " + String.join(", ", eliminar));
+        }
+        return eliminar.size();
+    }
+
+    /**
+     * Partición de una tabla: nombre y límite superior (null para pmax).
+     */
+    private record Particion(String nombre, LocalDate limite) {
+    }
+
+    /**
+     * Lista las particiones de una tabla en orden.
+     */
+    private static List<Particion> particiones(Connection conn, String tabla) throws SQLException {
+        List<Particion> lista = new ArrayList<>();
+        String sql = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                   + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                   + "ORDER BY PARTITION_ORDINAL_POSITION";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // La descripción es MAXVALUE o la fecha límite entre comillas ('2025-02-01 00:00:00')
+                    String descripcion = rs.getString(2).replace("'", "");
+                    LocalDate limite = descripcion.equals("MAXVALUE") ? null : LocalDate.parse(descripcion.substring(0, 10));
+                    lista.add(new Particion(rs.getString(1), limite));
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Definición de la partición de un mes: p202501 guarda las fechas anteriores al 2025-02-01.
+     */
+    private static String definicionParticion(YearMonth mes) {
+        return String.format("PARTITION p%04d%02d VALUES LESS THAN ('%s')",
+                mes.getYear(), mes.getMonthValue(), mes.plusMonths(1).atDay(1));
+    }
+
+    private static int mesesAdelanto() {
+        return Math.max(1, Configuracion.getInt("particiones.mesesAdelanto", 3));
+    }
+
+    // --- Consultas al diccionario de datos ---
+
+    private static boolean existeColumna(Connection conn, String tabla, String columna) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?", tabla, columna) > 0;
+    }
+
+    private static boolean existeIndice(Connection conn, String tabla, String indice) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?", tabla, indice) > 0;
+    }
+
+    private static boolean existeColumnaEnClavePrimaria(Connection conn, String tabla, String columna) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = 'PRIMARY' AND COLUMN_NAME = ?", tabla, columna) > 0;
+    }
+
+    private static boolean estaParticionada(Connection conn, String tabla) throws SQLException {
+        return contar(conn, "SELECT COUNT(*) FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL", tabla, null) > 0;
+    }
+
+    private static List<String> clavesForaneas(Connection conn, String tabla) throws SQLException {
+        List<String> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lista.add(rs.getString(1));
+            }
+        }
+        return lista;
+    }
+
+    private static int contar(Connection conn, String sql, String tabla, String nombre) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tabla);
+            if (nombre != null) ps.setString(2, nombre);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static void ejecutar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta de un solo valor.
+     * @return el valor como texto, o null si no hay filas o el valor es NULL
+     */
+    private static String ejecutarEscalar(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -1,191 +1,531 @@
 package ConexionBD;
 
-import gametechstock.Ajuste;
+import gametechstock.Configuracion;
+import gametechstock.DiarioAuditoria;
 import gametechstock.Egreso;
-import gametechstock.Ingreso;
+import gametechstock.HistorialMovimientos;
 import gametechstock.Movimiento;
 import gametechstock.Producto;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import gametechstock.Usuario;
+import gametechstock.ValuacionFIFO;
 import java.sql.*;
 import java.util.*;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.File;
-import java.util.Queue;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import java.time.LocalDateTime;
-import javafx.scene.control.Alert;
-import javafx.stage.DirectoryChooser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import monitoreo.EventoBD;
+import monitoreo.EventoExportacion;
 
 /**
  * Clase DAO (Data Access Object) para manejar el acceso a la base de datos relacionado con movimientos.
  * Permite guardar, recuperar y exportar movimientos (ingresos, egresos, ajustes).
+ *
+ * El guardado es idempotente: cada movimiento lleva un id generado por el cliente que se inserta en la
+ * tabla movimientos_ids (clave primaria) en la misma transacción. Si un guardado se corta por un
+ * tiempo de espera o un deadlock, se reintenta el lote completo sin riesgo de aplicar dos veces el stock:
+ * los movimientos que ya habían quedado guardados se reconocen por su id y no se vuelven a insertar.
  */
 public class MovimientoDAO {
 
     /**
-     * Guarda un movimiento (Ingreso, Egreso o Ajuste) en la base de datos.
-     * @param m el movimiento a guardar
+     * Operación que guarda, dentro de la transacción abierta, los movimientos que todavía no estaban guardados.
      */
-    public static void guardarMovimiento(Movimiento m) {
-        // Consulta SQL para insertar un nuevo movimiento
-        String sql = "INSERT INTO movimientos (tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id) VALUES (?, NOW(), ?, ?, ?, ?)";
+    interface Guardado {
+        void guardar(Connection conn, List<? extends Movimiento> nuevos) throws SQLException;
+    }
 
-        try (Connection conn = ConexionBD.obtenerConexion(); // Abre conexión
-             PreparedStatement stmt = conn.prepareStatement(sql)) { // Prepara la consulta
+    // Registro de los ids de cliente de cada movimiento guardado
+    private static final String SQL_INSERTAR_ID =
+            "INSERT INTO movimientos_ids (id_cliente, movimiento_id, creado_en) VALUES (?, ?, NOW())";
 
-            // Guarda el tipo de movimiento como nombre de clase en mayúsculas (INGRESO, EGRESO, AJUSTE)
-            stmt.setString(1, m.getClass().getSimpleName().toUpperCase());
+    // Error de MySQL por clave duplicada (el movimiento ya lo guardó un intento anterior)
+    private static final int CLAVE_DUPLICADA = 1062;
 
-            int cantidad = m.getCantidad();
+    // Reintentos ante errores transitorios y tiempo máximo de cada inserción (0 = sin límite)
+    private static final int REINTENTOS = Configuracion.getInt("movimientos.reintentos", 3);
+    private static final int TIMEOUT_SEGUNDOS = Configuracion.getInt("movimientos.timeoutSegundos", 10);
 
-            // Si es un Egreso, se guarda como cantidad negativa
-            if (m instanceof Egreso) {
-                cantidad = -cantidad;
-            }
+    // Ids de cliente guardados recientemente por esta terminal y el id que les asignó la base.
+    // Un lote que se vuelve a enviar después de haberse guardado se resuelve acá sin consultar la base.
+    // Ordenado por acceso: al llenarse se descarta el id usado hace más tiempo (LRU)
+    private static final int CAPACIDAD_RECIENTES = Configuracion.getInt("movimientos.idsRecientes", 65536);
+    private static final Map<UUID, Long> RECIENTES = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+            return size() > CAPACIDAD_RECIENTES;
+        }
+    };
 
-            stmt.setInt(2, cantidad); // Cantidad ajustada
-            stmt.setString(3, m.getJustificacion()); // Justificación (vacía para ingresos/egresos)
-            stmt.setString(4, m.getProducto().getCodigo()); // Código del producto
-            stmt.setInt(5, m.getUsuario().getId()); // ID del usuario que realizó el movimiento
+    // Consulta SQL para insertar un nuevo movimiento
+    private static final String SQL_INSERTAR =
+            "INSERT INTO movimientos (tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario) VALUES (?, NOW(), ?, ?, ?, ?, ?)";
 
-            stmt.executeUpdate(); // Ejecuta la inserción en la base de datos
+    // Igual que SQL_INSERTAR, pero asociando el movimiento al remito que lo generó
+    private static final String SQL_INSERTAR_REMITO =
+            "INSERT INTO movimientos (tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario, remito_id) VALUES (?, NOW(), ?, ?, ?, ?, ?, ?)";
 
+    /**
+     * Guarda un movimiento (Ingreso, Egreso o Ajuste) en la base de datos.
+     * @param m el movimiento a guardar
+     * @return true si quedó guardado; false si falló (el error se informa por consola)
+     */
+    public static boolean guardarMovimiento(Movimiento m) {
+        try {
+            guardarMovimientos(List.of(m)); // Mismo camino idempotente que los lotes
+            return true;
         } catch (Exception e) {
             e.printStackTrace(); // Muestra cualquier error ocurrido
+            return false;
         }
     }
 
     /**
-     * Recupera todos los movimientos desde la base de datos, asociándolos con sus productos y usuarios.
-     * @param productos lista de productos disponibles
-     * @param usuarios lista de usuarios registrados
-     * @return una cola con todos los movimientos recuperados
-     */
-    public static Queue<Movimiento> obtenerTodos(List<Producto> productos, List<Usuario> usuarios) {
-        Queue<Movimiento> lista = new LinkedList<>();
-
-        try (Connection conn = ConexionBD.obtenerConexion();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM movimientos")) {
-
-            while (rs.next()) {
-                // Extrae datos de cada fila del ResultSet
-                String tipo = rs.getString("tipo");
-                LocalDateTime fecha = rs.getTimestamp("fecha").toLocalDateTime();
-                int cantidad = rs.getInt("cantidad");
-                String justificacion = rs.getString("justificacion");
-                String productoCodigo = rs.getString("producto_codigo");
-                int usuarioId = rs.getInt("usuario_id");
-
-                // Busca el producto y usuario correspondiente
-                Producto producto = buscarProductoPorCodigo(productos, productoCodigo);
-                Usuario usuario = buscarUsuarioPorId(usuarios, usuarioId);
-
-                // Crea el objeto de movimiento adecuado según el tipo
-                Movimiento movimiento = switch (tipo) {
-                    case "INGRESO" -> new Ingreso(cantidad, producto, usuario);
-                    case "EGRESO" -> new Egreso(cantidad, producto, usuario);
-                    case "AJUSTE" -> new Ajuste(cantidad, producto, usuario, justificacion);
-                    default -> null;
-                };
-
-                // Si se creó correctamente, se ajusta la fecha y se agrega a la lista
-                if (movimiento != null) {
-                    movimiento.setFecha(fecha);
-                    lista.add(movimiento);
+     * Guarda varios movimientos en una única transacción, con una sola inserción por lotes.
+     * Si algún movimiento falla no se guarda ninguno (todo o nada). Ante un error transitorio
+     * (tiempo de espera, deadlock, conexión cortada) el lote se reintenta sin duplicar movimientos.
+     * @param movimientos movimientos a guardar, en el orden en que se aplicaron
+     * @throws SQLException si no se pudo guardar el lote (la transacción se revierte)
+     */
+    public static void guardarMovimientos(List<? extends Movimiento> movimientos) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("MovimientoDAO.guardarMovimientos")) {
+            if (!movimientos.isEmpty()) evento.productoCodigo = movimientos.get(0).getProducto().getCodigo();
+            guardarIdempotente(movimientos, (conn, nuevos) -> insertarLote(conn, nuevos, 0));
+            evento.filas = movimientos.size();
+        }
+    }
+
+    /**
+     * Ejecuta un guardado de movimientos en una transacción, reintentando ante errores transitorios.
+     * Antes de cada reintento se consultan los ids de cliente ya guardados (el intento anterior pudo
+     * confirmarse aunque la respuesta no llegara) y solo se insertan los que faltan. Si otro intento
+     * sigue en curso en el servidor, la clave primaria de movimientos_ids frena el duplicado.
+     * @param movimientos movimientos a guardar
+     * @param guardado inserciones a ejecutar con los movimientos que faltan (no se llama si no falta ninguno)
+     * @return true si la transacción confirmada insertó movimientos; false si ya estaban todos guardados
+     * @throws SQLException si se agotaron los reintentos o el error no es transitorio
+     */
+    static boolean guardarIdempotente(List<? extends Movimiento> movimientos, Guardado guardado) throws SQLException {
+        List<? extends Movimiento> pendientes = quitarRecientes(movimientos);
+        if (pendientes.isEmpty()) return false;
+
+        for (int intento = 0; ; intento++) {
+            try (Connection conn = ConexionBD.obtenerConexion()) {
+                conn.setAutoCommit(false); // Todas las filas en la misma transacción
+
+                try {
+                    // En el primer intento los ids son nuevos: no hace falta consultarlos
+                    List<? extends Movimiento> nuevos = intento == 0 ? pendientes : quitarGuardados(conn, pendientes);
+                    if (!nuevos.isEmpty()) guardado.guardar(conn, nuevos);
+                    conn.commit();
+                    ConexionBD.registrarEscritura(); // Las próximas lecturas de esta terminal deben verlo
+                    recordar(nuevos);
+                    return !nuevos.isEmpty();
+                } catch (SQLException e) {
+                    try {
+                        conn.rollback(); // Deshace cualquier fila ya insertada
+                    } catch (SQLException ignorada) {
+                        // La conexión pudo haberse cortado: la transacción ya no existe
+                    }
+                    throw e;
                 }
+            } catch (SQLException e) {
+                if (intento >= REINTENTOS || !esReintentable(e)) throw e;
+                esperar(intento);
             }
+        }
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace(); // Muestra errores si los hay
+    /**
+     * Inserta varios movimientos con una sola inserción por lotes, dentro de la transacción
+     * que maneja quien llama (no hace commit ni rollback).
+     * @param conn conexión con la transacción abierta
+     * @param movimientos movimientos a insertar, en orden
+     * @param remitoId id del remito al que pertenecen (0 si no pertenecen a ninguno)
+     * @throws SQLException si falla la inserción
+     */
+    static void insertarLote(Connection conn, List<? extends Movimiento> movimientos, int remitoId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(remitoId > 0 ? SQL_INSERTAR_REMITO : SQL_INSERTAR,
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setQueryTimeout(TIMEOUT_SEGUNDOS);
+            for (Movimiento m : movimientos) {
+                cargarParametros(stmt, m);
+                if (remitoId > 0) stmt.setInt(7, remitoId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch(); // Una sola ida a la base para todo el lote
+            asignarIds(stmt, movimientos);
+        }
+
+        // Ids de cliente en la misma transacción: si alguno ya existe, el lote entero se revierte
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERTAR_ID)) {
+            stmt.setQueryTimeout(TIMEOUT_SEGUNDOS);
+            for (Movimiento m : movimientos) {
+                stmt.setBytes(1, bytes(m.getIdCliente()));
+                stmt.setLong(2, m.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        // Series de los ingresos y egresos en la misma transacción: una serie ya tomada revierte el lote
+        SerieDAO.registrar(conn, movimientos);
+        validarReservas(conn, movimientos);
+    }
+
+    /**
+     * Valida los egresos contra las reservas vigentes de todas las terminales, dentro de la
+     * transacción del lote: el stock que queda en la base no puede ser menor a lo reservado.
+     * Antes borra las reservas que despachan estos egresos (Egreso.getReservaId), así el despacho y
+     * el egreso se confirman juntos. El trigger de movimientos ya bloqueó la fila de cada producto,
+     * así que ninguna reserva nueva del producto se cuela hasta el commit.
+     * @throws SQLException si algún egreso toma unidades reservadas (se revierte el lote)
+     */
+    private static void validarReservas(Connection conn, List<? extends Movimiento> movimientos) throws SQLException {
+        Set<String> codigos = new LinkedHashSet<>();
+        List<Long> despachadas = new ArrayList<>();
+        for (Movimiento m : movimientos) {
+            if (m instanceof Egreso e) {
+                codigos.add(e.getProducto().getCodigo());
+                if (e.getReservaId() > 0) despachadas.add(e.getReservaId());
+            }
+        }
+        if (codigos.isEmpty()) return;
+
+        if (!despachadas.isEmpty()) {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM reservas WHERE id = ?")) {
+                for (long id : despachadas) {
+                    stmt.setLong(1, id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
         }
 
-        return lista;
+        for (String codigo : codigos) {
+            int disponible = ReservaDAO.disponible(conn, codigo);
+            if (disponible < 0) {
+                throw new SQLException("Stock insuficiente para " + codigo + ": el egreso toma " + (-disponible)
+                        + " unidades reservadas (en esta u otra terminal).");
+            }
+        }
     }
 
+    // --- Idempotencia ---
+
     /**
-     * Busca un producto en la lista por su código.
-     * @param lista lista de productos
-     * @param codigo código a buscar
-     * @return el producto correspondiente, o null si no se encuentra
+     * Quita los movimientos que esta terminal ya guardó hace poco (les asigna el id que recibieron).
      */
-    private static Producto buscarProductoPorCodigo(List<Producto> lista, String codigo) {
-        for (Producto p : lista) {
-            if (p.getCodigo().equals(codigo)) return p;
+    private static List<? extends Movimiento> quitarRecientes(List<? extends Movimiento> movimientos) {
+        synchronized (RECIENTES) {
+            if (RECIENTES.isEmpty()) return movimientos;
+            List<Movimiento> pendientes = new ArrayList<>(movimientos.size());
+            for (Movimiento m : movimientos) {
+                Long id = RECIENTES.get(m.getIdCliente());
+                if (id == null) {
+                    pendientes.add(m);
+                } else {
+                    m.setId(id);
+                }
+            }
+            return pendientes.size() == movimientos.size() ? movimientos : pendientes;
         }
-        return null;
     }
 
     /**
-     * Busca un usuario en la lista por su ID.
-     * @param lista lista de usuarios
-     * @param id ID a buscar
-     * @return el usuario correspondiente, o null si no se encuentra
+     * Recuerda los ids de cliente de un lote recién confirmado.
      */
-    private static Usuario buscarUsuarioPorId(List<Usuario> lista, int id) {
-        for (Usuario u : lista) {
-            if (u.getId() == id) return u;
+    private static void recordar(List<? extends Movimiento> movimientos) {
+        synchronized (RECIENTES) {
+            for (Movimiento m : movimientos) {
+                RECIENTES.put(m.getIdCliente(), m.getId());
+            }
         }
-        return null;
     }
 
     /**
-     * Exporta todos los movimientos a un archivo CSV, solicitando al usuario una carpeta para guardar el archivo.
-     * @param productos lista de productos para reconstruir los movimientos
-     * @param usuarios lista de usuarios para reconstruir los movimientos
+     * Consulta qué movimientos ya están guardados (por su id de cliente) y devuelve los que faltan.
+     * A los ya guardados les asigna el id que tienen en la base.
      */
-    public static void exportarMovimientosCSV(List<Producto> productos, List<Usuario> usuarios) {
-        // Obtiene todos los movimientos desde la base de datos
-        Queue<Movimiento> movimientos = obtenerTodos(productos, usuarios);
+    private static List<? extends Movimiento> quitarGuardados(Connection conn, List<? extends Movimiento> movimientos) throws SQLException {
+        Map<UUID, Movimiento> porId = new HashMap<>();
+        for (Movimiento m : movimientos) porId.put(m.getIdCliente(), m);
 
-        // Muestra un selector de carpetas para elegir dónde guardar el archivo
-        DirectoryChooser chooser = new DirectoryChooser();
-        chooser.setTitle("Seleccionar carpeta para guardar movimientos.csv");
-        File selectedDirectory = chooser.showDialog(null);
+        Set<Movimiento> guardados = Collections.newSetFromMap(new IdentityHashMap<>());
+        final int bloque = 500; // Ids por consulta
+        for (int desde = 0; desde < movimientos.size(); desde += bloque) {
+            int hasta = Math.min(desde + bloque, movimientos.size());
+            String sql = "SELECT id_cliente, movimiento_id FROM movimientos_ids WHERE id_cliente IN ("
+                    + "?,".repeat(hasta - desde - 1) + "?)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = desde; i < hasta; i++) {
+                    stmt.setBytes(i - desde + 1, bytes(movimientos.get(i).getIdCliente()));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Movimiento m = porId.get(uuid(rs.getBytes(1)));
+                        m.setId(rs.getLong(2));
+                        guardados.add(m);
+                    }
+                }
+            }
+        }
+        if (guardados.isEmpty()) return movimientos;
 
-        if (selectedDirectory == null) {
-            return; // Usuario canceló la selección
+        recordar(new ArrayList<>(guardados));
+        List<Movimiento> faltantes = new ArrayList<>(movimientos.size() - guardados.size());
+        for (Movimiento m : movimientos) {
+            if (!guardados.contains(m)) faltantes.add(m);
         }
+        return faltantes;
+    }
 
-        // Crea el archivo "movimientos.csv" en la carpeta elegida
-        File archivo = new File(selectedDirectory, "movimientos.csv");
+    /**
+     * Indica si un error permite reintentar el lote: tiempo de espera, deadlock, conexión cortada
+     * o clave duplicada en movimientos_ids (otro intento del mismo lote se confirmó mientras tanto).
+     */
+    private static boolean esReintentable(SQLException e) {
+        return e instanceof SQLTransientException
+                || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException
+                || e.getErrorCode() == 1205   // Tiempo de espera de bloqueo agotado
+                || e.getErrorCode() == 1213   // Deadlock
+                || e.getErrorCode() == CLAVE_DUPLICADA
+                || (e.getNextException() != null && esReintentable(e.getNextException()))
+                || (e.getCause() instanceof SQLException causa && causa != e && esReintentable(causa));
+    }
 
-        try (PrintWriter writer = new PrintWriter(archivo)) {
-            // Escribe encabezado del CSV
-            writer.println("Fecha,Tipo,Cantidad,Justificacion,Codigo Producto,Nombre Producto,Usuario");
+    /**
+     * Espera antes de reintentar: 50 ms que se duplican en cada intento, con una parte al azar
+     * para que varias terminales no reintenten a la vez.
+     */
+    private static void esperar(int intento) throws SQLException {
+        long espera = 50L << Math.min(intento, 6);
+        try {
+            Thread.sleep(espera + ThreadLocalRandom.current().nextLong(espera));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Reintento interrumpido.", e);
+        }
+    }
 
-            // Escribe cada movimiento en una línea del CSV
+    /**
+     * Id de cliente en los 16 bytes que se guardan en la base.
+     */
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    /**
+     * Id de cliente leído de la base.
+     */
+    private static UUID uuid(byte[] b) {
+        ByteBuffer buffer = ByteBuffer.wrap(b);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Asigna a cada movimiento el id generado por la base de datos, en el orden de inserción.
+     * @param stmt consulta ya ejecutada con RETURN_GENERATED_KEYS
+     * @param movimientos movimientos insertados, en el mismo orden
+     */
+    private static void asignarIds(PreparedStatement stmt, List<? extends Movimiento> movimientos) throws SQLException {
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
             for (Movimiento m : movimientos) {
-                String justificacion = (m instanceof Ajuste ajuste) ? ajuste.getJustificacion() : "";
-                writer.printf("%s,%s,%d,%s,%s,%s,%s%n",
-                        m.getFecha(),
-                        m.getTipo(),
-                        m.getCantidad(),
-                        justificacion,
-                        m.getProducto().getCodigo(),
-                        m.getProducto().getNombre(),
-                        m.getUsuario().getNombre());
+                if (!rs.next()) break;
+                m.setId(rs.getLong(1));
             }
+        }
+    }
+
+    /**
+     * Completa los parámetros de la inserción con los datos del movimiento.
+     * @param stmt consulta preparada con SQL_INSERTAR
+     * @param m movimiento a guardar
+     */
+    private static void cargarParametros(PreparedStatement stmt, Movimiento m) throws SQLException {
+        // Guarda el tipo de movimiento como nombre de clase en mayúsculas (INGRESO, EGRESO, AJUSTE)
+        stmt.setString(1, m.getClass().getSimpleName().toUpperCase());
 
-            // Muestra alerta informando éxito
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Exportación exitosa");
-            alert.setHeaderText(null);
-            alert.setContentText("Archivo guardado en: " + archivo.getAbsolutePath());
-            alert.showAndWait();
+        int cantidad = m.getCantidad();
+
+        // Si es un Egreso, se guarda como cantidad negativa
+        if (m instanceof Egreso) {
+            cantidad = -cantidad;
+        }
 
+        stmt.setInt(2, cantidad); // Cantidad ajustada
+        stmt.setString(3, m.getJustificacion()); // Justificación (vacía para ingresos/egresos)
+        stmt.setString(4, m.getProducto().getCodigo()); // Código del producto
+        stmt.setInt(5, m.getUsuario().getId()); // ID del usuario que realizó el movimiento
+        stmt.setBigDecimal(6, m.getCostoUnitario()); // Costo unitario (solo ingresos; NULL si no se informó)
+    }
+
+    /**
+     * Recorre los movimientos entre dos fechas, combinando el archivo frío (segmentos locales)
+     * con la tabla movimientos. Cada movimiento se entrega una sola vez, en orden de id.
+     * @param desde fecha mínima inclusive (null = sin límite)
+     * @param hasta fecha máxima exclusiva (null = sin límite)
+     * @param consumidor acción a ejecutar por cada movimiento
+     * @throws Exception si falla la lectura de los segmentos o de la base de datos
+     */
+    public static void recorrerMovimientos(LocalDateTime desde, LocalDateTime hasta, Consumer<RegistroMovimiento> consumidor) throws Exception {
+        recorrerMovimientos(desde, hasta, ConexionBD.Lectura.EXPORTACION, consumidor);
+    }
+
+    /**
+     * Igual que {@link #recorrerMovimientos(LocalDateTime, LocalDateTime, Consumer)}, indicando el tipo
+     * de lectura (define si puede leerse de la réplica y con cuánto atraso).
+     * @param desde fecha mínima inclusive (null = sin límite)
+     * @param hasta fecha máxima exclusiva (null = sin límite)
+     * @param tipo tipo de lectura
+     * @param consumidor acción a ejecutar por cada movimiento
+     * @throws Exception si falla la lectura de los segmentos o de la base de datos
+     */
+    public static void recorrerMovimientos(LocalDateTime desde, LocalDateTime hasta, ConexionBD.Lectura tipo,
+                                           Consumer<RegistroMovimiento> consumidor) throws Exception {
+        // Lo archivado se lee de los segmentos; la base solo tiene los ids posteriores
+        long ultimoArchivado = ArchivoMovimientos.ultimoIdArchivado();
+        ArchivoMovimientos.recorrer(desde, hasta, consumidor);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario FROM movimientos WHERE id > ?");
+        if (desde != null) sql.append(" AND fecha >= ?");
+        if (hasta != null) sql.append(" AND fecha < ?");
+        sql.append(" ORDER BY id");
+
+        // La duración incluye lo que haga el consumidor con cada fila (ej: escribir el CSV)
+        try (EventoBD evento = EventoBD.iniciar("MovimientoDAO.recorrerMovimientos");
+             Connection conn = ConexionBD.obtenerConexionLectura(tipo);
+             PreparedStatement stmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Integer.MIN_VALUE); // El driver de MySQL lee las filas de a una (sin cargar todo el resultado)
+            int i = 1;
+            stmt.setLong(i++, ultimoArchivado);
+            if (desde != null) stmt.setTimestamp(i++, Timestamp.valueOf(desde));
+            if (hasta != null) stmt.setTimestamp(i, Timestamp.valueOf(hasta));
+
+            long filas = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.accept(new RegistroMovimiento(rs.getLong(1), rs.getString(2),
+                            rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4), rs.getString(5),
+                            rs.getString(6), rs.getInt(7), rs.getBigDecimal(8)));
+                    filas++;
+                }
+            }
+            evento.filas = filas;
+        }
+    }
+
+    /**
+     * Carga el historial de movimientos (archivados y activos) directamente en columnas,
+     * sin crear un objeto Movimiento por fila.
+     * @param destino historial donde se agregan los movimientos
+     * @param productos lista de productos disponibles
+     * @param usuarios lista de usuarios registrados
+     * @return mayor id de movimiento leído (0 si no hay movimientos)
+     */
+    public static long cargarHistorial(HistorialMovimientos destino, List<Producto> productos, List<Usuario> usuarios) {
+        // Mapas por código e id para no recorrer las listas en cada fila
+        Map<String, Producto> porCodigo = mapaProductos(productos);
+        Map<Integer, Usuario> porId = mapaUsuarios(usuarios);
+
+        long[] maximo = {0};
+
+        try {
+            recorrerMovimientos(null, null, ConexionBD.Lectura.CARGA_INICIAL, r -> {
+                maximo[0] = Math.max(maximo[0], r.id());
+                byte tipo = HistorialMovimientos.codigoTipo(r.tipo());
+                Producto producto = porCodigo.get(r.productoCodigo());
+                if (tipo < 0 || producto == null) return; // Fila incompleta: no se puede mostrar
+
+                int cantidad = r.cantidad();
+                if (tipo == HistorialMovimientos.EGRESO) {
+                    cantidad = -cantidad; // En la BD los egresos son negativos; en memoria se guardan positivos como en Egreso
+                }
+                destino.agregar(tipo, producto, porId.get(r.usuarioId()), r.fecha(), cantidad, r.justificacion(),
+                        ValuacionFIFO.aDiezmilesimos(r.costoUnitario()));
+            });
         } catch (Exception e) {
-            e.printStackTrace(); // Muestra errores en consola
+            e.printStackTrace(); // Muestra errores si los hay
+        }
+        return maximo[0];
+    }
+
+    /**
+     * Arma un mapa código -> producto.
+     */
+    private static Map<String, Producto> mapaProductos(List<Producto> productos) {
+        Map<String, Producto> mapa = new HashMap<>();
+        for (Producto p : productos) mapa.put(p.getCodigo(), p);
+        return mapa;
+    }
+
+    /**
+     * Arma un mapa id -> usuario.
+     */
+    private static Map<Integer, Usuario> mapaUsuarios(List<Usuario> usuarios) {
+        Map<Integer, Usuario> mapa = new HashMap<>();
+        for (Usuario u : usuarios) mapa.put(u.getId(), u);
+        return mapa;
+    }
+
+    /**
+     * Escribe los movimientos (archivados y activos) de un rango de fechas en un archivo CSV.
+     * Los movimientos se leen y se escriben de a uno, sin cargarlos todos en memoria.
+     * @param archivo archivo destino
+     * @param desde fecha mínima inclusive (null = sin límite)
+     * @param hasta fecha máxima exclusiva (null = sin límite)
+     * @return cantidad de movimientos escritos
+     * @throws Exception si falla la lectura o la escritura
+     */
+    public static long escribirMovimientosCSV(File archivo, LocalDateTime desde, LocalDateTime hasta) throws Exception {
+        // Nombres de productos y usuarios para completar cada fila
+        Map<String, String> productos = new HashMap<>();
+        Map<Integer, String> usuarios = new HashMap<>();
+        try (Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.EXPORTACION);
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT codigo, nombre FROM productos")) {
+                while (rs.next()) productos.put(rs.getString(1), rs.getString(2));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, nombre FROM usuarios")) {
+                while (rs.next()) usuarios.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+
+        long[] filas = {0};
+        try (EventoExportacion evento = EventoExportacion.iniciar("movimientos", archivo.getPath());
+             PrintWriter writer = new PrintWriter(archivo, StandardCharsets.UTF_8)) {
+            // Escribe encabezado del CSV
+            writer.println("Fecha,Tipo,Cantidad,Justificacion,Codigo Producto,Nombre Producto,Usuario");
+
+            // Escribe cada movimiento en una línea del CSV (la justificación solo se usa en ajustes)
+            recorrerMovimientos(desde, hasta, r -> {
+                String justificacion = r.tipo().equals("AJUSTE") && r.justificacion() != null ? r.justificacion() : "";
+                writer.printf("%s,%s,%d,%s,%s,%s,%s%n",
+                        r.fecha(),
+                        r.tipo(),
+                        r.cantidad(),
+                        justificacion,
+                        r.productoCodigo(),
+                        productos.get(r.productoCodigo()),
+                        usuarios.get(r.usuarioId()));
+                filas[0]++;
+            });
 
-            // Muestra alerta de error
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText("No se pudo exportar movimientos");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+            if (writer.checkError()) throw new IOException("Error al escribir " + archivo.getName());
+            evento.filas = filas[0];
         }
+        DiarioAuditoria.registrarExportacion(archivo.getAbsolutePath(), filas[0]);
+        return filas[0];
     }
 }
@@ -1,13 +1,17 @@
 package ConexionBD;
 
+import gametechstock.DiarioAuditoria;
 import gametechstock.Producto;
 import gametechstock.Deposito;
 import java.sql.*;
 import java.util.*;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
-import javafx.scene.control.Alert;
-import javafx.stage.DirectoryChooser;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import monitoreo.EventoBD;
+import monitoreo.EventoExportacion;
 
 /**
  * DAO para manejar la persistencia de productos en la base de datos.
@@ -23,7 +27,8 @@ public class ProductoDAO {
         String sql = "SELECT MAX(CAST(SUBSTRING(codigo, 2) AS UNSIGNED)) AS max_codigo FROM productos";
         String nuevoCodigo = "P001";
 
-        try (Connection conn = ConexionBD.obtenerConexion();
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.generarCodigoProducto");
+             Connection conn = ConexionBD.obtenerConexion();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
@@ -32,6 +37,7 @@ public class ProductoDAO {
                 int maxCodigo = rs.getInt("max_codigo");
                 nuevoCodigo = String.format("P%03d", maxCodigo + 1); // Incrementa y da formato
             }
+            evento.filas = 1;
 
         } catch (Exception e) {
             e.printStackTrace(); // Muestra error si ocurre
@@ -51,9 +57,11 @@ public class ProductoDAO {
         String sql = "INSERT INTO productos (codigo, nombre, categoria, stock_minimo, stock_actual, id_deposito) " +
                      "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = ConexionBD.obtenerConexion();
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.guardarProducto");
+             Connection conn = ConexionBD.obtenerConexion();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
+            evento.productoCodigo = producto.getCodigo();
             ps.setString(1, producto.getCodigo());
             ps.setString(2, producto.getNombre());
             ps.setString(3, producto.getCategoria());
@@ -68,7 +76,8 @@ public class ProductoDAO {
                 ps.setInt(6, d.getId());
             }
 
-            ps.executeUpdate(); // Ejecuta la inserción
+            evento.filas = ps.executeUpdate(); // Ejecuta la inserción
+            ConexionBD.registrarEscritura();
 
         } catch (SQLException e) {
             System.err.println("Error al guardar producto: " + e.getMessage());
@@ -76,13 +85,47 @@ public class ProductoDAO {
         }
     }
 
+    /**
+     * Actualiza el stock mínimo de varios productos en una sola transacción.
+     * @param productos productos con el nuevo stock mínimo ya asignado
+     * @throws SQLException si no se pudo actualizar (no se modifica ninguno)
+     */
+    public static void actualizarStockMinimo(List<Producto> productos) throws SQLException {
+        String sql = "UPDATE productos SET stock_minimo = ? WHERE codigo = ?";
+
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.actualizarStockMinimo");
+             Connection conn = ConexionBD.obtenerConexion()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Producto p : productos) {
+                    ps.setInt(1, p.getStockMinimo());
+                    ps.setString(2, p.getCodigo());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                ConexionBD.registrarEscritura();
+                evento.filas = productos.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
     /**
      * Recupera todos los productos desde la base de datos.
      * @return una lista de productos
      */
     public static ArrayList<Producto> obtenerProductos() {
         ArrayList<Producto> lista = new ArrayList<>();
-        try (Connection conn = ConexionBD.obtenerConexion();
+
+        // Depósitos por id para asignarlos a cada producto
+        Map<Integer, Deposito> depositos = new HashMap<>();
+        for (Deposito d : Deposito.obtenerDepositos()) depositos.put(d.getId(), d);
+
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.obtenerProductos");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.CARGA_INICIAL);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT * FROM productos")) {
 
@@ -93,11 +136,12 @@ public class ProductoDAO {
                 String categoria = rs.getString("categoria");
                 int stockMinimo = rs.getInt("stock_minimo");
                 int stockActual = rs.getInt("stock_actual");
-                int idDeposito = rs.getInt("id_deposito"); // Actualmente no se asigna a objeto
+                int idDeposito = rs.getInt("id_deposito"); // 0 si el producto no tiene depósito
 
-                Producto p = new Producto(codigo, nombre, categoria, stockMinimo, stockActual, null);
+                Producto p = new Producto(codigo, nombre, categoria, stockMinimo, stockActual, depositos.get(idDeposito));
                 lista.add(p);
             }
+            evento.filas = lista.size();
 
         } catch (Exception e) {
             e.printStackTrace(); // Muestra error en consola
@@ -107,53 +151,187 @@ public class ProductoDAO {
     }
 
     /**
-     * Exporta la lista de productos a un archivo CSV, preguntando al usuario la carpeta de destino.
+     * Escribe la lista de productos en un archivo CSV, leyendo las filas de a una.
+     * @param archivo archivo destino
+     * @return cantidad de productos escritos
+     * @throws Exception si falla la lectura o la escritura
      */
-    public static void exportarProductosCSV() {
-        List<Producto> productos = obtenerProductos(); // Carga todos los productos
-
-        DirectoryChooser chooser = new DirectoryChooser();
-        chooser.setTitle("Seleccionar carpeta para guardar productos.csv");
-        File selectedDirectory = chooser.showDialog(null); // Abre diálogo para seleccionar carpeta
+    public static int escribirProductosCSV(File archivo) throws Exception {
+        int filas = 0;
+        try (EventoExportacion evento = EventoExportacion.iniciar("productos", archivo.getPath());
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.EXPORTACION);
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT codigo, nombre, categoria, stock_minimo, stock_actual FROM productos ORDER BY codigo",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             PrintWriter writer = new PrintWriter(archivo, StandardCharsets.UTF_8)) {
 
-        if (selectedDirectory == null) {
-            return; // Usuario canceló
-        }
-
-        File archivo = new File(selectedDirectory, "productos.csv"); // Archivo destino
+            stmt.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
 
-        try (PrintWriter writer = new PrintWriter(archivo)) {
             // Escribe encabezado
             writer.println("Codigo,Nombre,Categoria,Stock Minimo,Stock Actual,Stock Crítico");
 
             // Escribe productos uno por uno
-            for (Producto p : productos) {
-                String critico = (p.getStockActual() < p.getStockMinimo()) ? "Sí" : "No";
-                
-                writer.printf("%s,%s,%s,%d,%d,%s%n",
-                    p.getCodigo(),
-                    p.getNombre(),
-                    p.getCategoria(),
-                    p.getStockMinimo(),
-                    p.getStockActual(),
-                    critico);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int minimo = rs.getInt(4);
+                    int actual = rs.getInt(5);
+                    String critico = (actual < minimo) ? "Sí" : "No";
+
+                    writer.printf("%s,%s,%s,%d,%d,%s%n",
+                        rs.getString(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        minimo,
+                        actual,
+                        critico);
+                    filas++;
+                }
             }
+            if (writer.checkError()) throw new IOException("Error al escribir " + archivo.getName());
+            evento.filas = filas;
+        }
+        DiarioAuditoria.registrarExportacion(archivo.getAbsolutePath(), filas);
+        return filas;
+    }
 
-            // Alerta de éxito
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Exportación exitosa");
-            alert.setHeaderText(null);
-            alert.setContentText("Archivo guardado en: " + archivo.getAbsolutePath());
-            alert.showAndWait();
+    /**
+     * Diferencia entre el stock guardado de un producto y el que resulta de sumar sus movimientos.
+     */
+    public record DiferenciaStock(String codigo, String nombre, int stockActual, long stockCalculado) {
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace(); // Error de escritura
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Error");
-            alert.setHeaderText("No se pudo exportar productos");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+    /**
+     * Compara el stock de cada producto con la suma de sus movimientos activos y archivados.
+     * Todo el cálculo se hace en la base de datos (agrupado por producto).
+     * @return productos cuyo stock no coincide con sus movimientos
+     * @throws SQLException si falla la consulta
+     */
+    public static List<DiferenciaStock> verificarStock() throws SQLException {
+        String sql = "SELECT p.codigo, p.nombre, p.stock_actual, "
+                   + "COALESCE(m.total, 0) + COALESCE(a.cantidad, 0) AS calculado "
+                   + "FROM productos p "
+                   + "LEFT JOIN (SELECT producto_codigo, SUM(cantidad) AS total FROM movimientos GROUP BY producto_codigo) m "
+                   + "ON m.producto_codigo = p.codigo "
+                   + "LEFT JOIN movimientos_archivados a ON a.producto_codigo = p.codigo "
+                   + "WHERE p.stock_actual <> COALESCE(m.total, 0) + COALESCE(a.cantidad, 0) "
+                   + "ORDER BY p.codigo";
+
+        List<DiferenciaStock> lista = new ArrayList<>();
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.verificarStock");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.REPORTE);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                lista.add(new DiferenciaStock(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getLong(4)));
+            }
+            evento.filas = lista.size();
         }
+        return lista;
     }
-}
 
+    /**
+     * Stock de un producto reconstruido a un momento pasado.
+     */
+    public record StockReproducido(String codigo, String nombre, int stock) {
+    }
+
+    /**
+     * Reconstruye el stock de cada producto a un momento pasado: al stock actual se le restan los
+     * movimientos desde ese momento (activos y archivados). El stock y los movimientos se leen en
+     * la misma conexión y dentro de una instantánea consistente, así un movimiento confirmado
+     * mientras se lee (o el atraso de una réplica) no descuadra el resultado.
+     * @param momento momento a reconstruir
+     * @param destino recibe el stock de cada producto, ordenado por código
+     * @return cantidad de movimientos revertidos
+     * @throws Exception si falla la lectura de la base o de los segmentos archivados
+     */
+    public static long reproducirStock(LocalDateTime momento, List<StockReproducido> destino) throws Exception {
+        Map<String, Integer> stock = new HashMap<>();
+        List<String[]> productos = new ArrayList<>(); // {codigo, nombre}
+        long[] revertidos = {0};
+
+        try (EventoBD evento = EventoBD.iniciar("ProductoDAO.reproducirStock");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.REPORTE)) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                try (ResultSet rs = stmt.executeQuery("SELECT codigo, nombre, stock_actual FROM productos ORDER BY codigo")) {
+                    while (rs.next()) {
+                        productos.add(new String[]{rs.getString(1), rs.getString(2)});
+                        stock.put(rs.getString(1), rs.getInt(3));
+                    }
+                }
+            }
+
+            // La marca del archivo se lee después de abrir la instantánea: lo que un archivado confirme
+            // mientras tanto sigue visible en la base y se toma de ahí (los segmentos se filtran por la marca)
+            long ultimoArchivado = ArchivoMovimientos.ultimoIdArchivado();
+
+            // La cantidad conserva el signo de la base (egresos negativos), así que se resta tal cual
+            ArchivoMovimientos.recorrer(momento, null, r -> {
+                if (r.id() > ultimoArchivado) return;
+                stock.merge(r.productoCodigo(), -r.cantidad(), Integer::sum);
+                revertidos[0]++;
+            });
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT producto_codigo, cantidad FROM movimientos WHERE id > ? AND fecha >= ?",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
+                ps.setLong(1, ultimoArchivado);
+                ps.setTimestamp(2, Timestamp.valueOf(momento));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        stock.merge(rs.getString(1), -rs.getInt(2), Integer::sum);
+                        revertidos[0]++;
+                    }
+                }
+            }
+            conn.commit();
+            evento.filas = revertidos[0];
+        }
+
+        for (String[] p : productos) destino.add(new StockReproducido(p[0], p[1], stock.get(p[0])));
+        return revertidos[0];
+    }
+
+    /**
+     * Escribe una instantánea consistente del stock de todos los productos en un archivo CSV.
+     * Se lee dentro de una transacción con instantánea consistente, así el stock y el último id
+     * de movimiento corresponden exactamente al mismo momento.
+     * @param archivo archivo destino
+     * @return último id de movimiento incluido en la instantánea
+     * @throws Exception si falla la lectura o la escritura
+     */
+    public static long escribirInstantanea(File archivo) throws Exception {
+        try (EventoExportacion evento = EventoExportacion.iniciar("instantanea", archivo.getPath());
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.EXPORTACION)) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+
+                long ultimoId;
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0), NOW() FROM movimientos")) {
+                    rs.next();
+                    ultimoId = rs.getLong(1);
+                }
+
+                try (PrintWriter writer = new PrintWriter(archivo, StandardCharsets.UTF_8);
+                     ResultSet rs = stmt.executeQuery("SELECT codigo, nombre, categoria, stock_minimo, stock_actual, id_deposito FROM productos ORDER BY codigo")) {
+                    writer.println("# Instantánea de stock - movimientos hasta id " + ultimoId + " - " + LocalDateTime.now());
+                    writer.println("Codigo,Nombre,Categoria,Stock Minimo,Stock Actual,Deposito");
+                    long filas = 0;
+                    while (rs.next()) {
+                        writer.printf("%s,%s,%s,%d,%d,%d%n", rs.getString(1), rs.getString(2), rs.getString(3),
+                                rs.getInt(4), rs.getInt(5), rs.getInt(6));
+                        filas++;
+                    }
+                    if (writer.checkError()) throw new IOException("Error al escribir " + archivo.getName());
+                    evento.filas = filas;
+                }
+                conn.commit();
+                DiarioAuditoria.registrarExportacion(archivo.getAbsolutePath() + " (instantánea hasta id " + ultimoId + ")", 0);
+                return ultimoId;
+            }
+        }
+    }
+}
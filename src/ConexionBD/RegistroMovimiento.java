@@ -0,0 +1,29 @@
+package ConexionBD;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la tabla movimientos tal como se guarda (en la base de datos o en el archivo frío).
+ * La cantidad conserva el signo de la base: los egresos son negativos.
+ *
+ * @param id             identificador del movimiento
+ * @param tipo           INGRESO, EGRESO o AJUSTE
+ * @param fecha          fecha y hora del movimiento
+ * @param cantidad       variación de stock (negativa para egresos)
+ * @param justificacion  justificación (puede ser null)
+ * @param productoCodigo código del producto
+ * @param usuarioId      id del usuario que registró el movimiento
+ * @param costoUnitario  costo de cada unidad (solo ingresos; null si no se informó)
+ */
+public record RegistroMovimiento(long id, String tipo, LocalDateTime fecha, int cantidad,
+                                 String justificacion, String productoCodigo, int usuarioId, BigDecimal costoUnitario) {
+
+    /**
+     * Registro sin costo unitario (egresos, ajustes e ingresos sin costo).
+     */
+    public RegistroMovimiento(long id, String tipo, LocalDateTime fecha, int cantidad,
+                              String justificacion, String productoCodigo, int usuarioId) {
+        this(id, tipo, fecha, cantidad, justificacion, productoCodigo, usuarioId, null);
+    }
+}
@@ -0,0 +1,64 @@
+package ConexionBD;
+
+import gametechstock.Movimiento;
+import gametechstock.Remito;
+import java.sql.*;
+import java.util.List;
+import monitoreo.EventoBD;
+
+/**
+ * DAO para guardar remitos (documentos de stock con varias líneas).
+ */
+public class RemitoDAO {
+
+    // Inserción de la cabecera del remito
+    private static final String SQL_INSERTAR =
+            "INSERT INTO remitos (tipo, numero, fecha, observaciones, usuario_id) VALUES (?, ?, ?, ?, ?)";
+
+    /**
+     * Guarda la cabecera del remito y todos sus movimientos en una única transacción.
+     * Las líneas se insertan con una sola inserción por lotes. Si algo falla no se guarda nada.
+     * Igual que los lotes de movimientos, el guardado se reintenta ante errores transitorios sin
+     * duplicar el remito: si las líneas ya estaban guardadas, no se vuelve a insertar la cabecera.
+     * Al terminar, el remito queda con el id asignado por la base de datos.
+     * @param remito remito a guardar
+     * @param movimientos movimientos generados por las líneas del remito
+     * @throws SQLException si no se pudo guardar (la transacción se revierte)
+     */
+    public static void guardarRemito(Remito remito, List<? extends Movimiento> movimientos) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("RemitoDAO.guardarRemito")) {
+            int[] id = {0};
+            boolean insertado = MovimientoDAO.guardarIdempotente(movimientos, (conn, nuevos) -> {
+                // Cabecera y líneas en la misma transacción
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERTAR, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, remito.getTipo());
+                    stmt.setString(2, remito.getNumero());
+                    stmt.setTimestamp(3, Timestamp.valueOf(remito.getFecha()));
+                    stmt.setString(4, remito.getObservaciones());
+                    stmt.setInt(5, remito.getUsuario().getId());
+                    stmt.executeUpdate();
+
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        if (!rs.next()) throw new SQLException("No se obtuvo el id del remito.");
+                        id[0] = rs.getInt(1);
+                    }
+                }
+                MovimientoDAO.insertarLote(conn, nuevos, id[0]);
+            });
+
+            // Si un intento anterior ya lo había guardado, el id se toma de sus líneas
+            if (!insertado && !movimientos.isEmpty()) {
+                id[0] = 0;
+                try (Connection conn = ConexionBD.obtenerConexion();
+                     PreparedStatement stmt = conn.prepareStatement("SELECT remito_id FROM movimientos WHERE id = ?")) {
+                    stmt.setLong(1, movimientos.get(0).getId());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) id[0] = rs.getInt(1);
+                    }
+                }
+            }
+            remito.setId(id[0]);
+            evento.filas = movimientos.size() + 1; // Líneas y cabecera
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ConexionBD;
+
+import java.sql.*;
+import monitoreo.EventoBD;
+
+/**
+ * Acceso a la tabla reservas (reservas de stock con vencimiento, ver ReservasStock).
+ * Cada reserva es una fila corta; al vencer o despacharse se borra, así la tabla solo guarda las vigentes.
+ *
+ * La tabla es la que comparten todas las terminales: una reserva nueva se valida contra el stock
+ * de la base menos las reservas vigentes de todas ellas, con la fila del producto bloqueada (la misma
+ * fila que bloquea el trigger de movimientos), así dos terminales no pueden apartar ni vender
+ * las mismas unidades (los egresos se validan igual en MovimientoDAO).
+ */
+public class ReservaDAO {
+
+    /**
+     * Recibe cada reserva vigente al cargar.
+     */
+    public interface Lector {
+        void leer(long id, String productoCodigo, int cantidad, long venceMs, String referencia);
+    }
+
+    /**
+     * Guarda una reserva nueva si el producto tiene stock disponible contando las reservas vigentes
+     * de todas las terminales.
+     * @param productoCodigo código del producto reservado
+     * @param cantidad unidades reservadas
+     * @param vence momento de vencimiento
+     * @param referencia referencia del pedido (puede ser null)
+     * @param usuarioId usuario que reservó (0 si no hay usuario)
+     * @return id generado
+     * @throws SQLException si no hay stock disponible o falla el guardado (no se guarda nada)
+     */
+    public static long guardar(String productoCodigo, int cantidad, Timestamp vence, String referencia, int usuarioId) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("ReservaDAO.guardar");
+             Connection conn = ConexionBD.obtenerConexion()) {
+            evento.productoCodigo = productoCodigo;
+            conn.setAutoCommit(false);
+            try {
+                int disponible = disponible(conn, productoCodigo);
+                if (cantidad > disponible) {
+                    throw new SQLException("Stock disponible insuficiente para " + productoCodigo
+                            + " (contando las reservas de todas las terminales): " + Math.max(0, disponible) + " unidades.");
+                }
+
+                long id;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO reservas (producto_codigo, cantidad, vence, referencia, usuario_id) VALUES (?, ?, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, productoCodigo);
+                    ps.setInt(2, cantidad);
+                    ps.setTimestamp(3, vence);
+                    ps.setString(4, referencia);
+                    if (usuarioId > 0) ps.setInt(5, usuarioId);
+                    else ps.setNull(5, Types.INTEGER);
+                    evento.filas = ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (!rs.next()) throw new SQLException("No se obtuvo el id de la reserva.");
+                        id = rs.getLong(1);
+                    }
+                }
+                conn.commit();
+                ConexionBD.registrarEscritura();
+                return id;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stock de la base menos las reservas vigentes del producto, dentro de la transacción abierta.
+     * Bloquea la fila del producto hasta el commit: las reservas y los egresos del mismo producto
+     * de otras terminales esperan a que termine.
+     * @param conn conexión con la transacción abierta
+     * @param productoCodigo código del producto
+     * @return unidades disponibles (puede ser negativo)
+     * @throws SQLException si el producto no existe o falla la consulta
+     */
+    static int disponible(Connection conn, String productoCodigo) throws SQLException {
+        int stock;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT stock_actual FROM productos WHERE codigo = ? FOR UPDATE")) {
+            ps.setString(1, productoCodigo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("No existe el producto " + productoCodigo + ".");
+                stock = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COALESCE(SUM(cantidad), 0) FROM reservas WHERE producto_codigo = ? AND vence > NOW()")) {
+            ps.setString(1, productoCodigo);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return stock - rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Borra una reserva (liberada o despachada).
+     * @param id id de la reserva
+     * @throws SQLException si falla el borrado
+     */
+    public static void borrar(long id) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("ReservaDAO.borrar");
+             Connection conn = ConexionBD.obtenerConexion();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM reservas WHERE id = ?")) {
+            ps.setLong(1, id);
+            evento.filas = ps.executeUpdate();
+            ConexionBD.registrarEscritura();
+        }
+    }
+
+    /**
+     * Borra las reservas vencidas (usa el índice por vencimiento).
+     * @param ahora momento actual
+     * @return filas borradas
+     * @throws SQLException si falla el borrado
+     */
+    public static int purgarVencidas(Timestamp ahora) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("ReservaDAO.purgarVencidas");
+             Connection conn = ConexionBD.obtenerConexion();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM reservas WHERE vence <= ?")) {
+            ps.setTimestamp(1, ahora);
+            int filas = ps.executeUpdate();
+            evento.filas = filas;
+            if (filas > 0) ConexionBD.registrarEscritura();
+            return filas;
+        }
+    }
+
+    /**
+     * Borra las reservas vencidas y entrega las vigentes, leyendo las filas de a una.
+     * Se lee de la base principal: una reserva recién hecha todavía puede no estar en la réplica.
+     * @param ahora momento actual
+     * @param lector recibe cada reserva vigente
+     * @return cantidad de reservas leídas
+     */
+    public static int cargar(Timestamp ahora, Lector lector) {
+        int filas = 0;
+        try {
+            purgarVencidas(ahora);
+            try (EventoBD evento = EventoBD.iniciar("ReservaDAO.cargar");
+                 Connection conn = ConexionBD.obtenerConexion();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT id, producto_codigo, cantidad, vence, referencia FROM reservas",
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lector.leer(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getTimestamp(4).getTime(), rs.getString(5));
+                        filas++;
+                    }
+                }
+                evento.filas = filas;
+            }
+        } catch (Exception e) {
+            e.printStackTrace(); // Sin la tabla (esquema sin migrar) no hay reservas
+        }
+        return filas;
+    }
+}
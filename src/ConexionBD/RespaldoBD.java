@@ -0,0 +1,549 @@
+package ConexionBD;
+
+import gametechstock.Configuracion;
+import gametechstock.DiarioAuditoria;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import monitoreo.EventoBD;
+import monitoreo.EventoExportacion;
+
+/**
+ * Respaldo y restauración de la base de datos en archivos locales comprimidos.
+ *
+ * El respaldo lee todas las tablas dentro de una única transacción con instantánea consistente
+ * (START TRANSACTION WITH CONSISTENT SNAPSHOT): no bloquea tablas y las terminales siguen
+ * registrando movimientos mientras corre. Cada tabla se escribe en archivos de a
+ * respaldo.filasPorArchivo filas (texto separado por tabulaciones, comprimido con gzip) que se
+ * comprimen en paralelo mientras se sigue leyendo. Un manifiesto guarda las columnas de cada tabla
+ * y la cantidad de filas y el SHA-256 de cada archivo.
+ *
+ * La restauración verifica primero todos los archivos (si alguno no coincide no se toca la base),
+ * vacía las tablas y carga los archivos en paralelo con inserciones por lotes, sin verificar claves
+ * foráneas ni únicas y sin que el trigger de movimientos vuelva a sumar el stock (el stock y las
+ * alertas ya vienen en el respaldo, ver la migración v9). Debe correr con las demás terminales cerradas.
+ *
+ * Los segmentos del archivo frío (ver ArchivoMovimientos) son archivos locales y se respaldan aparte.
+ */
+public class RespaldoBD {
+
+    // Tablas respaldadas, en orden de dependencias
+    private static final List<String> TABLAS = List.of("depositos", "usuarios", "productos", "remitos",
+            "movimientos", "alertas", "movimientos_archivados", "series", "movimientos_ids", "reservas");
+
+    // Archivo del manifiesto dentro de la carpeta del respaldo y versión de su formato
+    private static final String MANIFIESTO = "respaldo.txt";
+    private static final int FORMATO = 1;
+
+    // Versión del esquema desde la que el trigger respeta @gametech_restauracion
+    private static final int ESQUEMA_MINIMO = 9;
+
+    // Filas de cada archivo, hilos de compresión y de carga, y filas por inserción al restaurar
+    private static final int FILAS_POR_ARCHIVO = Configuracion.getInt("respaldo.filasPorArchivo", 100_000);
+    private static final int HILOS = Configuracion.getInt("respaldo.hilos", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int FILAS_POR_LOTE = 1000;
+
+    // Valor NULL en los archivos (mismo criterio que LOAD DATA de MySQL)
+    private static final String NULO = "\\N";
+
+    private static final DateTimeFormatter NOMBRE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Archivo de datos de un respaldo, según el manifiesto.
+     */
+    private record Archivo(String nombre, String tabla, long filas, String sha256) {
+    }
+
+    /**
+     * Contenido del manifiesto: versión del esquema, columnas por tabla y archivos.
+     */
+    private record Manifiesto(int esquema, Map<String, String> columnas, List<Archivo> archivos) {
+    }
+
+    /**
+     * Devuelve la carpeta donde se crean los respaldos (clave respaldo.directorio).
+     * @return carpeta de respaldos
+     */
+    public static File getDirectorio() {
+        return new File(Configuracion.get("respaldo.directorio", "respaldos"));
+    }
+
+    /**
+     * Crea un respaldo nuevo en la carpeta de respaldos (respaldo-AAAAMMDD-HHMMSS).
+     * @return resumen del respaldo
+     * @throws Exception si falla la lectura o la escritura (no queda ningún respaldo a medias)
+     */
+    public static String respaldar() throws Exception {
+        return respaldar(new File(getDirectorio(), "respaldo-" + LocalDateTime.now().format(NOMBRE)));
+    }
+
+    /**
+     * Crea un respaldo en la carpeta indicada (que no debe existir).
+     * Se escribe primero en una carpeta .parcial que se renombra al terminar.
+     * @param destino carpeta del respaldo
+     * @return resumen del respaldo
+     * @throws Exception si falla la lectura o la escritura
+     */
+    public static String respaldar(File destino) throws Exception {
+        if (destino.exists()) throw new IOException("El respaldo ya existe: " + destino.getPath());
+        File parcial = new File(destino.getPath() + ".parcial");
+        borrar(parcial); // Restos de un respaldo interrumpido
+        if (!parcial.mkdirs()) throw new IOException("No se pudo crear la carpeta " + parcial.getPath());
+
+        long inicio = System.nanoTime();
+        Map<String, String> columnas = new LinkedHashMap<>();
+        List<Archivo> archivos;
+        int esquema;
+        long filas = 0;
+
+        try (EventoExportacion evento = EventoExportacion.iniciar("respaldo", parcial.getPath());
+             Compresor compresor = new Compresor(parcial);
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.EXPORTACION)) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                esquema = versionEsquema(stmt);
+            }
+            for (String tabla : TABLAS) {
+                filas += volcar(conn, tabla, columnas, compresor);
+            }
+            conn.commit();
+            archivos = compresor.terminar();
+            escribirManifiesto(parcial, esquema, columnas, archivos);
+            evento.filas = filas;
+        } catch (Exception e) {
+            borrar(parcial);
+            throw e;
+        }
+
+        if (!parcial.renameTo(destino)) {
+            throw new IOException("No se pudo renombrar " + parcial.getPath() + " a " + destino.getName());
+        }
+        DiarioAuditoria.registrarExportacion(destino.getAbsolutePath() + " (respaldo)", filas);
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        return "Respaldo " + destino.getPath() + ": " + filas + " filas de " + columnas.size() + " tablas en "
+                + archivos.size() + " archivos (" + ms + " ms).";
+    }
+
+    /**
+     * Restaura un respaldo: reemplaza el contenido de todas las tablas respaldadas.
+     * @param origen carpeta del respaldo
+     * @return resumen de la restauración
+     * @throws Exception si el respaldo está incompleto o dañado (la base no se modifica), si el
+     *                   esquema no es compatible, o si falla la carga (se puede volver a restaurar)
+     */
+    public static String restaurar(File origen) throws Exception {
+        long inicio = System.nanoTime();
+        Manifiesto manifiesto = leerManifiesto(origen);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            // Se verifican todos los archivos antes de borrar nada
+            List<Future<Void>> verificados = new ArrayList<>();
+            for (Archivo a : manifiesto.archivos()) {
+                verificados.add(hilos.submit(() -> {
+                    verificar(origen, a);
+                    return null;
+                }));
+            }
+            for (Future<Void> f : verificados) esperar(f);
+
+            try (Connection conn = ConexionBD.obtenerConexion();
+                 Statement stmt = conn.createStatement()) {
+                int actual = versionEsquema(stmt);
+                if (actual < ESQUEMA_MINIMO || actual < manifiesto.esquema()) {
+                    throw new Exception("La base está en la versión " + actual + " del esquema y el respaldo necesita la "
+                            + Math.max(ESQUEMA_MINIMO, manifiesto.esquema()) + ": ejecute primero \"migrar\".");
+                }
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+                for (String tabla : manifiesto.columnas().keySet()) {
+                    stmt.execute("TRUNCATE TABLE " + tabla);
+                }
+            }
+
+            // Los archivos más grandes primero, para repartir mejor la carga entre los hilos
+            List<Archivo> orden = new ArrayList<>(manifiesto.archivos());
+            orden.sort(Comparator.comparingLong(Archivo::filas).reversed());
+            List<Future<Long>> cargados = new ArrayList<>();
+            for (Archivo a : orden) {
+                cargados.add(hilos.submit(() -> cargar(origen, a, manifiesto.columnas().get(a.tabla()))));
+            }
+            long filas = 0;
+            for (Future<Long> f : cargados) filas += esperar(f);
+
+            ConexionBD.registrarEscritura();
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            return "Restaurado " + origen.getPath() + ": " + filas + " filas de " + manifiesto.columnas().size()
+                    + " tablas (" + ms + " ms).";
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    // --- Respaldo ---
+
+    /**
+     * Lee una tabla completa (dentro de la transacción abierta) y la envía a comprimir por bloques.
+     * @return filas leídas
+     */
+    private static long volcar(Connection conn, String tabla, Map<String, String> columnas, Compresor compresor) throws Exception {
+        try (EventoBD evento = EventoBD.iniciar("RespaldoBD.volcar(" + tabla + ")");
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + tabla)) {
+                ResultSetMetaData md = rs.getMetaData();
+                int n = md.getColumnCount();
+                int[] tipos = new int[n + 1];
+                StringJoiner nombres = new StringJoiner(",");
+                for (int i = 1; i <= n; i++) {
+                    nombres.add(md.getColumnName(i));
+                    tipos[i] = md.getColumnType(i);
+                }
+                columnas.put(tabla, nombres.toString());
+
+                StringBuilder bloque = new StringBuilder(1 << 16);
+                int filasBloque = 0;
+                int numero = 0;
+                long total = 0;
+                while (rs.next()) {
+                    for (int i = 1; i <= n; i++) {
+                        if (i > 1) bloque.append('\t');
+                        escribirCampo(bloque, rs, i, tipos[i]);
+                    }
+                    bloque.append('\n');
+                    total++;
+                    if (++filasBloque == FILAS_POR_ARCHIVO) {
+                        compresor.enviar(String.format("%s-%05d.tsv.gz", tabla, ++numero), tabla, filasBloque, bloque);
+                        bloque = new StringBuilder(bloque.length());
+                        filasBloque = 0;
+                    }
+                }
+                if (filasBloque > 0) {
+                    compresor.enviar(String.format("%s-%05d.tsv.gz", tabla, ++numero), tabla, filasBloque, bloque);
+                }
+                evento.filas = total;
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Escribe un campo escapando tabulaciones, saltos de línea y barras (los binarios van en hexadecimal).
+     */
+    private static void escribirCampo(StringBuilder sb, ResultSet rs, int i, int tipo) throws SQLException {
+        if (esBinaria(tipo)) {
+            byte[] valor = rs.getBytes(i);
+            sb.append(valor == null ? NULO : HexFormat.of().formatHex(valor));
+            return;
+        }
+        if (tipo == Types.BIT || tipo == Types.BOOLEAN) {
+            long valor = rs.getLong(i); // TINYINT(1): se guarda el número y no true/false
+            sb.append(rs.wasNull() ? NULO : Long.toString(valor));
+            return;
+        }
+        String valor = rs.getString(i);
+        if (valor == null) {
+            sb.append(NULO);
+            return;
+        }
+        for (int k = 0; k < valor.length(); k++) {
+            char c = valor.charAt(k);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Comprime los bloques en varios hilos mientras la conexión sigue leyendo.
+     * Limita los bloques en espera para no acumular en memoria una tabla entera.
+     */
+    private static class Compresor implements AutoCloseable {
+        private final File carpeta;
+        private final ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        private final Semaphore enEspera = new Semaphore(HILOS * 2);
+        private final List<Future<Archivo>> archivos = new ArrayList<>();
+
+        Compresor(File carpeta) {
+            this.carpeta = carpeta;
+        }
+
+        void enviar(String nombre, String tabla, long filas, StringBuilder bloque) throws InterruptedException {
+            byte[] datos = bloque.toString().getBytes(StandardCharsets.UTF_8);
+            enEspera.acquire();
+            archivos.add(hilos.submit(() -> {
+                try {
+                    return comprimir(new File(carpeta, nombre), tabla, filas, datos);
+                } finally {
+                    enEspera.release();
+                }
+            }));
+        }
+
+        /**
+         * Espera a que terminen todos los archivos.
+         * @return archivos escritos, en el orden en que se enviaron
+         */
+        List<Archivo> terminar() throws Exception {
+            List<Archivo> lista = new ArrayList<>();
+            for (Future<Archivo> f : archivos) lista.add(esperar(f));
+            return lista;
+        }
+
+        @Override
+        public void close() {
+            hilos.shutdownNow();
+            try {
+                hilos.awaitTermination(1, TimeUnit.MINUTES); // Que nadie siga escribiendo si se borra la carpeta
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Lo atiende quien llamó (el respaldo ya está fallando o terminado)
+            }
+        }
+    }
+
+    /**
+     * Comprime un bloque en su archivo calculando el SHA-256 de lo escrito.
+     */
+    private static Archivo comprimir(File archivo, String tabla, long filas, byte[] datos) throws IOException {
+        MessageDigest sha = sha256();
+        try (FileOutputStream fos = new FileOutputStream(archivo)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(new DigestOutputStream(fos, sha), 1 << 16);
+            gzip.write(datos);
+            gzip.finish();       // escribe el final del bloque comprimido
+            fos.getFD().sync();  // el respaldo tiene que estar en disco antes de darlo por terminado
+        }
+        return new Archivo(archivo.getName(), tabla, filas, HexFormat.of().formatHex(sha.digest()));
+    }
+
+    /**
+     * Escribe el manifiesto (líneas separadas por tabulaciones).
+     */
+    private static void escribirManifiesto(File carpeta, int esquema, Map<String, String> columnas, List<Archivo> archivos) throws IOException {
+        File archivo = new File(carpeta, MANIFIESTO);
+        try (FileOutputStream fos = new FileOutputStream(archivo);
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            writer.println("# Respaldo de gametech_db - " + LocalDateTime.now());
+            writer.println("formato\t" + FORMATO);
+            writer.println("esquema\t" + esquema);
+            for (Map.Entry<String, String> e : columnas.entrySet()) {
+                writer.println("tabla\t" + e.getKey() + "\t" + e.getValue());
+            }
+            for (Archivo a : archivos) {
+                writer.println("archivo\t" + a.nombre() + "\t" + a.tabla() + "\t" + a.filas() + "\t" + a.sha256());
+            }
+            writer.flush();
+            if (writer.checkError()) throw new IOException("Error al escribir " + archivo.getName());
+            fos.getFD().sync();
+        }
+    }
+
+    // --- Restauración ---
+
+    /**
+     * Lee y valida el manifiesto de un respaldo (tablas y columnas conocidas, archivos presentes).
+     */
+    private static Manifiesto leerManifiesto(File origen) throws Exception {
+        File archivo = new File(origen, MANIFIESTO);
+        if (!archivo.isFile()) throw new Exception("No es un respaldo (falta " + MANIFIESTO + "): " + origen.getPath());
+
+        int formato = -1;
+        int esquema = -1;
+        Map<String, String> columnas = new LinkedHashMap<>();
+        List<Archivo> archivos = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (linea.isBlank() || linea.startsWith("#")) continue;
+                String[] campos = linea.split("\t");
+                switch (campos[0]) {
+                    case "formato" -> formato = Integer.parseInt(campos[1]);
+                    case "esquema" -> esquema = Integer.parseInt(campos[1]);
+                    case "tabla" -> {
+                        // Los nombres van dentro del SQL: solo se aceptan tablas y columnas conocidas
+                        if (!TABLAS.contains(campos[1]) || !campos[2].matches("[a-z_0-9]+(,[a-z_0-9]+)*")) {
+                            throw new Exception("Tabla inválida en el manifiesto: " + campos[1]);
+                        }
+                        columnas.put(campos[1], campos[2]);
+                    }
+                    case "archivo" -> archivos.add(new Archivo(campos[1], campos[2], Long.parseLong(campos[3]), campos[4]));
+                    default -> throw new Exception("Línea desconocida en el manifiesto: " + campos[0]);
+                }
+            }
+        }
+        if (formato != FORMATO) throw new Exception("Formato de respaldo no soportado: " + formato);
+        for (Archivo a : archivos) {
+            if (!columnas.containsKey(a.tabla()) || a.nombre().contains("/") || a.nombre().contains("\\")) {
+                throw new Exception("Archivo inválido en el manifiesto: " + a.nombre());
+            }
+        }
+        return new Manifiesto(esquema, columnas, archivos);
+    }
+
+    /**
+     * Verifica el SHA-256 de un archivo del respaldo.
+     */
+    private static void verificar(File origen, Archivo a) throws IOException {
+        MessageDigest sha = sha256();
+        try (InputStream in = new DigestInputStream(new FileInputStream(new File(origen, a.nombre())), sha)) {
+            byte[] buffer = new byte[1 << 16];
+            while (in.read(buffer) != -1) {
+                // Solo se calcula el resumen
+            }
+        } catch (FileNotFoundException e) {
+            throw new IOException("Falta el archivo " + a.nombre() + " del respaldo.");
+        }
+        if (!HexFormat.of().formatHex(sha.digest()).equals(a.sha256())) {
+            throw new IOException("El archivo " + a.nombre() + " está dañado (no coincide el SHA-256).");
+        }
+    }
+
+    /**
+     * Carga un archivo en su tabla con inserciones por lotes, en una transacción propia.
+     * @return filas cargadas
+     */
+    private static long cargar(File origen, Archivo a, String columnas) throws Exception {
+        int n = columnas.split(",").length;
+        String sql = "INSERT INTO " + a.tabla() + " (" + columnas + ") VALUES (" + "?, ".repeat(n - 1) + "?)";
+
+        try (EventoBD evento = EventoBD.iniciar("RespaldoBD.cargar(" + a.nombre() + ")");
+             Connection conn = ConexionBD.obtenerConexion();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(new FileInputStream(new File(origen, a.nombre())), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            try (Statement stmt = conn.createStatement()) {
+                // Sin verificar claves (los datos ya eran consistentes) y sin que el trigger sume el stock de nuevo
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 0, UNIQUE_CHECKS = 0, @gametech_restauracion = 1");
+            }
+            conn.setAutoCommit(false);
+
+            boolean[] binaria = new boolean[n];
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT " + columnas + " FROM " + a.tabla() + " LIMIT 0")) {
+                ResultSetMetaData md = rs.getMetaData();
+                for (int i = 0; i < n; i++) binaria[i] = esBinaria(md.getColumnType(i + 1));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                String[] campos = new String[n];
+                long filas = 0;
+                int enLote = 0;
+                String linea;
+                while ((linea = reader.readLine()) != null) {
+                    separar(linea, campos, a.nombre());
+                    for (int i = 0; i < n; i++) {
+                        if (campos[i] == null) ps.setNull(i + 1, Types.NULL);
+                        else if (binaria[i]) ps.setBytes(i + 1, HexFormat.of().parseHex(campos[i]));
+                        else ps.setString(i + 1, campos[i]);
+                    }
+                    ps.addBatch();
+                    filas++;
+                    if (++enLote == FILAS_POR_LOTE) {
+                        ps.executeBatch(); // Con rewriteBatchedStatements se envía como un único INSERT de varias filas
+                        enLote = 0;
+                    }
+                }
+                if (enLote > 0) ps.executeBatch();
+
+                if (filas != a.filas()) {
+                    conn.rollback();
+                    throw new IOException("El archivo " + a.nombre() + " tiene " + filas + " filas y el manifiesto indica " + a.filas() + ".");
+                }
+                conn.commit();
+                evento.filas = filas;
+                return filas;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Separa una línea en sus campos y deshace el escape (NULO queda como null).
+     */
+    private static void separar(String linea, String[] campos, String archivo) throws IOException {
+        StringBuilder campo = new StringBuilder();
+        int i = 0;
+        int inicio = 0;
+        for (int k = 0; k <= linea.length(); k++) {
+            char c = k < linea.length() ? linea.charAt(k) : '\t';
+            if (c == '\t') {
+                if (i == campos.length) throw new IOException("Línea con columnas de más en " + archivo);
+                boolean nulo = k - inicio == NULO.length() && linea.startsWith(NULO, inicio);
+                campos[i++] = nulo ? null : campo.toString();
+                campo.setLength(0);
+                inicio = k + 1;
+            } else if (c == '\\' && k + 1 < linea.length()) {
+                char siguiente = linea.charAt(++k);
+                campo.append(switch (siguiente) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> siguiente; // "\\" (y la N de NULO, que se descarta arriba)
+                });
+            } else {
+                campo.append(c);
+            }
+        }
+        if (i != campos.length) throw new IOException("Línea con columnas de menos en " + archivo);
+    }
+
+    // --- Auxiliares ---
+
+    private static boolean esBinaria(int tipo) {
+        return tipo == Types.BINARY || tipo == Types.VARBINARY || tipo == Types.LONGVARBINARY || tipo == Types.BLOB;
+    }
+
+    private static int versionEsquema(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todas las JVM incluyen SHA-256
+        }
+    }
+
+    /**
+     * Espera el resultado de una tarea y relanza su error original.
+     */
+    private static <T> T esperar(Future<T> tarea) throws Exception {
+        try {
+            return tarea.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception causa) throw causa;
+            throw e;
+        }
+    }
+
+    /**
+     * Borra una carpeta de respaldo y su contenido (sin subcarpetas).
+     */
+    private static void borrar(File carpeta) {
+        File[] archivos = carpeta.listFiles();
+        if (archivos != null) {
+            for (File f : archivos) f.delete();
+        }
+        carpeta.delete();
+    }
+}
@@ -0,0 +1,133 @@
+package ConexionBD;
+
+import gametechstock.Egreso;
+import gametechstock.Ingreso;
+import gametechstock.Movimiento;
+import gametechstock.RegistroSeries;
+import gametechstock.RegistroSeries.Serie;
+import java.sql.*;
+import java.util.List;
+import monitoreo.EventoBD;
+
+/**
+ * Acceso a la tabla series (números de serie de los productos de alto valor).
+ * La tabla guarda el estado actual de cada serie. Se escribe en la misma transacción que el
+ * movimiento que la ingresa o la despacha (ver MovimientoDAO.insertarLote), así la base rechaza
+ * una serie que otra terminal ya ingresó o despachó aunque el registro en memoria no lo sepa todavía.
+ */
+public class SerieDAO {
+
+    // Error de MySQL por clave duplicada
+    private static final int CLAVE_DUPLICADA = 1062;
+
+    // Serie nueva: la clave primaria rechaza una serie que ya existe
+    private static final String SQL_ALTA =
+            "INSERT INTO series (numero, producto_codigo, en_stock, movimiento_ingreso) VALUES (?, ?, 1, ?)";
+
+    // Serie que ya salió y vuelve a entrar (solo si no está en stock)
+    private static final String SQL_REINGRESO =
+            "UPDATE series SET producto_codigo = ?, en_stock = 1, movimiento_ingreso = ? WHERE numero = ? AND en_stock = 0";
+
+    // Serie que sale con un egreso (solo si está en stock del mismo producto)
+    private static final String SQL_BAJA =
+            "UPDATE series SET en_stock = 0, movimiento_egreso = ? WHERE numero = ? AND producto_codigo = ? AND en_stock = 1";
+
+    /**
+     * Registra las series de los ingresos y egresos de un lote, dentro de la transacción que maneja
+     * quien llama (no hace commit ni rollback). Los movimientos ya tienen su id.
+     * @param conn conexión con la transacción abierta
+     * @param movimientos movimientos del lote (los que no traen series se saltean)
+     * @throws SQLException si una serie ya está en stock, no está en stock del producto para el egreso,
+     *                      o falla la escritura (se revierte el lote)
+     */
+    static void registrar(Connection conn, List<? extends Movimiento> movimientos) throws SQLException {
+        try (PreparedStatement alta = conn.prepareStatement(SQL_ALTA);
+             PreparedStatement reingreso = conn.prepareStatement(SQL_REINGRESO);
+             PreparedStatement baja = conn.prepareStatement(SQL_BAJA)) {
+            for (Movimiento m : movimientos) {
+                List<String> series = m.getSeries();
+                if (series == null || series.isEmpty()) continue;
+                String codigo = m.getProducto().getCodigo();
+
+                for (String s : series) {
+                    if (m instanceof Ingreso) {
+                        reingreso.setString(1, codigo);
+                        reingreso.setLong(2, m.getId());
+                        reingreso.setString(3, s);
+                        if (reingreso.executeUpdate() > 0) continue;
+
+                        alta.setString(1, s);
+                        alta.setString(2, codigo);
+                        alta.setLong(3, m.getId());
+                        try {
+                            alta.executeUpdate();
+                        } catch (SQLException e) {
+                            if (e.getErrorCode() != CLAVE_DUPLICADA) throw e;
+                            // Sin la causa: un duplicado en movimientos_ids se reintenta, este no
+                            throw new SQLException("El número de serie " + s + " ya está en stock (lo ingresó otra terminal).");
+                        }
+                    } else if (m instanceof Egreso) {
+                        baja.setLong(1, m.getId());
+                        baja.setString(2, s);
+                        baja.setString(3, codigo);
+                        if (baja.executeUpdate() == 0) {
+                            throw new SQLException("El número de serie " + s + " no está en stock de " + codigo
+                                    + " (pudo despacharlo otra terminal).");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Carga todas las series en el registro, leyendo las filas de a una.
+     * @param registro registro de series a completar
+     * @return cantidad de series leídas
+     */
+    public static int cargar(RegistroSeries registro) {
+        int filas = 0;
+        try (EventoBD evento = EventoBD.iniciar("SerieDAO.cargar");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.CARGA_INICIAL);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT numero, producto_codigo, en_stock, movimiento_ingreso, movimiento_egreso FROM series",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE); // Lectura de a una fila
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    registro.cargar(leer(rs));
+                    filas++;
+                }
+            }
+            evento.filas = filas;
+        } catch (Exception e) {
+            e.printStackTrace(); // Sin la tabla (esquema sin migrar) el registro queda vacío
+        }
+        return filas;
+    }
+
+    /**
+     * Busca una serie directamente en la base (línea de comandos, sin cargar el registro).
+     * @param numero número de serie (en mayúsculas)
+     * @return estado de la serie, o null si no existe
+     * @throws SQLException si falla la consulta
+     */
+    public static Serie buscar(String numero) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("SerieDAO.buscar");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.REPORTE);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT numero, producto_codigo, en_stock, movimiento_ingreso, movimiento_egreso FROM series WHERE numero = ?")) {
+            ps.setString(1, numero);
+            try (ResultSet rs = ps.executeQuery()) {
+                Serie serie = rs.next() ? leer(rs) : null;
+                evento.filas = serie != null ? 1 : 0;
+                if (serie != null) evento.productoCodigo = serie.productoCodigo();
+                return serie;
+            }
+        }
+    }
+
+    private static Serie leer(ResultSet rs) throws SQLException {
+        return new Serie(rs.getString(1), rs.getString(2), rs.getBoolean(3), rs.getLong(4), rs.getLong(5));
+    }
+}
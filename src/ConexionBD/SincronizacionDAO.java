@@ -0,0 +1,155 @@
+package ConexionBD;
+
+import gametechstock.RegistroSeries.Serie;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import monitoreo.EventoBD;
+
+/**
+ * Consultas de cambios usadas para mantener sincronizada cada terminal con la base de datos.
+ * Todas recorren índices (id de movimientos y productos.actualizado_en), así que su costo
+ * depende de la cantidad de cambios y no del tamaño de las tablas.
+ */
+public class SincronizacionDAO {
+
+    /**
+     * Fila de un producto modificado, con su versión (momento de la última modificación).
+     */
+    public record CambioProducto(String codigo, String nombre, String categoria, int stockMinimo,
+                                 int stockActual, int idDeposito, Timestamp version) {
+    }
+
+    /**
+     * Devuelve la versión más reciente de la tabla productos (última modificación de cualquier producto).
+     * @param conn conexión abierta
+     * @return versión actual, o el inicio de la época si no hay productos
+     * @throws SQLException si falla la consulta
+     */
+    public static Timestamp versionProductos(Connection conn) throws SQLException {
+        try (EventoBD evento = EventoBD.iniciar("SincronizacionDAO.versionProductos");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(actualizado_en) FROM productos")) {
+            Timestamp version = rs.next() ? rs.getTimestamp(1) : null;
+            evento.filas = 1;
+            return version != null ? version : new Timestamp(0);
+        }
+    }
+
+    /**
+     * Devuelve los productos modificados desde una versión (inclusive), en orden de modificación.
+     * @param conn conexión abierta
+     * @param desde versión mínima
+     * @param limite cantidad máxima de filas
+     * @return productos modificados
+     * @throws SQLException si falla la consulta
+     */
+    public static List<CambioProducto> productosModificados(Connection conn, Timestamp desde, int limite) throws SQLException {
+        String sql = "SELECT codigo, nombre, categoria, stock_minimo, stock_actual, id_deposito, actualizado_en "
+                   + "FROM productos WHERE actualizado_en >= ? ORDER BY actualizado_en LIMIT ?";
+        List<CambioProducto> lista = new ArrayList<>();
+        try (EventoBD evento = EventoBD.iniciar("SincronizacionDAO.productosModificados");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, desde);
+            stmt.setInt(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new CambioProducto(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getTimestamp(7)));
+                }
+            }
+            evento.filas = lista.size();
+        }
+        return lista;
+    }
+
+    /**
+     * Devuelve los movimientos con id mayor al indicado, en orden de id.
+     * @param conn conexión abierta
+     * @param desdeId se devuelven los ids mayores a este valor
+     * @param limite cantidad máxima de filas
+     * @return movimientos nuevos (la cantidad conserva el signo de la base)
+     * @throws SQLException si falla la consulta
+     */
+    public static List<RegistroMovimiento> movimientosDesde(Connection conn, long desdeId, int limite) throws SQLException {
+        String sql = "SELECT id, tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario "
+                   + "FROM movimientos WHERE id > ? ORDER BY id LIMIT ?";
+        try (EventoBD evento = EventoBD.iniciar("SincronizacionDAO.movimientosDesde");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, desdeId);
+            stmt.setInt(2, limite);
+            List<RegistroMovimiento> lista = leerMovimientos(stmt);
+            evento.filas = lista.size();
+            return lista;
+        }
+    }
+
+    /**
+     * Devuelve los movimientos con los ids indicados que ya existan en la base.
+     * Se usa para recuperar los huecos de ids de transacciones que confirmaron tarde.
+     * @param conn conexión abierta
+     * @param ids ids buscados (no vacío)
+     * @return movimientos encontrados, en orden de id
+     * @throws SQLException si falla la consulta
+     */
+    public static List<RegistroMovimiento> movimientosPorId(Connection conn, Collection<Long> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, tipo, fecha, cantidad, justificacion, producto_codigo, usuario_id, costo_unitario "
+                + "FROM movimientos WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) sql.append(i == 0 ? "?" : ",?");
+        sql.append(") ORDER BY id");
+
+        try (EventoBD evento = EventoBD.iniciar("SincronizacionDAO.movimientosPorId");
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (long id : ids) stmt.setLong(i++, id);
+            List<RegistroMovimiento> lista = leerMovimientos(stmt);
+            evento.filas = lista.size();
+            return lista;
+        }
+    }
+
+    /**
+     * Devuelve el estado actual de las series que ingresaron o salieron con los movimientos indicados.
+     * Usa los índices de series por movimiento de ingreso y de egreso.
+     * @param conn conexión abierta
+     * @param ids ids de movimientos (no vacío)
+     * @return series afectadas
+     * @throws SQLException si falla la consulta
+     */
+    public static List<Serie> seriesDeMovimientos(Connection conn, Collection<Long> ids) throws SQLException {
+        StringBuilder marcas = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) marcas.append(i == 0 ? "?" : ",?");
+        String sql = "SELECT numero, producto_codigo, en_stock, movimiento_ingreso, movimiento_egreso FROM series "
+                   + "WHERE movimiento_ingreso IN (" + marcas + ") OR movimiento_egreso IN (" + marcas + ")";
+
+        List<Serie> lista = new ArrayList<>();
+        try (EventoBD evento = EventoBD.iniciar("SincronizacionDAO.seriesDeMovimientos");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (long id : ids) stmt.setLong(i++, id);
+            for (long id : ids) stmt.setLong(i++, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new Serie(rs.getString(1), rs.getString(2), rs.getBoolean(3), rs.getLong(4), rs.getLong(5)));
+                }
+            }
+            evento.filas = lista.size();
+        }
+        return lista;
+    }
+
+    /**
+     * Ejecuta una consulta de movimientos y arma los registros.
+     */
+    private static List<RegistroMovimiento> leerMovimientos(PreparedStatement stmt) throws SQLException {
+        List<RegistroMovimiento> lista = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                lista.add(new RegistroMovimiento(rs.getLong(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                        rs.getInt(4), rs.getString(5), rs.getString(6), rs.getInt(7), rs.getBigDecimal(8)));
+            }
+        }
+        return lista;
+    }
+}
@@ -5,6 +5,7 @@ import gametechstock.RolUsuario;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import monitoreo.EventoBD;
 
 /**
  * DAO para manejar acceso a datos de usuarios.
@@ -18,7 +19,8 @@ public class UsuarioDAO {
      * @return objeto Usuario si las credenciales son correctas, null si no lo son
      */
     public static Usuario validarUsuario(String usuario, String password) {
-        try (Connection conn = ConexionBD.obtenerConexion()) {
+        try (EventoBD evento = EventoBD.iniciar("UsuarioDAO.validarUsuario");
+             Connection conn = ConexionBD.obtenerConexion()) {
 
             // Consulta para validar nombre de usuario y contraseña encriptada
             String sql = "SELECT * FROM usuarios WHERE usuario = ? AND password_hash = SHA2(?, 256)";
@@ -26,8 +28,10 @@ public class UsuarioDAO {
             stmt.setString(1, usuario);
             stmt.setString(2, password);
             var rs = stmt.executeQuery();
+            evento.filas = 0;
 
             if (rs.next()) {
+                evento.filas = 1;
                 int id = rs.getInt("id");
                 String nombre = rs.getString("nombre");
                 RolUsuario rol = RolUsuario.valueOf(rs.getString("rol")); // ADMIN, OPERADOR, etc.
@@ -47,7 +51,8 @@ public class UsuarioDAO {
      */
     public static List<Usuario> obtenerUsuarios() {
         List<Usuario> usuarios = new ArrayList<>();
-        try (Connection conn = ConexionBD.obtenerConexion();
+        try (EventoBD evento = EventoBD.iniciar("UsuarioDAO.obtenerUsuarios");
+             Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.CARGA_INICIAL);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT * FROM usuarios")) {
 
@@ -60,6 +65,7 @@ public class UsuarioDAO {
 
                 usuarios.add(new Usuario(id, nombre, usuario, passwordHash, rol));
             }
+            evento.filas = usuarios.size();
 
         } catch (Exception e) {
             e.printStackTrace(); // Log de error en caso de fallo
@@ -0,0 +1,395 @@
+package api;
+
+import ConexionBD.RegistroMovimiento;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gametechstock.Configuracion;
+import gametechstock.OyenteStock;
+import gametechstock.Producto;
+import gametechstock.SistemaStock;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * API HTTP de consulta de stock para sistemas externos (ej: la tienda web), con el servidor
+ * HTTP incluido en el JDK. Se activa con api.puerto (0 = desactivada).
+ *
+ * Endpoints (solo GET y HEAD):
+ *   GET /stock/{codigo}               stock de un producto
+ *   GET /stock                        stock de todos los productos
+ *   GET /stock?codigos=P001,P002      stock de varios productos
+ *   GET /movimientos?desde=N          movimientos registrados desde la posición N del feed
+ *
+ * "stock" es el stock disponible (sin las unidades reservadas, ver ReservasStock), que es lo que se
+ * puede vender; "reservado" son las unidades apartadas. Reservar, liberar o vencer una reserva
+ * también cambia la versión.
+ *
+ * Las respuestas salen del estado en memoria del SistemaStock y nunca consultan MySQL.
+ * Cada cambio de stock (ver {@link OyenteStock}) regenera solo el JSON del producto afectado,
+ * y las consultas devuelven bytes ya armados con su ETag: si el cliente manda If-None-Match
+ * con la versión vigente recibe 304 sin cuerpo. Cada pedido corre en su propio hilo virtual.
+ */
+public class ServidorStock implements OyenteStock {
+
+    /**
+     * Respuesta ya armada: cuerpo JSON y su ETag.
+     */
+    private record Respuesta(long version, byte[] cuerpo, String etag) {
+    }
+
+    // Máximo de códigos por consulta múltiple
+    private static final int MAX_CODIGOS = 500;
+
+    // Máximo de movimientos devueltos por consulta del feed
+    private static final int MAX_MOVIMIENTOS = 1000;
+
+    private final SistemaStock sistema;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+    private final String cacheControl;
+
+    // Versión global: aumenta con cada cambio de stock
+    private final AtomicLong version = new AtomicLong();
+
+    // Época de este arranque: las versiones y las posiciones del feed vuelven a empezar al reiniciar la
+    // aplicación, así que todos los ETag la incluyen para que uno de un arranque anterior nunca coincida
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+
+    // JSON vigente de cada producto, por código
+    private final Map<String, Respuesta> productos = new ConcurrentHashMap<>();
+
+    // JSON de todos los productos (se rearma solo cuando se pide y cambió la versión)
+    private volatile Respuesta todos = new Respuesta(-1, null, null);
+
+    // Feed de movimientos: buffer circular con posiciones correlativas desde 1
+    private final RegistroMovimiento[] feed;
+    private long ultimaPosicion;
+
+    /**
+     * Crea el servidor (todavía no atiende pedidos).
+     * @param sistema sistema ya cargado
+     * @param puerto puerto TCP donde escuchar
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorStock(SistemaStock sistema, int puerto) throws IOException {
+        this.sistema = sistema;
+        this.feed = new RegistroMovimiento[Math.max(100, Configuracion.getInt("api.feedCapacidad", 10_000))];
+        this.cacheControl = "max-age=" + Math.max(0, Configuracion.getInt("api.maxAgeSegundos", 1));
+
+        // Sin TCP_NODELAY cada respuesta en una conexión persistente espera el ACK retardado (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        String direccion = Configuracion.get("api.direccion", "127.0.0.1");
+        this.servidor = HttpServer.create(new InetSocketAddress(direccion, puerto), Configuracion.getInt("api.backlog", 1024));
+        this.ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/stock", this::atenderStock);
+        servidor.createContext("/movimientos", this::atenderMovimientos);
+    }
+
+    /**
+     * Arma el JSON inicial de todos los productos y empieza a atender pedidos.
+     * Debe llamarse en el hilo que aplica los cambios del sistema (en la interfaz, el de JavaFX).
+     */
+    public void iniciar() {
+        for (Producto p : sistema.getProductos()) {
+            productoActualizado(p);
+        }
+        sistema.agregarOyenteStock(this);
+        servidor.start();
+    }
+
+    /**
+     * Deja de atender pedidos y libera el puerto.
+     */
+    public void detener() {
+        sistema.quitarOyenteStock(this);
+        servidor.stop(0);
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Devuelve el puerto donde escucha el servidor.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    // --- Cambios de stock (en el hilo que los aplica) ---
+
+    @Override
+    public void productoActualizado(Producto p) {
+        // Hay un solo hilo que escribe: la respuesta nueva se publica antes de subir la versión global,
+        // así quien lee la versión v ya encuentra en el mapa todos los cambios hasta v
+        long v = version.get() + 1;
+        String json = "{\"codigo\":" + texto(p.getCodigo()) + ",\"nombre\":" + texto(p.getNombre())
+                + ",\"stock\":" + p.getStockDisponible() + ",\"reservado\":" + p.getStockReservado()
+                + ",\"version\":" + v + "}";
+        productos.put(p.getCodigo(), new Respuesta(v, json.getBytes(StandardCharsets.UTF_8), "\"p" + epoca + "-" + v + "\""));
+        version.set(v);
+    }
+
+    @Override
+    public void movimientoRegistrado(RegistroMovimiento movimiento) {
+        synchronized (feed) {
+            ultimaPosicion++;
+            feed[(int) (ultimaPosicion % feed.length)] = movimiento;
+        }
+    }
+
+    // --- Pedidos HTTP (en hilos virtuales) ---
+
+    /**
+     * Atiende /stock, /stock/{codigo} y /stock?codigos=...
+     */
+    private void atenderStock(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!metodoValido(ex)) return;
+
+            String ruta = ex.getRequestURI().getPath();
+            if (ruta.startsWith("/stock/") && ruta.length() > "/stock/".length()) {
+                // Un producto
+                String codigo = URLDecoder.decode(ruta.substring("/stock/".length()), StandardCharsets.UTF_8);
+                Respuesta r = productos.get(codigo);
+                if (r == null) {
+                    enviar(ex, 404, error("No existe el producto " + codigo), null);
+                } else {
+                    enviar(ex, 200, r.cuerpo(), r.etag());
+                }
+                return;
+            }
+
+            String codigos = parametro(ex, "codigos");
+            Respuesta r = codigos == null ? todos() : varios(codigos.split(","));
+            if (r == null) {
+                enviar(ex, 400, error("Se pueden consultar hasta " + MAX_CODIGOS + " códigos por pedido."), null);
+            } else {
+                enviar(ex, 200, r.cuerpo(), r.etag());
+            }
+        }
+    }
+
+    /**
+     * Atiende /movimientos?desde=N[&limite=M]: devuelve los movimientos del feed con posición mayor a N.
+     * Si el buffer ya descartó posiciones pedidas, "incompleto" es true y conviene releer /stock.
+     */
+    private void atenderMovimientos(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!metodoValido(ex)) return;
+
+            long desde;
+            int limite;
+            try {
+                String d = parametro(ex, "desde");
+                String l = parametro(ex, "limite");
+                desde = d == null ? 0 : Long.parseLong(d);
+                limite = l == null ? MAX_MOVIMIENTOS : Math.min(Math.max(1, Integer.parseInt(l)), MAX_MOVIMIENTOS);
+            } catch (NumberFormatException e) {
+                enviar(ex, 400, error("Parámetros desde/limite inválidos."), null);
+                return;
+            }
+
+            List<RegistroMovimiento> lista = new ArrayList<>();
+            long hasta;
+            boolean incompleto;
+            synchronized (feed) {
+                long primera = Math.max(1, ultimaPosicion - feed.length + 1);
+                // Posiciones ya descartadas, o de un feed anterior (la aplicación se reinició)
+                incompleto = desde + 1 < primera || desde > ultimaPosicion;
+                if (desde > ultimaPosicion) desde = 0;
+                long inicio = Math.max(desde + 1, primera);
+                hasta = Math.min(ultimaPosicion, inicio + limite - 1);
+                for (long pos = inicio; pos <= hasta; pos++) {
+                    lista.add(feed[(int) (pos % feed.length)]);
+                }
+                hasta = Math.max(hasta, desde);
+            }
+
+            // Sin novedades: el cliente puede revalidar con la misma posición
+            String etag = "\"m" + epoca + "-" + desde + "-" + hasta + "\"";
+            StringBuilder sb = new StringBuilder(64 + lista.size() * 128);
+            sb.append("{\"desde\":").append(desde).append(",\"hasta\":").append(hasta)
+              .append(",\"incompleto\":").append(incompleto).append(",\"movimientos\":[");
+            long pos = hasta - lista.size() + 1;
+            for (int i = 0; i < lista.size(); i++, pos++) {
+                RegistroMovimiento m = lista.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"posicion\":").append(pos)
+                  .append(",\"id\":").append(m.id())
+                  .append(",\"tipo\":").append(texto(m.tipo()))
+                  .append(",\"fecha\":").append(texto(m.fecha().toString()))
+                  .append(",\"cantidad\":").append(m.cantidad())
+                  .append(",\"producto\":").append(texto(m.productoCodigo()))
+                  .append('}');
+            }
+            sb.append("]}");
+            enviar(ex, 200, sb.toString().getBytes(StandardCharsets.UTF_8), etag);
+        }
+    }
+
+    /**
+     * Devuelve el JSON de todos los productos, rearmándolo solo si cambió algo desde el último pedido.
+     */
+    private Respuesta todos() {
+        Respuesta actual = todos;
+        long v = version.get();
+        if (actual.version() == v) return actual;
+
+        synchronized (this) {
+            actual = todos;
+            if (actual.version() == v) return actual; // Lo rearmó otro pedido mientras se esperaba
+
+            // v se leyó antes de copiar el mapa: la copia tiene al menos los cambios hasta v (si trae alguno
+            // posterior, la versión ya subió y el próximo pedido la vuelve a armar)
+            List<Respuesta> lista = new ArrayList<>(new TreeMap<>(productos).values()); // Ordenados por código
+            actual = new Respuesta(v, armarLista(v, lista, List.of()), "\"t" + epoca + "-" + v + "\"");
+            todos = actual;
+            return actual;
+        }
+    }
+
+    /**
+     * Devuelve el JSON de los productos indicados (los inexistentes se informan en "faltantes").
+     * @return respuesta, o null si se pidieron demasiados códigos
+     */
+    private Respuesta varios(String[] codigos) {
+        if (codigos.length > MAX_CODIGOS) return null;
+
+        List<Respuesta> lista = new ArrayList<>(codigos.length);
+        List<String> faltantes = new ArrayList<>();
+        long hash = 17;
+        for (String c : codigos) {
+            String codigo = c.trim();
+            Respuesta r = productos.get(codigo);
+            if (r == null) {
+                faltantes.add(codigo);
+                hash = hash * 31 + codigo.hashCode();
+            } else {
+                lista.add(r);
+                hash = hash * 31 + r.version();
+            }
+        }
+        long v = version.get();
+        return new Respuesta(v, armarLista(v, lista, faltantes), "\"s" + epoca + "-" + Long.toHexString(hash) + "\"");
+    }
+
+    /**
+     * Concatena los JSON ya armados de cada producto.
+     */
+    private static byte[] armarLista(long version, List<Respuesta> lista, List<String> faltantes) {
+        StringBuilder cabecera = new StringBuilder("{\"version\":").append(version).append(",\"faltantes\":[");
+        for (int i = 0; i < faltantes.size(); i++) {
+            if (i > 0) cabecera.append(',');
+            cabecera.append(texto(faltantes.get(i)));
+        }
+        cabecera.append("],\"productos\":[");
+        byte[] inicio = cabecera.toString().getBytes(StandardCharsets.UTF_8);
+
+        int largo = inicio.length + 2 + lista.size();
+        for (Respuesta r : lista) largo += r.cuerpo().length;
+
+        byte[] cuerpo = new byte[largo];
+        System.arraycopy(inicio, 0, cuerpo, 0, inicio.length);
+        int pos = inicio.length;
+        for (int i = 0; i < lista.size(); i++) {
+            if (i > 0) cuerpo[pos++] = ',';
+            byte[] b = lista.get(i).cuerpo();
+            System.arraycopy(b, 0, cuerpo, pos, b.length);
+            pos += b.length;
+        }
+        cuerpo[pos++] = ']';
+        cuerpo[pos++] = '}';
+        return Arrays.copyOf(cuerpo, pos);
+    }
+
+    /**
+     * Acepta solo GET y HEAD.
+     */
+    private boolean metodoValido(HttpExchange ex) throws IOException {
+        String metodo = ex.getRequestMethod();
+        if (metodo.equals("GET") || metodo.equals("HEAD")) return true;
+        ex.getResponseHeaders().set("Allow", "GET, HEAD");
+        enviar(ex, 405, error("Método no permitido."), null);
+        return false;
+    }
+
+    /**
+     * Envía la respuesta, o 304 sin cuerpo si el cliente ya tiene esa versión (If-None-Match).
+     */
+    private void enviar(HttpExchange ex, int estado, byte[] cuerpo, String etag) throws IOException {
+        Headers h = ex.getResponseHeaders();
+        h.set("Content-Type", "application/json; charset=utf-8");
+        if (etag != null) {
+            h.set("ETag", etag);
+            h.set("Cache-Control", cacheControl);
+            String previo = ex.getRequestHeaders().getFirst("If-None-Match");
+            if (previo != null && (previo.equals("*") || previo.contains(etag))) {
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+        } else {
+            h.set("Cache-Control", "no-store");
+        }
+
+        boolean sinCuerpo = ex.getRequestMethod().equals("HEAD");
+        ex.sendResponseHeaders(estado, sinCuerpo ? -1 : cuerpo.length);
+        if (!sinCuerpo) {
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        }
+    }
+
+    /**
+     * Devuelve el valor de un parámetro de la consulta, o null si no está.
+     */
+    private static String parametro(HttpExchange ex, String nombre) {
+        String consulta = ex.getRequestURI().getRawQuery();
+        if (consulta == null) return null;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0 && par.substring(0, igual).equals(nombre)) {
+                return URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] error(String mensaje) {
+        return ("{\"error\":" + texto(mensaje) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe un texto como cadena JSON (entre comillas y con los caracteres especiales escapados).
+     */
+    private static String texto(String valor) {
+        if (valor == null) return "null";
+        StringBuilder sb = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -1,6 +1,8 @@
 package gametechstock;
 
 import ConexionBD.MovimientoDAO;
+import java.util.List;
+import monitoreo.EventoMovimiento;
 
 /**
  * Representa un movimiento de tipo Ajuste (positivo o negativo) sobre el stock.
@@ -23,8 +25,19 @@ public class Ajuste extends Movimiento {
      */
     @Override
     public void aplicar() throws Exception {
+        try (EventoMovimiento evento = EventoMovimiento.iniciar(List.of(this), false)) { // Medición para JFR
+            aplicarEnMemoria();
+            evento.registrado = MovimientoDAO.guardarMovimiento(this);
+        }
+    }
+
+    /**
+     * Aplica el ajuste solo al stock en memoria.
+     * @throws Exception si el ajuste deja el stock negativo
+     */
+    @Override
+    public void aplicarEnMemoria() throws Exception {
         producto.ajustarStock(cantidad);
-        MovimientoDAO.guardarMovimiento(this);
     }
 
     @Override
@@ -0,0 +1,296 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Motor de indicadores de inventario calculados a partir del historial de movimientos.
+ * Recorre el historial una sola vez para agruparlo por producto y luego calcula en paralelo
+ * (fork/join, por particiones de productos) los indicadores de cada producto:
+ * unidades egresadas, stock promedio, rotación, días de cobertura y antigüedad del último movimiento.
+ * Con esos datos arma la clasificación ABC (global y por categoría), la lista de stock muerto
+ * y los resúmenes por categoría y por depósito.
+ */
+public class AnalisisInventario {
+
+    // Cantidad de productos que procesa cada tarea sin dividirse
+    private static final int UMBRAL_PARTICION = 256;
+
+    // Segundos en un día
+    private static final long DIA = 86_400L;
+
+    // Cortes de la clasificación ABC (porcentaje acumulado de unidades egresadas)
+    private static final double CORTE_A = 0.80;
+    private static final double CORTE_B = 0.95;
+
+    /**
+     * Indicadores calculados para un producto.
+     */
+    public static class ResultadoProducto {
+        private final Producto producto;
+        private int salidas;             // unidades egresadas en el período
+        private int entradas;            // unidades ingresadas en el período
+        private double stockPromedio;    // stock promedio ponderado por tiempo en el período
+        private double rotacion;         // salidas / stock promedio
+        private double diasCobertura;    // días que alcanza el stock al ritmo de salidas actual
+        private long diasUltimoMovimiento = -1; // -1 si nunca tuvo movimientos
+        private long diasUltimaSalida = -1;     // -1 si nunca tuvo egresos
+        private long diasPrimerIngreso = -1;    // -1 si no tiene ingresos en el historial
+        private char clase = 'C';        // clasificación ABC global
+        private char claseCategoria = 'C'; // clasificación ABC dentro de su categoría
+        private boolean stockMuerto;
+
+        ResultadoProducto(Producto producto) {
+            this.producto = producto;
+        }
+
+        public Producto getProducto() { return producto; }
+        public int getSalidas() { return salidas; }
+        public int getEntradas() { return entradas; }
+        public double getStockPromedio() { return stockPromedio; }
+        public double getRotacion() { return rotacion; }
+        public double getDiasCobertura() { return diasCobertura; }
+        public long getDiasUltimoMovimiento() { return diasUltimoMovimiento; }
+        public long getDiasUltimaSalida() { return diasUltimaSalida; }
+        public long getDiasPrimerIngreso() { return diasPrimerIngreso; }
+        public char getClase() { return clase; }
+        public char getClaseCategoria() { return claseCategoria; }
+        public boolean isStockMuerto() { return stockMuerto; }
+    }
+
+    /**
+     * Resumen de indicadores para un grupo de productos (una categoría o un depósito).
+     */
+    public static class ResumenGrupo {
+        private final String nombre;
+        private int productos, claseA, claseB, claseC, stockMuerto;
+        private long stock, salidas;
+        private double stockPromedio;
+
+        ResumenGrupo(String nombre) {
+            this.nombre = nombre;
+        }
+
+        void sumar(ResultadoProducto r) {
+            productos++;
+            switch (r.clase) {
+                case 'A' -> claseA++;
+                case 'B' -> claseB++;
+                default -> claseC++;
+            }
+            if (r.stockMuerto) stockMuerto++;
+            stock += r.producto.getStockActual();
+            salidas += r.salidas;
+            stockPromedio += r.stockPromedio;
+        }
+
+        public String getNombre() { return nombre; }
+        public int getProductos() { return productos; }
+        public int getClaseA() { return claseA; }
+        public int getClaseB() { return claseB; }
+        public int getClaseC() { return claseC; }
+        public int getStockMuerto() { return stockMuerto; }
+        public long getStock() { return stock; }
+        public long getSalidas() { return salidas; }
+        public double getRotacion() { return stockPromedio > 0 ? salidas / stockPromedio : 0; }
+    }
+
+    // --- Resultados del último cálculo ---
+    private final List<ResultadoProducto> resultados;
+    private final List<ResumenGrupo> porCategoria;
+    private final List<ResumenGrupo> porDeposito;
+    private final List<ResultadoProducto> stockMuerto;
+    private final long milisegundos;
+
+    /**
+     * Calcula todos los indicadores.
+     * @param sistema sistema con los productos y el historial cargados
+     * @param diasPeriodo días hacia atrás que se consideran para salidas, stock promedio y rotación
+     * @param diasSinSalida días sin egresos a partir de los cuales un producto con stock se considera muerto
+     *                      (si nunca egresó, contados desde su primer ingreso)
+     */
+    public AnalisisInventario(SistemaStock sistema, int diasPeriodo, int diasSinSalida) {
+        long inicio = System.currentTimeMillis();
+
+        List<Producto> productos = new ArrayList<>(sistema.getProductos());
+        HistorialMovimientos historial = sistema.getMovimientos();
+        long ahora = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+
+        // Única pasada sobre el historial: agrupación de movimientos por producto
+        HistorialMovimientos.Agrupacion grupos = historial.agruparPorProducto();
+
+        // Cálculo en paralelo de los indicadores de cada producto
+        ResultadoProducto[] calculados = new ResultadoProducto[productos.size()];
+        ForkJoinPool.commonPool().invoke(new TareaProductos(productos, historial, grupos, calculados,
+                0, productos.size(), ahora, diasPeriodo, diasSinSalida));
+        this.resultados = Arrays.asList(calculados);
+
+        // Clasificación ABC global y por categoría
+        clasificar(resultados, true);
+        Map<String, List<ResultadoProducto>> categorias = new TreeMap<>();
+        for (ResultadoProducto r : resultados) {
+            categorias.computeIfAbsent(r.producto.getCategoria(), k -> new ArrayList<>()).add(r);
+        }
+        for (List<ResultadoProducto> lista : categorias.values()) {
+            clasificar(lista, false);
+        }
+
+        // Resúmenes por categoría y por depósito, y lista de stock muerto
+        Map<String, ResumenGrupo> resumenCategorias = new TreeMap<>();
+        Map<String, ResumenGrupo> resumenDepositos = new TreeMap<>();
+        List<ResultadoProducto> muertos = new ArrayList<>();
+        for (ResultadoProducto r : resultados) {
+            resumenCategorias.computeIfAbsent(r.producto.getCategoria(), ResumenGrupo::new).sumar(r);
+            Deposito d = r.producto.getDeposito();
+            String deposito = d != null ? d.getUbicacion() : "Sin depósito";
+            resumenDepositos.computeIfAbsent(deposito, ResumenGrupo::new).sumar(r);
+            if (r.stockMuerto) muertos.add(r);
+        }
+        muertos.sort(Comparator.comparingLong((ResultadoProducto r) -> r.producto.getStockActual()).reversed());
+
+        this.porCategoria = new ArrayList<>(resumenCategorias.values());
+        this.porDeposito = new ArrayList<>(resumenDepositos.values());
+        this.stockMuerto = muertos;
+        this.milisegundos = System.currentTimeMillis() - inicio;
+    }
+
+    /**
+     * Asigna la clase ABC ordenando por unidades egresadas: los productos que acumulan el 80% de
+     * las salidas son A, hasta el 95% son B, y el resto C.
+     */
+    private static void clasificar(List<ResultadoProducto> lista, boolean global) {
+        List<ResultadoProducto> orden = new ArrayList<>(lista);
+        orden.sort(Comparator.comparingInt((ResultadoProducto r) -> r.salidas).reversed());
+
+        long total = 0;
+        for (ResultadoProducto r : orden) total += r.salidas;
+
+        long acumulado = 0;
+        for (ResultadoProducto r : orden) {
+            char clase;
+            if (r.salidas == 0 || total == 0) {
+                clase = 'C';
+            } else {
+                // Se clasifica según el acumulado ANTES de sumar el producto, así el que cruza el corte queda en la clase superior
+                double previo = (double) acumulado / total;
+                clase = previo < CORTE_A ? 'A' : previo < CORTE_B ? 'B' : 'C';
+            }
+            acumulado += r.salidas;
+            if (global) r.clase = clase;
+            else r.claseCategoria = clase;
+        }
+    }
+
+    /**
+     * Tarea fork/join que calcula los indicadores de un rango de productos.
+     */
+    @SuppressWarnings("serial") // Las tareas de fork/join no se serializan
+    private static class TareaProductos extends RecursiveAction {
+        private final List<Producto> productos;
+        private final HistorialMovimientos historial;
+        private final HistorialMovimientos.Agrupacion grupos;
+        private final ResultadoProducto[] destino;
+        private final int desde, hasta;
+        private final long ahora;
+        private final int diasPeriodo, diasSinSalida;
+
+        TareaProductos(List<Producto> productos, HistorialMovimientos historial, HistorialMovimientos.Agrupacion grupos,
+                       ResultadoProducto[] destino, int desde, int hasta, long ahora, int diasPeriodo, int diasSinSalida) {
+            this.productos = productos;
+            this.historial = historial;
+            this.grupos = grupos;
+            this.destino = destino;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.ahora = ahora;
+            this.diasPeriodo = diasPeriodo;
+            this.diasSinSalida = diasSinSalida;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > UMBRAL_PARTICION) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new TareaProductos(productos, historial, grupos, destino, desde, medio, ahora, diasPeriodo, diasSinSalida),
+                          new TareaProductos(productos, historial, grupos, destino, medio, hasta, ahora, diasPeriodo, diasSinSalida));
+                return;
+            }
+            for (int i = desde; i < hasta; i++) {
+                destino[i] = calcular(productos.get(i));
+            }
+        }
+
+        /**
+         * Recorre los movimientos del producto desde el más reciente hacia atrás, reconstruyendo
+         * el stock anterior a cada movimiento para obtener el stock promedio del período.
+         */
+        private ResultadoProducto calcular(Producto p) {
+            ResultadoProducto r = new ResultadoProducto(p);
+            long inicioPeriodo = ahora - diasPeriodo * DIA;
+            int stock = p.getStockActual();
+            long diasPrimerMovimiento = -1;
+
+            int idx = historial.buscarIndice(p);
+            if (idx >= 0 && idx < grupos.inicios.length - 1) {
+                int primero = grupos.inicios[idx];
+                int ultimo = grupos.inicios[idx + 1] - 1;
+
+                long tiempoPrevio = ahora;
+                double area = 0; // stock x segundos dentro del período
+                for (int k = ultimo; k >= primero; k--) {
+                    int pos = grupos.posiciones[k];
+                    long t = historial.getSegundos(pos);
+                    boolean egreso = historial.getCodigoTipo(pos) == HistorialMovimientos.EGRESO;
+
+                    if (r.diasUltimoMovimiento < 0) r.diasUltimoMovimiento = Math.max(0, (ahora - t) / DIA);
+                    if (egreso && r.diasUltimaSalida < 0) r.diasUltimaSalida = Math.max(0, (ahora - t) / DIA);
+                    // Sin egresos se recorre hasta el primer movimiento: quedan el ingreso y el movimiento más antiguos
+                    diasPrimerMovimiento = Math.max(0, (ahora - t) / DIA);
+                    if (historial.getCodigoTipo(pos) == HistorialMovimientos.INGRESO) r.diasPrimerIngreso = diasPrimerMovimiento;
+
+                    if (t < inicioPeriodo) {
+                        if (r.diasUltimaSalida >= 0) break; // Ya no queda nada que calcular
+                        continue;
+                    }
+
+                    area += (double) stock * (tiempoPrevio - t);
+                    tiempoPrevio = t;
+                    if (egreso) r.salidas += historial.getCantidad(pos);
+                    else if (historial.getCodigoTipo(pos) == HistorialMovimientos.INGRESO) r.entradas += historial.getCantidad(pos);
+                    stock -= historial.getVariacion(pos); // stock que había antes de este movimiento
+                }
+                if (tiempoPrevio > inicioPeriodo) {
+                    area += (double) stock * (tiempoPrevio - inicioPeriodo);
+                }
+                r.stockPromedio = Math.max(0, area / (ahora - inicioPeriodo));
+            } else {
+                r.stockPromedio = stock; // Sin movimientos, el stock fue constante
+            }
+
+            r.rotacion = r.stockPromedio > 0 ? r.salidas / r.stockPromedio : 0;
+            double salidasPorDia = (double) r.salidas / diasPeriodo;
+            r.diasCobertura = salidasPorDia > 0 ? p.getStockActual() / salidasPorDia : Double.POSITIVE_INFINITY;
+            // Sin egresos, los días sin salida se cuentan desde el primer ingreso (o el primer movimiento), así
+            // un producto recién dado de alta no aparece como muerto. Si no tiene movimientos en el historial,
+            // su stock es anterior al historial y se considera muerto
+            long diasSinSalidas = r.diasUltimaSalida >= 0 ? r.diasUltimaSalida
+                    : r.diasPrimerIngreso >= 0 ? r.diasPrimerIngreso : diasPrimerMovimiento;
+            r.stockMuerto = p.getStockActual() > 0
+                    && (diasSinSalidas < 0 || diasSinSalidas >= diasSinSalida);
+            return r;
+        }
+    }
+
+    public List<ResultadoProducto> getResultados() { return resultados; }
+
+    public List<ResumenGrupo> getPorCategoria() { return porCategoria; }
+
+    public List<ResumenGrupo> getPorDeposito() { return porDeposito; }
+
+    public List<ResultadoProducto> getStockMuerto() { return stockMuerto; }
+
+    public long getMilisegundos() { return milisegundos; }
+}
@@ -0,0 +1,290 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Asignación de stock a una ola de pedidos (despacho por lotes).
+ * Recibe las líneas de muchos pedidos (archivo pedido,codigo,cantidad[,prioridad]), reparte el
+ * stock disponible de cada producto entre las líneas que lo piden según una política y registra
+ * todos los egresos resultantes en una única transacción, más un informe de faltantes.
+ *
+ * La competencia por el stock se resuelve en memoria antes de tocar la base: cada producto se
+ * asigna por separado (en paralelo) y los egresos que se registran nunca superan el stock, así que
+ * el lote no falla por un producto escaso ni depende de qué terminal hizo clic primero.
+ */
+public class AsignadorPedidos {
+
+    /**
+     * Criterio para repartir un producto cuando no alcanza para todas las líneas.
+     */
+    public enum Politica {
+        /** Mayor prioridad primero; a igual prioridad, orden del archivo. */
+        PRIORIDAD,
+        /** Cada línea recibe una parte proporcional a lo pedido (el resto, por mayor fracción). */
+        PROPORCIONAL,
+        /** Orden del archivo. */
+        FIFO
+    }
+
+    /**
+     * Línea de un pedido.
+     * @param orden posición en la ola (orden del archivo)
+     */
+    public record Linea(String pedido, Producto producto, int solicitado, int prioridad, int orden) {
+    }
+
+    /**
+     * Resultado de una línea.
+     * @param motivo causa del faltante (vacío si se asignó todo)
+     */
+    public record Asignacion(Linea linea, int asignado, String motivo) {
+
+        public int faltante() {
+            return linea.solicitado() - asignado;
+        }
+    }
+
+    // Sistema de stock donde se resuelven los códigos y se registran los egresos
+    private final SistemaStock sistema;
+
+    // Líneas de la ola, en orden de carga
+    private final List<Linea> lineas = new ArrayList<>();
+
+    /**
+     * Crea una ola vacía.
+     * @param sistema sistema de stock activo
+     */
+    public AsignadorPedidos(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Agrega una línea de pedido.
+     * @param pedido identificador del pedido
+     * @param codigo código del producto
+     * @param cantidad unidades pedidas
+     * @param prioridad prioridad del pedido (mayor = antes, solo para la política PRIORIDAD)
+     * @return false si el código no corresponde a ningún producto
+     * @throws Exception si la cantidad no es positiva o falta el pedido
+     */
+    public boolean agregar(String pedido, String codigo, int cantidad, int prioridad) throws Exception {
+        if (pedido == null || pedido.isBlank()) throw new Exception("Falta el identificador del pedido.");
+        if (cantidad <= 0) throw new Exception("La cantidad del pedido " + pedido + " debe ser mayor a cero.");
+        Producto p = sistema.buscarProductoPorCodigo(codigo);
+        if (p == null) return false;
+        lineas.add(new Linea(pedido.trim(), p, cantidad, prioridad, lineas.size()));
+        return true;
+    }
+
+    /**
+     * Carga un archivo de pedidos con líneas pedido,codigo,cantidad[,prioridad] (acepta encabezado,
+     * comentarios con # y ';').
+     * @param archivo archivo CSV
+     * @return líneas del archivo cuyo código no corresponde a ningún producto ("pedido,codigo")
+     * @throws Exception si una línea no tiene el formato esperado (no se carga nada del archivo)
+     */
+    public List<String> cargarArchivo(File archivo) throws Exception {
+        List<String[]> leidas = new ArrayList<>();
+        int numeroLinea = 0;
+
+        // Se valida todo el archivo antes de agregar, así un error no deja la ola a medias
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || linea.startsWith("#")) continue;
+                if (numeroLinea == 1 && linea.toLowerCase().startsWith("pedido")) continue; // Encabezado
+
+                String[] campos = linea.split("[,;]");
+                if (campos.length < 3 || campos[0].isBlank()) {
+                    throw new Exception("Línea " + numeroLinea + ": se esperaba pedido,codigo,cantidad[,prioridad].");
+                }
+                try {
+                    if (Integer.parseInt(campos[2].trim()) <= 0) throw new NumberFormatException();
+                    if (campos.length > 3) Integer.parseInt(campos[3].trim());
+                } catch (NumberFormatException e) {
+                    throw new Exception("Línea " + numeroLinea + ": cantidad o prioridad inválida.");
+                }
+                leidas.add(campos);
+            }
+        }
+
+        List<String> desconocidos = new ArrayList<>();
+        for (String[] c : leidas) {
+            int prioridad = c.length > 3 ? Integer.parseInt(c[3].trim()) : 0;
+            if (!agregar(c[0], c[1].trim(), Integer.parseInt(c[2].trim()), prioridad)) {
+                desconocidos.add(c[0].trim() + "," + c[1].trim());
+            }
+        }
+        return desconocidos;
+    }
+
+    /**
+     * Calcula la asignación con el stock actual, sin registrar nada.
+     * Cada producto se resuelve de forma independiente, en paralelo.
+     * @param politica criterio de reparto
+     * @return una asignación por línea, en el orden de carga
+     */
+    public List<Asignacion> asignar(Politica politica) {
+        // Líneas agrupadas por producto y stock disponible de cada uno (sin lo reservado, leído en este hilo).
+        // -1 marca los productos con número de serie: el disponible se acota a 0 (puede ser negativo si
+        // se reservó más de lo que quedó en stock) para no confundirse con esa marca
+        Map<Producto, List<Linea>> porProducto = new IdentityHashMap<>();
+        for (Linea l : lineas) porProducto.computeIfAbsent(l.producto(), p -> new ArrayList<>()).add(l);
+        Map<Producto, Integer> disponible = new IdentityHashMap<>();
+        for (Producto p : porProducto.keySet()) {
+            disponible.put(p, sistema.getSeries().requiereSerie(p) ? -1 : Math.max(0, p.getStockDisponible()));
+        }
+
+        // Cada grupo escribe solo las posiciones de sus líneas
+        int[] asignado = new int[lineas.size()];
+        String[] motivo = new String[lineas.size()];
+        porProducto.entrySet().parallelStream().forEach(e -> {
+            int stock = disponible.get(e.getKey());
+            if (stock < 0) {
+                // Las unidades con número de serie se eligen al despachar (ver RegistroSeries)
+                for (Linea l : e.getValue()) motivo[l.orden()] = "Requiere número de serie";
+                return;
+            }
+            repartir(e.getValue(), stock, politica, asignado);
+            for (Linea l : e.getValue()) {
+                if (asignado[l.orden()] < l.solicitado()) motivo[l.orden()] = "Stock insuficiente";
+            }
+        });
+
+        List<Asignacion> resultado = new ArrayList<>(lineas.size());
+        for (Linea l : lineas) {
+            resultado.add(new Asignacion(l, asignado[l.orden()], motivo[l.orden()] == null ? "" : motivo[l.orden()]));
+        }
+        return resultado;
+    }
+
+    /**
+     * Reparte el stock de un producto entre sus líneas.
+     */
+    private static void repartir(List<Linea> grupo, int stock, Politica politica, int[] asignado) {
+        long total = 0;
+        for (Linea l : grupo) total += l.solicitado();
+
+        // Alcanza para todos: no importa la política
+        if (total <= stock) {
+            for (Linea l : grupo) asignado[l.orden()] = l.solicitado();
+            return;
+        }
+
+        Comparator<Linea> porPrioridad = Comparator.comparingInt(Linea::prioridad).reversed()
+                .thenComparingInt(Linea::orden);
+        switch (politica) {
+            case FIFO, PRIORIDAD -> {
+                List<Linea> orden = new ArrayList<>(grupo);
+                orden.sort(politica == Politica.FIFO ? Comparator.comparingInt(Linea::orden) : porPrioridad);
+                int resto = stock;
+                for (Linea l : orden) {
+                    int parte = Math.min(resto, l.solicitado());
+                    asignado[l.orden()] = parte;
+                    resto -= parte;
+                }
+            }
+            case PROPORCIONAL -> {
+                // Parte entera de stock * pedido / total; las unidades que sobran van a las mayores fracciones
+                int resto = stock;
+                long[] fraccion = new long[grupo.size()];
+                for (int i = 0; i < grupo.size(); i++) {
+                    Linea l = grupo.get(i);
+                    long producto = (long) stock * l.solicitado();
+                    asignado[l.orden()] = (int) (producto / total);
+                    fraccion[i] = producto % total;
+                    resto -= asignado[l.orden()];
+                }
+                Integer[] indices = new Integer[grupo.size()];
+                for (int i = 0; i < indices.length; i++) indices[i] = i;
+                Arrays.sort(indices, Comparator.<Integer>comparingLong(i -> fraccion[i]).reversed()
+                        .thenComparing(i -> grupo.get(i), porPrioridad));
+                for (int k = 0; k < indices.length && resto > 0; k++) {
+                    Linea l = grupo.get(indices[k]);
+                    if (asignado[l.orden()] < l.solicitado()) {
+                        asignado[l.orden()]++;
+                        resto--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Asigna con el stock vigente y registra los egresos de toda la ola en una sola transacción
+     * (todo o nada). Cada egreso lleva el pedido como referencia.
+     * @param politica criterio de reparto
+     * @return asignación registrada (la misma que devolvería {@link #asignar(Politica)} en este momento)
+     * @throws Exception si no se pudo guardar el lote (no se registra ningún egreso)
+     */
+    public List<Asignacion> confirmar(Politica politica) throws Exception {
+        List<Asignacion> resultado = asignar(politica);
+
+        List<Movimiento> egresos = new ArrayList<>();
+        for (Asignacion a : resultado) {
+            if (a.asignado() == 0) continue;
+            Linea l = a.linea();
+            egresos.add(new Egreso(a.asignado(), l.producto(), sistema.getUsuarioActual(), "Pedido " + l.pedido()));
+        }
+        if (!egresos.isEmpty()) sistema.aplicarLote(egresos);
+
+        lineas.clear(); // La ola ya se despachó
+        return resultado;
+    }
+
+    /**
+     * Escribe el informe de faltantes (líneas que no recibieron todo lo pedido).
+     * @param asignaciones resultado de la asignación
+     * @param archivo archivo CSV de salida
+     * @return líneas con faltante
+     * @throws IOException si no se pudo escribir
+     */
+    public static int escribirFaltantes(List<Asignacion> asignaciones, File archivo) throws IOException {
+        int faltantes = 0;
+        try (PrintWriter writer = new PrintWriter(archivo, StandardCharsets.UTF_8)) {
+            writer.println("pedido,codigo,solicitado,asignado,faltante,motivo");
+            for (Asignacion a : asignaciones) {
+                if (a.faltante() == 0) continue;
+                Linea l = a.linea();
+                writer.printf("%s,%s,%d,%d,%d,%s%n", l.pedido(), l.producto().getCodigo(), l.solicitado(),
+                        a.asignado(), a.faltante(), a.motivo());
+                faltantes++;
+            }
+            if (writer.checkError()) throw new IOException("Error al escribir " + archivo.getName());
+        }
+        return faltantes;
+    }
+
+    /**
+     * Resumen de una asignación: pedidos completos, parciales y sin asignar, y unidades.
+     * @param asignaciones resultado de la asignación
+     * @return texto del resumen
+     */
+    public static String resumen(List<Asignacion> asignaciones) {
+        Map<String, int[]> porPedido = new LinkedHashMap<>(); // pedido -> {líneas, líneas completas, unidades asignadas}
+        long solicitadas = 0, asignadas = 0;
+        for (Asignacion a : asignaciones) {
+            int[] c = porPedido.computeIfAbsent(a.linea().pedido(), k -> new int[3]);
+            c[0]++;
+            if (a.faltante() == 0) c[1]++;
+            c[2] += a.asignado();
+            solicitadas += a.linea().solicitado();
+            asignadas += a.asignado();
+        }
+        int completos = 0, sinAsignar = 0;
+        for (int[] c : porPedido.values()) {
+            if (c[1] == c[0]) completos++;
+            else if (c[2] == 0) sinAsignar++;
+        }
+        return porPedido.size() + " pedidos: " + completos + " completos, "
+                + (porPedido.size() - completos - sinAsignar) + " parciales, " + sinAsignar + " sin asignar. "
+                + "Unidades asignadas: " + asignadas + " de " + solicitadas + ".";
+    }
+
+    public List<Linea> getLineas() {
+        return Collections.unmodifiableList(lineas);
+    }
+}
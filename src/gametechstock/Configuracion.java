@@ -0,0 +1,76 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Configuración opcional de la aplicación.
+ * Los valores se leen del archivo "gametechstock.properties" en la carpeta de trabajo
+ * (si existe) y pueden sobrescribirse con propiedades del sistema (-Dclave=valor).
+ * Si una clave no está definida se usa el valor por defecto indicado por quien la consulta.
+ */
+public class Configuracion {
+
+    // Nombre del archivo de configuración buscado en la carpeta de trabajo
+    private static final String ARCHIVO = "gametechstock.properties";
+
+    // Propiedades leídas del archivo (se cargan la primera vez que se consultan)
+    private static Properties propiedades = null;
+
+    /**
+     * Devuelve el valor de una clave de configuración.
+     * @param clave nombre de la clave (ej: archivo.directorio)
+     * @param porDefecto valor a usar si la clave no está definida
+     * @return valor configurado o el valor por defecto
+     */
+    public static synchronized String get(String clave, String porDefecto) {
+        String sistema = System.getProperty(clave);
+        if (sistema != null) {
+            return sistema; // Las propiedades del sistema tienen prioridad
+        }
+
+        if (propiedades == null) {
+            propiedades = new Properties();
+            File archivo = new File(ARCHIVO);
+            if (archivo.isFile()) {
+                try (InputStream in = new FileInputStream(archivo)) {
+                    propiedades.load(in);
+                } catch (IOException e) {
+                    System.err.println("No se pudo leer " + ARCHIVO + ": " + e.getMessage());
+                }
+            }
+        }
+        return propiedades.getProperty(clave, porDefecto).trim();
+    }
+
+    /**
+     * Devuelve el valor numérico de una clave de configuración.
+     * @param clave nombre de la clave
+     * @param porDefecto valor a usar si la clave no está definida o no es un número
+     * @return valor configurado o el valor por defecto
+     */
+    public static int getInt(String clave, int porDefecto) {
+        try {
+            return Integer.parseInt(get(clave, String.valueOf(porDefecto)));
+        } catch (NumberFormatException e) {
+            return porDefecto;
+        }
+    }
+
+    /**
+     * Devuelve el valor decimal de una clave de configuración.
+     * @param clave nombre de la clave
+     * @param porDefecto valor a usar si la clave no está definida o no es un número
+     * @return valor configurado o el valor por defecto
+     */
+    public static double getDouble(String clave, double porDefecto) {
+        try {
+            return Double.parseDouble(get(clave, String.valueOf(porDefecto)));
+        } catch (NumberFormatException e) {
+            return porDefecto;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ConexionBD.ConexionBD; // Importa la clase para manejar conexión con la
 import java.sql.*; // Importa librerías necesarias para trabajar con SQL
 import java.util.ArrayList; // Lista dinámica
 import java.util.List; // Interfaz de lista
+import monitoreo.EventoBD;
 
 public class Deposito {
     private int id; // Identificador único del depósito
@@ -50,7 +51,8 @@ public class Deposito {
             listaDepositos = new ArrayList<>();
             String sql = "SELECT id, ubicacion, capacidad FROM depositos"; // Consulta SQL para traer los datos
 
-            try (Connection conn = ConexionBD.obtenerConexion(); // Abre conexión
+            try (EventoBD evento = EventoBD.iniciar("Deposito.obtenerDepositos"); // Medición para JFR
+                 Connection conn = ConexionBD.obtenerConexion(); // Abre conexión
                  PreparedStatement stmt = conn.prepareStatement(sql); // Prepara la consulta
                  ResultSet rs = stmt.executeQuery()) { // Ejecuta y obtiene los resultados
 
@@ -61,6 +63,7 @@ public class Deposito {
                     int capacidad = rs.getInt("capacidad");
                     listaDepositos.add(new Deposito(id, nombre, capacidad)); // Agrega a la lista cacheada
                 }
+                evento.filas = listaDepositos.size();
             } catch (SQLException e) {
                 e.printStackTrace(); // Imprime errores en caso de fallo al consultar la base de datos
             }
@@ -0,0 +1,370 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Diario de auditoría de solo agregado, independiente de las tablas de la base de datos.
+ * Registra cada movimiento aplicado, cada intento de inicio de sesión y cada exportación en
+ * archivos locales (auditoria.directorio), una línea por registro con campos separados por tabulador.
+ *
+ * Quien registra solo deja el registro en un buffer circular sin bloquearse (si el buffer está
+ * lleno el registro se descarta y se cuenta). Un único hilo escritor toma todos los registros
+ * pendientes, los escribe juntos y hace un solo fsync por tanda (group commit). Los archivos se
+ * rotan por tamaño (auditoria.tamanioMaximoMB) y al cambiar el día; nunca se modifican ni se borran.
+ */
+public class DiarioAuditoria {
+
+    /**
+     * Registro del diario.
+     * @param instante    momento del evento (milisegundos desde 1970, UTC)
+     * @param tipo        INGRESO, EGRESO, AJUSTE, LOGIN, LOGIN_FALLIDO, EXPORTACION o DESCARTADOS
+     * @param usuarioId   id del usuario (0 si no se conoce)
+     * @param producto    código del producto (null si no corresponde)
+     * @param cantidad    variación de stock (egresos negativos) o cantidad de filas/registros
+     * @param referencia  id del movimiento en la base (0 si no corresponde)
+     * @param detalle     texto libre: justificación, usuario ingresado, archivo exportado
+     */
+    public record Registro(long instante, String tipo, int usuarioId, String producto, int cantidad,
+                           long referencia, String detalle) {
+    }
+
+    // Formato del nombre de cada archivo (momento en que se abrió)
+    private static final DateTimeFormatter NOMBRE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // Registros máximos escritos por tanda (un fsync por tanda)
+    private static final int MAX_TANDA = 8192;
+
+    // Usuario con sesión iniciada en esta aplicación (para los registros sin usuario propio)
+    private static volatile int usuarioSesion;
+
+    // Instancia única, creada con el primer registro
+    private static volatile DiarioAuditoria instancia;
+
+    private final File directorio;
+    private final long tamanioMaximo;
+
+    // Buffer circular de varios productores y un consumidor (el hilo escritor)
+    private final AtomicReferenceArray<Registro> buffer;
+    private final int mascara;
+    private final AtomicLong cola = new AtomicLong();   // Próxima posición a ocupar (productores)
+    private volatile long cabeza;                       // Próxima posición a leer (solo el escritor)
+
+    // Registros descartados por buffer lleno (se informan en el diario con un registro DESCARTADOS)
+    private final AtomicLong descartados = new AtomicLong();
+
+    // Hilo escritor y si está esperando registros
+    private final Thread escritor;
+    private volatile boolean esperando;
+    private volatile boolean detenido;
+
+    // Archivo actual
+    private FileChannel canal;
+    private LocalDate diaArchivo;
+    private long tamanioArchivo;
+
+    private DiarioAuditoria() {
+        this.directorio = getDirectorio();
+        this.tamanioMaximo = Math.max(1, Configuracion.getInt("auditoria.tamanioMaximoMB", 16)) * 1024L * 1024L;
+
+        int capacidad = Integer.highestOneBit(Math.max(1024, Configuracion.getInt("auditoria.capacidadBuffer", 65_536)));
+        this.buffer = new AtomicReferenceArray<>(capacidad);
+        this.mascara = capacidad - 1;
+
+        this.escritor = new Thread(this::escribir, "diario-auditoria");
+        escritor.setDaemon(true);
+        escritor.start();
+
+        // Al cerrar la aplicación se escriben los registros pendientes
+        Runtime.getRuntime().addShutdownHook(new Thread(this::detener, "diario-auditoria-cierre"));
+    }
+
+    /**
+     * Devuelve la carpeta del diario (clave auditoria.directorio).
+     * @return carpeta del diario
+     */
+    public static File getDirectorio() {
+        return new File(Configuracion.get("auditoria.directorio", "auditoria"));
+    }
+
+    // --- Registro (lado de los productores: nunca bloquea) ---
+
+    /**
+     * Agrega un registro al diario. No espera la escritura: solo lo deja en el buffer.
+     * @param registro registro a agregar
+     */
+    public static void registrar(Registro registro) {
+        DiarioAuditoria d = instancia;
+        if (d == null) {
+            if (!Boolean.parseBoolean(Configuracion.get("auditoria.activa", "true"))) return;
+            d = iniciar();
+        }
+        d.ofrecer(registro);
+    }
+
+    /**
+     * Registra un intento de inicio de sesión.
+     * @param login usuario ingresado
+     * @param usuario usuario validado, o null si las credenciales eran incorrectas
+     */
+    public static void registrarLogin(String login, Usuario usuario) {
+        registrar(new Registro(System.currentTimeMillis(), usuario != null ? "LOGIN" : "LOGIN_FALLIDO",
+                usuario != null ? usuario.getId() : 0, null, 0, 0, login));
+    }
+
+    /**
+     * Registra una exportación hecha por el usuario con sesión iniciada.
+     * @param destino archivo o carpeta exportada
+     * @param filas cantidad de filas exportadas
+     */
+    public static void registrarExportacion(String destino, long filas) {
+        registrar(new Registro(System.currentTimeMillis(), "EXPORTACION", usuarioSesion, null,
+                (int) Math.min(filas, Integer.MAX_VALUE), 0, destino));
+    }
+
+    /**
+     * Indica el usuario con sesión iniciada (se usa en los registros que no traen usuario).
+     * @param usuario usuario actual (null al cerrar sesión)
+     */
+    public static void setUsuarioSesion(Usuario usuario) {
+        usuarioSesion = usuario != null ? usuario.getId() : 0;
+    }
+
+    private static synchronized DiarioAuditoria iniciar() {
+        if (instancia == null) instancia = new DiarioAuditoria();
+        return instancia;
+    }
+
+    /**
+     * Ocupa una posición del buffer con un CAS y publica el registro. Si no hay lugar, lo descarta.
+     */
+    private void ofrecer(Registro r) {
+        long posicion;
+        do {
+            posicion = cola.get();
+            if (posicion - cabeza > mascara) {
+                descartados.incrementAndGet();
+                return;
+            }
+        } while (!cola.compareAndSet(posicion, posicion + 1));
+
+        buffer.set((int) (posicion & mascara), r);
+        if (esperando) LockSupport.unpark(escritor);
+    }
+
+    // --- Escritura (hilo escritor) ---
+
+    /**
+     * Bucle del hilo escritor: toma los registros pendientes, los escribe en una tanda y hace un fsync.
+     */
+    private void escribir() {
+        List<Registro> tanda = new ArrayList<>(1024);
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        while (true) {
+            tomarPendientes(tanda);
+
+            if (tanda.isEmpty()) {
+                if (detenido) return;
+                esperando = true;
+                if (cola.get() == cabeza) LockSupport.parkNanos(100_000_000L); // Hasta 100 ms sin registros
+                esperando = false;
+                continue;
+            }
+
+            try {
+                sb.setLength(0);
+                for (Registro r : tanda) linea(sb, r);
+                escribirTanda(sb.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace(); // El diario nunca debe frenar la aplicación
+                cerrarArchivo();
+            }
+            tanda.clear();
+        }
+    }
+
+    /**
+     * Mueve a la lista los registros ya publicados (hasta MAX_TANDA) y libera sus posiciones.
+     */
+    private void tomarPendientes(List<Registro> tanda) {
+        long perdidos = descartados.getAndSet(0);
+        if (perdidos > 0) {
+            tanda.add(new Registro(System.currentTimeMillis(), "DESCARTADOS", 0, null,
+                    (int) Math.min(perdidos, Integer.MAX_VALUE), 0, "buffer de auditoría lleno"));
+        }
+
+        long c = cabeza;
+        while (tanda.size() < MAX_TANDA) {
+            int i = (int) (c & mascara);
+            Registro r = buffer.get(i);
+            if (r == null) break; // Posición libre o todavía no publicada
+            buffer.set(i, null);
+            tanda.add(r);
+            c++;
+            cabeza = c; // Libera la posición para los productores
+        }
+    }
+
+    /**
+     * Escribe una tanda en el archivo actual (rotándolo si corresponde) y la fuerza a disco.
+     */
+    private void escribirTanda(byte[] datos) throws IOException {
+        LocalDate hoy = LocalDate.now();
+        if (canal == null || tamanioArchivo >= tamanioMaximo || !hoy.equals(diaArchivo)) {
+            cerrarArchivo();
+            if (!directorio.isDirectory() && !directorio.mkdirs()) {
+                throw new IOException("No se pudo crear " + directorio.getAbsolutePath());
+            }
+            File archivo = new File(directorio, "auditoria-" + LocalDateTime.now().format(NOMBRE) + ".log");
+            canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            diaArchivo = hoy;
+            tamanioArchivo = canal.size();
+        }
+
+        ByteBuffer bb = ByteBuffer.wrap(datos);
+        while (bb.hasRemaining()) canal.write(bb);
+        canal.force(false); // Un solo fsync para toda la tanda
+        tamanioArchivo += datos.length;
+    }
+
+    private void cerrarArchivo() {
+        try {
+            if (canal != null) canal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        canal = null;
+    }
+
+    /**
+     * Escribe los registros pendientes y cierra el archivo (se llama al cerrar la aplicación).
+     */
+    private void detener() {
+        detenido = true;
+        LockSupport.unpark(escritor);
+        try {
+            escritor.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cerrarArchivo();
+    }
+
+    // --- Formato de línea ---
+
+    /**
+     * Agrega la línea de un registro: campos separados por tabulador (detalle escapado).
+     */
+    private static void linea(StringBuilder sb, Registro r) {
+        sb.append(r.instante()).append('\t')
+          .append(r.tipo()).append('\t')
+          .append(r.usuarioId()).append('\t')
+          .append(r.producto() == null ? "" : r.producto()).append('\t')
+          .append(r.cantidad()).append('\t')
+          .append(r.referencia()).append('\t');
+        String d = r.detalle();
+        if (d != null) {
+            for (int i = 0; i < d.length(); i++) {
+                char c = d.charAt(i);
+                switch (c) {
+                    case '\t' -> sb.append("\\t");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\\' -> sb.append("\\\\");
+                    default -> sb.append(c);
+                }
+            }
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Interpreta una línea del diario (null si está incompleta, ej: la última de un corte de luz).
+     */
+    private static Registro leerLinea(String linea) {
+        String[] c = linea.split("\t", 7);
+        if (c.length < 7) return null;
+        try {
+            StringBuilder detalle = new StringBuilder(c[6].length());
+            for (int i = 0; i < c[6].length(); i++) {
+                char ch = c[6].charAt(i);
+                if (ch == '\\' && i + 1 < c[6].length()) {
+                    char sig = c[6].charAt(++i);
+                    detalle.append(switch (sig) {
+                        case 't' -> '\t';
+                        case 'n' -> '\n';
+                        case 'r' -> '\r';
+                        default -> sig;
+                    });
+                } else {
+                    detalle.append(ch);
+                }
+            }
+            return new Registro(Long.parseLong(c[0]), c[1], Integer.parseInt(c[2]), c[3].isEmpty() ? null : c[3],
+                    Integer.parseInt(c[4]), Long.parseLong(c[5]), detalle.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // --- Lectura ---
+
+    /**
+     * Recorre el diario en orden, entregando los registros entre dos instantes que cumplan el filtro.
+     * Los archivos que empiezan después de "hasta" o terminan antes de "desde" no se abren.
+     * @param desde instante mínimo inclusive (ms, 0 = sin límite)
+     * @param hasta instante máximo exclusivo (ms, Long.MAX_VALUE = sin límite)
+     * @param filtro condición adicional
+     * @param consumidor acción por cada registro
+     * @throws IOException si falla la lectura
+     */
+    public static void recorrer(long desde, long hasta, Predicate<Registro> filtro, Consumer<Registro> consumidor) throws IOException {
+        File[] archivos = getDirectorio().listFiles((dir, nombre) -> nombre.startsWith("auditoria-") && nombre.endsWith(".log"));
+        if (archivos == null) return;
+        Arrays.sort(archivos, Comparator.comparing(File::getName)); // El nombre lleva el momento de apertura
+
+        for (int i = 0; i < archivos.length; i++) {
+            long inicio = inicioArchivo(archivos[i]);
+            long siguiente = i + 1 < archivos.length ? inicioArchivo(archivos[i + 1]) : Long.MAX_VALUE;
+            if (inicio >= hasta || siguiente < desde) continue;
+
+            try (BufferedReader reader = Files.newBufferedReader(archivos[i].toPath(), StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = reader.readLine()) != null) {
+                    Registro r = leerLinea(linea);
+                    if (r != null && r.instante() >= desde && r.instante() < hasta && filtro.test(r)) {
+                        consumidor.accept(r);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Momento de apertura de un archivo según su nombre (ms), o 0 si el nombre no tiene el formato esperado.
+     */
+    private static long inicioArchivo(File archivo) {
+        String nombre = archivo.getName();
+        try {
+            LocalDateTime inicio = LocalDateTime.parse(nombre.substring("auditoria-".length(), nombre.length() - ".log".length()), NOMBRE);
+            return inicio.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package gametechstock; // Paquete del proyecto
 
 import ConexionBD.MovimientoDAO; // Importa el DAO para guardar movimientos en la base de datos
+import java.util.List;
+import monitoreo.EventoMovimiento;
 
 /**
  * Clase que representa un movimiento de tipo Egreso en el sistema de stock.
@@ -9,6 +11,9 @@ import ConexionBD.MovimientoDAO; // Importa el DAO para guardar movimientos en l
  */
 public class Egreso extends Movimiento {
 
+    // Reserva que despacha este egreso (0 si no despacha ninguna): se borra en la misma transacción
+    private long reservaId;
+
     /**
      * Constructor del egreso.
      * @param cantidad   cantidad a retirar del stock
@@ -21,6 +26,45 @@ public class Egreso extends Movimiento {
         super(cantidad, producto, usuario, null); // Llama al constructor de Movimiento con justificación en null
     }
 
+    /**
+     * Constructor del egreso con una referencia opcional (ej: el pedido que lo originó).
+     * @param cantidad   cantidad a retirar del stock
+     * @param producto   producto sobre el cual se realiza el egreso
+     * @param usuario    usuario que realiza el egreso
+     * @param referencia texto que se guarda como justificación
+     */
+    public Egreso(int cantidad, Producto producto, Usuario usuario, String referencia) {
+        super(cantidad, producto, usuario, referencia);
+    }
+
+    /**
+     * Constructor del egreso que despacha una reserva de stock.
+     * @param cantidad   cantidad a retirar del stock
+     * @param producto   producto sobre el cual se realiza el egreso
+     * @param usuario    usuario que realiza el egreso
+     * @param referencia texto que se guarda como justificación
+     * @param reservaId  id de la reserva despachada
+     */
+    public Egreso(int cantidad, Producto producto, Usuario usuario, String referencia, long reservaId) {
+        super(cantidad, producto, usuario, referencia);
+        this.reservaId = reservaId;
+    }
+
+    /**
+     * Devuelve el id de la reserva que despacha este egreso (0 si no despacha ninguna).
+     */
+    public long getReservaId() {
+        return reservaId;
+    }
+
+    /**
+     * Registro de auditoría del egreso: la variación de stock es negativa.
+     */
+    @Override
+    public DiarioAuditoria.Registro registroAuditoria() {
+        return registroAuditoria(-getCantidad());
+    }
+
     /**
      * Aplica el egreso al producto.
      * Llama al método registrarEgreso del producto, que valida si hay suficiente stock.
@@ -31,8 +75,19 @@ public class Egreso extends Movimiento {
     //}
     
     public void aplicar() throws Exception {
-        producto.registrarEgreso(cantidad);         // Llama al método del producto que descuenta stock y lanza excepción si no hay suficiente
-        MovimientoDAO.guardarMovimiento(this);      // Guarda el movimiento en la base de datos
+        try (EventoMovimiento evento = EventoMovimiento.iniciar(List.of(this), false)) { // Medición para JFR
+            aplicarEnMemoria();                         // Descuenta stock y lanza excepción si no hay suficiente
+            evento.registrado = MovimientoDAO.guardarMovimiento(this); // Guarda el movimiento en la base de datos
+        }
+    }
+
+    /**
+     * Descuenta la cantidad del stock en memoria sin tocar la base de datos.
+     * @throws Exception si no hay suficiente stock disponible
+     */
+    @Override
+    public void aplicarEnMemoria() throws Exception {
+        producto.registrarEgreso(cantidad);
     }
 
     /**
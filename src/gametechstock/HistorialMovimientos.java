@@ -0,0 +1,395 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial de movimientos guardado en columnas de tipos primitivos.
+ * En lugar de mantener un objeto Movimiento (con su fecha, referencias y nodo de lista) por
+ * cada registro, cada dato se guarda en un arreglo: índice de producto, id de usuario,
+ * fecha en segundos, cantidad, tipo y costo unitario. Las justificaciones se guardan una sola vez en un
+ * diccionario. La interfaz accede a los registros a través de vistas livianas ({@link Vista}).
+ *
+ * Un solo hilo agrega registros (con el historial bloqueado) mientras otros los leen sin bloquear:
+ * cada registro se completa antes de publicar el nuevo tamaño (volatile), y los arreglos que crecen
+ * se reemplazan por una copia completa publicada en un campo volatile, así quien lee una posición
+ * menor a size() siempre ve el registro entero.
+ */
+public class HistorialMovimientos {
+
+    // Códigos de tipo guardados en la columna 'tipos'
+    public static final byte INGRESO = 0;
+    public static final byte EGRESO = 1;
+    public static final byte AJUSTE = 2;
+
+    // Nombres de cada tipo, en el mismo orden que los códigos
+    private static final String[] NOMBRES_TIPO = {"INGRESO", "EGRESO", "AJUSTE"};
+
+    // Criterios de orden de ordenar()
+    public enum Orden { TIPO, FECHA, PRODUCTO, CODIGO, CANTIDAD, USUARIO, JUSTIFICACION }
+
+    // --- Columnas (todas con el mismo largo; solo las primeras 'tamanio' posiciones son válidas) ---
+    private volatile int[] productos = new int[1024];       // índice en 'tablaProductos'
+    private volatile int[] usuarios = new int[1024];        // id del usuario
+    private volatile long[] segundos = new long[1024];      // fecha como segundos (hora local)
+    private volatile int[] cantidades = new int[1024];      // cantidad tal como la informa el movimiento
+    private volatile byte[] tipos = new byte[1024];         // INGRESO, EGRESO o AJUSTE
+    private volatile int[] justificaciones = new int[1024]; // índice en 'diccionario', -1 si no tiene
+    private volatile long[] costos = new long[1024];        // costo unitario en diezmilésimos (ver ValuacionFIFO)
+
+    // Cantidad de movimientos guardados (volatile para que otros hilos lean un valor publicado)
+    private volatile int tamanio;
+
+    // Productos referenciados por el historial y su posición en la tabla
+    private volatile Producto[] tablaProductos = new Producto[64];
+    private volatile int cantidadProductos;
+    private final IdentityHashMap<Producto, Integer> indiceProductos = new IdentityHashMap<>();
+
+    // Usuarios referenciados, por id
+    private final Map<Integer, Usuario> tablaUsuarios = new ConcurrentHashMap<>();
+
+    // Diccionario de justificaciones sin repetir
+    private volatile String[] diccionario = new String[64];
+    private int tamanioDiccionario;
+    private final HashMap<String, Integer> indiceDiccionario = new HashMap<>();
+
+    /**
+     * Agrega un movimiento ya aplicado al historial.
+     * @param m movimiento a guardar
+     * @return posición del movimiento en el historial
+     */
+    public synchronized int add(Movimiento m) {
+        return agregar(codigoTipo(m.getTipo()), m.getProducto(), m.getUsuario(), m.getFecha(),
+                m.getCantidad(), m.getJustificacion(), ValuacionFIFO.aDiezmilesimos(m.getCostoUnitario()));
+    }
+
+    /**
+     * Agrega un registro de movimiento directamente en columnas (sin crear un Movimiento).
+     * Se usa al cargar el historial desde la base de datos.
+     *
+     * @param tipo INGRESO, EGRESO o AJUSTE
+     * @param producto producto afectado
+     * @param usuario usuario responsable
+     * @param fecha fecha y hora del movimiento
+     * @param cantidad cantidad del movimiento
+     * @param justificacion justificación (puede ser null)
+     * @param costo costo unitario en diezmilésimos (ValuacionFIFO.SIN_COSTO si no tiene)
+     * @return posición del movimiento en el historial
+     */
+    public synchronized int agregar(byte tipo, Producto producto, Usuario usuario, LocalDateTime fecha,
+                                     int cantidad, String justificacion, long costo) {
+        int i = tamanio;
+        if (i == tipos.length) {
+            crecer(i * 2);
+        }
+        productos[i] = indiceDe(producto);
+        usuarios[i] = usuario != null ? usuario.getId() : 0;
+        if (usuario != null) tablaUsuarios.putIfAbsent(usuario.getId(), usuario);
+        segundos[i] = fecha.toEpochSecond(ZoneOffset.UTC);
+        cantidades[i] = cantidad;
+        tipos[i] = tipo;
+        justificaciones[i] = justificacion == null ? -1
+                : indiceDiccionario.computeIfAbsent(justificacion, j -> {
+                    if (tamanioDiccionario == diccionario.length) {
+                        diccionario = Arrays.copyOf(diccionario, tamanioDiccionario * 2);
+                    }
+                    diccionario[tamanioDiccionario] = j;
+                    return tamanioDiccionario++;
+                });
+        costos[i] = costo;
+        tamanio = i + 1; // Se publica el registro recién cuando está completo
+        return i;
+    }
+
+    /**
+     * Agranda todas las columnas a la nueva capacidad.
+     */
+    private void crecer(int capacidad) {
+        productos = Arrays.copyOf(productos, capacidad);
+        usuarios = Arrays.copyOf(usuarios, capacidad);
+        segundos = Arrays.copyOf(segundos, capacidad);
+        cantidades = Arrays.copyOf(cantidades, capacidad);
+        tipos = Arrays.copyOf(tipos, capacidad);
+        justificaciones = Arrays.copyOf(justificaciones, capacidad);
+        costos = Arrays.copyOf(costos, capacidad);
+    }
+
+    /**
+     * Devuelve la posición del producto en la tabla interna, agregándolo si es nuevo.
+     */
+    private int indiceDe(Producto p) {
+        Integer idx = indiceProductos.get(p);
+        if (idx == null) {
+            idx = cantidadProductos;
+            if (idx == tablaProductos.length) tablaProductos = Arrays.copyOf(tablaProductos, idx * 2);
+            tablaProductos[idx] = p;
+            indiceProductos.put(p, idx);
+            cantidadProductos = idx + 1;
+        }
+        return idx;
+    }
+
+    /**
+     * Convierte el nombre de un tipo ("INGRESO", "EGRESO", "AJUSTE") a su código.
+     * @param tipo nombre del tipo
+     * @return código de tipo, o -1 si no es válido
+     */
+    public static byte codigoTipo(String tipo) {
+        return switch (tipo) {
+            case "INGRESO" -> INGRESO;
+            case "EGRESO" -> EGRESO;
+            case "AJUSTE" -> AJUSTE;
+            default -> -1;
+        };
+    }
+
+    // --- Acceso por posición ---
+
+    public int size() { return tamanio; }
+
+    public String getTipo(int i) { return NOMBRES_TIPO[tipos[i]]; }
+
+    public byte getCodigoTipo(int i) { return tipos[i]; }
+
+    public Producto getProducto(int i) { return tablaProductos[productos[i]]; }
+
+    public int getIndiceProducto(int i) { return productos[i]; }
+
+    public Usuario getUsuario(int i) { return tablaUsuarios.get(usuarios[i]); }
+
+    public int getUsuarioId(int i) { return usuarios[i]; }
+
+    public LocalDateTime getFecha(int i) { return LocalDateTime.ofEpochSecond(segundos[i], 0, ZoneOffset.UTC); }
+
+    public long getSegundos(int i) { return segundos[i]; }
+
+    public int getCantidad(int i) { return cantidades[i]; }
+
+    public long getCosto(int i) { return costos[i]; }
+
+    public String getJustificacion(int i) {
+        int j = justificaciones[i];
+        return j < 0 ? null : diccionario[j];
+    }
+
+    /**
+     * Devuelve la variación de stock que produjo el movimiento (negativa para egresos).
+     * @param i posición del movimiento
+     * @return cantidad con signo
+     */
+    public int getVariacion(int i) {
+        return tipos[i] == EGRESO ? -cantidades[i] : cantidades[i];
+    }
+
+    /**
+     * Cantidad de productos distintos referenciados (los índices de producto van de 0 a este valor - 1).
+     * @return tamaño de la tabla de productos
+     */
+    public int getCantidadProductos() { return cantidadProductos; }
+
+    /**
+     * Devuelve el producto asociado a un índice interno.
+     * @param indice índice de producto (ver {@link #getIndiceProducto(int)})
+     * @return producto
+     */
+    public Producto getProductoPorIndice(int indice) { return tablaProductos[indice]; }
+
+    /**
+     * Devuelve el índice interno de un producto, o -1 si no tiene movimientos.
+     * @param p producto buscado
+     * @return índice de producto o -1
+     */
+    public synchronized int buscarIndice(Producto p) {
+        Integer idx = indiceProductos.get(p);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Agrupa las posiciones del historial por producto en una sola pasada (ordenamiento por conteo).
+     * Dentro de cada producto las posiciones quedan en orden cronológico.
+     * @return agrupación de movimientos por índice de producto
+     */
+    public synchronized Agrupacion agruparPorProducto() {
+        int n = tamanio;
+
+        int[] inicios = new int[cantidadProductos + 1];
+        for (int i = 0; i < n; i++) inicios[productos[i] + 1]++;
+        for (int p = 0; p < cantidadProductos; p++) inicios[p + 1] += inicios[p];
+
+        int[] siguiente = Arrays.copyOf(inicios, cantidadProductos);
+        int[] posiciones = new int[n];
+        for (int i = 0; i < n; i++) posiciones[siguiente[productos[i]]++] = i;
+
+        return new Agrupacion(inicios, posiciones);
+    }
+
+    /**
+     * Resultado de {@link #agruparPorProducto()}: los movimientos del producto p están en
+     * posiciones[inicios[p]] .. posiciones[inicios[p + 1] - 1].
+     */
+    public static final class Agrupacion {
+        public final int[] inicios;
+        public final int[] posiciones;
+
+        Agrupacion(int[] inicios, int[] posiciones) {
+            this.inicios = inicios;
+            this.posiciones = posiciones;
+        }
+    }
+
+    /**
+     * Ordena las primeras n posiciones del historial por un criterio, sin crear objetos por registro:
+     * cada posición se empaqueta con su clave en un long (clave en los 32 bits altos, posición en los
+     * bajos) y se ordena el arreglo de primitivos. A igual clave se mantiene el orden cronológico.
+     * @param orden criterio
+     * @param ascendente true para orden ascendente
+     * @param n cantidad de posiciones a ordenar (como máximo size())
+     * @return posiciones del historial en el orden pedido
+     */
+    public int[] ordenar(Orden orden, boolean ascendente, int n) {
+        int[] claves = claves(orden, n);
+        long[] paquetes = new long[n];
+        for (int i = 0; i < n; i++) {
+            long clave = claves[i] & 0xFFFFFFFFL;              // Sin signo (las claves ya vienen desplazadas)
+            if (!ascendente) clave = 0xFFFFFFFFL - clave;
+            paquetes[i] = (clave << 32 | i) ^ Long.MIN_VALUE; // Invierte el bit de signo: el orden con signo queda sin signo
+        }
+        Arrays.parallelSort(paquetes);
+        int[] posiciones = new int[n];
+        for (int i = 0; i < n; i++) posiciones[i] = (int) paquetes[i];
+        return posiciones;
+    }
+
+    /**
+     * Clave de orden de cada posición, como entero sin signo de 32 bits. Los textos (tipo, producto,
+     * usuario, justificación) se reemplazan por su puesto en el orden alfabético, calculado una
+     * vez por valor distinto.
+     */
+    private int[] claves(Orden orden, int n) {
+        int[] claves = new int[n];
+        switch (orden) {
+            case TIPO -> {
+                int[] puesto = puestos(NOMBRES_TIPO, NOMBRES_TIPO.length, Comparator.naturalOrder());
+                for (int i = 0; i < n; i++) claves[i] = puesto[tipos[i]];
+            }
+            case FECHA -> {
+                long minimo = Long.MAX_VALUE;
+                for (int i = 0; i < n; i++) minimo = Math.min(minimo, segundos[i]);
+                for (int i = 0; i < n; i++) claves[i] = (int) (segundos[i] - minimo); // 136 años caben en 32 bits sin signo
+            }
+            case PRODUCTO, CODIGO -> {
+                Comparator<Producto> porTexto = orden == Orden.PRODUCTO
+                        ? Comparator.comparing(Producto::getNombre, String.CASE_INSENSITIVE_ORDER)
+                        : Comparator.comparing(Producto::getCodigo);
+                Producto[] tabla;
+                synchronized (this) { // La tabla y su cantidad juntas: agregar() puede estar creciéndola
+                    tabla = Arrays.copyOf(tablaProductos, cantidadProductos);
+                }
+                int[] puesto = puestos(tabla, tabla.length, porTexto);
+                for (int i = 0; i < n; i++) claves[i] = puesto[productos[i]];
+            }
+            case CANTIDAD -> {
+                for (int i = 0; i < n; i++) claves[i] = cantidades[i] ^ Integer.MIN_VALUE; // Negativos primero
+            }
+            case USUARIO -> {
+                Map<Integer, Integer> puesto = new HashMap<>();
+                Integer[] ids = tablaUsuarios.keySet().toArray(new Integer[0]);
+                Arrays.sort(ids, Comparator.comparing(id -> tablaUsuarios.get(id).getNombre(), String.CASE_INSENSITIVE_ORDER));
+                for (int r = 0; r < ids.length; r++) puesto.put(ids[r], r + 1);
+                for (int i = 0; i < n; i++) claves[i] = puesto.getOrDefault(usuarios[i], 0); // Sin usuario primero
+            }
+            case JUSTIFICACION -> {
+                String[] textos;
+                synchronized (this) { // El diccionario y su tamaño juntos: agregar() puede estar creciéndolo
+                    textos = Arrays.copyOf(diccionario, tamanioDiccionario);
+                }
+                int[] puesto = puestos(textos, textos.length, String.CASE_INSENSITIVE_ORDER);
+                for (int i = 0; i < n; i++) claves[i] = justificaciones[i] < 0 ? 0 : puesto[justificaciones[i]] + 1;
+            }
+        }
+        return claves;
+    }
+
+    /**
+     * Puesto de cada valor de una tabla en su orden (valores iguales comparten puesto).
+     */
+    private static <T> int[] puestos(T[] tabla, int cantidad, Comparator<? super T> comparador) {
+        Integer[] indices = new Integer[cantidad];
+        for (int i = 0; i < cantidad; i++) indices[i] = i;
+        Arrays.sort(indices, (a, b) -> comparador.compare(tabla[a], tabla[b]));
+        int[] puesto = new int[cantidad];
+        for (int r = 0; r < cantidad; r++) {
+            boolean igual = r > 0 && comparador.compare(tabla[indices[r]], tabla[indices[r - 1]]) == 0;
+            puesto[indices[r]] = igual ? puesto[indices[r - 1]] : r;
+        }
+        return puesto;
+    }
+
+    /**
+     * Devuelve una vista liviana del movimiento en la posición indicada.
+     * @param i posición del movimiento
+     * @return vista de solo lectura
+     */
+    public Vista vista(int i) {
+        return new Vista(this, i);
+    }
+
+    /**
+     * Devuelve el historial como lista de vistas, creadas a medida que se piden (sin copiar datos).
+     * @return lista de solo lectura
+     */
+    public List<Vista> comoLista() {
+        return new AbstractList<>() {
+            @Override
+            public Vista get(int i) { return vista(i); }
+
+            @Override
+            public int size() { return tamanio; }
+        };
+    }
+
+    /**
+     * Vista de solo lectura sobre un registro del historial.
+     * Solo guarda la referencia al historial y la posición; los datos se leen de las columnas.
+     */
+    public static final class Vista {
+        private final HistorialMovimientos historial;
+        private final int posicion;
+
+        private Vista(HistorialMovimientos historial, int posicion) {
+            this.historial = historial;
+            this.posicion = posicion;
+        }
+
+        public int getPosicion() { return posicion; }
+
+        // Dos vistas de la misma posición son el mismo registro (la tabla puede recrearlas al desplazarse)
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Vista v && v.historial == historial && v.posicion == posicion;
+        }
+
+        @Override
+        public int hashCode() { return posicion; }
+
+        public String getTipo() { return historial.getTipo(posicion); }
+
+        public LocalDateTime getFecha() { return historial.getFecha(posicion); }
+
+        public Producto getProducto() { return historial.getProducto(posicion); }
+
+        public Usuario getUsuario() { return historial.getUsuario(posicion); }
+
+        public int getCantidad() { return historial.getCantidad(posicion); }
+
+        public String getJustificacion() { return historial.getJustificacion(posicion); }
+    }
+}
@@ -0,0 +1,311 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Índice de búsqueda en memoria sobre los productos del sistema.
+ * Indexa nombre, código y categoría sin distinguir acentos ni mayúsculas, usando
+ * trigramas para coincidencias parciales y un árbol de palabras para búsquedas por prefijo.
+ * Los resultados se devuelven ordenados por relevancia.
+ */
+public class IndiceProductos {
+
+    // Cantidad máxima de resultados devueltos por una búsqueda
+    private static final int MAX_RESULTADOS = 200;
+
+    // Productos indexados; la posición en la lista es el identificador interno del producto
+    private final ArrayList<Producto> productos = new ArrayList<>();
+
+    // Campos ya normalizados de cada producto (misma posición que en 'productos')
+    private final ArrayList<String> codigos = new ArrayList<>();
+    private final ArrayList<String[]> palabrasNombre = new ArrayList<>();
+    private final ArrayList<String[]> palabrasCategoria = new ArrayList<>();
+
+    // Trigrama -> productos que lo contienen
+    private final HashMap<String, Postings> trigramas = new HashMap<>();
+
+    // Palabra completa -> productos que la contienen (ordenado para buscar por prefijo)
+    private final TreeMap<String, Postings> palabras = new TreeMap<>();
+
+    // Código exacto (en mayúsculas) -> producto, para resolver lecturas del escáner en O(1)
+    private final HashMap<String, Producto> porCodigo = new HashMap<>();
+
+    // Contadores reutilizados entre búsquedas para no crear arreglos en cada tecla
+    private int[] coincidencias = new int[0];
+
+    /**
+     * Construye el índice a partir de una lista inicial de productos.
+     * @param iniciales productos a indexar
+     */
+    public IndiceProductos(List<Producto> iniciales) {
+        for (Producto p : iniciales) {
+            indexar(p);
+        }
+    }
+
+    /**
+     * Agrega un producto al índice (por ejemplo, al crearse uno nuevo).
+     * @param p producto a indexar
+     */
+    public synchronized void agregar(Producto p) {
+        indexar(p);
+    }
+
+    private void indexar(Producto p) {
+        int id = productos.size();
+        productos.add(p);
+
+        String codigo = normalizar(p.getCodigo());
+        String[] nombre = separarPalabras(normalizar(p.getNombre()));
+        String[] categoria = separarPalabras(normalizar(p.getCategoria()));
+
+        codigos.add(codigo);
+        porCodigo.put(claveCodigo(p.getCodigo()), p);
+        palabrasNombre.add(nombre);
+        palabrasCategoria.add(categoria);
+
+        indexarPalabra(codigo, id);
+        for (String palabra : nombre) indexarPalabra(palabra, id);
+        for (String palabra : categoria) indexarPalabra(palabra, id);
+    }
+
+    /**
+     * Busca productos cuyo nombre, código o categoría coincidan con el texto ingresado.
+     * Cada palabra de la búsqueda debe coincidir con algún campo del producto.
+     * @param texto texto escrito por el usuario
+     * @return productos encontrados ordenados de mayor a menor relevancia
+     */
+    public synchronized List<Producto> buscar(String texto) {
+        String[] consulta = separarPalabras(normalizar(texto));
+        if (consulta.length == 0) {
+            return new ArrayList<>(productos); // Sin texto se muestran todos
+        }
+
+        if (coincidencias.length < productos.size()) {
+            coincidencias = new int[productos.size()];
+        }
+
+        // La palabra más larga es la más selectiva: con ella se arman los candidatos
+        String principal = consulta[0];
+        for (String palabra : consulta) {
+            if (palabra.length() > principal.length()) principal = palabra;
+        }
+        int[] candidatos = candidatos(principal);
+
+        // Se califica cada candidato contra todas las palabras de la búsqueda
+        int[] puntajes = new int[candidatos.length];
+        int encontrados = 0;
+        for (int id : candidatos) {
+            int total = 0;
+            for (String palabra : consulta) {
+                int puntaje = puntuar(id, palabra);
+                if (puntaje == 0) { total = 0; break; } // Todas las palabras deben coincidir
+                total += puntaje;
+            }
+            if (total > 0) {
+                candidatos[encontrados] = id;
+                puntajes[encontrados] = total;
+                encontrados++;
+            }
+        }
+
+        // Ordena por puntaje (desc); a igual puntaje se respeta el orden de los candidatos
+        long[] orden = new long[encontrados];
+        for (int i = 0; i < encontrados; i++) {
+            orden[i] = ((long) (Integer.MAX_VALUE - puntajes[i]) << 32) | i;
+        }
+        Arrays.sort(orden);
+
+        List<Producto> resultado = new ArrayList<>(Math.min(encontrados, MAX_RESULTADOS));
+        for (int i = 0; i < encontrados && resultado.size() < MAX_RESULTADOS; i++) {
+            resultado.add(productos.get(candidatos[(int) orden[i]]));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca un producto por su código exacto (ej: lectura de un escáner de código de barras).
+     * @param codigo código leído, sin importar mayúsculas ni espacios alrededor
+     * @return el producto, o null si no existe
+     */
+    public synchronized Producto buscarPorCodigo(String codigo) {
+        return porCodigo.get(claveCodigo(codigo));
+    }
+
+    /**
+     * Devuelve los productos que pueden coincidir con una palabra de la búsqueda.
+     * Palabras cortas se resuelven por prefijo; las largas por trigramas compartidos.
+     */
+    private int[] candidatos(String palabra) {
+        if (palabra.length() < 3) {
+            // Prefijo: todas las palabras indexadas que empiezan con el texto
+            Postings union = new Postings();
+            for (Postings p : palabras.subMap(palabra, palabra + Character.MAX_VALUE).values()) {
+                for (int i = 0; i < p.cantidad; i++) union.agregar(p.ids[i]);
+            }
+            return union.distintos(coincidencias);
+        }
+
+        // Trigramas: se cuentan cuántos trigramas de la palabra comparte cada producto
+        List<String> tris = trigramasDe(palabra);
+        int minimo = Math.max(1, tris.size() / 2); // Tolera errores de tipeo menores
+        Postings tocados = new Postings();
+        for (String t : tris) {
+            Postings p = trigramas.get(t);
+            if (p == null) continue;
+            for (int i = 0; i < p.cantidad; i++) {
+                int id = p.ids[i];
+                if (coincidencias[id]++ == 0) tocados.agregar(id);
+            }
+        }
+
+        int[] resultado = new int[tocados.cantidad];
+        int n = 0;
+        for (int i = 0; i < tocados.cantidad; i++) {
+            int id = tocados.ids[i];
+            if (coincidencias[id] >= minimo) resultado[n++] = id;
+            coincidencias[id] = 0; // Deja los contadores limpios para la próxima búsqueda
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Calcula qué tan bien coincide una palabra de la búsqueda con un producto.
+     * @return puntaje de relevancia, 0 si no coincide
+     */
+    private int puntuar(int id, String palabra) {
+        String codigo = codigos.get(id);
+        if (codigo.equals(palabra)) return 100;
+        if (codigo.startsWith(palabra)) return 60;
+
+        // Parte del código (ej: "003" para P003); desde 3 caracteres, como los candidatos por trigramas
+        int mejor = palabra.length() >= 3 && codigo.contains(palabra) ? 45 : 0;
+        String[] nombre = palabrasNombre.get(id);
+        for (int i = 0; i < nombre.length; i++) {
+            String w = nombre[i];
+            if (w.equals(palabra)) mejor = Math.max(mejor, i == 0 ? 50 : 40);
+            else if (w.startsWith(palabra)) mejor = Math.max(mejor, i == 0 ? 35 : 30);
+            else if (w.contains(palabra)) mejor = Math.max(mejor, 15);
+        }
+        for (String w : palabrasCategoria.get(id)) {
+            if (w.startsWith(palabra)) mejor = Math.max(mejor, 10);
+        }
+        if (mejor > 0 || palabra.length() < 3) return mejor;
+
+        // Coincidencia aproximada (errores de tipeo) contra las palabras del nombre
+        List<String> tris = trigramasDe(palabra);
+        for (String w : nombre) {
+            List<String> propios = trigramasDe(w);
+            int comunes = 0;
+            for (String t : tris) {
+                if (propios.contains(t)) comunes++;
+            }
+            if (comunes * 2 >= tris.size()) mejor = Math.max(mejor, 1 + 9 * comunes / tris.size());
+        }
+        return mejor;
+    }
+
+    /**
+     * Registra una palabra del producto en el índice de palabras y en el de trigramas.
+     */
+    private void indexarPalabra(String palabra, int id) {
+        if (palabra.isEmpty()) return;
+        palabras.computeIfAbsent(palabra, k -> new Postings()).agregarUnico(id);
+        for (String t : trigramasDe(palabra)) {
+            trigramas.computeIfAbsent(t, k -> new Postings()).agregarUnico(id);
+        }
+    }
+
+    /**
+     * Genera los trigramas de una palabra, con un espacio inicial para favorecer los prefijos.
+     */
+    private static List<String> trigramasDe(String palabra) {
+        String p = " " + palabra;
+        List<String> tris = new ArrayList<>(p.length());
+        for (int i = 0; i + 3 <= p.length(); i++) {
+            tris.add(p.substring(i, i + 3));
+        }
+        if (tris.isEmpty()) tris.add(p);
+        return tris;
+    }
+
+    /**
+     * Clave usada en el mapa de códigos: sin espacios y en mayúsculas.
+     */
+    private static String claveCodigo(String codigo) {
+        return codigo == null ? "" : codigo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Pasa el texto a minúsculas y le quita los acentos (ej: "Periférico" -> "periferico").
+     * @param texto texto original (puede ser null)
+     * @return texto normalizado
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) return "";
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Separa un texto normalizado en palabras (letras y números).
+     */
+    private static String[] separarPalabras(String texto) {
+        List<String> lista = new ArrayList<>();
+        int inicio = -1;
+        for (int i = 0; i <= texto.length(); i++) {
+            boolean letra = i < texto.length() && Character.isLetterOrDigit(texto.charAt(i));
+            if (letra && inicio < 0) inicio = i;
+            if (!letra && inicio >= 0) {
+                lista.add(texto.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return lista.toArray(new String[0]);
+    }
+
+    /**
+     * Lista compacta de identificadores de producto (arreglo de enteros que crece a demanda).
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int cantidad;
+
+        void agregar(int id) {
+            if (cantidad == ids.length) ids = Arrays.copyOf(ids, cantidad * 2);
+            ids[cantidad++] = id;
+        }
+
+        // Los ids se agregan en orden creciente, así que alcanza con mirar el último
+        void agregarUnico(int id) {
+            if (cantidad == 0 || ids[cantidad - 1] != id) agregar(id);
+        }
+
+        // Devuelve los ids sin repetir, usando 'marcas' como arreglo auxiliar (queda en cero)
+        int[] distintos(int[] marcas) {
+            int[] resultado = new int[cantidad];
+            int n = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (marcas[ids[i]] == 0) {
+                    marcas[ids[i]] = 1;
+                    resultado[n++] = ids[i];
+                }
+            }
+            for (int i = 0; i < n; i++) marcas[resultado[i]] = 0;
+            return Arrays.copyOf(resultado, n);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package gametechstock; // Paquete principal del sistema
 
 import ConexionBD.MovimientoDAO; // Importa el DAO responsable de guardar los movimientos en la base de datos
+import java.math.BigDecimal;     // Costo unitario del ingreso
+import java.util.List;
+import monitoreo.EventoMovimiento;
 
 /**
  * Clase que representa un movimiento de tipo Ingreso en el sistema de stock.
@@ -21,6 +24,18 @@ public class Ingreso extends Movimiento {
         super(cantidad, producto, usuario, null); // Llama al constructor de la clase base (Movimiento) con justificación nula
     }
 
+    /**
+     * Constructor del ingreso con costo unitario (forma una nueva capa de costo FIFO, ver ValuacionFIFO).
+     * @param cantidad       cantidad a agregar al stock
+     * @param producto       producto al que se le suma stock
+     * @param usuario        usuario que registra el ingreso
+     * @param costoUnitario  costo de cada unidad (null si no se conoce)
+     */
+    public Ingreso(int cantidad, Producto producto, Usuario usuario, BigDecimal costoUnitario) {
+        this(cantidad, producto, usuario);
+        this.costoUnitario = costoUnitario;
+    }
+
     /**
      * Aplica el ingreso al producto.
      * Llama al método registrarIngreso del producto para aumentar el stock.
@@ -30,8 +45,18 @@ public class Ingreso extends Movimiento {
     //}
 
     public void aplicar() {
-        producto.registrarIngreso(cantidad); // Suma la cantidad indicada al stock actual del producto
-        MovimientoDAO.guardarMovimiento(this); // Guarda el movimiento en la base de datos usando MovimientoDAO
+        try (EventoMovimiento evento = EventoMovimiento.iniciar(List.of(this), false)) { // Medición para JFR
+            aplicarEnMemoria(); // Suma la cantidad indicada al stock actual del producto
+            evento.registrado = MovimientoDAO.guardarMovimiento(this); // Guarda el movimiento en la base de datos usando MovimientoDAO
+        }
+    }
+
+    /**
+     * Suma la cantidad al stock en memoria sin tocar la base de datos.
+     */
+    @Override
+    public void aplicarEnMemoria() {
+        producto.registrarIngreso(cantidad);
     }
 
     /**
@@ -1,6 +1,11 @@
 package gametechstock; // Paquete principal del sistema
 
+import java.math.BigDecimal;     // Costo unitario con decimales exactos
 import java.time.LocalDateTime; // Importa la clase para manejar fecha y hora del sistema
+import java.time.ZoneId;
+import java.util.List;          // Números de serie de las unidades
+import java.util.UUID;          // Id único generado por el cliente
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Clase abstracta que representa un movimiento de stock.
@@ -9,6 +14,12 @@ import java.time.LocalDateTime; // Importa la clase para manejar fecha y hora de
  */
 public abstract class Movimiento {
 
+    // Id asignado por la base de datos al guardar el movimiento (0 si todavía no se guardó)
+    protected long id;
+
+    // Id único generado al crear el movimiento: si un guardado se reintenta, la base lo reconoce y no lo repite
+    protected final UUID idCliente = nuevoIdCliente();
+
     // Fecha y hora en que se registró el movimiento
     protected LocalDateTime fecha;
 
@@ -24,6 +35,11 @@ public abstract class Movimiento {
     // Justificación (usada en Ajuste; puede ser null en Ingreso o Egreso)
     protected String justificacion;
 
+    // Costo unitario (solo en ingresos; null si no se informó)
+    protected BigDecimal costoUnitario;
+
+    // Números de serie de las unidades (solo productos con serie, ver RegistroSeries; null si no tiene)
+    protected List<String> series;
 
     /**
      * Constructor del movimiento.
@@ -50,6 +66,14 @@ public abstract class Movimiento {
      */
     public abstract void aplicar() throws Exception;
 
+    /**
+     * Aplica el movimiento solo sobre el stock en memoria, sin guardarlo en la base de datos.
+     * Se usa al registrar varios movimientos juntos en una única transacción.
+     *
+     * @throws Exception si el movimiento deja el stock en un valor inválido
+     */
+    public abstract void aplicarEnMemoria() throws Exception;
+
     /**
      * Devuelve una cadena que representa el movimiento en formato de auditoría (Lo guardamos para un futuro).
      * Incluye tipo, fecha, producto, cantidad y usuario.
@@ -60,6 +84,60 @@ public abstract class Movimiento {
                 fecha, this.getClass().getSimpleName(), producto.getCodigo(), cantidad, usuario.getNombre());
     }
 
+    /**
+     * Devuelve el registro del movimiento para el diario de auditoría, con la fecha del movimiento.
+     * No da formato: la línea la arma el hilo escritor del diario, fuera del camino del movimiento.
+     * @return registro con tipo, producto, variación de stock, usuario e id
+     */
+    public DiarioAuditoria.Registro registroAuditoria() {
+        return registroAuditoria(cantidad);
+    }
+
+    /**
+     * Arma el registro de auditoría con la variación de stock indicada (las subclases eligen el signo).
+     */
+    protected DiarioAuditoria.Registro registroAuditoria(int variacion) {
+        long instante = fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new DiarioAuditoria.Registro(instante, getTipo(), usuario != null ? usuario.getId() : 0,
+                producto.getCodigo(), variacion, id, justificacion);
+    }
+
+    /**
+     * Devuelve el id del movimiento en la base de datos.
+     * @return id asignado al guardarlo, o 0 si no se guardó
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Establece el id asignado por la base de datos.
+     * @param id id generado al insertar el movimiento
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Devuelve el id único generado por el cliente al crear el movimiento.
+     * @return id de cliente (no cambia al reintentar el guardado)
+     */
+    public UUID getIdCliente() {
+        return idCliente;
+    }
+
+    /**
+     * Genera un id de cliente ordenado por tiempo (formato UUID versión 7): los primeros 48 bits son
+     * los milisegundos actuales y el resto es aleatorio, así las inserciones en la tabla movimientos_ids
+     * se agregan al final de su clave primaria en lugar de repartirse por todo el índice.
+     */
+    private static UUID nuevoIdCliente() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        long alto = (System.currentTimeMillis() << 16) | 0x7000L | (azar.nextLong() & 0x0FFFL);
+        long bajo = (azar.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(alto, bajo);
+    }
+
     /**
      * Permite sobrescribir la fecha del movimiento (por ejemplo al cargar desde BD).
      * @param fecha fecha específica a establecer
@@ -100,6 +178,30 @@ public abstract class Movimiento {
         return cantidad;
     }
 
+    /**
+     * Devuelve el costo unitario del movimiento (solo se informa en ingresos).
+     * @return costo unitario o null si no se informó
+     */
+    public BigDecimal getCostoUnitario() {
+        return costoUnitario;
+    }
+
+    /**
+     * Devuelve los números de serie de las unidades del movimiento.
+     * @return series normalizadas (una por unidad) o null si el producto no usa serie
+     */
+    public List<String> getSeries() {
+        return series;
+    }
+
+    /**
+     * Asigna los números de serie de las unidades (ingresos y egresos de productos con serie).
+     * @param series series normalizadas, una por unidad
+     */
+    public void setSeries(List<String> series) {
+        this.series = series;
+    }
+
     /**
      * Devuelve la justificación del movimiento (solo se usa en ajustes).
      * @return texto justificativo o null si no aplica
@@ -0,0 +1,25 @@
+package gametechstock; // Paquete principal del sistema
+
+import ConexionBD.RegistroMovimiento;
+
+/**
+ * Recibe cada cambio de stock del SistemaStock (propio o de otra terminal), en el mismo hilo
+ * que lo aplica. Se usa para mantener vistas derivadas del stock (ej: la API HTTP) sin recorrer
+ * todos los productos en cada consulta.
+ */
+public interface OyenteStock {
+
+    /**
+     * Un producto cambió de stock o es nuevo.
+     * @param producto producto con el stock ya actualizado
+     */
+    default void productoActualizado(Producto producto) {
+    }
+
+    /**
+     * Se registró un movimiento (la cantidad conserva el signo de la base: egresos negativos).
+     * @param movimiento movimiento registrado
+     */
+    default void movimientoRegistrado(RegistroMovimiento movimiento) {
+    }
+}
@@ -24,6 +24,9 @@ public class Producto {
     // Depósito donde se encuentra almacenado el producto
     private Deposito deposito;
 
+    // Unidades apartadas por reservas vigentes (ver ReservasStock); no se pueden egresar
+    private int stockReservado;
+
     /**
      * Constructor de producto.
      *
@@ -58,6 +61,9 @@ public class Producto {
      */
     public void registrarEgreso(int cantidad) throws Exception {
         if (cantidad > stockActual) throw new Exception("Stock insuficiente."); // Valida que haya stock
+        if (cantidad > stockActual - stockReservado) {
+            throw new Exception("Stock insuficiente: " + stockReservado + " unidades están reservadas."); // Respeta las reservas
+        }
         stockActual -= cantidad; // Resta del stock actual
     }
 
@@ -89,6 +95,10 @@ public class Producto {
 
     public int getStockActual() { return stockActual; } // Devuelve el stock actual
 
+    public int getStockReservado() { return stockReservado; } // Devuelve las unidades reservadas
+
+    public int getStockDisponible() { return Math.max(0, stockActual - stockReservado); } // Stock que se puede egresar o reservar
+
     public String getCategoria() { return categoria; } // Devuelve la categoría del producto
 
     public int getStockMinimo() { return stockMinimo; } // Devuelve el stock mínimo
@@ -99,6 +109,18 @@ public class Producto {
         this.codigo = codigo; // Establece un nuevo código
     }
 
+    public void setStockMinimo(int stockMinimo) {
+        this.stockMinimo = stockMinimo; // Actualiza el mínimo (ej: al aplicar el punto de pedido calculado)
+    }
+
+    /**
+     * Suma o resta unidades reservadas (solo lo usa ReservasStock).
+     * @param cantidad unidades a reservar (negativo para liberar)
+     */
+    void reservar(int cantidad) {
+        stockReservado += cantidad;
+    }
+
     public void setStockActual(int stockActual) {
         this.stockActual = stockActual;
     } // Establece el ajuste de nuevo ingreso de mercadería a memoria para que se refleje en busquedas
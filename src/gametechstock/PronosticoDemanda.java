@@ -0,0 +1,282 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pronóstico de demanda por producto con suavizado exponencial.
+ * Para cada producto se mantiene la demanda diaria suavizada y su varianza, actualizadas en O(1)
+ * con cada egreso aplicado. A partir de ellas se calcula el punto de pedido dinámico
+ * (demanda durante la reposición + stock de seguridad) y la cantidad sugerida de compra.
+ *
+ * Parámetros configurables (gametechstock.properties):
+ * pronostico.alfa (0.1), pronostico.diasReposicion (7), pronostico.diasRevision (14), pronostico.z (1.65).
+ */
+public class PronosticoDemanda {
+
+    // Parámetros del modelo
+    private final double alfa;
+    private final int diasReposicion;
+    private final int diasRevision;
+    private final double z;
+
+    // Productos con estado de pronóstico y su posición en los arreglos
+    private final IdentityHashMap<Producto, Integer> indices = new IdentityHashMap<>();
+    private int cantidad;
+
+    // Estado por producto (misma posición que en 'indices')
+    private double[] nivel = new double[256];     // demanda diaria suavizada
+    private double[] varianza = new double[256];  // varianza suavizada de la demanda diaria
+    private long[] dia = new long[256];           // día (epoch) que se está acumulando
+    private int[] demandaDia = new int[256];      // unidades egresadas en ese día
+
+    // Egresos registrados mientras recalcular() arma el estado nuevo (null si no se está recalculando)
+    private List<EgresoPendiente> pendientes;
+
+    private record EgresoPendiente(Producto producto, int unidades, long segundos, int posicion) { }
+
+    /**
+     * Sugerencia de compra para un producto.
+     */
+    public static class Sugerencia {
+        private final Producto producto;
+        private final double demandaDiaria;
+        private final double desvio;
+        private final int puntoPedido;
+        private final int cantidadSugerida;
+
+        Sugerencia(Producto producto, double demandaDiaria, double desvio, int puntoPedido, int cantidadSugerida) {
+            this.producto = producto;
+            this.demandaDiaria = demandaDiaria;
+            this.desvio = desvio;
+            this.puntoPedido = puntoPedido;
+            this.cantidadSugerida = cantidadSugerida;
+        }
+
+        public Producto getProducto() { return producto; }
+        public double getDemandaDiaria() { return demandaDiaria; }
+        public double getDesvio() { return desvio; }
+        public int getPuntoPedido() { return puntoPedido; }
+        public int getCantidadSugerida() { return cantidadSugerida; }
+        public boolean isReponer() { return cantidadSugerida > 0; }
+    }
+
+    /**
+     * Crea el pronóstico con los parámetros de la configuración.
+     */
+    public PronosticoDemanda() {
+        this.alfa = Configuracion.getDouble("pronostico.alfa", 0.1);
+        this.diasReposicion = Configuracion.getInt("pronostico.diasReposicion", 7);
+        this.diasRevision = Configuracion.getInt("pronostico.diasRevision", 14);
+        this.z = Configuracion.getDouble("pronostico.z", 1.65);
+    }
+
+    /**
+     * Actualiza el pronóstico con un egreso aplicado (O(1)).
+     * @param p producto egresado
+     * @param unidades cantidad egresada
+     * @param segundos fecha del egreso en segundos (hora local, ver HistorialMovimientos)
+     * @param posicion posición del egreso en el historial (se agrega al historial antes de llamar a este método)
+     */
+    public synchronized void registrarEgreso(Producto p, int unidades, long segundos, int posicion) {
+        if (pendientes != null) pendientes.add(new EgresoPendiente(p, unidades, segundos, posicion));
+        aplicarEgreso(p, unidades, segundos);
+    }
+
+    // Suma el egreso al día en curso del producto
+    private void aplicarEgreso(Producto p, int unidades, long segundos) {
+        int i = indiceDe(p, segundos / 86_400L);
+        avanzarHasta(i, segundos / 86_400L);
+        demandaDia[i] += unidades;
+    }
+
+    /**
+     * Recalcula todo el pronóstico desde el historial, en paralelo por producto.
+     * Se usa al iniciar el sistema (o para rellenar datos después de una carga masiva).
+     * Los egresos registrados mientras tanto se guardan y, después del cambio de estado, se vuelven a
+     * aplicar los que quedaron fuera de la agrupación (posición mayor o igual a su tamaño).
+     * @param historial historial completo de movimientos
+     */
+    public void recalcular(HistorialMovimientos historial) {
+        // Se empieza a guardar antes de agrupar: todo egreso que la agrupación no incluya queda guardado
+        synchronized (this) {
+            pendientes = new ArrayList<>();
+        }
+        HistorialMovimientos.Agrupacion grupos = historial.agruparPorProducto();
+        int incluidos = grupos.posiciones.length;
+        int productos = grupos.inicios.length - 1;
+
+        double[] n = new double[Math.max(256, productos)];
+        double[] v = new double[n.length];
+        long[] d = new long[n.length];
+        int[] dd = new int[n.length];
+
+        ForkJoinPool.commonPool().invoke(new TareaRecalculo(historial, grupos, n, v, d, dd, 0, productos));
+
+        synchronized (this) {
+            indices.clear();
+            for (int i = 0; i < productos; i++) indices.put(historial.getProductoPorIndice(i), i);
+            cantidad = productos;
+            nivel = n;
+            varianza = v;
+            dia = d;
+            demandaDia = dd;
+
+            for (EgresoPendiente e : pendientes) {
+                if (e.posicion() >= incluidos) aplicarEgreso(e.producto(), e.unidades(), e.segundos());
+            }
+            pendientes = null;
+        }
+    }
+
+    /**
+     * Tarea fork/join que recalcula el pronóstico de un rango de productos del historial.
+     */
+    @SuppressWarnings("serial") // Las tareas de fork/join no se serializan
+    private class TareaRecalculo extends RecursiveAction {
+        private final HistorialMovimientos historial;
+        private final HistorialMovimientos.Agrupacion grupos;
+        private final double[] n, v;
+        private final long[] d;
+        private final int[] dd;
+        private final int desde, hasta;
+
+        TareaRecalculo(HistorialMovimientos historial, HistorialMovimientos.Agrupacion grupos,
+                       double[] n, double[] v, long[] d, int[] dd, int desde, int hasta) {
+            this.historial = historial;
+            this.grupos = grupos;
+            this.n = n;
+            this.v = v;
+            this.d = d;
+            this.dd = dd;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > 256) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new TareaRecalculo(historial, grupos, n, v, d, dd, desde, medio),
+                          new TareaRecalculo(historial, grupos, n, v, d, dd, medio, hasta));
+                return;
+            }
+            for (int p = desde; p < hasta && p < grupos.inicios.length - 1; p++) {
+                int primero = grupos.inicios[p];
+                int ultimo = grupos.inicios[p + 1];
+                if (primero == ultimo) continue;
+
+                // El pronóstico arranca el día del primer movimiento del producto
+                d[p] = historial.getSegundos(grupos.posiciones[primero]) / 86_400L;
+                for (int k = primero; k < ultimo; k++) {
+                    int pos = grupos.posiciones[k];
+                    if (historial.getCodigoTipo(pos) != HistorialMovimientos.EGRESO) continue;
+                    long diaMov = historial.getSegundos(pos) / 86_400L;
+                    avanzar(n, v, d, dd, p, diaMov);
+                    dd[p] += historial.getCantidad(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve la posición del producto, creándola si es su primer egreso.
+     */
+    private int indiceDe(Producto p, long diaInicial) {
+        Integer idx = indices.get(p);
+        if (idx == null) {
+            idx = cantidad++;
+            if (idx == nivel.length) {
+                int capacidad = idx * 2;
+                nivel = Arrays.copyOf(nivel, capacidad);
+                varianza = Arrays.copyOf(varianza, capacidad);
+                dia = Arrays.copyOf(dia, capacidad);
+                demandaDia = Arrays.copyOf(demandaDia, capacidad);
+            }
+            dia[idx] = diaInicial;
+            indices.put(p, idx);
+        }
+        return idx;
+    }
+
+    // Cierra los días completos anteriores a 'hasta' en el estado propio
+    private void avanzarHasta(int i, long hasta) {
+        avanzar(nivel, varianza, dia, demandaDia, i, hasta);
+    }
+
+    /**
+     * Incorpora al suavizado los días cerrados entre el día en curso y 'hasta' (exclusivo).
+     * El día en curso aporta su demanda acumulada; los días intermedios aportan demanda cero.
+     * Los k días sin demanda se aplican de una vez: con β = 1 - alfa, cada día vacío deja
+     * nivel' = β·nivel y varianza' = β·(varianza + alfa·nivel²), que después de k días da
+     * nivel·β^k y β^k·(varianza + nivel²·(1 - β^k)).
+     */
+    private void avanzar(double[] n, double[] v, long[] d, int[] dd, int i, long hasta) {
+        if (hasta <= d[i]) return;
+        long dias = hasta - d[i];
+        actualizar(n, v, i, dd[i]);
+        if (dias > 1) {
+            double decaimiento = Math.pow(1 - alfa, dias - 1);
+            double nivelAnterior = n[i];
+            n[i] = nivelAnterior * decaimiento;
+            v[i] = decaimiento * (v[i] + nivelAnterior * nivelAnterior * (1 - decaimiento));
+        }
+        d[i] = hasta;
+        dd[i] = 0;
+    }
+
+    /**
+     * Actualización exponencial de media y varianza con una nueva observación diaria.
+     */
+    private void actualizar(double[] n, double[] v, int i, double x) {
+        double diferencia = x - n[i];
+        double incremento = alfa * diferencia;
+        n[i] += incremento;
+        v[i] = (1 - alfa) * (v[i] + diferencia * incremento);
+    }
+
+    /**
+     * Calcula la sugerencia de compra para cada producto con la demanda cerrada hasta ayer.
+     * @param productos productos a evaluar
+     * @return una sugerencia por producto (cantidad 0 si no hace falta reponer)
+     */
+    public synchronized List<Sugerencia> sugerencias(List<Producto> productos) {
+        long hoy = LocalDate.now().atStartOfDay().toEpochSecond(ZoneOffset.UTC) / 86_400L;
+        double[] n = new double[1];
+        double[] v = new double[1];
+        long[] d = new long[1];
+        int[] dd = new int[1];
+
+        List<Sugerencia> lista = new ArrayList<>(productos.size());
+        for (Producto p : productos) {
+            Integer idx = indices.get(p);
+            double media = 0, var = 0;
+            if (idx != null) {
+                // Se trabaja sobre una copia para no alterar el día en curso
+                n[0] = nivel[idx];
+                v[0] = varianza[idx];
+                d[0] = dia[idx];
+                dd[0] = demandaDia[idx];
+                avanzar(n, v, d, dd, 0, hoy);
+                media = n[0];
+                var = v[0];
+            }
+
+            double desvio = Math.sqrt(Math.max(0, var));
+            int puntoPedido = (int) Math.ceil(media * diasReposicion + z * desvio * Math.sqrt(diasReposicion));
+
+            // Si el stock llegó al punto de pedido, se sugiere cubrir reposición + revisión
+            int sugerida = 0;
+            if (media > 0 && p.getStockActual() <= puntoPedido) {
+                int horizonte = diasReposicion + diasRevision;
+                double objetivo = media * horizonte + z * desvio * Math.sqrt(horizonte);
+                sugerida = (int) Math.max(0, Math.ceil(objetivo - p.getStockActual()));
+            }
+            lista.add(new Sugerencia(p, media, desvio, puntoPedido, sugerida));
+        }
+        return lista;
+    }
+}
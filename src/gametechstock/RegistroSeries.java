@@ -0,0 +1,328 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Registro de números de serie de los productos de alto valor (clave series.productos, ej: P003).
+ * Cada unidad que entra con un ingreso queda "en stock" con su número de serie y, al salir con un
+ * egreso, queda asociada a ese movimiento. Responde en O(1) dónde está un número de serie y qué
+ * movimiento lo despachó.
+ *
+ * Para que entren millones de series en memoria no se guarda un objeto por serie: el texto de
+ * todas las series va en un único arreglo de bytes y el resto de los datos en columnas de tipos
+ * primitivos. El índice es una tabla hash de direccionamiento abierto (sondeo lineal) que guarda
+ * solo la posición de cada serie.
+ *
+ * La base de datos se actualiza en la misma transacción que guarda el movimiento (SerieDAO.registrar),
+ * que rechaza las series que otra terminal ya tomó; registrar un movimiento guardado solo actualiza la
+ * memoria. Las series de movimientos de otras terminales llegan con la sincronización (cargar).
+ */
+public class RegistroSeries {
+
+    // Estados de una serie
+    private static final byte EN_STOCK = 1;
+    private static final byte EGRESADO = 2;
+
+    // Largo máximo de un número de serie
+    public static final int LARGO_MAXIMO = 64;
+
+    /**
+     * Estado de un número de serie.
+     * @param numero            número de serie (en mayúsculas)
+     * @param productoCodigo    producto al que pertenece
+     * @param enStock           true si está en stock, false si salió con un egreso
+     * @param movimientoIngreso id del último ingreso que lo trajo
+     * @param movimientoEgreso  id del último egreso que lo despachó (0 si nunca salió)
+     */
+    public record Serie(String numero, String productoCodigo, boolean enStock, long movimientoIngreso, long movimientoEgreso) {
+    }
+
+    // Productos que requieren número de serie
+    private final Set<String> productosConSerie = new HashSet<>();
+
+    // --- Texto de las series: todas seguidas en un arreglo de bytes (ASCII) ---
+    private byte[] texto = new byte[1 << 16];
+    private int usoTexto;
+
+    // --- Columnas por serie (misma posición en todas) ---
+    private int[] hashes = new int[1024];
+    private int[] inicios = new int[1024];
+    private byte[] largos = new byte[1024];
+    private int[] productos = new int[1024];       // índice en 'codigos'
+    private byte[] estados = new byte[1024];
+    private int[] ingresos = new int[1024];        // id del movimiento de ingreso
+    private int[] egresos = new int[1024];         // id del movimiento de egreso (0 si no salió)
+    private int cantidad;
+
+    // Índice hash: posición de la serie + 1 (0 = libre). Se mantiene con carga de hasta el 50 %
+    private int[] tabla = new int[2048];
+
+    // Códigos de producto sin repetir
+    private final ArrayList<String> codigos = new ArrayList<>();
+    private final HashMap<String, Integer> indiceCodigos = new HashMap<>();
+
+    /**
+     * Crea el registro con los productos configurados en series.productos (códigos separados por coma).
+     */
+    public RegistroSeries() {
+        for (String codigo : Configuracion.get("series.productos", "").split(",")) {
+            if (!codigo.isBlank()) productosConSerie.add(codigo.trim());
+        }
+    }
+
+    /**
+     * Indica si un producto requiere número de serie en ingresos y egresos.
+     * @param p producto
+     * @return true si está en series.productos
+     */
+    public boolean requiereSerie(Producto p) {
+        return p != null && productosConSerie.contains(p.getCodigo());
+    }
+
+    /**
+     * Normaliza un número de serie leído (sin espacios, en mayúsculas) y valida su formato.
+     * @param serie texto leído
+     * @return serie normalizada
+     * @throws Exception si está vacía, es demasiado larga o tiene caracteres no ASCII
+     */
+    public static String normalizar(String serie) throws Exception {
+        String s = serie == null ? "" : serie.trim().toUpperCase();
+        if (s.isEmpty()) throw new Exception("Número de serie vacío.");
+        if (s.length() > LARGO_MAXIMO) throw new Exception("Número de serie demasiado largo: " + s);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= ' ' || c > '~') throw new Exception("Número de serie inválido: " + s);
+        }
+        return s;
+    }
+
+    /**
+     * Convierte un texto con una serie por línea (o separadas por coma) en una lista normalizada.
+     * @param texto series leídas
+     * @return series normalizadas, en orden
+     * @throws Exception si alguna serie es inválida
+     */
+    public static List<String> leerSeries(String texto) throws Exception {
+        List<String> lista = new ArrayList<>();
+        for (String s : texto.split("[\\r\\n,;]+")) {
+            if (!s.isBlank()) lista.add(normalizar(s));
+        }
+        return lista;
+    }
+
+    // --- Validación y registro de movimientos ---
+
+    /**
+     * Valida las series de un lote antes de aplicarlo (todo en memoria, O(1) por serie).
+     * Los ingresos y egresos de productos con serie deben traer una serie por unidad; un ingreso no
+     * puede traer una serie que ya está en stock y un egreso solo puede despachar series en stock del mismo producto.
+     * @param lote movimientos a validar
+     * @throws Exception si alguna serie falta, se repite o no corresponde
+     */
+    public synchronized void validar(List<? extends Movimiento> lote) throws Exception {
+        Set<String> enLote = new HashSet<>();
+        for (Movimiento m : lote) {
+            boolean ingreso = m instanceof Ingreso;
+            if (!ingreso && !(m instanceof Egreso)) continue;
+
+            Producto p = m.getProducto();
+            List<String> series = m.getSeries();
+            if (!requiereSerie(p)) {
+                if (series != null && !series.isEmpty()) {
+                    throw new Exception("El producto " + p.getCodigo() + " no usa números de serie.");
+                }
+                continue;
+            }
+            if (series == null || series.size() != m.getCantidad()) {
+                throw new Exception("El producto " + p.getCodigo() + " requiere un número de serie por unidad ("
+                        + m.getCantidad() + ").");
+            }
+
+            for (String s : series) {
+                if (!enLote.add(s)) throw new Exception("Número de serie repetido: " + s);
+                int e = buscarPosicion(s);
+                if (ingreso && e >= 0 && estados[e] == EN_STOCK) {
+                    throw new Exception("El número de serie " + s + " ya está en stock (" + codigos.get(productos[e]) + ").");
+                }
+                if (!ingreso && (e < 0 || estados[e] != EN_STOCK || !codigos.get(productos[e]).equals(p.getCodigo()))) {
+                    throw new Exception("El número de serie " + s + " no está en stock de " + p.getCodigo() + ".");
+                }
+            }
+        }
+    }
+
+    /**
+     * Registra en memoria las series de un movimiento ya guardado (con id); la base ya las tiene.
+     * @param m ingreso o egreso con series
+     */
+    public synchronized void registrar(Movimiento m) {
+        List<String> series = m.getSeries();
+        if (series == null || series.isEmpty()) return;
+
+        boolean ingreso = m instanceof Ingreso;
+        int producto = indiceCodigo(m.getProducto().getCodigo());
+        for (String s : series) {
+            int e = buscarPosicion(s);
+            if (e < 0) e = agregar(s, producto);
+            productos[e] = producto;
+            if (ingreso) {
+                estados[e] = EN_STOCK;
+                ingresos[e] = (int) m.getId();
+            } else {
+                estados[e] = EGRESADO;
+                egresos[e] = (int) m.getId();
+            }
+        }
+    }
+
+    /**
+     * Agrega una serie leída de la base (carga inicial o sincronización con otras terminales).
+     * @param s serie
+     */
+    public synchronized void cargar(Serie s) {
+        int e = buscarPosicion(s.numero());
+        if (e < 0) e = agregar(s.numero(), indiceCodigo(s.productoCodigo()));
+        productos[e] = indiceCodigo(s.productoCodigo());
+        estados[e] = s.enStock() ? EN_STOCK : EGRESADO;
+        ingresos[e] = (int) s.movimientoIngreso();
+        egresos[e] = (int) s.movimientoEgreso();
+    }
+
+    // --- Consultas ---
+
+    /**
+     * Busca un número de serie (O(1)).
+     * @param numero número de serie (se normaliza)
+     * @return estado de la serie, o null si no está registrada
+     */
+    public synchronized Serie buscar(String numero) {
+        String s = numero == null ? "" : numero.trim().toUpperCase();
+        int e = s.isEmpty() ? -1 : buscarPosicion(s);
+        return e < 0 ? null : serie(e);
+    }
+
+    /**
+     * Cantidad de series registradas.
+     * @return series en el registro (en stock y egresadas)
+     */
+    public synchronized int size() {
+        return cantidad;
+    }
+
+    /**
+     * Series en stock de un producto (recorre el registro; pensado para consultas puntuales).
+     * @param p producto
+     * @return números de serie en stock
+     */
+    public synchronized List<String> enStock(Producto p) {
+        Integer idx = indiceCodigos.get(p.getCodigo());
+        List<String> lista = new ArrayList<>();
+        if (idx == null) return lista;
+        for (int e = 0; e < cantidad; e++) {
+            if (productos[e] == idx && estados[e] == EN_STOCK) lista.add(textoDe(e));
+        }
+        return lista;
+    }
+
+    // --- Índice hash ---
+
+    /**
+     * Devuelve la posición de la serie, o -1 si no está.
+     */
+    private int buscarPosicion(String s) {
+        int h = hash(s);
+        int mascara = tabla.length - 1;
+        for (int i = h & mascara; ; i = (i + 1) & mascara) {
+            int e = tabla[i] - 1;
+            if (e < 0) return -1;
+            if (hashes[e] == h && igual(e, s)) return e;
+        }
+    }
+
+    /**
+     * Agrega una serie nueva a las columnas y al índice.
+     */
+    private int agregar(String s, int producto) {
+        int e = cantidad;
+        if (e == hashes.length) crecer(e * 2);
+        if ((e + 1) * 2 > tabla.length) reindexar(tabla.length * 2);
+
+        if (usoTexto + s.length() > texto.length) {
+            texto = Arrays.copyOf(texto, Math.max(texto.length * 2, usoTexto + s.length()));
+        }
+        inicios[e] = usoTexto;
+        largos[e] = (byte) s.length();
+        for (int i = 0; i < s.length(); i++) texto[usoTexto++] = (byte) s.charAt(i);
+
+        hashes[e] = hash(s);
+        productos[e] = producto;
+        cantidad = e + 1;
+        ubicar(e);
+        return e;
+    }
+
+    /**
+     * Ubica la posición de una serie en el primer lugar libre de su secuencia de sondeo.
+     */
+    private void ubicar(int e) {
+        int mascara = tabla.length - 1;
+        int i = hashes[e] & mascara;
+        while (tabla[i] != 0) i = (i + 1) & mascara;
+        tabla[i] = e + 1;
+    }
+
+    /**
+     * Rehace el índice con otra capacidad (usa los hashes guardados: no vuelve a leer el texto).
+     */
+    private void reindexar(int capacidad) {
+        tabla = new int[capacidad];
+        for (int e = 0; e < cantidad; e++) ubicar(e);
+    }
+
+    private void crecer(int capacidad) {
+        hashes = Arrays.copyOf(hashes, capacidad);
+        inicios = Arrays.copyOf(inicios, capacidad);
+        largos = Arrays.copyOf(largos, capacidad);
+        productos = Arrays.copyOf(productos, capacidad);
+        estados = Arrays.copyOf(estados, capacidad);
+        ingresos = Arrays.copyOf(ingresos, capacidad);
+        egresos = Arrays.copyOf(egresos, capacidad);
+    }
+
+    /**
+     * Hash FNV-1a del texto, mezclado para repartir bien los bits bajos.
+     */
+    private static int hash(String s) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean igual(int e, String s) {
+        if (largos[e] != s.length()) return false;
+        int inicio = inicios[e];
+        for (int i = 0; i < s.length(); i++) {
+            if (texto[inicio + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String textoDe(int e) {
+        return new String(texto, inicios[e], largos[e], StandardCharsets.US_ASCII);
+    }
+
+    private Serie serie(int e) {
+        return new Serie(textoDe(e), codigos.get(productos[e]), estados[e] == EN_STOCK, ingresos[e], egresos[e]);
+    }
+
+    private int indiceCodigo(String codigo) {
+        return indiceCodigos.computeIfAbsent(codigo, c -> {
+            codigos.add(c);
+            return codigos.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Documento de stock con varias líneas (remito de entrada, de salida o de ajuste).
+ * La cabecera guarda el tipo, el número del documento, la fecha y el usuario; cada línea
+ * indica un producto y su cantidad. Al aplicarse, todas las líneas se registran como
+ * movimientos en una única transacción (ver {@link SistemaStock#aplicarRemito(Remito)}).
+ */
+public class Remito {
+
+    /**
+     * Línea del remito: un producto, la cantidad y (en ajustes) el motivo.
+     */
+    public static class Linea {
+        private final Producto producto;
+        private final int cantidad;
+        private final String justificacion;
+
+        Linea(Producto producto, int cantidad, String justificacion) {
+            this.producto = producto;
+            this.cantidad = cantidad;
+            this.justificacion = justificacion;
+        }
+
+        public Producto getProducto() { return producto; }
+
+        public int getCantidad() { return cantidad; }
+
+        public String getJustificacion() { return justificacion; }
+    }
+
+    // Id asignado por la base de datos al guardar el remito (0 si todavía no se guardó)
+    private int id;
+
+    // Tipo de los movimientos que genera ("INGRESO", "EGRESO" o "AJUSTE")
+    private final String tipo;
+
+    // Número del documento (ej: número de remito del proveedor); puede estar vacío
+    private String numero;
+
+    // Observaciones generales del documento
+    private String observaciones;
+
+    // Fecha de creación del documento
+    private final LocalDateTime fecha;
+
+    // Usuario que carga el documento
+    private final Usuario usuario;
+
+    // Líneas del documento, en el orden en que se cargaron
+    private final List<Linea> lineas = new ArrayList<>();
+
+    /**
+     * Crea un remito vacío.
+     * @param tipo "INGRESO", "EGRESO" o "AJUSTE"
+     * @param numero número del documento (puede ser vacío)
+     * @param observaciones observaciones generales (en ajustes se usan como motivo por defecto)
+     * @param usuario usuario que carga el documento
+     */
+    public Remito(String tipo, String numero, String observaciones, Usuario usuario) {
+        this.tipo = tipo;
+        this.numero = numero == null ? "" : numero.trim();
+        this.observaciones = observaciones == null ? "" : observaciones.trim();
+        this.fecha = LocalDateTime.now();
+        this.usuario = usuario;
+    }
+
+    /**
+     * Agrega una línea al remito.
+     * @param producto producto de la línea
+     * @param cantidad unidades (en ajustes puede ser negativa)
+     * @param justificacion motivo de la línea (solo ajustes; si está vacío se usan las observaciones)
+     * @return la línea agregada
+     * @throws Exception si la cantidad no es válida para el tipo de remito
+     */
+    public Linea agregarLinea(Producto producto, int cantidad, String justificacion) throws Exception {
+        if (producto == null) {
+            throw new Exception("Debe seleccionar un producto.");
+        }
+        if (tipo.equals("AJUSTE") ? cantidad == 0 : cantidad <= 0) {
+            throw new Exception(tipo.equals("AJUSTE")
+                    ? "La cantidad del ajuste no puede ser cero."
+                    : "La cantidad debe ser mayor a cero.");
+        }
+
+        String motivo = null;
+        if (tipo.equals("AJUSTE")) {
+            motivo = justificacion == null || justificacion.isBlank() ? observaciones : justificacion.trim();
+            if (motivo.isEmpty()) {
+                throw new Exception("Los ajustes requieren una justificación.");
+            }
+        }
+
+        Linea linea = new Linea(producto, cantidad, motivo);
+        lineas.add(linea);
+        return linea;
+    }
+
+    /**
+     * Quita una línea del remito.
+     * @param linea línea a quitar
+     */
+    public void quitarLinea(Linea linea) {
+        lineas.remove(linea);
+    }
+
+    /**
+     * Crea los movimientos correspondientes a cada línea, en el mismo orden.
+     * @return un movimiento por línea
+     */
+    public List<Movimiento> crearMovimientos() {
+        List<Movimiento> movimientos = new ArrayList<>(lineas.size());
+        for (Linea l : lineas) {
+            movimientos.add(switch (tipo) {
+                case "EGRESO" -> new Egreso(l.cantidad, l.producto, usuario);
+                case "AJUSTE" -> new Ajuste(l.cantidad, l.producto, usuario, l.justificacion);
+                default -> new Ingreso(l.cantidad, l.producto, usuario);
+            });
+        }
+        return movimientos;
+    }
+
+    /**
+     * Total de unidades del remito (suma de las cantidades de las líneas).
+     * @return unidades totales
+     */
+    public int getUnidades() {
+        int total = 0;
+        for (Linea l : lineas) total += l.cantidad;
+        return total;
+    }
+
+    public int getId() { return id; }
+
+    public void setId(int id) { this.id = id; }
+
+    public String getTipo() { return tipo; }
+
+    public String getNumero() { return numero; }
+
+    public void setNumero(String numero) { this.numero = numero == null ? "" : numero.trim(); }
+
+    public String getObservaciones() { return observaciones; }
+
+    public void setObservaciones(String observaciones) { this.observaciones = observaciones == null ? "" : observaciones.trim(); }
+
+    public LocalDateTime getFecha() { return fecha; }
+
+    public Usuario getUsuario() { return usuario; }
+
+    public List<Linea> getLineas() { return Collections.unmodifiableList(lineas); }
+}
@@ -0,0 +1,299 @@
+package gametechstock; // Paquete principal del sistema
+
+import ConexionBD.ReservaDAO;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reservas de stock con vencimiento (entre el pedido del cliente y el despacho).
+ * Una reserva aparta unidades de un producto: el stock disponible es el actual menos lo reservado
+ * y ni los egresos ni otras reservas pueden tomar esas unidades. Al despacharla se registra el
+ * egreso; si vence o se libera, las unidades vuelven a estar disponibles.
+ *
+ * El contador en memoria solo conoce las reservas de esta terminal. La base valida cada reserva y
+ * cada egreso contra las reservas vigentes de todas las terminales, dentro de la misma transacción
+ * (ver ReservaDAO.guardar y MovimientoDAO): si otra terminal ya apartó las unidades, la reserva
+ * o el egreso fallan con el stock disponible real.
+ *
+ * Las reservas se guardan en arreglos paralelos (sin un objeto por reserva) y los vencimientos en
+ * una RuedaTemporal, así cientos de miles de reservas abiertas ocupan unos pocos MB y vencerlas
+ * cuesta lo mismo que un temporizador. Cada reserva es una fila de la tabla reservas; al iniciar
+ * se cargan las vigentes y se borran las vencidas.
+ *
+ * No es segura para varios hilos: en la interfaz se usa desde el hilo de JavaFX.
+ */
+public class ReservasStock {
+
+    /**
+     * Reserva vigente.
+     * @param id identificador en la tabla reservas
+     * @param vence momento de vencimiento (hora local)
+     * @param ranura posición interna (para liberarla o despacharla sin buscarla)
+     */
+    public record Reserva(long id, Producto producto, int cantidad, String referencia, LocalDateTime vence, int ranura) {
+    }
+
+    // Minutos que dura una reserva si no se indica otra cosa
+    public static final int MINUTOS_POR_DEFECTO = Configuracion.getInt("reservas.minutosPorDefecto", 30);
+
+    // Resolución de los vencimientos
+    private static final long TICK_MS = 1000;
+
+    // Sistema de stock donde se registran los egresos al despachar
+    private final SistemaStock sistema;
+
+    // Datos de cada reserva, por ranura (producto null = ranura libre)
+    private long[] id = new long[1024];
+    private Producto[] producto = new Producto[1024];
+    private int[] cantidad = new int[1024];
+    private long[] vence = new long[1024];
+    private String[] referencia = new String[1024];
+
+    // Se incrementa al liberar la ranura: descarta vencimientos de la reserva anterior que quedaron en la rueda
+    private int[] generacion = new int[1024];
+
+    // Ranuras libres (pila) y primera ranura nunca usada
+    private int[] libres = new int[64];
+    private int cantidadLibres;
+    private int usadas;
+
+    // Reservas vigentes
+    private int vigentes;
+
+    // Vencimientos pendientes
+    private RuedaTemporal rueda = new RuedaTemporal(TICK_MS, System.currentTimeMillis());
+
+    /**
+     * Crea el registro de reservas vacío.
+     * @param sistema sistema de stock activo
+     */
+    public ReservasStock(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Carga las reservas vigentes desde la base (descarta las vencidas).
+     * Reemplaza lo que hubiera en memoria: se llama después de cargar los productos.
+     */
+    public void cargar() {
+        limpiar();
+        long ahora = System.currentTimeMillis();
+        ReservaDAO.cargar(new Timestamp(ahora), (idReserva, codigo, unidades, venceMs, ref) -> {
+            Producto p = sistema.buscarProductoPorCodigo(codigo);
+            if (p != null) agregar(idReserva, p, unidades, venceMs, ref);
+        });
+    }
+
+    /**
+     * Reserva unidades de un producto.
+     * @param p producto
+     * @param unidades unidades a reservar
+     * @param minutos duración de la reserva
+     * @param ref referencia (ej: número de pedido del cliente)
+     * @return la reserva creada
+     * @throws Exception si no hay stock disponible, el producto requiere número de serie o falla el guardado
+     */
+    public Reserva reservar(Producto p, int unidades, int minutos, String ref) throws Exception {
+        if (unidades <= 0) throw new Exception("La cantidad a reservar debe ser mayor a cero.");
+        if (minutos <= 0) throw new Exception("La duración de la reserva debe ser mayor a cero.");
+        if (sistema.getSeries().requiereSerie(p)) {
+            // Las unidades con serie se eligen al despachar, no se pueden apartar por cantidad
+            throw new Exception("El producto " + p.getCodigo() + " requiere número de serie: no admite reservas.");
+        }
+
+        long ahora = System.currentTimeMillis();
+        vencer(ahora); // Lo vencido vuelve a estar disponible antes de validar
+        if (unidades > p.getStockDisponible()) {
+            throw new Exception("Stock disponible insuficiente para " + p.getCodigo() + " (" + p.getNombre()
+                    + "): " + p.getStockDisponible() + " unidades.");
+        }
+
+        String texto = ref == null || ref.isBlank() ? null : ref.trim();
+        long venceMs = ahora + minutos * 60_000L;
+        Usuario usuario = sistema.getUsuarioActual();
+        long idReserva = ReservaDAO.guardar(p.getCodigo(), unidades, new Timestamp(venceMs), texto,
+                usuario != null ? usuario.getId() : 0);
+
+        int ranura = agregar(idReserva, p, unidades, venceMs, texto);
+        sistema.avisarCambio(p);
+        return reserva(ranura);
+    }
+
+    /**
+     * Libera una reserva sin despacharla: las unidades vuelven a estar disponibles.
+     * @param r reserva a liberar
+     * @throws Exception si la reserva ya no está vigente o falla el borrado
+     */
+    public void liberar(Reserva r) throws Exception {
+        int ranura = ranuraVigente(r);
+        ReservaDAO.borrar(r.id());
+        quitar(ranura);
+        sistema.avisarCambio(r.producto());
+    }
+
+    /**
+     * Despacha una reserva: registra el egreso de sus unidades y la cierra.
+     * @param r reserva a despachar
+     * @throws Exception si la reserva ya no está vigente o no se pudo registrar el egreso
+     */
+    public void despachar(Reserva r) throws Exception {
+        int ranura = ranuraVigente(r);
+        Producto p = producto[ranura];
+
+        // Las unidades se liberan para que el egreso las pueda tomar; si falla, se vuelven a apartar
+        p.reservar(-cantidad[ranura]);
+        try {
+            String ref = "Reserva " + id[ranura] + (referencia[ranura] != null ? " - " + referencia[ranura] : "");
+            // La fila de la reserva se borra en la misma transacción que el egreso
+            sistema.aplicarLote(List.of(new Egreso(cantidad[ranura], p, sistema.getUsuarioActual(), ref, id[ranura])));
+        } catch (Exception e) {
+            p.reservar(cantidad[ranura]);
+            throw e;
+        }
+        p.reservar(cantidad[ranura]); // quitar() la descuenta
+        quitar(ranura);
+        sistema.avisarCambio(p);
+    }
+
+    /**
+     * Vence las reservas cuyo plazo ya pasó (solo en memoria: las filas se purgan en segundo plano).
+     * Se llama periódicamente (en la interfaz, cada segundo) y antes de cada reserva.
+     * @param ahoraMs momento actual
+     * @return cantidad de reservas vencidas
+     */
+    public int vencer(long ahoraMs) {
+        Set<Producto> cambiados = Collections.newSetFromMap(new IdentityHashMap<>());
+        int antes = vigentes;
+        rueda.avanzar(ahoraMs, clave -> {
+            int ranura = (int) clave;
+            if (producto[ranura] == null || generacion[ranura] != (int) (clave >>> 32)) return; // Ya liberada
+            cambiados.add(producto[ranura]);
+            quitar(ranura);
+        });
+        if (cambiados.isEmpty()) return 0;
+
+        for (Producto p : cambiados) sistema.avisarCambio(p);
+        CompletableFuture.runAsync(() -> {
+            try {
+                ReservaDAO.purgarVencidas(new Timestamp(ahoraMs));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        return antes - vigentes;
+    }
+
+    /**
+     * Busca una reserva vigente por su id.
+     * @param idReserva id de la reserva
+     * @return la reserva, o null si no existe o ya venció
+     */
+    public Reserva buscar(long idReserva) {
+        for (int i = 0; i < usadas; i++) {
+            if (producto[i] != null && id[i] == idReserva) return reserva(i);
+        }
+        return null;
+    }
+
+    /**
+     * Lista las reservas vigentes, por vencimiento.
+     * @param p producto (null para todas)
+     * @return reservas vigentes
+     */
+    public List<Reserva> listar(Producto p) {
+        List<Reserva> lista = new ArrayList<>();
+        for (int i = 0; i < usadas; i++) {
+            if (producto[i] != null && (p == null || producto[i] == p)) lista.add(reserva(i));
+        }
+        lista.sort(Comparator.comparing(Reserva::vence));
+        return lista;
+    }
+
+    /**
+     * Cantidad de reservas vigentes.
+     */
+    public int size() {
+        return vigentes;
+    }
+
+    /**
+     * Guarda una reserva en memoria y agenda su vencimiento.
+     * @return ranura asignada
+     */
+    private int agregar(long idReserva, Producto p, int unidades, long venceMs, String ref) {
+        int ranura;
+        if (cantidadLibres > 0) {
+            ranura = libres[--cantidadLibres];
+        } else {
+            if (usadas == id.length) crecer();
+            ranura = usadas++;
+        }
+        id[ranura] = idReserva;
+        producto[ranura] = p;
+        cantidad[ranura] = unidades;
+        vence[ranura] = venceMs;
+        referencia[ranura] = ref;
+        p.reservar(unidades);
+        vigentes++;
+        rueda.agregar((long) generacion[ranura] << 32 | ranura, venceMs);
+        return ranura;
+    }
+
+    /**
+     * Libera una ranura y devuelve sus unidades al producto.
+     */
+    private void quitar(int ranura) {
+        producto[ranura].reservar(-cantidad[ranura]);
+        producto[ranura] = null;
+        referencia[ranura] = null;
+        generacion[ranura]++;
+        if (cantidadLibres == libres.length) libres = Arrays.copyOf(libres, libres.length * 2);
+        libres[cantidadLibres++] = ranura;
+        vigentes--;
+    }
+
+    /**
+     * Verifica que la reserva siga vigente (no vencida ni liberada) y devuelve su ranura.
+     */
+    private int ranuraVigente(Reserva r) throws Exception {
+        vencer(System.currentTimeMillis());
+        int ranura = r.ranura();
+        if (ranura >= usadas || producto[ranura] == null || id[ranura] != r.id()) {
+            throw new Exception("La reserva " + r.id() + " ya no está vigente.");
+        }
+        return ranura;
+    }
+
+    private Reserva reserva(int ranura) {
+        LocalDateTime fecha = new Timestamp(vence[ranura]).toLocalDateTime();
+        return new Reserva(id[ranura], producto[ranura], cantidad[ranura], referencia[ranura], fecha, ranura);
+    }
+
+    private void crecer() {
+        int n = id.length * 2;
+        id = Arrays.copyOf(id, n);
+        producto = Arrays.copyOf(producto, n);
+        cantidad = Arrays.copyOf(cantidad, n);
+        vence = Arrays.copyOf(vence, n);
+        referencia = Arrays.copyOf(referencia, n);
+        generacion = Arrays.copyOf(generacion, n);
+    }
+
+    /**
+     * Descarta todas las reservas en memoria (antes de volver a cargarlas).
+     */
+    private void limpiar() {
+        for (int i = 0; i < usadas; i++) {
+            if (producto[i] != null) producto[i].reservar(-cantidad[i]);
+        }
+        Arrays.fill(producto, null);
+        Arrays.fill(referencia, null);
+        Arrays.fill(generacion, 0);
+        usadas = 0;
+        cantidadLibres = 0;
+        vigentes = 0;
+        rueda = new RuedaTemporal(TICK_MS, System.currentTimeMillis());
+    }
+}
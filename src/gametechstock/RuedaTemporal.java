@@ -0,0 +1,157 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.util.function.LongConsumer;
+
+/**
+ * Rueda temporal jerárquica para vencimientos (reservas de stock).
+ * En lugar de un temporizador por elemento, cada vencimiento se guarda en la ranura de su tick:
+ * el primer nivel tiene 256 ranuras de un tick y cada nivel siguiente 64 ranuras que abarcan
+ * una vuelta completa del anterior. Al avanzar, cuando un nivel completa su vuelta, la ranura
+ * correspondiente del nivel superior se redistribuye en los inferiores.
+ * Agregar es O(1) y avanzar cuesta O(1) por tick más lo que vence (cada elemento se mueve como
+ * mucho una vez por nivel).
+ *
+ * Los elementos son claves long (por ejemplo ranura y generación de una reserva) y no se pueden
+ * quitar: quien las usa descarta al vencer las que ya no corresponden. No es segura para varios hilos.
+ */
+public class RuedaTemporal {
+
+    // Bits del primer nivel y de cada nivel superior, y cantidad de niveles superiores
+    private static final int BITS_BASE = 8;
+    private static final int BITS_NIVEL = 6;
+    private static final int NIVELES = 4;
+
+    // Mayor distancia (en ticks) que se puede representar; más lejos se guarda en el último nivel
+    private static final long MAX_TICKS = (1L << (BITS_BASE + BITS_NIVEL * (NIVELES - 1))) - 1;
+
+    // Duración de un tick en milisegundos
+    private final long tickMs;
+
+    // Ranuras de cada nivel: pares (clave, tick de vencimiento) en arreglos que crecen
+    private final long[][][] ranuras = new long[NIVELES][][];
+    private final int[][] tamanios = new int[NIVELES][];
+
+    // Próximo tick a procesar
+    private long actual;
+
+    // Elementos guardados
+    private int cantidad;
+
+    /**
+     * Crea la rueda.
+     * @param tickMs duración de un tick en milisegundos (resolución de los vencimientos)
+     * @param inicioMs momento inicial (ej: System.currentTimeMillis())
+     */
+    public RuedaTemporal(long tickMs, long inicioMs) {
+        this.tickMs = tickMs;
+        this.actual = inicioMs / tickMs;
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            int n = 1 << (nivel == 0 ? BITS_BASE : BITS_NIVEL);
+            ranuras[nivel] = new long[n][];
+            tamanios[nivel] = new int[n];
+        }
+    }
+
+    /**
+     * Agrega un vencimiento.
+     * @param clave elemento que vence
+     * @param venceMs momento de vencimiento (si ya pasó, vence en el próximo avance)
+     */
+    public void agregar(long clave, long venceMs) {
+        ubicar(clave, Math.max(venceMs / tickMs, actual));
+        cantidad++;
+    }
+
+    /**
+     * Avanza hasta el momento indicado entregando todo lo que venció.
+     * @param ahoraMs momento actual
+     * @param vencidos recibe cada clave vencida
+     */
+    public void avanzar(long ahoraMs, LongConsumer vencidos) {
+        long hasta = ahoraMs / tickMs;
+        while (actual <= hasta) {
+            int indice = (int) (actual & ((1 << BITS_BASE) - 1));
+
+            // Al completar la vuelta del primer nivel se redistribuyen las ranuras superiores que tocan
+            if (indice == 0) {
+                for (int nivel = 1; nivel < NIVELES; nivel++) {
+                    int superior = (int) ((actual >>> desplazamiento(nivel)) & ((1 << BITS_NIVEL) - 1));
+                    redistribuir(nivel, superior);
+                    if (superior != 0) break;
+                }
+            }
+
+            long[] ranura = ranuras[0][indice];
+            int n = tamanios[0][indice];
+            if (n > 0) {
+                tamanios[0][indice] = 0;
+                cantidad -= n / 2;
+                for (int i = 0; i < n; i += 2) vencidos.accept(ranura[i]);
+            }
+            actual++;
+
+            // Sin elementos no hace falta recorrer tick por tick
+            if (cantidad == 0) {
+                actual = Math.max(actual, hasta + 1);
+            }
+        }
+    }
+
+    /**
+     * Cantidad de vencimientos guardados (incluidos los que quien usa la rueda ya descartó).
+     */
+    public int size() {
+        return cantidad;
+    }
+
+    /**
+     * Guarda un par en el nivel que corresponde a la distancia hasta su vencimiento.
+     */
+    private void ubicar(long clave, long vence) {
+        long distancia = Math.min(vence - actual, MAX_TICKS);
+        if (distancia < (1 << BITS_BASE)) {
+            guardar(0, (int) (vence & ((1 << BITS_BASE) - 1)), clave, vence);
+            return;
+        }
+        for (int nivel = 1; nivel < NIVELES; nivel++) {
+            if (nivel == NIVELES - 1 || distancia < 1L << (desplazamiento(nivel) + BITS_NIVEL)) {
+                // Lo que excede el último nivel se ubica al final de su vuelta y se vuelve a redistribuir
+                long tick = actual + distancia;
+                guardar(nivel, (int) ((tick >>> desplazamiento(nivel)) & ((1 << BITS_NIVEL) - 1)), clave, vence);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vuelve a ubicar los elementos de una ranura superior (ahora más cercanos a vencer).
+     */
+    private void redistribuir(int nivel, int indice) {
+        long[] ranura = ranuras[nivel][indice];
+        int n = tamanios[nivel][indice];
+        if (n == 0) return;
+        tamanios[nivel][indice] = 0;
+        ranuras[nivel][indice] = null; // Los elementos pasan a otras ranuras
+        for (int i = 0; i < n; i += 2) ubicar(ranura[i], ranura[i + 1]);
+    }
+
+    private void guardar(int nivel, int indice, long clave, long vence) {
+        long[] ranura = ranuras[nivel][indice];
+        int n = tamanios[nivel][indice];
+        if (ranura == null) {
+            ranura = ranuras[nivel][indice] = new long[8];
+        } else if (n == ranura.length) {
+            ranura = ranuras[nivel][indice] = java.util.Arrays.copyOf(ranura, n * 2);
+        }
+        ranura[n] = clave;
+        ranura[n + 1] = vence;
+        tamanios[nivel][indice] = n + 2;
+    }
+
+    /**
+     * Bits que se desplaza el tick para obtener la ranura de un nivel superior.
+     */
+    private static int desplazamiento(int nivel) {
+        return BITS_BASE + BITS_NIVEL * (nivel - 1);
+    }
+}
@@ -0,0 +1,230 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sesión de conteo físico (inventario completo o cíclico).
+ * Al iniciarla se congela el stock de todos los productos; después se cargan las cantidades
+ * contadas (con el escáner o desde un archivo) y al confirmar se generan todos los ajustes
+ * en una única transacción.
+ *
+ * Movimientos durante el conteo: lo contado corresponde al stock congelado, así que el ajuste de
+ * cada producto es (contado - congelado) y se suma al stock vigente. Un egreso registrado mientras
+ * se contaba no se vuelve a descontar ni se pierde. Los productos que se movieron durante el conteo
+ * se marcan para poder recontarlos antes de confirmar.
+ *
+ * Todo se resuelve en memoria con arreglos indexados por producto: comparar 10.000 productos es O(n).
+ */
+public class SesionConteo {
+
+    // Formato de la fecha de inicio en la justificación de los ajustes
+    private static final DateTimeFormatter INICIO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Valor de "contado" para los productos que no se contaron
+    private static final int NO_CONTADO = -1;
+
+    /**
+     * Diferencia de un producto entre lo contado y el stock.
+     * @param congelado stock al iniciar el conteo
+     * @param contado unidades contadas (-1 si no se contó)
+     * @param actual stock vigente
+     * @param ajuste ajuste que se va a registrar (contado - congelado, sin dejar stock negativo)
+     */
+    public record Diferencia(Producto producto, int congelado, int contado, int actual, int ajuste) {
+
+        /**
+         * Indica si el producto tuvo movimientos mientras se contaba.
+         */
+        public boolean movidoDuranteConteo() {
+            return actual != congelado;
+        }
+    }
+
+    // Sistema de stock donde se resuelven los códigos y se registran los ajustes
+    private final SistemaStock sistema;
+
+    // Productos congelados, su posición y las cantidades (mismo orden)
+    private final List<Producto> productos;
+    private final Map<Producto, Integer> posiciones;
+    private final int[] congelado;
+    private final int[] contado;
+
+    // Momento en que se congeló el stock
+    private final LocalDateTime inicio;
+
+    // Lecturas totales y códigos que no pertenecen al conteo
+    private int lecturas;
+    private int desconocidos;
+
+    /**
+     * Inicia un conteo congelando el stock actual de todos los productos.
+     * Los productos creados después no forman parte del conteo.
+     * @param sistema sistema de stock activo
+     */
+    public SesionConteo(SistemaStock sistema) {
+        this.sistema = sistema;
+        this.productos = new ArrayList<>(sistema.getProductos());
+        this.posiciones = new IdentityHashMap<>(productos.size() * 2);
+        this.congelado = new int[productos.size()];
+        this.contado = new int[productos.size()];
+        for (int i = 0; i < productos.size(); i++) {
+            Producto p = productos.get(i);
+            posiciones.put(p, i);
+            congelado[i] = p.getStockActual();
+            contado[i] = NO_CONTADO;
+        }
+        this.inicio = LocalDateTime.now();
+    }
+
+    /**
+     * Suma una unidad contada por una lectura del escáner.
+     * @param codigo código leído
+     * @return el producto contado, o null si el código no pertenece al conteo
+     */
+    public Producto escanear(String codigo) {
+        Producto p = sistema.buscarProductoPorCodigo(codigo);
+        Integer i = p == null ? null : posiciones.get(p);
+        if (i == null) {
+            desconocidos++;
+            return null;
+        }
+        lecturas++;
+        contado[i] = Math.max(contado[i], 0) + 1;
+        return p;
+    }
+
+    /**
+     * Suma unidades contadas de un producto (un mismo producto puede contarse en varias ubicaciones).
+     * @param codigo código del producto
+     * @param cantidad unidades contadas (0 registra que se contó y no había)
+     * @return false si el código no pertenece al conteo
+     * @throws Exception si la cantidad es negativa
+     */
+    public boolean contar(String codigo, int cantidad) throws Exception {
+        if (cantidad < 0) throw new Exception("La cantidad contada de " + codigo + " no puede ser negativa.");
+        Producto p = sistema.buscarProductoPorCodigo(codigo);
+        Integer i = p == null ? null : posiciones.get(p);
+        if (i == null) {
+            desconocidos++;
+            return false;
+        }
+        lecturas++;
+        contado[i] = Math.max(contado[i], 0) + cantidad;
+        return true;
+    }
+
+    /**
+     * Carga un archivo de conteo con líneas codigo,cantidad (acepta encabezado, comentarios con # y ';').
+     * @param archivo archivo CSV
+     * @return códigos del archivo que no pertenecen al conteo
+     * @throws Exception si una línea no tiene el formato esperado (no se carga nada del archivo)
+     */
+    public List<String> cargarArchivo(File archivo) throws Exception {
+        List<String> codigos = new ArrayList<>();
+        List<Integer> cantidades = new ArrayList<>();
+        int numeroLinea = 0;
+
+        // Se valida todo el archivo antes de sumar, así un error no deja el conteo a medias
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || linea.startsWith("#")) continue;
+                if (numeroLinea == 1 && linea.toLowerCase().startsWith("codigo")) continue; // Encabezado
+
+                String[] campos = linea.split("[,;]");
+                if (campos.length < 2) throw new Exception("Línea " + numeroLinea + ": se esperaba codigo,cantidad.");
+                try {
+                    int cantidad = Integer.parseInt(campos[1].trim());
+                    if (cantidad < 0) throw new NumberFormatException();
+                    codigos.add(campos[0].trim());
+                    cantidades.add(cantidad);
+                } catch (NumberFormatException e) {
+                    throw new Exception("Línea " + numeroLinea + ": cantidad inválida \"" + campos[1].trim() + "\".");
+                }
+            }
+        }
+
+        List<String> desconocidosArchivo = new ArrayList<>();
+        for (int i = 0; i < codigos.size(); i++) {
+            if (!contar(codigos.get(i), cantidades.get(i))) desconocidosArchivo.add(codigos.get(i));
+        }
+        return desconocidosArchivo;
+    }
+
+    /**
+     * Compara lo contado con el stock congelado de todos los productos (O(n)).
+     * @param noContadosEnCero true en un inventario completo: lo que no se contó se considera sin stock
+     * @return productos con ajuste distinto de cero o que se movieron durante el conteo
+     */
+    public List<Diferencia> diferencias(boolean noContadosEnCero) {
+        List<Diferencia> lista = new ArrayList<>();
+        for (int i = 0; i < productos.size(); i++) {
+            int cuenta = contado[i];
+            if (cuenta == NO_CONTADO && !noContadosEnCero) continue;
+            if (cuenta == NO_CONTADO) cuenta = 0;
+
+            Producto p = productos.get(i);
+            int actual = p.getStockActual();
+            int ajuste = cuenta - congelado[i];
+            // Si durante el conteo salieron unidades que no estaban, el stock no puede quedar negativo
+            if (actual + ajuste < 0) ajuste = -actual;
+
+            if (ajuste != 0 || actual != congelado[i]) {
+                lista.add(new Diferencia(p, congelado[i], contado[i], actual, ajuste));
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Registra todos los ajustes del conteo como un único lote (todo o nada).
+     * Si falla, la sesión queda intacta para poder reintentar.
+     * @param noContadosEnCero true en un inventario completo (ver {@link #diferencias(boolean)})
+     * @return cantidad de ajustes registrados
+     * @throws Exception si algún ajuste es inválido o no se pudo guardar
+     */
+    public int confirmar(boolean noContadosEnCero) throws Exception {
+        String conteo = "Conteo físico del " + inicio.format(INICIO);
+        List<Movimiento> lote = new ArrayList<>();
+        for (Diferencia d : diferencias(noContadosEnCero)) {
+            if (d.ajuste() == 0) continue;
+            lote.add(new Ajuste(d.ajuste(), d.producto(), sistema.getUsuarioActual(),
+                    conteo + ": contado " + Math.max(d.contado(), 0) + ", sistema " + d.congelado()));
+        }
+        if (lote.isEmpty()) return 0;
+
+        sistema.aplicarLote(lote);
+
+        // Lo ajustado queda conciliado: el conteo sigue sobre el stock nuevo
+        for (Movimiento m : lote) {
+            int i = posiciones.get(m.getProducto());
+            congelado[i] += m.getCantidad();
+        }
+        return lote.size();
+    }
+
+    /**
+     * Borra lo contado de un producto (para recontarlo).
+     * @param p producto
+     */
+    public void reiniciar(Producto p) {
+        Integer i = posiciones.get(p);
+        if (i != null) contado[i] = NO_CONTADO;
+    }
+
+    public LocalDateTime getInicio() { return inicio; }
+
+    public int getProductos() { return productos.size(); }
+
+    public int getLecturas() { return lecturas; }
+
+    public int getDesconocidos() { return desconocidos; }
+}
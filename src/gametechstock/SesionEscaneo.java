@@ -0,0 +1,191 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sesión de carga con escáner de código de barras (lector tipo teclado).
+ * Cada lectura se resuelve en memoria por código y las lecturas repetidas del mismo producto
+ * se acumulan en una sola línea. Al confirmar, toda la sesión se registra como un único lote
+ * de movimientos, sin acceder a la base de datos en cada lectura.
+ *
+ * Productos con número de serie (ver RegistroSeries): en un egreso se escanea directamente la serie
+ * de cada unidad; en un ingreso se escanea el código del producto y a continuación la serie de la unidad.
+ */
+public class SesionEscaneo {
+
+    /**
+     * Línea de la sesión: un producto y la cantidad acumulada de lecturas.
+     */
+    public static class Linea {
+        private final Producto producto;
+        private int cantidad;
+        private final List<String> series = new ArrayList<>(); // Solo productos con número de serie
+
+        Linea(Producto producto) {
+            this.producto = producto;
+        }
+
+        public Producto getProducto() { return producto; }
+
+        public int getCantidad() { return cantidad; }
+
+        public List<String> getSeries() { return series; }
+
+        @Override
+        public String toString() {
+            String texto = String.format("%-8s %-30s x %d", producto.getCodigo(), producto.getNombre(), cantidad);
+            return series.isEmpty() ? texto : texto + " (" + series.size() + " series)";
+        }
+    }
+
+    // Sistema de stock donde se resuelven los códigos y se registran los movimientos
+    private final SistemaStock sistema;
+
+    // Tipo de movimiento que genera la sesión ("INGRESO" o "EGRESO")
+    private final String tipo;
+
+    // Líneas acumuladas, en el orden en que se escaneó cada producto por primera vez
+    private final Map<Producto, Linea> lineas = new LinkedHashMap<>();
+
+    // Cantidad de lecturas totales y de códigos que no existen en el sistema
+    private int lecturas;
+    private int desconocidos;
+
+    // Línea de un ingreso con serie cuya última unidad espera la lectura de su serie
+    private Linea esperandoSerie;
+
+    /**
+     * Crea una sesión de escaneo.
+     * @param sistema sistema de stock activo
+     * @param tipo "INGRESO" o "EGRESO"
+     */
+    public SesionEscaneo(SistemaStock sistema, String tipo) {
+        this.sistema = sistema;
+        this.tipo = tipo;
+    }
+
+    /**
+     * Procesa una lectura del escáner.
+     * @param codigo código leído
+     * @return la línea acumulada del producto, o null si el código no existe
+     */
+    public Linea escanear(String codigo) {
+        Producto producto = sistema.buscarProductoPorCodigo(codigo);
+        if (producto == null) {
+            return escanearSerie(codigo);
+        }
+        lecturas++;
+        Linea linea = lineas.computeIfAbsent(producto, Linea::new);
+        linea.cantidad++;
+        if (tipo.equals("INGRESO") && sistema.getSeries().requiereSerie(producto)) {
+            esperandoSerie = linea; // La próxima lectura es la serie de esta unidad
+        }
+        return linea;
+    }
+
+    /**
+     * Procesa una lectura que no es un código de producto como número de serie (búsqueda en memoria, O(1)).
+     * @return la línea donde se agregó la serie, o null si no corresponde a ninguna
+     */
+    private Linea escanearSerie(String codigo) {
+        String serie;
+        try {
+            serie = RegistroSeries.normalizar(codigo);
+        } catch (Exception e) {
+            desconocidos++;
+            return null;
+        }
+
+        Linea linea;
+        if (tipo.equals("EGRESO")) {
+            // La serie identifica el producto: debe estar en stock y no leída antes en esta sesión
+            RegistroSeries.Serie s = sistema.getSeries().buscar(serie);
+            Producto producto = s != null && s.enStock() ? sistema.buscarProductoPorCodigo(s.productoCodigo()) : null;
+            if (producto == null || (lineas.containsKey(producto) && lineas.get(producto).series.contains(serie))) {
+                desconocidos++;
+                return null;
+            }
+            lecturas++;
+            linea = lineas.computeIfAbsent(producto, Linea::new);
+            linea.cantidad++;
+        } else {
+            // Serie de la unidad recién escaneada
+            linea = esperandoSerie;
+            if (linea == null || linea.series.contains(serie)) {
+                desconocidos++;
+                return null;
+            }
+            esperandoSerie = null;
+        }
+        linea.series.add(serie);
+        return linea;
+    }
+
+    /**
+     * Indica si la lectura generó una línea nueva (primer escaneo del producto).
+     * @param linea línea devuelta por {@link #escanear(String)}
+     * @return true si es la primera lectura del producto en la sesión
+     */
+    public boolean esNueva(Linea linea) {
+        return linea != null && linea.cantidad == 1;
+    }
+
+    /**
+     * Resta una unidad a la línea de un producto (corrige una lectura de más).
+     * @param linea línea a corregir
+     * @return true si la línea quedó vacía y se quitó de la sesión
+     */
+    public boolean quitarUno(Linea linea) {
+        linea.cantidad--;
+        lecturas--;
+        if (linea.series.size() > linea.cantidad) linea.series.remove(linea.series.size() - 1);
+        if (esperandoSerie == linea) esperandoSerie = null;
+        if (linea.cantidad <= 0) {
+            lineas.remove(linea.producto);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registra todas las líneas de la sesión como movimientos en una única transacción.
+     * Si falla, la sesión queda intacta para poder reintentar.
+     * @return cantidad de movimientos registrados
+     * @throws Exception si algún movimiento es inválido o no se pudo guardar
+     */
+    public int confirmar() throws Exception {
+        List<Movimiento> lote = new ArrayList<>(lineas.size());
+        for (Linea l : lineas.values()) {
+            Movimiento m = switch (tipo) {
+                case "EGRESO" -> new Egreso(l.cantidad, l.producto, sistema.getUsuarioActual());
+                default -> new Ingreso(l.cantidad, l.producto, sistema.getUsuarioActual());
+            };
+            if (!l.series.isEmpty()) m.setSeries(new ArrayList<>(l.series));
+            lote.add(m);
+        }
+        sistema.aplicarLote(lote);
+        descartar();
+        return lote.size();
+    }
+
+    /**
+     * Vacía la sesión sin registrar movimientos.
+     */
+    public void descartar() {
+        lineas.clear();
+        lecturas = 0;
+        desconocidos = 0;
+        esperandoSerie = null;
+    }
+
+    public List<Linea> getLineas() { return new ArrayList<>(lineas.values()); }
+
+    public int getLecturas() { return lecturas; }
+
+    public int getDesconocidos() { return desconocidos; }
+
+    public String getTipo() { return tipo; }
+}
@@ -0,0 +1,214 @@
+package gametechstock; // Paquete principal del sistema
+
+import ConexionBD.ConexionBD;
+import ConexionBD.RegistroMovimiento;
+import ConexionBD.SincronizacionDAO;
+import ConexionBD.SincronizacionDAO.CambioProducto;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio en segundo plano que mantiene el SistemaStock de esta terminal al día con la base de datos.
+ * Consulta periódicamente los movimientos nuevos (por id, desde la última marca) y los productos
+ * modificados (por versión, columna productos.actualizado_en) con una conexión propia, y entrega los
+ * cambios al sistema a través de un Executor (en la interfaz, el hilo de JavaFX).
+ *
+ * El intervalo se adapta a la actividad: cuando hay cambios se vuelve a consultar enseguida
+ * (sincronizacion.intervaloMinimoMs, 100 por defecto) y cuando no los hay se espera cada vez más
+ * hasta sincronizacion.intervaloMaximoMs (1000 por defecto).
+ */
+public class SincronizadorStock {
+
+    // Filas máximas leídas por consulta (si se llega al límite se vuelve a consultar enseguida)
+    private static final int LIMITE_FILAS = 2000;
+
+    // Los productos se releen con este solapamiento para no perder cambios confirmados tarde
+    private static final long SOLAPAMIENTO_MS = 2000;
+
+    // Tiempo que se espera a que aparezca un id salteado antes de darlo por descartado (rollback)
+    private static final long ESPERA_HUECO_MS = 10_000;
+
+    // Cantidad máxima de ids salteados que se siguen a la vez
+    private static final int MAX_HUECOS = 1000;
+
+    // Sistema a actualizar y ejecutor donde se aplican los cambios
+    private final SistemaStock sistema;
+    private final Executor aplicador;
+
+    // Hilo que hace las consultas
+    private final ScheduledExecutorService planificador;
+
+    // Límites del intervalo adaptativo e intervalo actual
+    private final int intervaloMinimo;
+    private final int intervaloMaximo;
+    private int intervalo;
+
+    // Conexión reutilizada entre consultas (se reabre si falla)
+    private Connection conn;
+
+    // Marcas de lo ya leído
+    private long ultimoId;
+    private Timestamp versionProductos;
+
+    // Versión vista de cada producto (para descartar las filas releídas por el solapamiento)
+    private final Map<String, Timestamp> versiones = new HashMap<>();
+
+    // Ids salteados que pueden pertenecer a transacciones todavía abiertas: id -> momento límite de espera
+    private final TreeMap<Long, Long> huecos = new TreeMap<>();
+
+    // Depósitos por id, para armar los productos nuevos de otras terminales
+    private final Map<Integer, Deposito> depositos = new HashMap<>();
+
+    /**
+     * Crea el sincronizador.
+     * @param sistema sistema ya cargado desde la base de datos
+     * @param aplicador ejecutor donde se aplican los cambios (ej: Platform::runLater)
+     */
+    public SincronizadorStock(SistemaStock sistema, Executor aplicador) {
+        this.sistema = sistema;
+        this.aplicador = aplicador;
+        this.intervaloMinimo = Math.max(10, Configuracion.getInt("sincronizacion.intervaloMinimoMs", 100));
+        this.intervaloMaximo = Math.max(intervaloMinimo, Configuracion.getInt("sincronizacion.intervaloMaximoMs", 1000));
+        this.intervalo = intervaloMaximo;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "sincronizador-stock");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Empieza a sincronizar desde las marcas de la carga inicial del sistema.
+     */
+    public void iniciar() {
+        ultimoId = sistema.getUltimoIdCargado();
+        versionProductos = sistema.getVersionCargada();
+        sistema.setSincronizado(true);
+        planificador.schedule(this::sondear, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene la sincronización y cierra la conexión.
+     */
+    public void detener() {
+        planificador.shutdownNow();
+        sistema.setSincronizado(false);
+        cerrarConexion();
+    }
+
+    /**
+     * Una consulta de cambios. Siempre reprograma la siguiente según haya habido actividad o no.
+     */
+    private void sondear() {
+        boolean hayCambios = false;
+        try {
+            if (conn == null || conn.isClosed()) {
+                conn = ConexionBD.obtenerConexion();
+            }
+
+            // Primero los productos: un movimiento nuevo puede referirse a un producto recién creado
+            List<Producto> productos = leerProductos();
+            List<RegistroMovimiento> nuevos = leerMovimientos();
+            List<RegistroSeries.Serie> series = leerSeries(nuevos);
+
+            if (!productos.isEmpty() || !nuevos.isEmpty()) {
+                hayCambios = true;
+                aplicador.execute(() -> sistema.aplicarCambiosRemotos(productos, nuevos, series));
+            }
+            intervalo = hayCambios || !huecos.isEmpty() ? intervaloMinimo : Math.min(intervalo * 2, intervaloMaximo);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            cerrarConexion(); // Se reintenta con una conexión nueva
+            intervalo = intervaloMaximo;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            intervalo = intervaloMaximo;
+        }
+
+        if (!planificador.isShutdown()) {
+            planificador.schedule(this::sondear, intervalo, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Lee los productos modificados desde la última versión (con solapamiento) y devuelve los que cambiaron.
+     */
+    private List<Producto> leerProductos() throws SQLException {
+        Timestamp desde = new Timestamp(Math.max(0, versionProductos.getTime() - SOLAPAMIENTO_MS));
+        List<Producto> cambiados = new ArrayList<>();
+
+        for (CambioProducto c : SincronizacionDAO.productosModificados(conn, desde, LIMITE_FILAS)) {
+            if (c.version().after(versionProductos)) versionProductos = c.version();
+            if (c.version().equals(versiones.get(c.codigo()))) continue; // Ya aplicado
+
+            versiones.put(c.codigo(), c.version());
+            cambiados.add(new Producto(c.codigo(), c.nombre(), c.categoria(), c.stockMinimo(), c.stockActual(), deposito(c.idDeposito())));
+        }
+        return cambiados;
+    }
+
+    /**
+     * Lee los movimientos posteriores a la última marca y los ids salteados que aparecieron.
+     * Un id salteado puede ser de una transacción que confirmó después que otra con id mayor.
+     */
+    private List<RegistroMovimiento> leerMovimientos() throws SQLException {
+        List<RegistroMovimiento> nuevos = new ArrayList<>();
+
+        // Huecos pendientes: se buscan los que aparecieron y se descartan los vencidos
+        if (!huecos.isEmpty()) {
+            for (RegistroMovimiento r : SincronizacionDAO.movimientosPorId(conn, huecos.keySet())) {
+                huecos.remove(r.id());
+                nuevos.add(r);
+            }
+            long ahora = System.currentTimeMillis();
+            huecos.values().removeIf(limite -> limite < ahora);
+        }
+
+        for (RegistroMovimiento r : SincronizacionDAO.movimientosDesde(conn, ultimoId, LIMITE_FILAS)) {
+            long limite = System.currentTimeMillis() + ESPERA_HUECO_MS;
+            for (long id = ultimoId + 1; id < r.id() && huecos.size() < MAX_HUECOS; id++) {
+                huecos.put(id, limite);
+            }
+            ultimoId = r.id();
+            nuevos.add(r);
+        }
+        return nuevos;
+    }
+
+    /**
+     * Lee el estado actual de las series que ingresaron o salieron con los movimientos nuevos.
+     * Así la validación en memoria conoce las series que tomaron otras terminales.
+     */
+    private List<RegistroSeries.Serie> leerSeries(List<RegistroMovimiento> nuevos) throws SQLException {
+        if (nuevos.isEmpty()) return List.of();
+        List<Long> ids = new ArrayList<>(nuevos.size());
+        for (RegistroMovimiento r : nuevos) ids.add(r.id());
+        return SincronizacionDAO.seriesDeMovimientos(conn, ids);
+    }
+
+    /**
+     * Devuelve el depósito con el id indicado, recargando la lista si es uno nuevo.
+     */
+    private Deposito deposito(int id) {
+        if (id == 0) return null;
+        if (!depositos.containsKey(id)) {
+            for (Deposito d : Deposito.obtenerDepositos()) depositos.put(d.getId(), d);
+        }
+        return depositos.get(id);
+    }
+
+    private void cerrarConexion() {
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        conn = null;
+    }
+}
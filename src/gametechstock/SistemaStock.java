@@ -1,9 +1,20 @@
 package gametechstock; // Paquete principal del sistema
 
+import ConexionBD.ConexionBD;     // Conexión a la base de datos
 import ConexionBD.MovimientoDAO;  // DAO para manejar movimientos desde/hacia la base de datos
 import ConexionBD.ProductoDAO;    // DAO para manejar productos desde/hacia la base de datos
+import ConexionBD.RemitoDAO;      // DAO para guardar remitos con todas sus líneas
+import ConexionBD.RegistroMovimiento;
+import ConexionBD.SerieDAO;       // Números de serie de los productos de alto valor
+import ConexionBD.SincronizacionDAO; // Consultas de cambios para sincronizar terminales
 import ConexionBD.UsuarioDAO;     // DAO para manejar usuarios desde/hacia la base de datos
+import java.sql.Connection;
+import monitoreo.EventoMovimiento;   // Evento de JFR de cada lote registrado
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Clase que representa la lógica central del sistema de gestión de stock.
@@ -14,8 +25,8 @@ public class SistemaStock {
     // Lista de productos registrados en el sistema
     private ArrayList<Producto> productos = new ArrayList<>();
 
-    // Cola de movimientos históricos (FIFO)
-    private Queue<Movimiento> movimientos = new LinkedList<>();
+    // Historial de movimientos en orden cronológico (guardado en columnas, ver HistorialMovimientos)
+    private HistorialMovimientos movimientos = new HistorialMovimientos();
 
     // Lista de usuarios disponibles en el sistema
     private List<Usuario> usuarios = new ArrayList<>();
@@ -23,14 +34,347 @@ public class SistemaStock {
     // Usuario actualmente logueado en el sistema
     private Usuario usuarioActual;
 
+    // Índice de búsqueda sobre los productos (nombre, código y categoría)
+    private IndiceProductos indiceProductos = new IndiceProductos(productos);
+
+    // Pronóstico de demanda por producto, actualizado con cada egreso
+    private final PronosticoDemanda pronostico = new PronosticoDemanda();
+
+    // Valoración del inventario por capas de costo FIFO, actualizada con cada movimiento
+    private final ValuacionFIFO valuacion = new ValuacionFIFO();
+
+    // Números de serie de los productos que los requieren (ver RegistroSeries)
+    private final RegistroSeries series = new RegistroSeries();
+
+    // Reservas de stock con vencimiento (ver ReservasStock); se crean al pedirlas por primera vez
+    // para no pasar 'this' a otro objeto antes de terminar de construir el sistema
+    private ReservasStock reservas;
+
+    // true si se cargó el historial (cargarDatosDesdeBD). Sin historial (cargarCatalogo, línea de comandos)
+    // los movimientos registrados no se guardan en memoria: solo se validan, se persisten y se auditan
+    private boolean conHistorial;
+
+    // Marcas de la carga inicial, desde donde continúa la sincronización (ver SincronizadorStock)
+    private long ultimoIdCargado;
+    private Timestamp versionCargada = new Timestamp(0);
+
+    // Ids de movimientos guardados por esta terminal que el sincronizador todavía no vio
+    private final Set<Long> movimientosPropios = ConcurrentHashMap.newKeySet();
+    private volatile boolean sincronizado;
+
+    // Acciones a ejecutar cuando llegan cambios de otras terminales (ej: refrescar tablas)
+    private final List<Runnable> oyentes = new CopyOnWriteArrayList<>();
+
+    // Oyentes de cada cambio de stock individual (ver OyenteStock)
+    private final List<OyenteStock> oyentesStock = new CopyOnWriteArrayList<>();
+
     /**
      * Carga todos los datos iniciales del sistema desde la base de datos:
      * productos, usuarios y movimientos.
      */
     public void cargarDatosDesdeBD() {
+        // La versión de productos se toma antes de leerlos: un cambio concurrente se vuelve a leer al sincronizar.
+        // Se lee de la misma fuente que los productos; si hay réplica, se retrocede lo que tolera la carga
+        // por si los productos terminan leyéndose de una réplica más atrasada que la versión.
+        try (Connection conn = ConexionBD.obtenerConexionLectura(ConexionBD.Lectura.CARGA_INICIAL)) {
+            Timestamp version = SincronizacionDAO.versionProductos(conn);
+            if (ConexionBD.hayReplica()) {
+                version = new Timestamp(version.getTime() - ConexionBD.Lectura.CARGA_INICIAL.getTolerancia() * 1000L);
+            }
+            this.versionCargada = version;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        cargarCatalogo();
+        this.movimientos = new HistorialMovimientos();
+        this.ultimoIdCargado = MovimientoDAO.cargarHistorial(movimientos, productos, usuarios); // Carga movimientos desde BD con referencias
+        pronostico.recalcular(movimientos);                                   // Calcula la demanda de cada producto desde el historial
+        valuacion.reconstruir(movimientos);                                   // Arma las capas de costo FIFO desde el historial
+        SerieDAO.cargar(series);                                              // Carga el índice de números de serie
+        this.conHistorial = true;
+    }
+
+    /**
+     * Carga solo productos, usuarios y reservas, sin el historial de movimientos.
+     * Alcanza para registrar movimientos y es lo que usa la línea de comandos, que no necesita el historial:
+     * los movimientos que se registren después tampoco se agregan al historial, al pronóstico ni a la
+     * valoración en memoria, así una importación grande solo ocupa memoria por el lote en curso.
+     */
+    public void cargarCatalogo() {
         this.productos = ProductoDAO.obtenerProductos();                      // Carga productos desde BD
         this.usuarios = UsuarioDAO.obtenerUsuarios();                         // Carga usuarios desde BD
-        this.movimientos = MovimientoDAO.obtenerTodos(productos, usuarios);   // Carga movimientos desde BD con referencias
+        this.indiceProductos = new IndiceProductos(productos);                // Indexa los productos para las búsquedas
+        getReservas().cargar();                                               // Aparta las unidades de las reservas vigentes
+    }
+
+    /**
+     * Agrega un producto recién creado a la lista en memoria y al índice de búsqueda.
+     * @param producto producto nuevo (ya guardado en la base de datos)
+     */
+    public void agregarProducto(Producto producto) {
+        productos.add(producto);
+        indiceProductos.agregar(producto);
+        for (OyenteStock o : oyentesStock) o.productoActualizado(producto);
+    }
+
+    /**
+     * Busca productos por nombre, código o categoría (sin distinguir acentos ni mayúsculas).
+     * @param texto texto a buscar; vacío devuelve todos los productos
+     * @return productos encontrados ordenados por relevancia
+     */
+    public List<Producto> buscarProductos(String texto) {
+        return indiceProductos.buscar(texto);
+    }
+
+    /**
+     * Busca un producto por su código exacto (O(1)).
+     * @param codigo código del producto (ej: P001)
+     * @return el producto, o null si no existe
+     */
+    public Producto buscarProductoPorCodigo(String codigo) {
+        return indiceProductos.buscarPorCodigo(codigo);
+    }
+
+    /**
+     * Agrega un movimiento ya aplicado al historial en memoria.
+     * @param movimiento movimiento aplicado y guardado en la base de datos
+     */
+    public void registrarMovimiento(Movimiento movimiento) {
+        DiarioAuditoria.registrar(movimiento.registroAuditoria()); // Solo encola: no espera la escritura
+        series.registrar(movimiento);                    // Solo memoria: la base se actualizó en la transacción del movimiento
+
+        // El sincronizador lo va a leer de la base: se marca para no agregarlo dos veces
+        if (sincronizado && movimiento.getId() > 0) {
+            movimientosPropios.add(movimiento.getId());
+        }
+
+        int variacion = movimiento instanceof Egreso ? -movimiento.getCantidad() : movimiento.getCantidad();
+        if (conHistorial) {
+            int posicion = movimientos.add(movimiento);
+
+            // Cada egreso actualiza el pronóstico de demanda del producto
+            if (movimiento instanceof Egreso) {
+                pronostico.registrarEgreso(movimiento.getProducto(), movimiento.getCantidad(),
+                        movimiento.getFecha().toEpochSecond(ZoneOffset.UTC), posicion);
+            }
+
+            // Capas de costo: el ingreso agrega una capa, el egreso y el ajuste negativo consumen las más antiguas
+            valuacion.registrar(movimiento.getProducto(), HistorialMovimientos.codigoTipo(movimiento.getTipo()), variacion,
+                    ValuacionFIFO.aDiezmilesimos(movimiento.getCostoUnitario()), posicion);
+        }
+
+        if (!oyentesStock.isEmpty()) {
+            Usuario u = movimiento.getUsuario();
+            RegistroMovimiento registro = new RegistroMovimiento(movimiento.getId(), movimiento.getTipo(),
+                    movimiento.getFecha(), variacion, movimiento.getJustificacion(),
+                    movimiento.getProducto().getCodigo(), u != null ? u.getId() : 0, movimiento.getCostoUnitario());
+            for (OyenteStock o : oyentesStock) {
+                o.productoActualizado(movimiento.getProducto());
+                o.movimientoRegistrado(registro);
+            }
+        }
+    }
+
+    /**
+     * Aplica varios movimientos como una única operación (todo o nada).
+     * Primero valida en memoria que ningún movimiento deje stock negativo, luego los
+     * aplica y los guarda en la base de datos en una sola transacción. Si el guardado falla,
+     * el stock en memoria vuelve a su valor anterior.
+     *
+     * @param lote movimientos a aplicar, en orden
+     * @throws Exception si algún movimiento es inválido o no se pudo guardar el lote
+     */
+    public void aplicarLote(List<? extends Movimiento> lote) throws Exception {
+        aplicar(lote, null);
+    }
+
+    /**
+     * Aplica todas las líneas de un remito como una única operación (todo o nada).
+     * La cabecera y los movimientos se guardan en la misma transacción, con las mismas
+     * validaciones previas que {@link #aplicarLote(List)}.
+     *
+     * @param remito remito con al menos una línea
+     * @return movimientos registrados, uno por línea
+     * @throws Exception si el remito está vacío, alguna línea es inválida o no se pudo guardar
+     */
+    public List<Movimiento> aplicarRemito(Remito remito) throws Exception {
+        if (remito.getLineas().isEmpty()) {
+            throw new Exception("El remito no tiene líneas.");
+        }
+        List<Movimiento> lote = remito.crearMovimientos();
+        aplicar(lote, remito);
+        return lote;
+    }
+
+    /**
+     * Valida, aplica en memoria y guarda un lote de movimientos (medido con un evento de JFR).
+     * @param lote movimientos a aplicar
+     * @param remito remito al que pertenecen (null si es un lote suelto)
+     */
+    private void aplicar(List<? extends Movimiento> lote, Remito remito) throws Exception {
+        try (EventoMovimiento evento = EventoMovimiento.iniciar(lote, remito != null)) {
+            registrar(lote, remito);
+            evento.registrado = true;
+        }
+    }
+
+    /**
+     * Valida, aplica en memoria y guarda un lote de movimientos.
+     * @param lote movimientos a aplicar
+     * @param remito remito al que pertenecen (null si es un lote suelto)
+     */
+    private void registrar(List<? extends Movimiento> lote, Remito remito) throws Exception {
+        // Los productos con número de serie requieren una serie válida por unidad
+        series.validar(lote);
+
+        // Validación previa: se simula el lote sobre una copia del stock de cada producto
+        Map<Producto, Integer> stockOriginal = new IdentityHashMap<>();
+        Map<Producto, Integer> simulado = new IdentityHashMap<>();
+        for (Movimiento m : lote) {
+            Producto p = m.getProducto();
+            stockOriginal.putIfAbsent(p, p.getStockActual());
+            int stock = simulado.getOrDefault(p, p.getStockActual());
+
+            int resultado = switch (m.getTipo()) {
+                case "EGRESO" -> stock - m.getCantidad();
+                default -> stock + m.getCantidad(); // INGRESO y AJUSTE suman (el ajuste puede ser negativo)
+            };
+            if (resultado < 0) {
+                throw new Exception("Stock insuficiente para " + p.getCodigo() + " (" + p.getNombre() + ").");
+            }
+            if ("EGRESO".equals(m.getTipo()) && resultado < p.getStockReservado()) {
+                // Las unidades reservadas solo salen al despachar la reserva (ver ReservasStock)
+                throw new Exception("Stock insuficiente para " + p.getCodigo() + " (" + p.getNombre() + "): "
+                        + p.getStockReservado() + " unidades están reservadas.");
+            }
+            simulado.put(p, resultado);
+        }
+
+        // Aplicación en memoria y guardado en una sola transacción
+        try {
+            for (Movimiento m : lote) {
+                m.aplicarEnMemoria();
+            }
+            if (remito == null) {
+                MovimientoDAO.guardarMovimientos(lote);
+            } else {
+                RemitoDAO.guardarRemito(remito, lote);
+            }
+        } catch (Exception e) {
+            // Se restaura el stock en memoria para que coincida con la base de datos
+            stockOriginal.forEach(Producto::setStockActual);
+            throw e;
+        }
+
+        for (Movimiento m : lote) {
+            registrarMovimiento(m);
+        }
+    }
+
+    /**
+     * Aplica los cambios hechos por otras terminales y avisa a los oyentes.
+     * Debe ejecutarse en el mismo hilo que registra los movimientos locales (en la interfaz,
+     * el hilo de JavaFX), así un movimiento propio siempre está marcado antes de llegar acá.
+     *
+     * @param cambiosProductos productos modificados (nuevos o con otro stock o mínimo)
+     * @param nuevos movimientos nuevos leídos de la base, en orden de id
+     * @param cambiosSeries estado actual de las series de esos movimientos
+     */
+    void aplicarCambiosRemotos(List<Producto> cambiosProductos, List<RegistroMovimiento> nuevos,
+                               List<RegistroSeries.Serie> cambiosSeries) {
+        // Los productos primero: un movimiento nuevo puede ser de un producto recién creado
+        for (Producto cambio : cambiosProductos) {
+            Producto p = buscarProductoPorCodigo(cambio.getCodigo());
+            if (p == null) {
+                agregarProducto(cambio);
+            } else {
+                p.setStockActual(cambio.getStockActual()); // El stock de la base es el vigente
+                p.setStockMinimo(cambio.getStockMinimo());
+                for (OyenteStock o : oyentesStock) o.productoActualizado(p);
+            }
+        }
+
+        Map<Integer, Usuario> porId = new HashMap<>();
+        for (Usuario u : usuarios) porId.put(u.getId(), u);
+
+        for (RegistroMovimiento r : nuevos) {
+            if (movimientosPropios.remove(r.id())) continue; // Lo registró esta terminal
+
+            byte tipo = HistorialMovimientos.codigoTipo(r.tipo());
+            Producto producto = buscarProductoPorCodigo(r.productoCodigo());
+            if (tipo < 0 || producto == null) continue;
+
+            int cantidad = tipo == HistorialMovimientos.EGRESO ? -r.cantidad() : r.cantidad(); // Egresos positivos en memoria
+            long costo = ValuacionFIFO.aDiezmilesimos(r.costoUnitario());
+            int posicion = movimientos.agregar(tipo, producto, porId.get(r.usuarioId()), r.fecha(), cantidad, r.justificacion(), costo);
+            if (tipo == HistorialMovimientos.EGRESO) {
+                pronostico.registrarEgreso(producto, cantidad, r.fecha().toEpochSecond(ZoneOffset.UTC), posicion);
+            }
+            valuacion.registrar(producto, tipo, r.cantidad(), costo, posicion);
+            for (OyenteStock o : oyentesStock) o.movimientoRegistrado(r);
+        }
+
+        for (RegistroSeries.Serie s : cambiosSeries) series.cargar(s); // Estado vigente en la base
+
+        for (Runnable oyente : oyentes) {
+            oyente.run();
+        }
+    }
+
+    /**
+     * Registra una acción a ejecutar cada vez que llegan cambios de otras terminales.
+     * @param oyente acción (se ejecuta en el hilo de la interfaz)
+     */
+    public void agregarOyente(Runnable oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Quita una acción registrada con {@link #agregarOyente(Runnable)}.
+     * @param oyente acción a quitar
+     */
+    public void quitarOyente(Runnable oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /**
+     * Registra un oyente de cada cambio de stock. Se llama en el hilo que aplica los cambios
+     * (en la interfaz, el hilo de JavaFX), así que debe ser rápido.
+     * @param oyente oyente a registrar
+     */
+    public void agregarOyenteStock(OyenteStock oyente) {
+        oyentesStock.add(oyente);
+    }
+
+    /**
+     * Quita un oyente registrado con {@link #agregarOyenteStock(OyenteStock)}.
+     * @param oyente oyente a quitar
+     */
+    public void quitarOyenteStock(OyenteStock oyente) {
+        oyentesStock.remove(oyente);
+    }
+
+    /**
+     * Indica si hay un sincronizador activo (desde ese momento se marcan los movimientos propios).
+     */
+    void setSincronizado(boolean sincronizado) {
+        this.sincronizado = sincronizado;
+        if (!sincronizado) movimientosPropios.clear();
+    }
+
+    /**
+     * Devuelve el mayor id de movimiento leído en la carga inicial.
+     */
+    long getUltimoIdCargado() {
+        return ultimoIdCargado;
+    }
+
+    /**
+     * Devuelve la versión de productos tomada en la carga inicial.
+     */
+    Timestamp getVersionCargada() {
+        return versionCargada;
     }
 
     /**
@@ -39,6 +383,7 @@ public class SistemaStock {
      */
     public void setUsuarioActual(Usuario usuario) {
         this.usuarioActual = usuario; // Guarda el usuario como sesión activa
+        DiarioAuditoria.setUsuarioSesion(usuario); // Las exportaciones se registran a su nombre
     }
 
     /**
@@ -50,13 +395,54 @@ public class SistemaStock {
     }
 
     /**
-     * Devuelve la cola de movimientos registrados.
-     * @return movimientos en orden cronológico (FIFO)
+     * Devuelve el historial de movimientos registrados.
+     * @return movimientos en orden cronológico
      */
-    public Queue<Movimiento> getMovimientos() {
+    public HistorialMovimientos getMovimientos() {
         return movimientos;
     }
 
+    /**
+     * Devuelve el pronóstico de demanda (puntos de pedido y sugerencias de compra).
+     * @return pronóstico de demanda
+     */
+    public PronosticoDemanda getPronostico() {
+        return pronostico;
+    }
+
+    /**
+     * Devuelve la valoración FIFO del inventario (valor, costo de ventas y merma).
+     * @return valoración del inventario
+     */
+    public ValuacionFIFO getValuacion() {
+        return valuacion;
+    }
+
+    /**
+     * Devuelve el registro de números de serie.
+     * @return registro de series
+     */
+    public RegistroSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * Devuelve las reservas de stock vigentes.
+     * @return reservas de stock
+     */
+    public synchronized ReservasStock getReservas() {
+        if (reservas == null) reservas = new ReservasStock(this);
+        return reservas;
+    }
+
+    /**
+     * Avisa a los oyentes que cambió un producto sin que haya un movimiento (ej: su stock reservado).
+     * @param producto producto modificado
+     */
+    void avisarCambio(Producto producto) {
+        for (OyenteStock o : oyentesStock) o.productoActualizado(producto);
+    }
+
     /**
      * Devuelve el usuario actualmente autenticado.
      * @return usuario logueado
@@ -0,0 +1,35 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.time.Instant;
+
+/**
+ * Traza del arranque de la aplicación: con traza.inicio=true se imprime cada etapa con los
+ * milisegundos desde que arrancó la JVM y desde la etapa anterior, para ver dónde se va el tiempo
+ * hasta que aparece el login (carga de clases, JavaFX, base de datos).
+ * Desactivada no hace nada.
+ */
+public class TrazaInicio {
+
+    // Se lee una sola vez, al cargar la clase
+    private static final boolean ACTIVA = Boolean.parseBoolean(Configuracion.get("traza.inicio", "false"));
+
+    // Momento de arranque del proceso (solo se calcula si la traza está activa)
+    private static final long INICIO = ACTIVA
+            ? ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(System.currentTimeMillis())
+            : 0;
+
+    // Momento de la etapa anterior
+    private static long anterior = INICIO;
+
+    /**
+     * Registra el fin de una etapa del arranque.
+     * @param etapa descripción de la etapa (ej: "Login visible")
+     */
+    public static synchronized void marcar(String etapa) {
+        if (!ACTIVA) return;
+        long ahora = System.currentTimeMillis();
+        System.out.printf("[inicio] %6d ms  (+%5d ms)  %s  [%s]%n",
+                ahora - INICIO, ahora - anterior, etapa, Thread.currentThread().getName());
+        anterior = ahora;
+    }
+}
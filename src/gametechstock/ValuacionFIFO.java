@@ -0,0 +1,337 @@
+package gametechstock; // Paquete principal del sistema
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Valoración del inventario por capas de costo FIFO (primero en entrar, primero en salir).
+ * Cada ingreso agrega una capa (cantidad, costo unitario) al final de la cola del producto y cada
+ * egreso o ajuste negativo consume las capas más antiguas. El valor del inventario, el costo de
+ * ventas (egresos) y la merma (ajustes negativos) se actualizan con cada movimiento: cada capa se
+ * agrega y se consume una sola vez, así que el costo es O(1) amortizado por movimiento.
+ *
+ * Los costos se guardan en diezmilésimos (long) para que las sumas sean exactas.
+ * Los ingresos sin costo y los ajustes positivos entran al último costo conocido del producto
+ * (0 si todavía no tiene ninguno, y se cuentan como unidades sin costo).
+ */
+public class ValuacionFIFO {
+
+    // Los costos se guardan multiplicados por 10.000 (cuatro decimales, igual que la base de datos)
+    public static final int DECIMALES = 4;
+
+    // Valor de costo que indica "sin costo informado"
+    public static final long SIN_COSTO = Long.MIN_VALUE;
+
+    // Capas de cada producto
+    private final IdentityHashMap<Producto, Capas> capas = new IdentityHashMap<>();
+
+    // Totales de todos los productos (se actualizan con cada movimiento)
+    private long valorTotal;
+    private long costoVentasTotal;
+    private long mermaTotal;
+
+    // Movimientos registrados mientras reconstruir() arma las capas nuevas (null si no se está reconstruyendo)
+    private List<MovimientoPendiente> pendientes;
+
+    private record MovimientoPendiente(Producto producto, byte tipo, int variacion, long costo, int posicion) { }
+
+    /**
+     * Fila del informe de valoración de un producto (importes en moneda, con cuatro decimales).
+     */
+    public record Linea(Producto producto, long unidades, BigDecimal valor, BigDecimal costoPromedio,
+                        BigDecimal costoVentas, BigDecimal merma, int capas, long unidadesSinCosto, long faltante) {
+    }
+
+    /**
+     * Cola de capas de un producto: dos arreglos circulares (cantidad y costo) que crecen al doble.
+     */
+    private static final class Capas {
+        private int[] cantidades = new int[4];
+        private long[] costos = new long[4];
+        private int cabeza, cuenta;
+
+        long unidades;                 // unidades en capas
+        long valor;                    // valor de las capas (diezmilésimos)
+        long costoVentas;              // costo acumulado de los egresos
+        long merma;                    // costo acumulado de los ajustes negativos
+        long ultimoCosto = SIN_COSTO;  // costo del último ingreso con costo
+        long unidadesSinCosto;         // unidades ingresadas sin costo conocido
+        long faltante;                 // unidades consumidas sin capas (historial incompleto)
+
+        /**
+         * Agrega una capa al final (si tiene el mismo costo que la última, se suma a ella).
+         */
+        void agregar(int cantidad, long costo) {
+            int mascara = cantidades.length - 1;
+            int ultima = (cabeza + cuenta - 1) & mascara;
+            if (cuenta > 0 && costos[ultima] == costo && cantidades[ultima] <= Integer.MAX_VALUE - cantidad) {
+                cantidades[ultima] += cantidad;
+            } else {
+                if (cuenta == cantidades.length) crecer();
+                int i = (cabeza + cuenta) & (cantidades.length - 1);
+                cantidades[i] = cantidad;
+                costos[i] = costo;
+                cuenta++;
+            }
+            unidades += cantidad;
+            valor += cantidad * costo;
+        }
+
+        /**
+         * Consume unidades desde la capa más antigua.
+         * @return costo de las unidades consumidas (las que no tenían capa se valúan al último costo)
+         */
+        long consumir(int cantidad) {
+            long costo = 0;
+            int resto = cantidad;
+            int mascara = cantidades.length - 1;
+            while (resto > 0 && cuenta > 0) {
+                int tomar = Math.min(resto, cantidades[cabeza]);
+                long parcial = tomar * costos[cabeza];
+                costo += parcial;
+                valor -= parcial;
+                unidades -= tomar;
+                resto -= tomar;
+                cantidades[cabeza] -= tomar;
+                if (cantidades[cabeza] == 0) {
+                    cabeza = (cabeza + 1) & mascara;
+                    cuenta--;
+                }
+            }
+            if (resto > 0) {
+                faltante += resto;
+                costo += resto * Math.max(0, ultimoCosto);
+            }
+            return costo;
+        }
+
+        /**
+         * Costo con el que entran los ingresos sin costo y los ajustes positivos.
+         */
+        long costoVigente(int cantidad) {
+            if (ultimoCosto == SIN_COSTO) {
+                unidadesSinCosto += cantidad;
+                return 0;
+            }
+            return ultimoCosto;
+        }
+
+        private void crecer() {
+            int[] c = new int[cantidades.length * 2];
+            long[] k = new long[costos.length * 2];
+            for (int j = 0; j < cuenta; j++) {
+                int i = (cabeza + j) & (cantidades.length - 1);
+                c[j] = cantidades[i];
+                k[j] = costos[i];
+            }
+            cantidades = c;
+            costos = k;
+            cabeza = 0;
+        }
+    }
+
+    /**
+     * Convierte un costo unitario a diezmilésimos.
+     * @param costo costo unitario (null = sin costo)
+     * @return costo en diezmilésimos, o SIN_COSTO
+     */
+    public static long aDiezmilesimos(BigDecimal costo) {
+        return costo == null ? SIN_COSTO : costo.setScale(DECIMALES, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convierte diezmilésimos a importe en moneda.
+     * @param valor importe en diezmilésimos (SIN_COSTO = null)
+     * @return importe con cuatro decimales
+     */
+    public static BigDecimal aImporte(long valor) {
+        return valor == SIN_COSTO ? null : BigDecimal.valueOf(valor, DECIMALES);
+    }
+
+    /**
+     * Aplica un movimiento a las capas del producto (O(1) amortizado).
+     * @param p producto
+     * @param tipo código de tipo (ver HistorialMovimientos)
+     * @param variacion variación de stock (negativa para egresos y ajustes negativos)
+     * @param costo costo unitario en diezmilésimos (solo ingresos; SIN_COSTO si no se informó)
+     * @param posicion posición del movimiento en el historial (se agrega al historial antes de llamar a este método)
+     */
+    public synchronized void registrar(Producto p, byte tipo, int variacion, long costo, int posicion) {
+        if (pendientes != null) pendientes.add(new MovimientoPendiente(p, tipo, variacion, costo, posicion));
+        aplicarMovimiento(p, tipo, variacion, costo);
+    }
+
+    // Aplica el movimiento a las capas del producto y actualiza los totales
+    private void aplicarMovimiento(Producto p, byte tipo, int variacion, long costo) {
+        Capas c = capas.computeIfAbsent(p, k -> new Capas());
+        long valorAntes = c.valor;
+        long ventasAntes = c.costoVentas;
+        long mermaAntes = c.merma;
+        aplicar(c, tipo, variacion, costo);
+        valorTotal += c.valor - valorAntes;
+        costoVentasTotal += c.costoVentas - ventasAntes;
+        mermaTotal += c.merma - mermaAntes;
+    }
+
+    /**
+     * Aplica un movimiento a una cola de capas.
+     */
+    private static void aplicar(Capas c, byte tipo, int variacion, long costo) {
+        if (variacion > 0) {
+            if (tipo == HistorialMovimientos.INGRESO && costo != SIN_COSTO) {
+                c.ultimoCosto = costo;
+            } else {
+                costo = c.costoVigente(variacion);
+            }
+            c.agregar(variacion, costo);
+        } else if (variacion < 0) {
+            long consumido = c.consumir(-variacion);
+            if (tipo == HistorialMovimientos.EGRESO) {
+                c.costoVentas += consumido;
+            } else {
+                c.merma += consumido;
+            }
+        }
+    }
+
+    /**
+     * Reconstruye todas las capas desde el historial, en paralelo por producto.
+     * Se usa al iniciar el sistema (el historial ya está en orden de id).
+     * Los movimientos registrados mientras tanto se guardan y, después del cambio de capas, se vuelven
+     * a aplicar los que quedaron fuera de la agrupación (posición mayor o igual a su tamaño).
+     * @param historial historial completo de movimientos
+     */
+    public void reconstruir(HistorialMovimientos historial) {
+        // Se empieza a guardar antes de agrupar: todo movimiento que la agrupación no incluya queda guardado
+        synchronized (this) {
+            pendientes = new ArrayList<>();
+        }
+        HistorialMovimientos.Agrupacion grupos = historial.agruparPorProducto();
+        int incluidos = grupos.posiciones.length;
+        int productos = historial.getCantidadProductos();
+        Capas[] resultado = new Capas[productos];
+
+        ForkJoinPool.commonPool().invoke(new TareaReconstruccion(historial, grupos, resultado, 0, productos));
+
+        synchronized (this) {
+            capas.clear();
+            valorTotal = costoVentasTotal = mermaTotal = 0;
+            for (int i = 0; i < productos; i++) {
+                if (resultado[i] == null) continue;
+                capas.put(historial.getProductoPorIndice(i), resultado[i]);
+                valorTotal += resultado[i].valor;
+                costoVentasTotal += resultado[i].costoVentas;
+                mermaTotal += resultado[i].merma;
+            }
+
+            for (MovimientoPendiente m : pendientes) {
+                if (m.posicion() >= incluidos) aplicarMovimiento(m.producto(), m.tipo(), m.variacion(), m.costo());
+            }
+            pendientes = null;
+        }
+    }
+
+    /**
+     * Tarea fork/join que recorre los movimientos de un rango de productos.
+     */
+    @SuppressWarnings("serial") // Las tareas de fork/join no se serializan
+    private static class TareaReconstruccion extends RecursiveAction {
+        private final HistorialMovimientos historial;
+        private final HistorialMovimientos.Agrupacion grupos;
+        private final Capas[] resultado;
+        private final int desde, hasta;
+
+        TareaReconstruccion(HistorialMovimientos historial, HistorialMovimientos.Agrupacion grupos,
+                            Capas[] resultado, int desde, int hasta) {
+            this.historial = historial;
+            this.grupos = grupos;
+            this.resultado = resultado;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > 256) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new TareaReconstruccion(historial, grupos, resultado, desde, medio),
+                          new TareaReconstruccion(historial, grupos, resultado, medio, hasta));
+                return;
+            }
+            for (int p = desde; p < hasta && p < grupos.inicios.length - 1; p++) {
+                int primero = grupos.inicios[p];
+                int ultimo = grupos.inicios[p + 1];
+                if (primero == ultimo) continue;
+
+                Capas c = new Capas();
+                for (int k = primero; k < ultimo; k++) {
+                    int pos = grupos.posiciones[k];
+                    aplicar(c, historial.getCodigoTipo(pos), historial.getVariacion(pos), historial.getCosto(pos));
+                }
+                resultado[p] = c;
+            }
+        }
+    }
+
+    // --- Consultas ---
+
+    /**
+     * Valor total del inventario (O(1)).
+     * @return suma del valor de las capas de todos los productos
+     */
+    public synchronized BigDecimal getValorTotal() {
+        return aImporte(valorTotal);
+    }
+
+    /**
+     * Costo de ventas acumulado de todos los egresos (O(1)).
+     * @return costo de ventas
+     */
+    public synchronized BigDecimal getCostoVentasTotal() {
+        return aImporte(costoVentasTotal);
+    }
+
+    /**
+     * Costo acumulado de los ajustes negativos (O(1)).
+     * @return merma valorizada
+     */
+    public synchronized BigDecimal getMermaTotal() {
+        return aImporte(mermaTotal);
+    }
+
+    /**
+     * Último costo de ingreso conocido de un producto.
+     * @param p producto
+     * @return costo unitario, o null si nunca tuvo un ingreso con costo
+     */
+    public synchronized BigDecimal getUltimoCosto(Producto p) {
+        Capas c = capas.get(p);
+        return c == null ? null : aImporte(c.ultimoCosto);
+    }
+
+    /**
+     * Arma el informe de valoración con los valores ya calculados (no recorre movimientos).
+     * @param productos productos a informar
+     * @return una línea por producto
+     */
+    public synchronized List<Linea> informe(List<Producto> productos) {
+        List<Linea> lista = new ArrayList<>(productos.size());
+        for (Producto p : productos) {
+            Capas c = capas.get(p);
+            if (c == null) {
+                lista.add(new Linea(p, 0, BigDecimal.ZERO.setScale(DECIMALES), null,
+                        BigDecimal.ZERO.setScale(DECIMALES), BigDecimal.ZERO.setScale(DECIMALES), 0, 0, 0));
+                continue;
+            }
+            BigDecimal promedio = c.unidades > 0
+                    ? BigDecimal.valueOf(c.valor, DECIMALES).divide(BigDecimal.valueOf(c.unidades), DECIMALES, RoundingMode.HALF_UP)
+                    : null;
+            lista.add(new Linea(p, c.unidades, aImporte(c.valor), promedio, aImporte(c.costoVentas), aImporte(c.merma),
+                    c.cuenta, c.unidadesSinCosto, c.faltante));
+        }
+        return lista;
+    }
+}
@@ -1,9 +1,26 @@
 package main; // Paquete principal del sistema
 
+import ConexionBD.MigracionesBD;
+import api.ServidorStock;
+import gametechstock.Configuracion;
+import gametechstock.RolUsuario;
+import gametechstock.SincronizadorStock;
 import gametechstock.SistemaStock;
-import view.VentanaLogin;
+import gametechstock.TrazaInicio;
+import gametechstock.Usuario;
+import view.*;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+import monitoreo.GrabacionContinua;
 
 /**
  * Clase principal de la aplicación JavaFX.
@@ -14,20 +31,145 @@ public class GametechStock extends Application {
     // Modelo central del sistema: gestiona productos, usuarios y movimientos
     private SistemaStock sistema;
 
+    // Servicio que trae los cambios hechos desde otras terminales
+    private SincronizadorStock sincronizador;
+
+    // Tarea que vence las reservas de stock (ver ReservasStock)
+    private Timeline vencimientoReservas;
+
+    // API HTTP de consulta de stock (null si está desactivada)
+    private ServidorStock servidorApi;
+
     /**
      * Punto de inicio de la interfaz gráfica JavaFX.
      * Este método se invoca automáticamente cuando se lanza la aplicación.
      *
+     * El login se muestra enseguida y los datos se cargan en segundo plano mientras el usuario
+     * escribe sus credenciales: el menú se abre recién cuando la carga terminó.
+     *
      * @param primaryStage la ventana principal de JavaFX
      */
     @Override
     public void start(Stage primaryStage) {
+        TrazaInicio.marcar("JavaFX iniciado");
+
+        // Grabación continua de rendimiento (JFR) y medición de las acciones de cada ventana
+        GrabacionContinua.iniciar();
+        MonitorAcciones.instalar();
+
         sistema = new SistemaStock();             // Se crea el modelo principal del sistema
-        sistema.cargarDatosDesdeBD();             // Se cargan productos, usuarios y movimientos desde MySQL
+
+        // Migraciones y carga de productos, usuarios y movimientos desde MySQL, fuera del hilo de JavaFX
+        CompletableFuture<Void> carga = CompletableFuture.runAsync(this::cargarDatos);
+
+        // Los servicios que usan el estado en memoria arrancan en el hilo de JavaFX, después de la carga
+        carga.thenRunAsync(this::iniciarServicios, Platform::runLater);
 
         // Muestra la primera pantalla: login de usuario
-        VentanaLogin login = new VentanaLogin(sistema);
+        VentanaLogin login = new VentanaLogin(sistema, carga);
         login.mostrar(primaryStage);
+        TrazaInicio.marcar("Login visible");
+
+        // Ejecución de entrenamiento para el archivo CDS (ver target "cds" de build.xml)
+        if (Boolean.parseBoolean(Configuracion.get("entrenamiento.cds", "false"))) {
+            carga.thenRunAsync(this::entrenar, Platform::runLater);
+        }
+    }
+
+    /**
+     * Aplica las migraciones pendientes y carga los datos (en segundo plano).
+     */
+    private void cargarDatos() {
+        // Aplica las migraciones pendientes del esquema antes de leer datos
+        try {
+            String aplicadas = MigracionesBD.aplicar();
+            if (!aplicadas.isEmpty()) System.out.println("Migraciones aplicadas:\n" + aplicadas);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        TrazaInicio.marcar("Migraciones verificadas");
+
+        sistema.cargarDatosDesdeBD();             // Se cargan productos, usuarios y movimientos desde MySQL
+        TrazaInicio.marcar("Datos cargados (" + sistema.getProductos().size() + " productos, "
+                + sistema.getMovimientos().size() + " movimientos)");
+    }
+
+    /**
+     * Inicia la sincronización con otras terminales, el vencimiento de reservas y la API HTTP (en el hilo de JavaFX).
+     */
+    private void iniciarServicios() {
+        // Mantiene el stock al día con los movimientos de otras terminales (se aplican en el hilo de JavaFX)
+        if (Boolean.parseBoolean(Configuracion.get("sincronizacion.activa", "true"))) {
+            sincronizador = new SincronizadorStock(sistema, Platform::runLater);
+            sincronizador.iniciar();
+        }
+
+        // Vence las reservas de stock cada segundo (en el hilo de JavaFX, como el resto de los cambios de stock)
+        vencimientoReservas = new Timeline(new KeyFrame(Duration.seconds(1),
+                e -> sistema.getReservas().vencer(System.currentTimeMillis())));
+        vencimientoReservas.setCycleCount(Animation.INDEFINITE);
+        vencimientoReservas.play();
+
+        // API HTTP de consulta de stock para sistemas externos (api.puerto = 0 la desactiva)
+        int puertoApi = Configuracion.getInt("api.puerto", 0);
+        if (puertoApi > 0) {
+            try {
+                servidorApi = new ServidorStock(sistema, puertoApi);
+                servidorApi.iniciar();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        TrazaInicio.marcar("Servicios iniciados");
+    }
+
+    /**
+     * Abre el menú y todas las ventanas una vez y cierra la aplicación, para que la JVM registre
+     * las clases que usa la interfaz al generar el archivo CDS.
+     */
+    private void entrenar() {
+        sistema.setUsuarioActual(new Usuario("Entrenamiento", "entrenamiento", RolUsuario.ADMINISTRADOR));
+        new VentanaMenu(sistema).mostrar(new Stage());
+        new VentanaIngreso(sistema).mostrar(new Stage());
+        new VentanaEgreso(sistema).mostrar(new Stage());
+        new VentanaAjuste(sistema).mostrar(new Stage());
+        new VentanaConteo(sistema).mostrar(new Stage());
+        new VentanaStock(sistema).mostrar(new Stage());
+        new VentanaRemito(sistema).mostrar(new Stage());
+        new VentanaAsignacion(sistema).mostrar(new Stage());
+        new VentanaReservas(sistema).mostrar(new Stage());
+        new VentanaHistorial(sistema).mostrar(new Stage());
+        new VentanaNuevoProducto(sistema).mostrar(new Stage());
+        new VentanaAnalisis(sistema).mostrar(new Stage());
+        new VentanaCompras(sistema).mostrar(new Stage());
+        new VentanaValuacion(sistema).mostrar(new Stage());
+        new VentanaSeries(sistema).mostrar(new Stage());
+
+        // Se deja pasar un par de segundos para que se dibujen (estilos, skins de los controles)
+        PauseTransition espera = new PauseTransition(Duration.seconds(2));
+        espera.setOnFinished(e -> {
+            for (Window w : new ArrayList<>(Window.getWindows())) w.hide();
+            Platform.exit();
+        });
+        espera.play();
+    }
+
+    /**
+     * Se invoca al cerrar la aplicación: detiene la sincronización, la API HTTP, el vencimiento de reservas
+     * y la grabación de rendimiento.
+     */
+    @Override
+    public void stop() {
+        if (sincronizador != null) {
+            sincronizador.detener();
+        }
+        if (servidorApi != null) {
+            servidorApi.detener();
+        }
+        if (vencimientoReservas != null) {
+            vencimientoReservas.stop();
+        }
+        GrabacionContinua.detener();
     }
 
     /**
@@ -37,6 +179,7 @@ public class GametechStock extends Application {
      * @param args argumentos opcionales desde línea de comandos
      */
     public static void main(String[] args) {
+        TrazaInicio.marcar("main");
         launch(args);
     }
 }
@@ -0,0 +1,599 @@
+package main; // Paquete principal del sistema
+
+import ConexionBD.ArchivoMovimientos;
+import ConexionBD.ExportacionIncremental;
+import ConexionBD.MigracionesBD;
+import ConexionBD.MovimientoDAO;
+import ConexionBD.ProductoDAO;
+import ConexionBD.ProductoDAO.DiferenciaStock;
+import ConexionBD.RespaldoBD;
+import ConexionBD.SerieDAO;
+import ConexionBD.UsuarioDAO;
+import gametechstock.Ajuste;
+import gametechstock.AsignadorPedidos;
+import gametechstock.AsignadorPedidos.Asignacion;
+import gametechstock.Configuracion;
+import gametechstock.DiarioAuditoria;
+import gametechstock.Egreso;
+import gametechstock.Ingreso;
+import gametechstock.Movimiento;
+import gametechstock.Producto;
+import gametechstock.RegistroSeries;
+import gametechstock.ReservasStock;
+import gametechstock.SistemaStock;
+import gametechstock.Usuario;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import ConexionBD.ProductoDAO.StockReproducido;
+
+/**
+ * Punto de entrada por línea de comandos, sin interfaz gráfica.
+ * Usa las mismas capas gametechstock y ConexionBD que la aplicación JavaFX (sin cargar JavaFX),
+ * para correr operaciones por lotes y tareas programadas (cron, tareas de Windows).
+ *
+ * Cada comando escribe su avance a medida que trabaja y termina con un código de salida:
+ * 0 si terminó bien, 1 si falló (o si verificar-stock encontró diferencias) y 2 si el uso es incorrecto.
+ */
+public class GametechStockCLI {
+
+    // Códigos de salida
+    private static final int OK = 0;
+    private static final int FALLO = 1;
+    private static final int USO = 2;
+
+    // Formato de fecha y hora del listado de auditoría
+    private static final DateTimeFormatter MOMENTO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static final String AYUDA = """
+            Uso: java -cp <clases>:mysql-connector-j.jar main.GametechStockCLI <comando> [opciones]
+
+            Comandos:
+              migrar                                   Aplica las migraciones pendientes del esquema
+              exportar productos <archivo>             Lista completa de productos en CSV
+              exportar movimientos <archivo> [--desde AAAA-MM-DD] [--hasta AAAA-MM-DD]
+                                                       Movimientos (activos y archivados) en CSV
+              exportar cambios                         Exportación incremental (exportacion.directorio)
+              importar <archivo> --usuario <login> [--lote N]
+                                                       Registra movimientos desde un CSV con las columnas
+                                                       codigo,tipo,cantidad[,justificacion|costo]
+                                                       (en ingresos la cuarta columna es el costo unitario)
+                                                       (la clave se toma de GAMETECH_CLAVE o se pide por consola)
+              asignar <archivo> --usuario <login> [--politica PRIORIDAD|PROPORCIONAL|FIFO] [--faltantes <csv>] [--simular]
+                                                       Reparte el stock entre los pedidos del archivo
+                                                       (pedido,codigo,cantidad[,prioridad]) y registra
+                                                       todos los egresos en una sola transacción
+              reservar <codigo> <cantidad> --usuario <login> [--minutos N] [--referencia texto]
+                                                       Aparta unidades hasta su vencimiento
+                                                       (por defecto reservas.minutosPorDefecto)
+              reservas [codigo]                        Lista las reservas vigentes
+              verificar-stock                          Compara el stock con la suma de los movimientos
+              reproducir <AAAA-MM-DD> [archivo]        Stock de cada producto al inicio de ese día
+              instantanea <archivo>                    Stock actual de todos los productos (lectura consistente)
+              archivar [dias]                          Archiva los movimientos de más de N días
+              auditoria [--desde AAAA-MM-DD] [--hasta AAAA-MM-DD] [--usuario id] [--producto codigo] [--tipo TIPO]
+                                                       Lista el diario de auditoría (no usa la base de datos)
+              serie <numero>                           Producto, estado y movimientos de un número de serie
+              respaldar [carpeta]                      Respaldo consistente de la base (respaldo.directorio)
+              restaurar <carpeta> --confirmar          Reemplaza el contenido de la base por un respaldo
+                                                       (con las demás terminales cerradas)
+            """;
+
+    /**
+     * Ejecuta un comando y termina el proceso con su código de salida.
+     * @param args comando y opciones
+     */
+    public static void main(String[] args) {
+        System.exit(ejecutar(args));
+    }
+
+    /**
+     * Ejecuta un comando.
+     * @param args comando y opciones
+     * @return código de salida
+     */
+    static int ejecutar(String[] args) {
+        if (args.length == 0) {
+            System.err.print(AYUDA);
+            return USO;
+        }
+
+        try {
+            return switch (args[0]) {
+                case "migrar" -> migrar();
+                case "exportar" -> exportar(args);
+                case "importar" -> importar(args);
+                case "asignar" -> asignar(args);
+                case "reservar" -> reservar(args);
+                case "reservas" -> reservas(args);
+                case "verificar-stock" -> verificarStock();
+                case "reproducir" -> reproducir(args);
+                case "instantanea" -> instantanea(args);
+                case "archivar" -> archivar(args);
+                case "auditoria" -> auditoria(args);
+                case "serie" -> serie(args);
+                case "respaldar" -> respaldar(args);
+                case "restaurar" -> restaurar(args);
+                case "ayuda", "-h", "--help" -> {
+                    System.out.print(AYUDA);
+                    yield OK;
+                }
+                default -> {
+                    System.err.println("Comando desconocido: " + args[0]);
+                    System.err.print(AYUDA);
+                    yield USO;
+                }
+            };
+        } catch (IllegalArgumentException e) {
+            // Opciones mal escritas (fechas, números, argumentos faltantes)
+            System.err.println("Error: " + e.getMessage());
+            return USO;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            return FALLO;
+        }
+    }
+
+    /**
+     * Aplica las migraciones pendientes del esquema.
+     */
+    private static int migrar() throws Exception {
+        String aplicadas = MigracionesBD.aplicar();
+        System.out.println(aplicadas.isEmpty() ? "El esquema está al día." : "Migraciones aplicadas:\n" + aplicadas);
+        return OK;
+    }
+
+    /**
+     * Exportaciones completas (productos, movimientos) o incremental (cambios).
+     */
+    private static int exportar(String[] args) throws Exception {
+        String que = argumento(args, 1, "exportar productos|movimientos|cambios");
+        switch (que) {
+            case "productos" -> {
+                File archivo = new File(argumento(args, 2, "exportar productos <archivo>"));
+                int filas = ProductoDAO.escribirProductosCSV(archivo);
+                System.out.println(filas + " productos exportados a " + archivo.getAbsolutePath());
+            }
+            case "movimientos" -> {
+                File archivo = new File(argumento(args, 2, "exportar movimientos <archivo>"));
+                LocalDateTime desde = fecha(opcion(args, "--desde"));
+                LocalDateTime hasta = fecha(opcion(args, "--hasta"));
+                long filas = MovimientoDAO.escribirMovimientosCSV(archivo, desde, hasta);
+                System.out.println(filas + " movimientos exportados a " + archivo.getAbsolutePath());
+            }
+            case "cambios" -> System.out.println(ExportacionIncremental.exportar());
+            default -> throw new IllegalArgumentException("Exportación desconocida: " + que);
+        }
+        return OK;
+    }
+
+    /**
+     * Registra los movimientos de un CSV en lotes (cada lote es una transacción, todo o nada).
+     * El archivo se lee de a una línea: solo el lote actual está en memoria.
+     */
+    private static int importar(String[] args) throws Exception {
+        File archivo = new File(argumento(args, 1, "importar <archivo> --usuario <login>"));
+        String login = opcion(args, "--usuario");
+        if (login == null) throw new IllegalArgumentException("Falta --usuario <login>.");
+        String tamLote = opcion(args, "--lote");
+        int tamanio = tamLote == null ? Configuracion.getInt("cli.tamanioLote", 500) : numero(tamLote);
+        if (tamanio <= 0) throw new IllegalArgumentException("El tamaño de lote debe ser mayor a cero.");
+
+        Usuario usuario = iniciarSesion(login);
+        if (usuario == null) {
+            System.err.println("Usuario o contraseña incorrectos.");
+            return FALLO;
+        }
+
+        // Solo productos y usuarios: sin historial, los lotes registrados no se acumulan en memoria
+        SistemaStock sistema = new SistemaStock();
+        sistema.cargarCatalogo();
+        sistema.setUsuarioActual(usuario);
+
+        List<Movimiento> lote = new ArrayList<>(tamanio);
+        long aplicados = 0;
+        int numeroLinea = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || linea.startsWith("#")) continue;
+                if (numeroLinea == 1 && linea.toLowerCase().startsWith("codigo")) continue; // Encabezado
+
+                try {
+                    lote.add(movimiento(sistema, usuario, linea));
+                } catch (Exception e) {
+                    System.err.println("Línea " + numeroLinea + ": " + e.getMessage());
+                    System.err.println(aplicados + " movimientos registrados antes del error.");
+                    return FALLO;
+                }
+
+                if (lote.size() == tamanio) {
+                    if (!aplicarLote(sistema, lote, numeroLinea)) return FALLO;
+                    aplicados += tamanio;
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            if (!aplicarLote(sistema, lote, numeroLinea)) return FALLO;
+            aplicados += lote.size();
+        }
+
+        System.out.println("Importación terminada: " + aplicados + " movimientos registrados.");
+        return OK;
+    }
+
+    /**
+     * Asigna el stock a una ola de pedidos y registra los egresos (o solo informa con --simular).
+     */
+    private static int asignar(String[] args) throws Exception {
+        File archivo = new File(argumento(args, 1, "asignar <archivo> --usuario <login>"));
+        String login = opcion(args, "--usuario");
+        if (login == null) throw new IllegalArgumentException("Falta --usuario <login>.");
+        String nombrePolitica = opcion(args, "--politica");
+        AsignadorPedidos.Politica politica;
+        try {
+            politica = nombrePolitica == null ? AsignadorPedidos.Politica.PRIORIDAD
+                    : AsignadorPedidos.Politica.valueOf(nombrePolitica.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Política desconocida: " + nombrePolitica + " (PRIORIDAD, PROPORCIONAL o FIFO).");
+        }
+        String faltantes = opcion(args, "--faltantes");
+        boolean simular = Arrays.asList(args).contains("--simular");
+
+        Usuario usuario = iniciarSesion(login);
+        if (usuario == null) {
+            System.err.println("Usuario o contraseña incorrectos.");
+            return FALLO;
+        }
+
+        // Solo productos y usuarios: el historial no hace falta para registrar movimientos
+        SistemaStock sistema = new SistemaStock();
+        sistema.cargarCatalogo();
+        sistema.setUsuarioActual(usuario);
+
+        AsignadorPedidos asignador = new AsignadorPedidos(sistema);
+        List<String> desconocidos = asignador.cargarArchivo(archivo);
+        for (String d : desconocidos) System.err.println("Producto desconocido (pedido,codigo): " + d);
+
+        List<Asignacion> resultado = simular ? asignador.asignar(politica) : asignador.confirmar(politica);
+        System.out.println((simular ? "Simulación " : "Asignación ") + politica + ": " + AsignadorPedidos.resumen(resultado));
+        if (faltantes != null) {
+            int lineas = AsignadorPedidos.escribirFaltantes(resultado, new File(faltantes));
+            System.out.println(lineas + " líneas con faltante en " + faltantes);
+        }
+        return OK;
+    }
+
+    /**
+     * Reserva unidades de un producto hasta su vencimiento.
+     */
+    private static int reservar(String[] args) throws Exception {
+        String uso = "reservar <codigo> <cantidad> --usuario <login>";
+        String codigo = argumento(args, 1, uso);
+        int cantidad;
+        try {
+            cantidad = Integer.parseInt(argumento(args, 2, uso));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cantidad inválida: " + args[2]);
+        }
+        String login = opcion(args, "--usuario");
+        if (login == null) throw new IllegalArgumentException("Falta --usuario <login>.");
+        String minutos = opcion(args, "--minutos");
+
+        Usuario usuario = iniciarSesion(login);
+        if (usuario == null) {
+            System.err.println("Usuario o contraseña incorrectos.");
+            return FALLO;
+        }
+
+        // El catálogo incluye las reservas vigentes, que se descuentan del disponible
+        SistemaStock sistema = new SistemaStock();
+        sistema.cargarCatalogo();
+        sistema.setUsuarioActual(usuario);
+        Producto producto = sistema.buscarProductoPorCodigo(codigo);
+        if (producto == null) {
+            System.err.println("No existe el producto " + codigo + ".");
+            return FALLO;
+        }
+
+        ReservasStock.Reserva r = sistema.getReservas().reservar(producto, cantidad,
+                minutos != null ? Integer.parseInt(minutos) : ReservasStock.MINUTOS_POR_DEFECTO, opcion(args, "--referencia"));
+        System.out.println("Reserva " + r.id() + ": " + r.cantidad() + " unidades de " + codigo + " hasta "
+                + r.vence().format(MOMENTO) + " (disponible: " + producto.getStockDisponible() + ")");
+        return OK;
+    }
+
+    /**
+     * Lista las reservas vigentes (de todos los productos o de uno).
+     */
+    private static int reservas(String[] args) {
+        SistemaStock sistema = new SistemaStock();
+        sistema.cargarCatalogo();
+        Producto producto = null;
+        if (args.length > 1) {
+            producto = sistema.buscarProductoPorCodigo(args[1]);
+            if (producto == null) {
+                System.err.println("No existe el producto " + args[1] + ".");
+                return FALLO;
+            }
+        }
+        List<ReservasStock.Reserva> lista = sistema.getReservas().listar(producto);
+        System.out.println("id,codigo,cantidad,vence,referencia");
+        for (ReservasStock.Reserva r : lista) {
+            System.out.println(r.id() + "," + r.producto().getCodigo() + "," + r.cantidad() + ","
+                    + r.vence().format(MOMENTO) + "," + (r.referencia() != null ? r.referencia() : ""));
+        }
+        System.err.println(lista.size() + " reservas vigentes");
+        return OK;
+    }
+
+    /**
+     * Aplica un lote e informa el resultado.
+     * @return true si el lote quedó registrado
+     */
+    private static boolean aplicarLote(SistemaStock sistema, List<Movimiento> lote, int hastaLinea) {
+        try {
+            sistema.aplicarLote(lote);
+        } catch (Exception e) {
+            System.err.println("No se pudo registrar el lote que termina en la línea " + hastaLinea + ": " + e.getMessage());
+            return false;
+        }
+        System.out.println("Línea " + hastaLinea + ": " + lote.size() + " movimientos registrados");
+        return true;
+    }
+
+    /**
+     * Arma el movimiento de una línea del CSV: codigo,tipo,cantidad[,justificacion|costo].
+     * En los ajustes la cuarta columna es la justificación (el resto de la línea, así que puede
+     * contener comas); en los ingresos es el costo unitario opcional (con punto decimal).
+     */
+    private static Movimiento movimiento(SistemaStock sistema, Usuario usuario, String linea) throws Exception {
+        String[] campos = linea.split(",", 4);
+        if (campos.length < 3) {
+            throw new Exception("Se esperaban al menos 3 columnas (codigo,tipo,cantidad).");
+        }
+
+        Producto producto = sistema.buscarProductoPorCodigo(campos[0].trim());
+        if (producto == null) {
+            throw new Exception("No existe el producto " + campos[0].trim() + ".");
+        }
+
+        int cantidad;
+        try {
+            cantidad = Integer.parseInt(campos[2].trim());
+        } catch (NumberFormatException e) {
+            throw new Exception("Cantidad inválida: " + campos[2].trim());
+        }
+        String justificacion = campos.length > 3 ? campos[3].trim() : "";
+
+        String tipo = campos[1].trim().toUpperCase();
+        if (tipo.equals("AJUSTE") ? cantidad == 0 : cantidad <= 0) {
+            throw new Exception("Cantidad inválida para " + tipo + ": " + cantidad);
+        }
+        return switch (tipo) {
+            case "INGRESO" -> {
+                BigDecimal costo = null;
+                if (!justificacion.isEmpty()) {
+                    try {
+                        costo = new BigDecimal(justificacion);
+                    } catch (NumberFormatException e) {
+                        throw new Exception("Costo unitario inválido: " + justificacion);
+                    }
+                    if (costo.signum() < 0) throw new Exception("El costo unitario no puede ser negativo.");
+                }
+                yield new Ingreso(cantidad, producto, usuario, costo);
+            }
+            case "EGRESO" -> new Egreso(cantidad, producto, usuario);
+            case "AJUSTE" -> {
+                if (justificacion.isEmpty()) throw new Exception("Los ajustes requieren una justificación.");
+                yield new Ajuste(cantidad, producto, usuario, justificacion);
+            }
+            default -> throw new Exception("Tipo desconocido: " + campos[1].trim());
+        };
+    }
+
+    /**
+     * Compara el stock de cada producto con la suma de sus movimientos.
+     * @return OK si todo coincide, FALLO si hay diferencias
+     */
+    private static int verificarStock() throws Exception {
+        List<DiferenciaStock> diferencias = ProductoDAO.verificarStock();
+        for (DiferenciaStock d : diferencias) {
+            System.out.printf("%s (%s): stock %d, según movimientos %d%n",
+                    d.codigo(), d.nombre(), d.stockActual(), d.stockCalculado());
+        }
+        System.out.println(diferencias.isEmpty()
+                ? "El stock de todos los productos coincide con sus movimientos."
+                : diferencias.size() + " productos con diferencias.");
+        return diferencias.isEmpty() ? OK : FALLO;
+    }
+
+    /**
+     * Reconstruye el stock de cada producto al inicio de un día: al stock actual se le restan
+     * los movimientos desde ese día en adelante (solo se recorren esos movimientos), todo leído
+     * en una misma instantánea consistente (ver ProductoDAO.reproducirStock).
+     */
+    private static int reproducir(String[] args) throws Exception {
+        LocalDateTime momento = fecha(argumento(args, 1, "reproducir <AAAA-MM-DD> [archivo]"));
+
+        List<StockReproducido> productos = new ArrayList<>();
+        long leidos = ProductoDAO.reproducirStock(momento, productos);
+
+        try (PrintWriter writer = args.length > 2
+                ? new PrintWriter(new File(args[2]), StandardCharsets.UTF_8)
+                : new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            writer.println("Codigo,Nombre,Stock al " + momento.toLocalDate());
+            for (StockReproducido p : productos) {
+                writer.printf("%s,%s,%d%n", p.codigo(), p.nombre(), p.stock());
+            }
+        }
+        System.err.println(leidos + " movimientos revertidos desde " + momento.toLocalDate());
+        return OK;
+    }
+
+    /**
+     * Escribe una instantánea consistente del stock actual.
+     */
+    private static int instantanea(String[] args) throws Exception {
+        File archivo = new File(argumento(args, 1, "instantanea <archivo>"));
+        long ultimoId = ProductoDAO.escribirInstantanea(archivo);
+        System.out.println("Instantánea escrita en " + archivo.getAbsolutePath() + " (movimientos hasta id " + ultimoId + ")");
+        return OK;
+    }
+
+    /**
+     * Archiva los movimientos más antiguos que el horizonte indicado (o archivo.horizonteDias).
+     */
+    private static int archivar(String[] args) throws Exception {
+        int dias = args.length > 1 ? numero(args[1]) : Configuracion.getInt("archivo.horizonteDias", 365);
+        System.out.println(ArchivoMovimientos.archivar(dias));
+        return OK;
+    }
+
+    /**
+     * Lista los registros del diario de auditoría que cumplen los filtros, en orden de escritura.
+     * Solo lee los archivos locales del diario, así que funciona aunque la base no esté disponible.
+     */
+    private static int auditoria(String[] args) throws Exception {
+        LocalDateTime desde = fecha(opcion(args, "--desde"));
+        LocalDateTime hasta = fecha(opcion(args, "--hasta"));
+        String usuario = opcion(args, "--usuario");
+        int usuarioId = usuario == null ? -1 : numero(usuario);
+        String producto = opcion(args, "--producto");
+        String tipo = opcion(args, "--tipo");
+
+        ZoneId zona = ZoneId.systemDefault();
+        long[] encontrados = {0};
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        DiarioAuditoria.recorrer(
+                desde == null ? 0 : desde.atZone(zona).toInstant().toEpochMilli(),
+                hasta == null ? Long.MAX_VALUE : hasta.atZone(zona).toInstant().toEpochMilli(),
+                r -> (usuarioId < 0 || r.usuarioId() == usuarioId)
+                        && (producto == null || producto.equalsIgnoreCase(r.producto()))
+                        && (tipo == null || tipo.equalsIgnoreCase(r.tipo())),
+                r -> {
+                    writer.printf("%s %-13s usuario=%d%s cantidad=%d%s%s%n",
+                            LocalDateTime.ofInstant(Instant.ofEpochMilli(r.instante()), zona).format(MOMENTO),
+                            r.tipo(), r.usuarioId(),
+                            r.producto() != null ? " producto=" + r.producto() : "",
+                            r.cantidad(),
+                            r.referencia() > 0 ? " id=" + r.referencia() : "",
+                            r.detalle() != null && !r.detalle().isEmpty() ? " " + r.detalle().replace('\n', ' ') : "");
+                    encontrados[0]++;
+                });
+        writer.flush();
+        System.err.println(encontrados[0] + " registros en " + DiarioAuditoria.getDirectorio().getAbsolutePath());
+        return OK;
+    }
+
+    /**
+     * serie: muestra dónde está un número de serie y en qué movimientos entró y salió.
+     */
+    private static int serie(String[] args) throws Exception {
+        String numero = RegistroSeries.normalizar(argumento(args, 1, "serie <numero>"));
+        RegistroSeries.Serie s = SerieDAO.buscar(numero);
+        if (s == null) {
+            System.err.println("La serie " + numero + " no está registrada.");
+            return FALLO;
+        }
+        System.out.println(s.numero() + " producto=" + s.productoCodigo()
+                + " estado=" + (s.enStock() ? "EN_STOCK" : "EGRESADA")
+                + " ingreso=" + s.movimientoIngreso()
+                + (s.enStock() ? "" : " egreso=" + s.movimientoEgreso()));
+        return OK;
+    }
+
+    /**
+     * Crea un respaldo de la base en la carpeta indicada o en una nueva dentro de respaldo.directorio.
+     */
+    private static int respaldar(String[] args) throws Exception {
+        System.out.println(args.length > 1 ? RespaldoBD.respaldar(new File(args[1])) : RespaldoBD.respaldar());
+        return OK;
+    }
+
+    /**
+     * Restaura un respaldo. Pide --confirmar porque borra el contenido actual de la base.
+     */
+    private static int restaurar(String[] args) throws Exception {
+        File carpeta = new File(argumento(args, 1, "restaurar <carpeta> --confirmar"));
+        if (!Arrays.asList(args).contains("--confirmar")) {
+            throw new IllegalArgumentException("La restauración reemplaza todos los datos de la base: agregue --confirmar.");
+        }
+        System.out.println(RespaldoBD.restaurar(carpeta));
+        return OK;
+    }
+
+    /**
+     * Valida el usuario con la contraseña leída y deja el intento en el diario de auditoría.
+     * @return usuario validado, o null si las credenciales son incorrectas
+     */
+    private static Usuario iniciarSesion(String login) {
+        Usuario usuario = UsuarioDAO.validarUsuario(login, clave());
+        DiarioAuditoria.registrarLogin(login, usuario);
+        return usuario;
+    }
+
+    /**
+     * Obtiene la contraseña de la variable de entorno GAMETECH_CLAVE o la pide por consola sin mostrarla.
+     */
+    private static String clave() {
+        String clave = System.getenv("GAMETECH_CLAVE");
+        if (clave != null) return clave;
+
+        Console consola = System.console();
+        if (consola == null) {
+            throw new IllegalArgumentException("Sin consola: defina la variable GAMETECH_CLAVE.");
+        }
+        char[] leida = consola.readPassword("Contraseña: ");
+        return leida == null ? "" : new String(leida);
+    }
+
+    /**
+     * Devuelve el argumento en la posición indicada o falla con el uso correcto.
+     */
+    private static String argumento(String[] args, int posicion, String uso) {
+        if (args.length <= posicion || args[posicion].startsWith("--")) {
+            throw new IllegalArgumentException("Uso: " + uso);
+        }
+        return args[posicion];
+    }
+
+    /**
+     * Devuelve el valor de una opción (ej: --desde 2025-01-01), o null si no está.
+     */
+    private static String opcion(String[] args, String nombre) {
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals(nombre)) return args[i + 1];
+        }
+        return null;
+    }
+
+    /**
+     * Convierte AAAA-MM-DD al inicio de ese día (null si no se indicó).
+     */
+    private static LocalDateTime fecha(String texto) {
+        if (texto == null) return null;
+        try {
+            return LocalDate.parse(texto).atStartOfDay();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Fecha inválida (AAAA-MM-DD): " + texto);
+        }
+    }
+
+    private static int numero(String texto) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido: " + texto);
+        }
+    }
+}
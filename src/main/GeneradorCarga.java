@@ -0,0 +1,390 @@
+package main; // Paquete principal del sistema
+
+import ConexionBD.CargaDAO;
+import ConexionBD.ProductoDAO;
+import ConexionBD.ProductoDAO.DiferenciaStock;
+import gametechstock.Ajuste;
+import gametechstock.Egreso;
+import gametechstock.Ingreso;
+import gametechstock.Movimiento;
+import gametechstock.Producto;
+import gametechstock.SistemaStock;
+import gametechstock.Usuario;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generador de carga sintética para planificar capacidad: simula varias terminales registrando
+ * ingresos, egresos y ajustes a la vez contra la base de datos configurada (pensado para una
+ * instancia local, nunca la de producción).
+ *
+ * Crea productos y usuarios de prueba (identificados por un prefijo), y cada terminal es un hilo
+ * con su propio SistemaStock que registra los movimientos con el mismo código que la aplicación
+ * (SistemaStock.aplicarLote, MovimientoDAO y el trigger de la base). Al final informa throughput,
+ * percentiles de latencia, deadlocks, esperas por bloqueo e invariantes de stock.
+ *
+ * Uso: java -cp <clases>:mysql-connector-j.jar main.GeneradorCarga [opciones]
+ *   --terminales N       hilos concurrentes (10)
+ *   --productos N        productos de prueba (200)
+ *   --segundos N         duración de la medición (60)
+ *   --mezcla I,E,A       proporción de ingresos, egresos y ajustes (45,45,10)
+ *   --lote N             movimientos por transacción (1; con más de 1 aparecen deadlocks entre lotes)
+ *   --concentracion X    1 = productos elegidos al azar uniforme; mayor = más carga sobre pocos productos (1)
+ *   --stockInicial N     stock con que se crean los productos (100000)
+ *   --prefijo P          prefijo de los datos de prueba (CARGA)
+ *   --limpiar            borra los datos de prueba y termina
+ *
+ * Termina con código 0 si se cumplieron todos los invariantes y 1 si no.
+ */
+public class GeneradorCarga {
+
+    // Códigos de error de MySQL
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    // Reintentos de una transacción abortada por deadlock o espera de bloqueo
+    private static final int REINTENTOS = 3;
+
+    // Opciones de la corrida
+    private int terminales = 10;
+    private int cantidadProductos = 200;
+    private int segundos = 60;
+    private int[] mezcla = {45, 45, 10};
+    private int lote = 1;
+    private double concentracion = 1;
+    private int stockInicial = 100_000;
+    private String prefijo = "CARGA";
+
+    // Variación de stock confirmada por producto (índice = número de producto - 1)
+    private AtomicLongArray variacion;
+
+    /**
+     * Resultados de una terminal (solo los escribe su hilo; se leen al terminar).
+     */
+    private static class Resultado {
+        long[] latencias = new long[1 << 14];
+        int transacciones;
+        long movimientos;
+        long deadlocks;
+        long esperasBloqueo;
+        long reintentos;
+        long rechazados;
+        long errores;
+        String ultimoError;
+
+        void registrarLatencia(long nanos) {
+            if (transacciones == latencias.length) latencias = Arrays.copyOf(latencias, latencias.length * 2);
+            latencias[transacciones++] = nanos;
+        }
+    }
+
+    public static void main(String[] args) {
+        GeneradorCarga generador = new GeneradorCarga();
+        try {
+            if (!generador.leerOpciones(args)) {
+                System.exit(2);
+            }
+            if (Arrays.asList(args).contains("--limpiar")) {
+                System.out.println(CargaDAO.limpiar(generador.prefijo));
+                System.exit(0);
+            }
+            System.exit(generador.ejecutar() ? 0 : 1);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Lee las opciones de la línea de comandos.
+     * @return false si alguna opción es inválida
+     */
+    private boolean leerOpciones(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--terminales" -> terminales = Integer.parseInt(args[++i]);
+                    case "--productos" -> cantidadProductos = Integer.parseInt(args[++i]);
+                    case "--segundos" -> segundos = Integer.parseInt(args[++i]);
+                    case "--lote" -> lote = Integer.parseInt(args[++i]);
+                    case "--concentracion" -> concentracion = Double.parseDouble(args[++i]);
+                    case "--stockInicial" -> stockInicial = Integer.parseInt(args[++i]);
+                    case "--prefijo" -> prefijo = args[++i];
+                    case "--mezcla" -> {
+                        String[] partes = args[++i].split(",");
+                        mezcla = new int[]{Integer.parseInt(partes[0]), Integer.parseInt(partes[1]), Integer.parseInt(partes[2])};
+                    }
+                    case "--limpiar" -> { }
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            if (terminales <= 0 || cantidadProductos <= 0 || segundos <= 0 || lote <= 0 || concentracion < 1
+                    || mezcla[0] + mezcla[1] + mezcla[2] <= 0 || prefijo.isBlank() || prefijo.length() > 15) {
+                throw new IllegalArgumentException("Valores fuera de rango.");
+            }
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Opciones inválidas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Prepara los datos, corre la carga e informa los resultados.
+     * @return true si se cumplieron los invariantes de stock
+     */
+    private boolean ejecutar() throws Exception {
+        System.out.printf("Preparando %d productos y %d terminales (prefijo %s)...%n", cantidadProductos, terminales, prefijo);
+        List<String> nuevos = CargaDAO.sembrar(prefijo, cantidadProductos, terminales);
+        List<Usuario> usuarios = CargaDAO.usuarios(prefijo).subList(0, terminales);
+
+        // Stock inicial de los productos nuevos: un ajuste por producto, en una sola transacción
+        SistemaStock preparacion = new SistemaStock();
+        preparacion.cargarCatalogo();
+        if (!nuevos.isEmpty()) {
+            List<Movimiento> iniciales = new ArrayList<>();
+            for (String codigo : nuevos) {
+                iniciales.add(new Ajuste(stockInicial, preparacion.buscarProductoPorCodigo(codigo), usuarios.get(0), "Stock inicial de carga"));
+            }
+            preparacion.aplicarLote(iniciales);
+        }
+
+        // Línea de base para los invariantes y los contadores del servidor
+        Map<String, Integer> stockInicio = CargaDAO.stockPorCodigo(prefijo);
+        Map<String, Long> bloqueosAntes = CargaDAO.contadoresBloqueos();
+        variacion = new AtomicLongArray(cantidadProductos);
+
+        // Cada terminal arranca con su propio catálogo, como una aplicación abierta en otra PC
+        Resultado[] resultados = new Resultado[terminales];
+        Thread[] hilos = new Thread[terminales];
+        CountDownLatch listos = new CountDownLatch(terminales);
+        CountDownLatch largada = new CountDownLatch(1);
+        long[] fin = new long[1];
+        for (int t = 0; t < terminales; t++) {
+            Resultado r = resultados[t] = new Resultado();
+            Usuario usuario = usuarios.get(t);
+            hilos[t] = new Thread(() -> {
+                SistemaStock sistema = new SistemaStock();
+                sistema.cargarCatalogo();
+                sistema.setUsuarioActual(usuario);
+                Producto[] productos = new Producto[cantidadProductos];
+                for (int i = 0; i < cantidadProductos; i++) {
+                    productos[i] = sistema.buscarProductoPorCodigo(CargaDAO.codigoProducto(prefijo, i + 1));
+                }
+                listos.countDown();
+                try {
+                    largada.await();
+                    terminal(sistema, usuario, productos, fin[0], r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "terminal-" + (t + 1));
+            hilos[t].start();
+        }
+
+        listos.await();
+        long inicio = System.nanoTime();
+        fin[0] = inicio + segundos * 1_000_000_000L;
+        largada.countDown();
+
+        // Avance cada 5 segundos mientras corren las terminales
+        long anteriores = 0;
+        while (!terminaron(hilos, 5000)) {
+            long total = 0;
+            for (Resultado r : resultados) total += r.transacciones;
+            System.out.printf("  %3ds  %,d transacciones (%,.0f tx/s)%n",
+                    (System.nanoTime() - inicio) / 1_000_000_000L, total, (total - anteriores) / 5.0);
+            anteriores = total;
+        }
+        double duracion = (System.nanoTime() - inicio) / 1e9;
+
+        informar(resultados, duracion, bloqueosAntes, CargaDAO.contadoresBloqueos());
+        return verificarInvariantes(stockInicio);
+    }
+
+    /**
+     * Espera a que terminen todos los hilos, como mucho el tiempo indicado.
+     * @return true si terminaron todos
+     */
+    private static boolean terminaron(Thread[] hilos, long esperaMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + esperaMs;
+        for (Thread h : hilos) {
+            h.join(Math.max(1, limite - System.currentTimeMillis()));
+            if (h.isAlive()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Bucle de una terminal: arma lotes al azar según la mezcla y los registra hasta el fin de la medición.
+     */
+    private void terminal(SistemaStock sistema, Usuario usuario, Producto[] productos, long fin, Resultado r) {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int total = mezcla[0] + mezcla[1] + mezcla[2];
+        int[] indices = new int[lote];
+
+        while (System.nanoTime() < fin) {
+            List<Movimiento> movimientos = new ArrayList<>(lote);
+            long[] deltas = new long[lote];
+            for (int i = 0; i < lote; i++) {
+                int indice = (int) (productos.length * Math.pow(azar.nextDouble(), concentracion));
+                Producto p = productos[indice];
+                int cantidad = azar.nextInt(1, 6);
+                int tipo = azar.nextInt(total);
+                if (tipo < mezcla[0]) {
+                    movimientos.add(new Ingreso(cantidad, p, usuario));
+                    deltas[i] = cantidad;
+                } else if (tipo < mezcla[0] + mezcla[1]) {
+                    movimientos.add(new Egreso(cantidad, p, usuario));
+                    deltas[i] = -cantidad;
+                } else {
+                    int ajuste = azar.nextBoolean() ? cantidad : -cantidad;
+                    movimientos.add(new Ajuste(ajuste, p, usuario, "Carga sintética"));
+                    deltas[i] = ajuste;
+                }
+                indices[i] = indice;
+            }
+
+            long t0 = System.nanoTime();
+            if (registrar(sistema, movimientos, r)) {
+                r.registrarLatencia(System.nanoTime() - t0);
+                r.movimientos += lote;
+                for (int i = 0; i < lote; i++) variacion.addAndGet(indices[i], deltas[i]);
+            }
+        }
+    }
+
+    /**
+     * Registra un lote reintentando si la base lo abortó por deadlock o por espera de bloqueo.
+     * @return true si el lote quedó confirmado
+     */
+    private static boolean registrar(SistemaStock sistema, List<Movimiento> movimientos, Resultado r) {
+        for (int intento = 0; ; intento++) {
+            try {
+                sistema.aplicarLote(movimientos);
+                return true;
+            } catch (Exception e) {
+                int codigo = codigoMySQL(e);
+                if (codigo == ER_LOCK_DEADLOCK) r.deadlocks++;
+                else if (codigo == ER_LOCK_WAIT_TIMEOUT) r.esperasBloqueo++;
+                else if (codigo == 0 && !(e instanceof SQLException)) {
+                    r.rechazados++; // Validación del dominio (ej: stock insuficiente en esta terminal)
+                    return false;
+                } else {
+                    r.errores++;
+                    r.ultimoError = e.getMessage();
+                    return false;
+                }
+                if (intento == REINTENTOS) return false;
+                r.reintentos++;
+                for (Movimiento m : movimientos) m.setId(0);
+            }
+        }
+    }
+
+    /**
+     * Busca el código de error de MySQL en la cadena de causas (0 si no hay).
+     */
+    private static int codigoMySQL(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException s) {
+                for (SQLException x = s; x != null; x = x.getNextException()) {
+                    if (x.getErrorCode() != 0) return x.getErrorCode();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Imprime throughput, latencias, errores y contadores de bloqueos del servidor.
+     */
+    private void informar(Resultado[] resultados, double duracion, Map<String, Long> antes, Map<String, Long> despues) {
+        long transacciones = 0, movimientos = 0, deadlocks = 0, esperas = 0, reintentos = 0, rechazados = 0, errores = 0;
+        String ultimoError = null;
+        for (Resultado r : resultados) {
+            transacciones += r.transacciones;
+            movimientos += r.movimientos;
+            deadlocks += r.deadlocks;
+            esperas += r.esperasBloqueo;
+            reintentos += r.reintentos;
+            rechazados += r.rechazados;
+            errores += r.errores;
+            if (r.ultimoError != null) ultimoError = r.ultimoError;
+        }
+
+        long[] latencias = new long[(int) transacciones];
+        int pos = 0;
+        for (Resultado r : resultados) {
+            System.arraycopy(r.latencias, 0, latencias, pos, r.transacciones);
+            pos += r.transacciones;
+        }
+        Arrays.sort(latencias);
+
+        System.out.println();
+        System.out.printf("Terminales: %d   Productos: %d   Lote: %d   Mezcla I/E/A: %d/%d/%d   Concentración: %.1f%n",
+                terminales, cantidadProductos, lote, mezcla[0], mezcla[1], mezcla[2], concentracion);
+        System.out.printf("Duración: %.1f s%n", duracion);
+        System.out.printf("Transacciones confirmadas: %,d (%,.1f tx/s)   Movimientos: %,d (%,.1f mov/s)%n",
+                transacciones, transacciones / duracion, movimientos, movimientos / duracion);
+        if (latencias.length > 0) {
+            System.out.printf("Latencia (ms): p50 %.2f   p90 %.2f   p99 %.2f   p99.9 %.2f   máx %.2f%n",
+                    percentil(latencias, 0.50), percentil(latencias, 0.90), percentil(latencias, 0.99),
+                    percentil(latencias, 0.999), latencias[latencias.length - 1] / 1e6);
+        }
+        System.out.printf("Deadlocks: %d   Esperas de bloqueo vencidas: %d   Reintentos: %d   Rechazados por stock: %d   Errores: %d%n",
+                deadlocks, esperas, reintentos, rechazados, errores);
+        if (ultimoError != null) System.out.println("Último error: " + ultimoError);
+
+        // Contención en el servidor (incluye las filas de productos que actualiza el trigger)
+        System.out.println("Contadores de InnoDB durante la corrida:");
+        for (Map.Entry<String, Long> e : despues.entrySet()) {
+            if (e.getKey().equals("Innodb_row_lock_current_waits")) continue;
+            System.out.printf("  %-22s %,d%n", e.getKey(), e.getValue() - antes.getOrDefault(e.getKey(), 0L));
+        }
+    }
+
+    /**
+     * Percentil de latencias ordenadas, en milisegundos.
+     */
+    private static double percentil(long[] ordenadas, double p) {
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(i, ordenadas.length - 1))] / 1e6;
+    }
+
+    /**
+     * Verifica al final de la corrida:
+     * 1) que el stock de cada producto sea el inicial más lo confirmado por las terminales (sin actualizaciones perdidas),
+     * 2) que coincida con la suma de sus movimientos (el trigger aplicó cada movimiento una vez),
+     * 3) que ningún stock haya quedado negativo.
+     * @return true si se cumplen los tres
+     */
+    private boolean verificarInvariantes(Map<String, Integer> stockInicio) throws SQLException {
+        Map<String, Integer> stockFin = CargaDAO.stockPorCodigo(prefijo);
+
+        int perdidas = 0, negativos = 0;
+        for (int i = 0; i < cantidadProductos; i++) {
+            String codigo = CargaDAO.codigoProducto(prefijo, i + 1);
+            long esperado = stockInicio.getOrDefault(codigo, 0) + variacion.get(i);
+            int actual = stockFin.getOrDefault(codigo, 0);
+            if (actual != esperado) {
+                if (perdidas++ < 10) System.out.printf("  %s: stock %d, esperado %d%n", codigo, actual, esperado);
+            }
+            if (actual < 0) negativos++;
+        }
+
+        int diferencias = 0;
+        for (DiferenciaStock d : ProductoDAO.verificarStock()) {
+            if (d.codigo().startsWith(prefijo)) diferencias++;
+        }
+
+        System.out.println("Invariantes:");
+        System.out.println("  Stock = inicial + confirmado:    " + (perdidas == 0 ? "OK" : perdidas + " productos con diferencias"));
+        System.out.println("  Stock = suma de movimientos:     " + (diferencias == 0 ? "OK" : diferencias + " productos con diferencias"));
+        System.out.println("  Sin stock negativo:              " + (negativos == 0 ? "OK" : negativos + " productos negativos"));
+        return perdidas == 0 && diferencias == 0 && negativos == 0;
+    }
+}
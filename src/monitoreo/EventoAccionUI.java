@@ -0,0 +1,26 @@
+package monitoreo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR de una acción de la interfaz (botón, Enter en un campo, selección en un combo).
+ * Mide cuánto tiempo ocupó el hilo de JavaFX atendiéndola: mientras dura, la ventana no responde.
+ */
+@Name("gametech.AccionUI")
+@Label("Acción de la interfaz")
+@Category({"GametechStock", "Interfaz"})
+@Description("Manejador de una acción en el hilo de JavaFX")
+@StackTrace(false)
+public class EventoAccionUI extends jdk.jfr.Event {
+
+    @Label("Ventana")
+    public String ventana;
+
+    @Label("Acción")
+    @Description("Texto del control (o su tipo si no tiene texto)")
+    public String accion;
+}
@@ -0,0 +1,61 @@
+package monitoreo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR de una operación de base de datos (un método de ConexionBD o de un DAO).
+ * La duración incluye abrir la conexión y, en las inserciones de movimientos, el trigger que
+ * actualiza el stock: comparándola con la de ConexionBD.obtenerConexion se ve si el tiempo se va
+ * en conectar o en la consulta.
+ *
+ * Se usa como recurso de un try, así se registra también cuando la operación falla:
+ * <pre>
+ * try (EventoBD evento = EventoBD.iniciar("ProductoDAO.obtenerProductos");
+ *      Connection conn = ConexionBD.obtenerConexion()) {
+ *     ...
+ *     evento.filas = productos.size();
+ * }
+ * </pre>
+ */
+@Name("gametech.OperacionBD")
+@Label("Operación de base de datos")
+@Category({"GametechStock", "Base de datos"})
+@Description("Método de ConexionBD o de un DAO, con su duración y las filas leídas o escritas")
+@StackTrace(false)
+public class EventoBD extends jdk.jfr.Event implements AutoCloseable {
+
+    @Label("Operación")
+    public String operacion;
+
+    @Label("Producto")
+    @Description("Código del producto (el del primer movimiento si son varios); vacío si no corresponde")
+    public String productoCodigo;
+
+    @Label("Filas")
+    @Description("Filas leídas o escritas (-1 si la operación no terminó)")
+    public long filas = -1;
+
+    /**
+     * Empieza a medir una operación.
+     * @param operacion clase y método (ej: "MovimientoDAO.guardarMovimientos")
+     * @return evento en curso (se registra al cerrarlo)
+     */
+    public static EventoBD iniciar(String operacion) {
+        EventoBD evento = new EventoBD();
+        evento.operacion = operacion;
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Termina la medición y registra el evento (si la grabación lo pide).
+     */
+    @Override
+    public void close() {
+        commit();
+    }
+}
@@ -0,0 +1,63 @@
+package monitoreo;
+
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR de una exportación a archivo (CSV de productos o movimientos, instantánea,
+ * exportación incremental).
+ */
+@Name("gametech.Exportacion")
+@Label("Exportación")
+@Category({"GametechStock", "Exportaciones"})
+@Description("Exportación a archivo, con las filas escritas y el tamaño del archivo")
+@StackTrace(false)
+public class EventoExportacion extends jdk.jfr.Event implements AutoCloseable {
+
+    @Label("Tipo")
+    public String tipo;
+
+    @Label("Archivo")
+    public String archivo;
+
+    @Label("Filas")
+    @Description("Filas escritas (-1 si la exportación no terminó)")
+    public long filas = -1;
+
+    @Label("Tamaño")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Empieza a medir una exportación.
+     * @param tipo qué se exporta (ej: "productos")
+     * @param archivo archivo o carpeta de destino
+     * @return evento en curso (se registra al cerrarlo)
+     */
+    public static EventoExportacion iniciar(String tipo, String archivo) {
+        EventoExportacion evento = new EventoExportacion();
+        evento.tipo = tipo;
+        evento.archivo = archivo;
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Termina la medición y registra el evento (si la grabación lo pide), con el tamaño del archivo
+     * ya cerrado (el evento se declara como primer recurso del try, así se cierra último).
+     */
+    @Override
+    public void close() {
+        end();
+        if (shouldCommit()) {
+            File destino = new File(archivo);
+            if (destino.isFile()) bytes = destino.length();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package monitoreo;
+
+import gametechstock.Movimiento;
+import gametechstock.Producto;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR del registro de movimientos de stock: validación, aplicación en memoria y guardado
+ * (un lote, un remito o un movimiento suelto). El guardado aparece además como EventoBD.
+ */
+@Name("gametech.Movimiento")
+@Label("Registro de movimientos")
+@Category({"GametechStock", "Stock"})
+@Description("Lote de movimientos aplicado en memoria y guardado en la base")
+@StackTrace(false)
+public class EventoMovimiento extends jdk.jfr.Event implements AutoCloseable {
+
+    @Label("Tipo")
+    @Description("INGRESO, EGRESO, AJUSTE o MIXTO si el lote tiene varios tipos")
+    public String tipo;
+
+    @Label("Producto")
+    @Description("Código del producto del primer movimiento")
+    public String productoCodigo;
+
+    @Label("Productos")
+    public int productos;
+
+    @Label("Movimientos")
+    public int movimientos;
+
+    @Label("Unidades")
+    @Description("Suma de las cantidades (egresos en positivo)")
+    public long unidades;
+
+    @Label("Remito")
+    public boolean remito;
+
+    @Label("Registrado")
+    @Description("false si la validación o el guardado fallaron")
+    public boolean registrado;
+
+    /**
+     * Empieza a medir el registro de un lote.
+     * Los datos del lote solo se calculan si la grabación pide el evento.
+     * @param lote movimientos a registrar
+     * @param remito true si el lote es un remito
+     * @return evento en curso (se registra al cerrarlo)
+     */
+    public static EventoMovimiento iniciar(List<? extends Movimiento> lote, boolean remito) {
+        EventoMovimiento evento = new EventoMovimiento();
+        if (evento.isEnabled() && !lote.isEmpty()) {
+            Set<Producto> distintos = Collections.newSetFromMap(new IdentityHashMap<>());
+            String tipo = lote.get(0).getTipo();
+            for (Movimiento m : lote) {
+                distintos.add(m.getProducto());
+                evento.unidades += Math.abs(m.getCantidad());
+                if (!tipo.equals(m.getTipo())) tipo = "MIXTO";
+            }
+            evento.tipo = tipo;
+            evento.productoCodigo = lote.get(0).getProducto().getCodigo();
+            evento.productos = distintos.size();
+            evento.movimientos = lote.size();
+            evento.remito = remito;
+        }
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Termina la medición y registra el evento (si la grabación lo pide).
+     */
+    @Override
+    public void close() {
+        commit();
+    }
+}
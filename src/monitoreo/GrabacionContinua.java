@@ -0,0 +1,91 @@
+package monitoreo;
+
+import gametechstock.Configuracion;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Grabación continua de Java Flight Recorder.
+ * Con monitoreo.activo=true (por defecto) la aplicación graba desde que arranca, con la
+ * configuración "default" de la JVM (pensada para producción, sobrecarga de alrededor del 1%)
+ * más los eventos propios de este paquete. Solo se conservan los últimos minutos en disco
+ * (monitoreo.minutos, monitoreo.tamanioMaximoMB): cuando una terminal "anda lenta", se vuelca la
+ * grabación a un archivo .jfr y se abre con JDK Mission Control para ver si el tiempo se fue en
+ * la base de datos, en el recolector de basura o en el hilo de JavaFX.
+ */
+public class GrabacionContinua {
+
+    // Formato del nombre de los archivos volcados
+    private static final DateTimeFormatter NOMBRE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Grabación en curso (null si está desactivada o no se pudo iniciar)
+    private static Recording grabacion;
+
+    /**
+     * Inicia la grabación continua si está activada (no hace nada si ya está en curso).
+     */
+    public static synchronized void iniciar() {
+        if (grabacion != null || !Boolean.parseBoolean(Configuracion.get("monitoreo.activo", "true"))) return;
+        try {
+            Recording nueva = new Recording(Configuration.getConfiguration("default"));
+            nueva.setName("GametechStock");
+            nueva.enable(EventoMovimiento.class);
+            nueva.enable(EventoBD.class);
+            nueva.enable(EventoExportacion.class);
+            nueva.enable(EventoAccionUI.class);
+            nueva.setToDisk(true); // El búfer circular queda en disco, no en memoria
+            nueva.setMaxAge(Duration.ofMinutes(Configuracion.getInt("monitoreo.minutos", 60)));
+            nueva.setMaxSize(Configuracion.getInt("monitoreo.tamanioMaximoMB", 64) * 1024L * 1024L);
+            nueva.start();
+            grabacion = nueva;
+        } catch (Exception e) {
+            e.printStackTrace(); // La aplicación funciona igual sin grabación
+        }
+    }
+
+    /**
+     * Indica si la grabación continua está en curso.
+     */
+    public static synchronized boolean activa() {
+        return grabacion != null;
+    }
+
+    /**
+     * Carpeta donde se vuelcan las grabaciones (configurable con monitoreo.directorio).
+     */
+    public static File getDirectorio() {
+        return new File(Configuracion.get("monitoreo.directorio", "grabaciones"));
+    }
+
+    /**
+     * Copia lo grabado hasta ahora (los últimos minutos) a un archivo .jfr; la grabación sigue.
+     * @return archivo generado
+     * @throws IOException si la grabación no está activa o no se pudo escribir el archivo
+     */
+    public static synchronized File volcar() throws IOException {
+        if (grabacion == null) {
+            throw new IOException("La grabación de rendimiento no está activa (monitoreo.activo).");
+        }
+        File directorio = getDirectorio();
+        if (!directorio.isDirectory() && !directorio.mkdirs()) {
+            throw new IOException("No se pudo crear la carpeta " + directorio.getPath());
+        }
+        File archivo = new File(directorio, "gametech-" + LocalDateTime.now().format(NOMBRE) + ".jfr");
+        grabacion.dump(archivo.toPath());
+        return archivo;
+    }
+
+    /**
+     * Detiene la grabación (al cerrar la aplicación) y descarta lo grabado.
+     */
+    public static synchronized void detener() {
+        if (grabacion == null) return;
+        grabacion.close();
+        grabacion = null;
+    }
+}
@@ -0,0 +1,51 @@
+package view;
+
+import java.util.function.Function;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.scene.control.TableColumn;
+
+/**
+ * Fábrica de columnas de tabla cuyo valor se obtiene con una función (sin reflexión).
+ */
+public class Columnas {
+
+    /**
+     * Crea una columna de texto.
+     * @param titulo encabezado de la columna
+     * @param valor función que obtiene el texto de cada fila
+     * @return columna configurada
+     */
+    public static <T> TableColumn<T, String> texto(String titulo, Function<T, String> valor) {
+        TableColumn<T, String> col = new TableColumn<>(titulo);
+        col.setCellValueFactory(c -> new SimpleStringProperty(valor.apply(c.getValue())));
+        return col;
+    }
+
+    /**
+     * Crea una columna numérica (se ordena como número y no como texto).
+     * @param titulo encabezado de la columna
+     * @param valor función que obtiene el número de cada fila
+     * @return columna configurada
+     */
+    public static <T> TableColumn<T, Number> numero(String titulo, Function<T, Number> valor) {
+        TableColumn<T, Number> col = new TableColumn<>(titulo);
+        col.setCellValueFactory(c -> new SimpleObjectProperty<>(valor.apply(c.getValue())));
+        col.setComparator((a, b) -> Double.compare(a.doubleValue(), b.doubleValue()));
+        return col;
+    }
+
+    /**
+     * Crea una columna atada a una propiedad observable: la celda se actualiza sola cuando cambia
+     * (ej: el stock del modelo compartido), sin refrescar la tabla.
+     * @param titulo encabezado de la columna
+     * @param valor función que obtiene la propiedad de cada fila
+     * @return columna configurada
+     */
+    public static <T, V> TableColumn<T, V> observable(String titulo, Function<T, ObservableValue<V>> valor) {
+        TableColumn<T, V> col = new TableColumn<>(titulo);
+        col.setCellValueFactory(c -> valor.apply(c.getValue()));
+        return col;
+    }
+}
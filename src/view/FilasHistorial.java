@@ -0,0 +1,99 @@
+package view;
+
+import gametechstock.HistorialMovimientos;
+import gametechstock.HistorialMovimientos.Orden;
+import gametechstock.HistorialMovimientos.Vista;
+import java.util.Arrays;
+import java.util.Objects;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Filas de la tabla del historial: una lista observable respaldada por un arreglo de posiciones
+ * del historial (o por las posiciones en orden cronológico, sin arreglo, si no se ordenó).
+ * No copia los movimientos ni guarda un objeto por fila: las vistas se crean al pedirlas y se
+ * reutilizan las de las últimas filas pedidas (las que la tabla está mostrando).
+ * Ordenar avisa a la tabla con una permutación, así conserva la selección. Se usa desde el hilo de JavaFX.
+ */
+class FilasHistorial extends ObservableListBase<Vista> {
+
+    // Tamaño de la caché de vistas (potencia de 2, mayor que las filas visibles)
+    private static final int CACHE = 256;
+
+    private final HistorialMovimientos historial;
+
+    // Cantidad de filas publicadas a la tabla (puede quedar atrás del historial hasta actualizar())
+    private int filas;
+
+    // Posiciones del historial en el orden mostrado; null = orden cronológico
+    private int[] orden;
+    private Orden criterio;
+    private boolean ascendente = true;
+
+    // Vistas recientes, indexadas por posición del historial
+    private final Vista[] vistas = new Vista[CACHE];
+
+    FilasHistorial(HistorialMovimientos historial) {
+        this.historial = historial;
+        this.filas = historial.size();
+    }
+
+    @Override
+    public Vista get(int i) {
+        Objects.checkIndex(i, filas);
+        int posicion = orden == null ? i : orden[i];
+        int ranura = posicion & (CACHE - 1);
+        Vista v = vistas[ranura];
+        if (v == null || v.getPosicion() != posicion) {
+            v = historial.vista(posicion);
+            vistas[ranura] = v;
+        }
+        return v;
+    }
+
+    @Override
+    public int size() {
+        return filas;
+    }
+
+    /**
+     * Agrega a la tabla los movimientos registrados desde la última vez. Si hay un orden elegido,
+     * las filas nuevas se agregan al final y después se reordena todo.
+     */
+    void actualizar() {
+        int n = historial.size();
+        if (n == filas) return;
+        int anterior = filas;
+        if (orden != null) {
+            orden = Arrays.copyOf(orden, n);
+            for (int i = anterior; i < n; i++) orden[i] = i;
+        }
+        filas = n;
+        beginChange();
+        nextAdd(anterior, n);
+        endChange();
+        if (criterio != null) ordenar(criterio, ascendente);
+    }
+
+    /**
+     * Ordena las filas publicadas.
+     * @param criterio criterio de orden, o null para volver al orden cronológico
+     * @param ascendente true para orden ascendente
+     */
+    void ordenar(Orden criterio, boolean ascendente) {
+        int[] nuevo = criterio == null ? null : historial.ordenar(criterio, ascendente, filas);
+
+        // Permutación: índice anterior de cada fila -> índice nuevo
+        int[] nuevoIndice = new int[filas];
+        for (int j = 0; j < filas; j++) nuevoIndice[nuevo == null ? j : nuevo[j]] = j;
+        int[] permutacion = new int[filas];
+        for (int i = 0; i < filas; i++) permutacion[i] = nuevoIndice[orden == null ? i : orden[i]];
+
+        this.orden = nuevo;
+        this.criterio = criterio;
+        this.ascendente = ascendente;
+        if (filas == 0) return;
+        beginChange();
+        nextPermutation(0, filas, permutacion);
+        endChange();
+    }
+}
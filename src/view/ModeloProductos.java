@@ -0,0 +1,177 @@
+package view;
+
+import gametechstock.OyenteStock;
+import gametechstock.Producto;
+import gametechstock.SistemaStock;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javafx.application.Platform;
+import javafx.beans.Observable;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableView;
+
+/**
+ * Modelo observable de productos compartido por todas las ventanas de un SistemaStock.
+ * Hay una sola lista de productos y una propiedad de stock (y de estado crítico) por producto;
+ * cada ventana arma encima una vista filtrada y ordenada (ver {@link Vista}) que no copia la lista.
+ * Los cambios llegan por OyenteStock (movimientos propios, de otras terminales y productos nuevos)
+ * y actualizan las celdas visibles en todas las ventanas abiertas sin refrescar las tablas.
+ * La lista avisa el cambio de stock o de estado de cada producto, así las vistas ordenadas por esas
+ * columnas reubican la fila.
+ *
+ * Vive en la interfaz y no en SistemaStock porque el sistema también lo usa la consola, que no carga JavaFX.
+ */
+public class ModeloProductos implements OyenteStock {
+
+    // Un modelo por sistema (al cerrar sesión el sistema anterior deja de estar referenciado)
+    private static final Map<SistemaStock, ModeloProductos> MODELOS = new WeakHashMap<>();
+
+    /**
+     * Devuelve el modelo compartido del sistema (lo crea la primera vez).
+     * Debe llamarse desde el hilo de JavaFX.
+     * @param sistema sistema de stock activo
+     * @return modelo de productos del sistema
+     */
+    public static ModeloProductos de(SistemaStock sistema) {
+        return MODELOS.computeIfAbsent(sistema, ModeloProductos::new);
+    }
+
+    // Lista compartida (una sola copia para todas las ventanas) y su versión de solo lectura
+    private final ObservableList<Producto> productos;
+    private final ObservableList<Producto> soloLectura;
+
+    // Propiedades observables de cada producto
+    private final Map<Producto, ReadOnlyIntegerWrapper> stock = new IdentityHashMap<>();
+    private final Map<Producto, ReadOnlyBooleanWrapper> critico = new IdentityHashMap<>();
+
+    private ModeloProductos(SistemaStock sistema) {
+        List<Producto> iniciales = sistema.getProductos();
+        for (Producto p : iniciales) {
+            stock.put(p, new ReadOnlyIntegerWrapper(p.getStockActual()));
+            critico.put(p, new ReadOnlyBooleanWrapper(p.esCritico()));
+        }
+        // Las propiedades tienen que existir antes de agregar el producto (el extractor las pide al agregarlo)
+        this.productos = FXCollections.observableArrayList(p -> new Observable[]{stockProperty(p), criticoProperty(p)});
+        this.productos.addAll(iniciales);
+        this.soloLectura = FXCollections.unmodifiableObservableList(productos);
+        sistema.agregarOyenteStock(this);
+    }
+
+    /**
+     * Productos del sistema (lista compartida, de solo lectura).
+     */
+    public ObservableList<Producto> getProductos() {
+        return soloLectura;
+    }
+
+    /**
+     * Stock actual observable de un producto.
+     * @param p producto del modelo
+     * @return propiedad que cambia con cada movimiento del producto
+     */
+    public ReadOnlyIntegerProperty stockProperty(Producto p) {
+        return stock.get(p).getReadOnlyProperty();
+    }
+
+    /**
+     * Indica de forma observable si el producto está en stock crítico (cambia con el stock o el mínimo).
+     * @param p producto del modelo
+     */
+    public ReadOnlyBooleanProperty criticoProperty(Producto p) {
+        return critico.get(p).getReadOnlyProperty();
+    }
+
+    /**
+     * Actualiza las propiedades de un producto (o lo agrega si es nuevo).
+     * Los cambios que no pasan por un movimiento (ej: el stock mínimo) se avisan llamando a este método.
+     * @param p producto con los datos ya actualizados
+     */
+    @Override
+    public void productoActualizado(Producto p) {
+        // Los oyentes se llaman en el hilo que aplica el cambio: las propiedades solo se tocan en el de JavaFX
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> productoActualizado(p));
+            return;
+        }
+        ReadOnlyIntegerWrapper s = stock.get(p);
+        if (s == null) {
+            stock.put(p, new ReadOnlyIntegerWrapper(p.getStockActual()));
+            critico.put(p, new ReadOnlyBooleanWrapper(p.esCritico()));
+            productos.add(p);
+            return;
+        }
+        s.set(p.getStockActual());
+        critico.get(p).set(p.esCritico());
+    }
+
+    /**
+     * Crea una vista para una tabla: filtra con el buscador y ordena por la columna elegida
+     * (o por relevancia mientras no se elija ninguna), sin copiar la lista compartida.
+     * @param tabla tabla que muestra la vista (queda con la vista como items)
+     * @param sistema sistema donde se resuelven las búsquedas
+     * @return vista asociada a la tabla
+     */
+    public Vista vista(TableView<Producto> tabla, SistemaStock sistema) {
+        Vista vista = new Vista(sistema);
+        vista.ordenados.comparatorProperty().bind(Bindings.createObjectBinding(
+                () -> tabla.getComparator() != null ? tabla.getComparator() : vista.relevancia.get(),
+                tabla.comparatorProperty(), vista.relevancia));
+        // El orden lo aplica la SortedList (la política por defecto exige que esté atada solo a la tabla)
+        tabla.setSortPolicy(t -> true);
+        tabla.setItems(vista.ordenados);
+        return vista;
+    }
+
+    /**
+     * Vista filtrada y ordenada de la lista compartida para una ventana.
+     */
+    public class Vista {
+        private final SistemaStock sistema;
+        private final FilteredList<Producto> filtrados = new FilteredList<>(productos);
+        private final SortedList<Producto> ordenados = new SortedList<>(filtrados);
+
+        // Orden de los resultados del buscador (null = orden de la lista compartida)
+        private final ObjectProperty<Comparator<Producto>> relevancia = new SimpleObjectProperty<>();
+
+        private Vista(SistemaStock sistema) {
+            this.sistema = sistema;
+        }
+
+        /**
+         * Filtra por el texto del buscador (nombre, código o categoría, con el índice del sistema).
+         * @param texto texto escrito por el usuario (vacío muestra todos)
+         */
+        public void buscar(String texto) {
+            if (texto == null || texto.isBlank()) {
+                filtrados.setPredicate(null);
+                relevancia.set(null);
+                return;
+            }
+            List<Producto> encontrados = sistema.buscarProductos(texto);
+            Map<Producto, Integer> posicion = new IdentityHashMap<>(encontrados.size() * 2);
+            for (int i = 0; i < encontrados.size(); i++) posicion.put(encontrados.get(i), i);
+            filtrados.setPredicate(posicion::containsKey);
+            relevancia.set(Comparator.comparingInt(posicion::get));
+        }
+
+        /**
+         * Productos visibles, en el orden de la tabla.
+         */
+        public ObservableList<Producto> getProductos() {
+            return ordenados;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package view;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import javafx.collections.ListChangeListener;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.control.Labeled;
+import javafx.scene.control.TextInputControl;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import monitoreo.EventoAccionUI;
+
+/**
+ * Mide las acciones de la interfaz (botones, Enter en un campo, selección en un combo) con eventos
+ * de JFR (ver monitoreo.EventoAccionUI), sin tocar los manejadores de cada ventana.
+ * En cada ventana que se abre se instala un filtro que empieza a medir antes de que el control
+ * reciba la acción y un manejador que la cierra cuando la acción vuelve a subir hasta la ventana,
+ * así la duración es la del manejador del control. Todo ocurre en el hilo de JavaFX.
+ */
+public class MonitorAcciones {
+
+    // Acciones en curso, por control (un manejador puede abrir un diálogo y atender otras acciones adentro).
+    // Si un manejador consume la acción, FIN no llega a quitarla: con claves débiles esa entrada no
+    // retiene el control de una ventana cerrada (los controles no redefinen equals, se comparan por identidad)
+    private static final Map<Object, EventoAccionUI> enCurso = new WeakHashMap<>();
+
+    // Empieza a medir la acción (solo si la grabación tiene el evento activado)
+    private static final EventHandler<ActionEvent> INICIO = e -> {
+        EventoAccionUI evento = new EventoAccionUI();
+        if (!evento.isEnabled()) return;
+        evento.begin();
+        // Si un manejador consumió la acción anterior de este control, esa medición se descarta acá
+        enCurso.put(e.getTarget(), evento);
+    };
+
+    // Cierra la medición cuando la acción llega de vuelta a la ventana
+    private static final EventHandler<ActionEvent> FIN = e -> {
+        EventoAccionUI evento = enCurso.remove(e.getTarget());
+        if (evento == null) return;
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.ventana = e.getSource() instanceof Stage s && s.getTitle() != null ? s.getTitle() : "";
+            evento.accion = describir(e.getTarget());
+            evento.commit();
+        }
+    };
+
+    // Evita instalarlo dos veces
+    private static boolean instalado;
+
+    /**
+     * Instala la medición en las ventanas abiertas y en las que se abran después.
+     * Se llama una vez al iniciar la interfaz.
+     */
+    public static void instalar() {
+        if (instalado) return;
+        instalado = true;
+        Window.getWindows().forEach(MonitorAcciones::observar);
+        Window.getWindows().addListener((ListChangeListener<Window>) cambio -> {
+            while (cambio.next()) {
+                cambio.getAddedSubList().forEach(MonitorAcciones::observar);
+            }
+        });
+    }
+
+    /**
+     * Agrega el filtro y el manejador a una ventana (las ventanas cacheadas del menú se reabren:
+     * se quitan antes de agregarlos para no medir dos veces).
+     */
+    private static void observar(Window ventana) {
+        ventana.removeEventFilter(ActionEvent.ACTION, INICIO);
+        ventana.removeEventHandler(ActionEvent.ACTION, FIN);
+        ventana.addEventFilter(ActionEvent.ACTION, INICIO);
+        ventana.addEventHandler(ActionEvent.ACTION, FIN);
+    }
+
+    /**
+     * Nombre de la acción: el texto del control, o su tipo si no tiene texto.
+     */
+    private static String describir(Object control) {
+        if (control instanceof Labeled l && l.getText() != null && !l.getText().isBlank()) {
+            return l.getText();
+        }
+        if (control instanceof TextInputControl t && t.getPromptText() != null && !t.getPromptText().isBlank()) {
+            return t.getClass().getSimpleName() + " (" + t.getPromptText() + ")";
+        }
+        return control.getClass().getSimpleName();
+    }
+}
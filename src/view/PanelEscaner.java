@@ -0,0 +1,114 @@
+package view;
+
+import gametechstock.SesionEscaneo;
+import gametechstock.SistemaStock;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+/**
+ * Panel de "modo escáner" para las ventanas de ingreso y egreso.
+ * El lector de códigos de barras funciona como un teclado: escribe el código y envía Enter.
+ * Cada lectura se acumula en memoria y la sesión completa se registra al confirmar.
+ */
+public class PanelEscaner {
+
+    // Sesión que acumula las lecturas
+    private final SesionEscaneo sesion;
+
+    /**
+     * Crea el panel de escaneo.
+     * @param sistema sistema de stock activo
+     * @param tipo "INGRESO" o "EGRESO"
+     */
+    public PanelEscaner(SistemaStock sistema, String tipo) {
+        this.sesion = new SesionEscaneo(sistema, tipo);
+    }
+
+    /**
+     * Construye el panel (plegado por defecto para no ocupar lugar en la carga manual).
+     * @return panel listo para agregar al layout de la ventana
+     */
+    public TitledPane crear() {
+        // --- Campo que recibe las lecturas del escáner ---
+        TextField txtCodigo = new TextField();
+        txtCodigo.setPromptText("Escanear código de producto o número de serie");
+
+        // --- Lista con las líneas acumuladas ---
+        ObservableList<SesionEscaneo.Linea> items = FXCollections.observableArrayList();
+        ListView<SesionEscaneo.Linea> lista = new ListView<>(items);
+        lista.setPrefHeight(150);
+        lista.setStyle("-fx-font-family: monospace;");
+
+        Label estado = new Label();
+        Button btnQuitar = new Button("Quitar uno");
+        Button btnConfirmar = new Button("Confirmar escaneo");
+        Button btnDescartar = new Button("Descartar");
+
+        // Cada Enter del lector es una lectura: solo se consulta el índice en memoria
+        txtCodigo.setOnAction(e -> {
+            String codigo = txtCodigo.getText();
+            txtCodigo.clear();
+            if (codigo.isBlank()) return;
+
+            SesionEscaneo.Linea linea = sesion.escanear(codigo);
+            if (linea == null) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Código o número de serie desconocido: " + codigo.trim());
+                return;
+            }
+            if (sesion.esNueva(linea) && !items.contains(linea)) {
+                items.add(linea);
+            } else {
+                lista.refresh(); // solo redibuja las celdas visibles
+            }
+            lista.getSelectionModel().select(linea);
+            estado.setStyle("-fx-text-fill: black;");
+            estado.setText("Lecturas: " + sesion.getLecturas() + " - Productos: " + items.size());
+        });
+
+        // Corrige una lectura de más sobre la línea seleccionada
+        btnQuitar.setOnAction(e -> {
+            SesionEscaneo.Linea linea = lista.getSelectionModel().getSelectedItem();
+            if (linea == null) return;
+            if (sesion.quitarUno(linea)) {
+                items.remove(linea);
+            } else {
+                lista.refresh();
+            }
+            txtCodigo.requestFocus();
+        });
+
+        // Registra toda la sesión en una única transacción
+        btnConfirmar.setOnAction(e -> {
+            if (items.isEmpty()) return;
+            try {
+                int registrados = sesion.confirmar();
+                items.clear();
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Se registraron " + registrados + " movimientos.");
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+            txtCodigo.requestFocus();
+        });
+
+        btnDescartar.setOnAction(e -> {
+            sesion.descartar();
+            items.clear();
+            estado.setText("");
+            txtCodigo.requestFocus();
+        });
+
+        VBox contenido = new VBox(8, txtCodigo, lista, new HBox(8, btnQuitar, btnConfirmar, btnDescartar), estado);
+        TitledPane panel = new TitledPane("Modo escáner", contenido);
+        panel.setExpanded(false);
+        panel.expandedProperty().addListener((obs, antes, abierto) -> {
+            if (abierto) txtCodigo.requestFocus();
+        });
+        return panel;
+    }
+}
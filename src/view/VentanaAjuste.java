@@ -4,11 +4,10 @@ import gametechstock.Ajuste;
 import gametechstock.Movimiento;
 import gametechstock.Producto;
 import gametechstock.SistemaStock;
-import javafx.collections.FXCollections;
+import java.util.List;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -39,25 +38,22 @@ public class VentanaAjuste {
         // --- Tabla que muestra los productos disponibles ---
         TableView<Producto> tablaProductos = new TableView<>();
 
-        // Columna para el nombre del producto
-        TableColumn<Producto, String> colNombre = new TableColumn<>("Nombre");
-        colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
+        // Columnas sin reflexión; el stock es la propiedad compartida del modelo y se actualiza sola
+        ModeloProductos modelo = ModeloProductos.de(sistema);
+        tablaProductos.getColumns().addAll(List.of(
+            Columnas.texto("Nombre", Producto::getNombre),
+            Columnas.texto("Código", Producto::getCodigo),
+            Columnas.observable("Stock", modelo::stockProperty)));
 
-        // Columna para el código del producto
-        TableColumn<Producto, String> colCodigo = new TableColumn<>("Código");
-        colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
-
-        // Columna para el stock actual del producto
-        TableColumn<Producto, Integer> colStock = new TableColumn<>("Stock");
-        colStock.setCellValueFactory(new PropertyValueFactory<>("stockActual"));
-
-        // Agrega columnas a la tabla
-        tablaProductos.getColumns().addAll(colNombre, colCodigo, colStock);
-
-        // Carga la lista de productos desde el sistema
-        tablaProductos.setItems(FXCollections.observableArrayList(sistema.getProductos()));
+        // Muestra la lista compartida de productos (vista filtrada, sin copiarla)
+        ModeloProductos.Vista productos = modelo.vista(tablaProductos, sistema);
         tablaProductos.setPrefHeight(200); // altura visual de la tabla
 
+        // --- Buscador de productos (nombre, código o categoría, sin importar acentos) ---
+        TextField txtBuscar = new TextField();
+        txtBuscar.setPromptText("Buscar por nombre, código o categoría");
+        txtBuscar.textProperty().addListener((obs, anterior, texto) -> productos.buscar(texto));
+
         // --- Campos de entrada de datos ---
 
         // Campo para ingresar la cantidad del ajuste (puede ser positivo o negativo)
@@ -95,19 +91,13 @@ public class VentanaAjuste {
                 // Crea un nuevo movimiento de tipo Ajuste con los datos ingresados
                 Movimiento ajuste = new Ajuste(cantidad, producto, sistema.getUsuarioActual(), justificacion);
 
-                // Aplica el ajuste (modifica el stock del producto)
-                ajuste.aplicar();
-
-                // Agrega el ajuste al historial de movimientos del sistema
-                sistema.getMovimientos().add(ajuste);
+                // Aplica, guarda y registra el ajuste; si el guardado falla, el stock queda como estaba
+                sistema.aplicarLote(List.of(ajuste));
 
                 // Muestra mensaje de éxito en verde
                 mensaje.setStyle("-fx-text-fill: green;");
                 mensaje.setText("Ajuste aplicado correctamente.");
 
-                // Actualiza la tabla para reflejar el nuevo stock
-                tablaProductos.refresh();
-
                 // Muestra una alerta si el stock del producto queda en estado crítico
                 if (producto.esCritico()) {
                     Alert alerta = new Alert(Alert.AlertType.WARNING);
@@ -129,12 +119,12 @@ public class VentanaAjuste {
         });
 
         // --- Organiza todos los componentes en un contenedor vertical (VBox) ---
-        VBox layout = new VBox(10, tablaProductos, txtCantidad, txtJustificacion, btnAplicar, mensaje);
+        VBox layout = new VBox(10, txtBuscar, tablaProductos, txtCantidad, txtJustificacion, btnAplicar, mensaje);
         layout.setPadding(new Insets(20)); // espacio interno del VBox
         layout.setStyle("-fx-alignment: center;"); // centra los elementos horizontalmente
 
         // Crea la escena con el layout y la muestra en el stage
-        stage.setScene(new Scene(layout, 500, 400));
+        stage.setScene(new Scene(layout, 500, 440));
         stage.show();
     }
 }
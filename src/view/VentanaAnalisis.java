@@ -0,0 +1,157 @@
+package view;
+
+import gametechstock.AnalisisInventario;
+import gametechstock.AnalisisInventario.ResultadoProducto;
+import gametechstock.AnalisisInventario.ResumenGrupo;
+import gametechstock.SistemaStock;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de reportes de inventario: clasificación ABC, rotación, cobertura y stock muerto,
+ * con resúmenes por categoría y por depósito.
+ */
+public class VentanaAnalisis {
+
+    // Referencia al sistema de stock con productos e historial cargados
+    private final SistemaStock sistema;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaAnalisis(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de análisis.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Análisis de Inventario");
+
+        // --- Parámetros del cálculo ---
+        TextField txtPeriodo = new TextField("365");
+        txtPeriodo.setPrefWidth(60);
+        TextField txtSinSalida = new TextField("90");
+        txtSinSalida.setPrefWidth(60);
+        Button btnCalcular = new Button("Calcular");
+        Label estado = new Label();
+
+        HBox parametros = new HBox(8,
+            new Label("Período (días):"), txtPeriodo,
+            new Label("Stock muerto sin egresos (días):"), txtSinSalida,
+            btnCalcular);
+        parametros.setStyle("-fx-alignment: center-left;");
+
+        // --- Tablas de resultados ---
+        TableView<ResultadoProducto> tablaProductos = tablaProductos();
+        TableView<ResumenGrupo> tablaCategorias = tablaGrupos("Categoría");
+        TableView<ResumenGrupo> tablaDepositos = tablaGrupos("Depósito");
+        TableView<ResultadoProducto> tablaMuerto = tablaProductos();
+
+        TabPane pestanias = new TabPane(
+            new Tab("Por producto", tablaProductos),
+            new Tab("Por categoría", tablaCategorias),
+            new Tab("Por depósito", tablaDepositos),
+            new Tab("Stock muerto", tablaMuerto));
+        pestanias.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        // El cálculo corre en segundo plano para no congelar la interfaz
+        btnCalcular.setOnAction(e -> {
+            int periodo, sinSalida;
+            try {
+                periodo = Integer.parseInt(txtPeriodo.getText().trim());
+                sinSalida = Integer.parseInt(txtSinSalida.getText().trim());
+                if (periodo <= 0 || sinSalida <= 0) throw new NumberFormatException();
+            } catch (NumberFormatException ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Los días deben ser números mayores a cero.");
+                return;
+            }
+
+            Task<AnalisisInventario> tarea = new Task<>() {
+                @Override
+                protected AnalisisInventario call() {
+                    return new AnalisisInventario(sistema, periodo, sinSalida);
+                }
+            };
+            tarea.setOnSucceeded(ev -> {
+                AnalisisInventario a = tarea.getValue();
+                tablaProductos.setItems(FXCollections.observableArrayList(a.getResultados()));
+                tablaCategorias.setItems(FXCollections.observableArrayList(a.getPorCategoria()));
+                tablaDepositos.setItems(FXCollections.observableArrayList(a.getPorDeposito()));
+                tablaMuerto.setItems(FXCollections.observableArrayList(a.getStockMuerto()));
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Calculado en " + a.getMilisegundos() + " ms sobre "
+                    + sistema.getMovimientos().size() + " movimientos.");
+                btnCalcular.setDisable(false);
+            });
+            tarea.setOnFailed(ev -> {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + tarea.getException().getMessage());
+                btnCalcular.setDisable(false);
+            });
+
+            btnCalcular.setDisable(true);
+            estado.setStyle("-fx-text-fill: black;");
+            estado.setText("Calculando...");
+            Thread hilo = new Thread(tarea, "analisis-inventario");
+            hilo.setDaemon(true);
+            hilo.start();
+        });
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, parametros, pestanias, estado);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 1000, 550));
+        stage.show();
+    }
+
+    /**
+     * Arma una tabla con los indicadores por producto.
+     */
+    private static TableView<ResultadoProducto> tablaProductos() {
+        TableView<ResultadoProducto> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto("Código", r -> r.getProducto().getCodigo()),
+            Columnas.texto("Nombre", r -> r.getProducto().getNombre()),
+            Columnas.texto("Categoría", r -> r.getProducto().getCategoria()),
+            Columnas.texto("Depósito", r -> r.getProducto().getDeposito() != null ? r.getProducto().getDeposito().getUbicacion() : ""),
+            Columnas.numero("Stock", r -> r.getProducto().getStockActual()),
+            Columnas.numero("Salidas", ResultadoProducto::getSalidas),
+            Columnas.texto("Rotación", r -> String.format("%.2f", r.getRotacion())),
+            Columnas.texto("Cobertura (días)", r -> Double.isInfinite(r.getDiasCobertura()) ? "Sin salidas" : String.format("%.0f", r.getDiasCobertura())),
+            Columnas.texto("Último mov. (días)", r -> r.getDiasUltimoMovimiento() < 0 ? "Nunca" : String.valueOf(r.getDiasUltimoMovimiento())),
+            Columnas.texto("ABC", r -> String.valueOf(r.getClase())),
+            Columnas.texto("ABC categoría", r -> String.valueOf(r.getClaseCategoria()))));
+        return tabla;
+    }
+
+    /**
+     * Arma una tabla con los resúmenes de un grupo (categoría o depósito).
+     */
+    private static TableView<ResumenGrupo> tablaGrupos(String titulo) {
+        TableView<ResumenGrupo> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto(titulo, ResumenGrupo::getNombre),
+            Columnas.numero("Productos", ResumenGrupo::getProductos),
+            Columnas.numero("A", ResumenGrupo::getClaseA),
+            Columnas.numero("B", ResumenGrupo::getClaseB),
+            Columnas.numero("C", ResumenGrupo::getClaseC),
+            Columnas.numero("Stock", ResumenGrupo::getStock),
+            Columnas.numero("Salidas", ResumenGrupo::getSalidas),
+            Columnas.texto("Rotación", g -> String.format("%.2f", g.getRotacion())),
+            Columnas.numero("Stock muerto", ResumenGrupo::getStockMuerto)));
+        return tabla;
+    }
+}
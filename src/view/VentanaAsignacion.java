@@ -0,0 +1,145 @@
+package view;
+
+import gametechstock.AsignadorPedidos;
+import gametechstock.AsignadorPedidos.Asignacion;
+import gametechstock.AsignadorPedidos.Politica;
+import gametechstock.SistemaStock;
+import java.io.File;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de asignación de stock a una ola de pedidos.
+ * Carga el archivo de pedidos, muestra cómo quedaría el reparto con la política elegida y
+ * registra todos los egresos juntos (ver AsignadorPedidos).
+ */
+public class VentanaAsignacion {
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    // Ola cargada (null si todavía no se cargó un archivo)
+    private AsignadorPedidos asignador;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaAsignacion(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de asignación.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Asignación de pedidos");
+
+        // --- Tabla con el resultado de cada línea ---
+        TableView<Asignacion> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto("Pedido", a -> a.linea().pedido()),
+            Columnas.texto("Código", a -> a.linea().producto().getCodigo()),
+            Columnas.numero("Prioridad", a -> a.linea().prioridad()),
+            Columnas.numero("Solicitado", a -> a.linea().solicitado()),
+            Columnas.numero("Asignado", Asignacion::asignado),
+            Columnas.numero("Faltante", Asignacion::faltante),
+            Columnas.texto("Motivo", Asignacion::motivo)));
+        ObservableList<Asignacion> asignaciones = FXCollections.observableArrayList();
+        tabla.setItems(asignaciones);
+
+        // --- Controles ---
+        Button btnArchivo = new Button("Cargar pedidos...");
+        ComboBox<Politica> cmbPolitica = new ComboBox<>(FXCollections.observableArrayList(Politica.values()));
+        cmbPolitica.setValue(Politica.PRIORIDAD);
+        Button btnConfirmar = new Button("Registrar egresos");
+        Button btnFaltantes = new Button("Guardar faltantes...");
+        Label estado = new Label("Cargue un archivo pedido,codigo,cantidad[,prioridad].");
+
+        // Vista previa con el stock actual (no registra nada)
+        Runnable simular = () -> {
+            if (asignador == null) return;
+            asignaciones.setAll(asignador.asignar(cmbPolitica.getValue()));
+            estado.setStyle("-fx-text-fill: black;");
+            estado.setText("Vista previa: " + AsignadorPedidos.resumen(asignaciones));
+        };
+
+        btnArchivo.setOnAction(e -> {
+            FileChooser selector = new FileChooser();
+            selector.setTitle("Archivo de pedidos (pedido,codigo,cantidad[,prioridad])");
+            selector.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+            File archivo = selector.showOpenDialog(stage);
+            if (archivo == null) return;
+            try {
+                AsignadorPedidos nuevo = new AsignadorPedidos(sistema);
+                List<String> desconocidos = nuevo.cargarArchivo(archivo);
+                asignador = nuevo;
+                simular.run();
+                if (!desconocidos.isEmpty()) {
+                    estado.setText(estado.getText() + "\nLíneas sin producto (pedido,codigo): "
+                            + String.join("; ", desconocidos.subList(0, Math.min(20, desconocidos.size())))
+                            + (desconocidos.size() > 20 ? "..." : ""));
+                }
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        cmbPolitica.setOnAction(e -> simular.run());
+
+        // Se vuelve a asignar con el stock vigente y se registran todos los egresos en una transacción
+        btnConfirmar.setOnAction(e -> {
+            if (asignador == null || asignador.getLineas().isEmpty()) return;
+            try {
+                asignaciones.setAll(asignador.confirmar(cmbPolitica.getValue()));
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Egresos registrados. " + AsignadorPedidos.resumen(asignaciones));
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        btnFaltantes.setOnAction(e -> {
+            if (asignaciones.isEmpty()) return;
+            FileChooser selector = new FileChooser();
+            selector.setTitle("Guardar informe de faltantes");
+            selector.setInitialFileName("faltantes.csv");
+            File archivo = selector.showSaveDialog(stage);
+            if (archivo == null) return;
+            try {
+                int lineas = AsignadorPedidos.escribirFaltantes(asignaciones, archivo);
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText(lineas + " líneas con faltante guardadas en " + archivo.getName());
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        // Mientras no se confirme, la vista previa sigue al stock (movimientos de esta y otras terminales)
+        Runnable actualizar = () -> {
+            if (asignador != null && !asignador.getLineas().isEmpty()) simular.run();
+        };
+        stage.setOnShown(e -> sistema.agregarOyente(actualizar));
+        stage.setOnHidden(e -> sistema.quitarOyente(actualizar));
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, new HBox(10, btnArchivo, new Label("Política:"), cmbPolitica), tabla,
+                new HBox(10, btnConfirmar, btnFaltantes), estado);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 800, 560));
+        stage.show();
+    }
+}
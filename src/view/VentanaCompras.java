@@ -0,0 +1,121 @@
+package view;
+
+import ConexionBD.ProductoDAO;
+import gametechstock.Producto;
+import gametechstock.PronosticoDemanda.Sugerencia;
+import gametechstock.SistemaStock;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de sugerencias de compra.
+ * Muestra, para cada producto, la demanda pronosticada, el punto de pedido dinámico y la
+ * cantidad sugerida a comprar. Permite usar el punto de pedido calculado como nuevo stock mínimo.
+ */
+public class VentanaCompras {
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaCompras(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de sugerencias de compra.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Sugerencias de Compra");
+
+        // --- Tabla de sugerencias ---
+        TableView<Sugerencia> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto("Código", s -> s.getProducto().getCodigo()),
+            Columnas.texto("Nombre", s -> s.getProducto().getNombre()),
+            Columnas.numero("Stock", s -> s.getProducto().getStockActual()),
+            Columnas.numero("Mínimo actual", s -> s.getProducto().getStockMinimo()),
+            Columnas.texto("Demanda diaria", s -> String.format("%.2f", s.getDemandaDiaria())),
+            Columnas.texto("Desvío", s -> String.format("%.2f", s.getDesvio())),
+            Columnas.numero("Punto de pedido", Sugerencia::getPuntoPedido),
+            Columnas.numero("Cantidad sugerida", Sugerencia::getCantidadSugerida)));
+        tabla.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        ObservableList<Sugerencia> todas = FXCollections.observableArrayList();
+        FilteredList<Sugerencia> visibles = new FilteredList<>(todas, Sugerencia::isReponer);
+        tabla.setItems(visibles);
+
+        // --- Controles ---
+        CheckBox chkSoloReponer = new CheckBox("Mostrar solo productos a reponer");
+        chkSoloReponer.setSelected(true);
+        chkSoloReponer.selectedProperty().addListener((obs, antes, solo) ->
+            visibles.setPredicate(solo ? Sugerencia::isReponer : s -> true));
+
+        Button btnActualizar = new Button("Recalcular");
+        Button btnAplicarMinimo = new Button("Usar punto de pedido como stock mínimo (seleccionados)");
+        Label mensaje = new Label();
+
+        Runnable recalcular = () -> {
+            todas.setAll(sistema.getPronostico().sugerencias(sistema.getProductos()));
+            long reponer = todas.stream().filter(Sugerencia::isReponer).count();
+            mensaje.setStyle("-fx-text-fill: black;");
+            mensaje.setText(reponer + " de " + todas.size() + " productos necesitan reposición.");
+        };
+        btnActualizar.setOnAction(e -> recalcular.run());
+
+        // Guarda el punto de pedido como stock mínimo, para que las alertas de stock crítico lo usen
+        btnAplicarMinimo.setOnAction(e -> {
+            List<Sugerencia> seleccion = new ArrayList<>(tabla.getSelectionModel().getSelectedItems());
+            if (seleccion.isEmpty()) {
+                mensaje.setStyle("-fx-text-fill: red;");
+                mensaje.setText("Debe seleccionar al menos un producto.");
+                return;
+            }
+
+            List<Producto> cambiados = new ArrayList<>();
+            List<Integer> anteriores = new ArrayList<>();
+            for (Sugerencia s : seleccion) {
+                cambiados.add(s.getProducto());
+                anteriores.add(s.getProducto().getStockMinimo());
+                s.getProducto().setStockMinimo(s.getPuntoPedido());
+            }
+            try {
+                ProductoDAO.actualizarStockMinimo(cambiados);
+                // El mínimo cambia el estado crítico que muestran las demás ventanas
+                ModeloProductos modelo = ModeloProductos.de(sistema);
+                for (Producto p : cambiados) modelo.productoActualizado(p);
+                mensaje.setStyle("-fx-text-fill: green;");
+                mensaje.setText("Stock mínimo actualizado en " + cambiados.size() + " productos.");
+                tabla.refresh();
+            } catch (Exception ex) {
+                // Se vuelve al valor anterior para que memoria y base coincidan
+                for (int i = 0; i < cambiados.size(); i++) cambiados.get(i).setStockMinimo(anteriores.get(i));
+                mensaje.setStyle("-fx-text-fill: red;");
+                mensaje.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        // Se recalcula cada vez que se abre la ventana (el menú la reutiliza)
+        stage.setOnShown(e -> recalcular.run());
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, new HBox(10, chkSoloReponer, btnActualizar), tabla, btnAplicarMinimo, mensaje);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 900, 500));
+        stage.show();
+    }
+}
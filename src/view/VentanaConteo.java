@@ -0,0 +1,159 @@
+package view;
+
+import gametechstock.SesionConteo;
+import gametechstock.SesionConteo.Diferencia;
+import gametechstock.SistemaStock;
+import java.io.File;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de conteo físico de inventario.
+ * Congela el stock, recibe lo contado (escáner o archivo codigo,cantidad), muestra las diferencias
+ * y registra todos los ajustes juntos en una sola transacción (ver SesionConteo).
+ */
+public class VentanaConteo {
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    // Conteo en curso (null si no se inició)
+    private SesionConteo sesion;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaConteo(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de conteo.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Conteo físico de inventario");
+
+        // --- Tabla de diferencias ---
+        TableView<Diferencia> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto("Código", d -> d.producto().getCodigo()),
+            Columnas.texto("Nombre", d -> d.producto().getNombre()),
+            Columnas.numero("Congelado", Diferencia::congelado),
+            Columnas.texto("Contado", d -> d.contado() < 0 ? "-" : String.valueOf(d.contado())),
+            Columnas.numero("Stock actual", Diferencia::actual),
+            Columnas.numero("Ajuste", Diferencia::ajuste),
+            Columnas.texto("Movido durante el conteo", d -> d.movidoDuranteConteo() ? "Sí" : "")));
+        ObservableList<Diferencia> diferencias = FXCollections.observableArrayList();
+        tabla.setItems(diferencias);
+
+        // --- Controles ---
+        Button btnIniciar = new Button("Iniciar conteo (congelar stock)");
+        TextField txtCodigo = new TextField();
+        txtCodigo.setPromptText("Escanear código de producto (cada lectura suma una unidad)");
+        Button btnArchivo = new Button("Cargar archivo...");
+        Button btnRecontar = new Button("Recontar seleccionado");
+        CheckBox chkCompleto = new CheckBox("Inventario completo (los productos no contados quedan en 0)");
+        Button btnConfirmar = new Button("Aplicar ajustes");
+        Label estado = new Label("Inicie un conteo para congelar el stock.");
+
+        Runnable comparar = () -> {
+            if (sesion == null) return;
+            diferencias.setAll(sesion.diferencias(chkCompleto.isSelected()));
+            long movidos = diferencias.stream().filter(Diferencia::movidoDuranteConteo).count();
+            estado.setStyle("-fx-text-fill: black;");
+            estado.setText("Conteo iniciado " + sesion.getInicio().toLocalTime().withNano(0)
+                    + " - Lecturas: " + sesion.getLecturas() + " - Desconocidos: " + sesion.getDesconocidos()
+                    + " - Diferencias: " + diferencias.size()
+                    + (movidos > 0 ? " (" + movidos + " productos se movieron durante el conteo)" : ""));
+        };
+
+        btnIniciar.setOnAction(e -> {
+            sesion = new SesionConteo(sistema);
+            comparar.run();
+            txtCodigo.requestFocus();
+        });
+
+        // Cada Enter del lector suma una unidad (solo memoria)
+        txtCodigo.setOnAction(e -> {
+            String codigo = txtCodigo.getText();
+            txtCodigo.clear();
+            if (sesion == null || codigo.isBlank()) return;
+            if (sesion.escanear(codigo) == null) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Código desconocido: " + codigo.trim());
+                return;
+            }
+            comparar.run();
+        });
+
+        btnArchivo.setOnAction(e -> {
+            if (sesion == null) return;
+            FileChooser selector = new FileChooser();
+            selector.setTitle("Archivo de conteo (codigo,cantidad)");
+            selector.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+            File archivo = selector.showOpenDialog(stage);
+            if (archivo == null) return;
+            try {
+                List<String> desconocidos = sesion.cargarArchivo(archivo);
+                comparar.run();
+                if (!desconocidos.isEmpty()) {
+                    estado.setText(estado.getText() + "\nCódigos del archivo sin producto: "
+                            + String.join(", ", desconocidos.subList(0, Math.min(20, desconocidos.size())))
+                            + (desconocidos.size() > 20 ? "..." : ""));
+                }
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        btnRecontar.setOnAction(e -> {
+            Diferencia d = tabla.getSelectionModel().getSelectedItem();
+            if (sesion == null || d == null) return;
+            sesion.reiniciar(d.producto());
+            comparar.run();
+        });
+
+        chkCompleto.setOnAction(e -> comparar.run());
+
+        btnConfirmar.setOnAction(e -> {
+            if (sesion == null) return;
+            try {
+                int ajustes = sesion.confirmar(chkCompleto.isSelected());
+                comparar.run();
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Se registraron " + ajustes + " ajustes.");
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        // Refresca el stock actual cuando llegan cambios de otras terminales
+        stage.setOnShown(e -> {
+            comparar.run();
+            sistema.agregarOyente(comparar);
+        });
+        stage.setOnHidden(e -> sistema.quitarOyente(comparar));
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, btnIniciar, new HBox(10, txtCodigo, btnArchivo), tabla,
+                new HBox(10, btnRecontar, chkCompleto), btnConfirmar, estado);
+        layout.setPadding(new Insets(20));
+        HBox.setHgrow(txtCodigo, Priority.ALWAYS);
+
+        stage.setScene(new Scene(layout, 900, 560));
+        stage.show();
+    }
+}
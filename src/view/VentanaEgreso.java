@@ -3,12 +3,12 @@ package view;
 import gametechstock.Egreso;
 import gametechstock.Movimiento;
 import gametechstock.Producto;
+import gametechstock.RegistroSeries;
 import gametechstock.SistemaStock;
-import javafx.collections.FXCollections;
+import java.util.List;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -38,24 +38,36 @@ public class VentanaEgreso {
 
         // --- Tabla para mostrar productos disponibles ---
         TableView<Producto> tablaProductos = new TableView<>();
-
-        TableColumn<Producto, String> colNombre = new TableColumn<>("Nombre");
-        colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
-
-        TableColumn<Producto, String> colCodigo = new TableColumn<>("Código");
-        colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
-
-        TableColumn<Producto, Integer> colStock = new TableColumn<>("Stock");
-        colStock.setCellValueFactory(new PropertyValueFactory<>("stockActual"));
-
-        tablaProductos.getColumns().addAll(colNombre, colCodigo, colStock);
-        tablaProductos.setItems(FXCollections.observableArrayList(sistema.getProductos()));
+        // Columnas sin reflexión; el stock es la propiedad compartida del modelo y se actualiza sola
+        ModeloProductos modelo = ModeloProductos.de(sistema);
+        tablaProductos.getColumns().addAll(List.of(
+            Columnas.texto("Nombre", Producto::getNombre),
+            Columnas.texto("Código", Producto::getCodigo),
+            Columnas.observable("Stock", modelo::stockProperty)));
+        ModeloProductos.Vista productos = modelo.vista(tablaProductos, sistema);
         tablaProductos.setPrefHeight(200);
 
+        // --- Buscador de productos (nombre, código o categoría, sin importar acentos) ---
+        TextField txtBuscar = new TextField();
+        txtBuscar.setPromptText("Buscar por nombre, código o categoría");
+        txtBuscar.textProperty().addListener((obs, anterior, texto) -> productos.buscar(texto));
+
         // --- Campo de ingreso de cantidad ---
         TextField txtCantidad = new TextField();
         txtCantidad.setPromptText("Cantidad a egresar");
 
+        // --- Números de serie (solo productos que los requieren, ver RegistroSeries) ---
+        TextArea txtSeries = new TextArea();
+        txtSeries.setPromptText("Números de serie, uno por línea (si no se indica cantidad, se usa la cantidad de series)");
+        txtSeries.setPrefRowCount(3);
+        txtSeries.setVisible(false);
+        txtSeries.setManaged(false);
+        tablaProductos.getSelectionModel().selectedItemProperty().addListener((obs, anterior, p) -> {
+            boolean conSerie = sistema.getSeries().requiereSerie(p);
+            txtSeries.setVisible(conSerie);
+            txtSeries.setManaged(conSerie);
+        });
+
         // --- Elementos de feedback ---
         Label mensaje = new Label();
         Button btnRegistrar = new Button("Registrar Egreso");
@@ -64,28 +76,30 @@ public class VentanaEgreso {
         btnRegistrar.setOnAction(e -> {
             Producto producto = tablaProductos.getSelectionModel().getSelectedItem();
             String input = txtCantidad.getText();
+            boolean conSerie = sistema.getSeries().requiereSerie(producto);
 
-            // Validación de campos obligatorios
-            if (producto == null || input.isEmpty()) {
+            // Validación de campos obligatorios (con series, la cantidad puede salir de ellas)
+            if (producto == null || (input.isEmpty() && !conSerie)) {
                 mensaje.setStyle("-fx-text-fill: red;");
                 mensaje.setText("Debe seleccionar un producto e ingresar una cantidad.");
                 return;
             }
 
             try {
-                int cantidad = Integer.parseInt(input);
+                List<String> series = conSerie ? RegistroSeries.leerSeries(txtSeries.getText()) : null;
+                int cantidad = input.isEmpty() ? series.size() : Integer.parseInt(input);
 
                 // Se crea y aplica el egreso
                 Movimiento egreso = new Egreso(cantidad, producto, sistema.getUsuarioActual());
-                egreso.aplicar(); // puede lanzar excepción si no hay suficiente stock
+                if (conSerie) egreso.setSeries(series); // Con series: se valida que cada serie esté en stock
 
-                sistema.getMovimientos().add(egreso); // se registra en el historial
+                // Valida (stock y reservas), guarda y registra; si el guardado falla, el stock queda como estaba
+                sistema.aplicarLote(List.of(egreso));
+                if (conSerie) txtSeries.clear();
 
                 mensaje.setStyle("-fx-text-fill: green;");
                 mensaje.setText("Egreso registrado correctamente.");
 
-                tablaProductos.refresh(); // actualiza el stock en la tabla
-
                 // Alerta si el stock queda por debajo del mínimo
                 if (producto.esCritico()) {
                     Alert alerta = new Alert(Alert.AlertType.WARNING);
@@ -104,13 +118,16 @@ public class VentanaEgreso {
             }
         });
 
+        // --- Modo escáner: acumula lecturas y las registra juntas ---
+        TitledPane panelEscaner = new PanelEscaner(sistema, "EGRESO").crear();
+
         // --- Layout de la ventana ---
-        VBox layout = new VBox(10, tablaProductos, txtCantidad, btnRegistrar, mensaje);
+        VBox layout = new VBox(10, txtBuscar, tablaProductos, txtCantidad, txtSeries, btnRegistrar, mensaje, panelEscaner);
         layout.setPadding(new Insets(20));
         layout.setStyle("-fx-alignment: center;");
 
         // Establece la escena y muestra la ventana
-        stage.setScene(new Scene(layout, 500, 400));
+        stage.setScene(new Scene(layout, 500, 620));
         stage.show();
     }
 }
@@ -1,21 +1,22 @@
 package view;
 
-import gametechstock.Ajuste;
-import gametechstock.Movimiento;
+import ConexionBD.RegistroMovimiento;
+import gametechstock.HistorialMovimientos;
+import gametechstock.OyenteStock;
 import gametechstock.SistemaStock;
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Ventana de la interfaz gráfica que muestra el historial de movimientos (ingresos, egresos y ajustes).
- * Los datos se presentan en una tabla ordenada y legible.
+ * Los datos se presentan en una tabla ordenada y legible, que se actualiza a medida que se registran movimientos.
  */
 public class VentanaHistorial {
 
@@ -38,7 +39,7 @@ public class VentanaHistorial {
         stage.setTitle("Historial de Movimientos");
 
         // --- Tabla principal que contendrá todos los movimientos registrados ---
-        TableView<Movimiento> tabla = new TableView<>();
+        TableView<HistorialMovimientos.Vista> tabla = new TableView<>();
         tabla.setPrefHeight(400); // Altura preferida de la tabla
 
         // Formateador para mostrar fecha y hora
@@ -47,42 +48,40 @@ public class VentanaHistorial {
         // --- Columnas de la tabla ---
         
         // Tipo de movimiento (Ingreso, Egreso, Ajuste)
-        TableColumn<Movimiento, String> colTipo = new TableColumn<>("Tipo");
+        TableColumn<HistorialMovimientos.Vista, String> colTipo = new TableColumn<>("Tipo");
         colTipo.setCellValueFactory(cellData ->
-            new SimpleStringProperty(cellData.getValue().getClass().getSimpleName()));
+            new SimpleStringProperty(cellData.getValue().getTipo()));
 
         // Fecha del movimiento (formateada)
-        TableColumn<Movimiento, String> colFecha = new TableColumn<>("Fecha");
+        TableColumn<HistorialMovimientos.Vista, String> colFecha = new TableColumn<>("Fecha");
         colFecha.setCellValueFactory(cellData ->
             new SimpleStringProperty(cellData.getValue().getFecha().format(formatter)));
 
         // Nombre del producto involucrado
-        TableColumn<Movimiento, String> colProducto = new TableColumn<>("Producto");
+        TableColumn<HistorialMovimientos.Vista, String> colProducto = new TableColumn<>("Producto");
         colProducto.setCellValueFactory(cellData ->
             new SimpleStringProperty(cellData.getValue().getProducto().getNombre()));
 
         // Código del producto
-        TableColumn<Movimiento, String> colCodigo = new TableColumn<>("Código");
+        TableColumn<HistorialMovimientos.Vista, String> colCodigo = new TableColumn<>("Código");
         colCodigo.setCellValueFactory(cellData ->
             new SimpleStringProperty(cellData.getValue().getProducto().getCodigo()));
 
         // Cantidad de unidades ingresadas, egresadas o ajustadas
-        TableColumn<Movimiento, Integer> colCantidad = new TableColumn<>("Cantidad");
-        colCantidad.setCellValueFactory(new PropertyValueFactory<>("cantidad"));
+        TableColumn<HistorialMovimientos.Vista, Integer> colCantidad = new TableColumn<>("Cantidad");
+        colCantidad.setCellValueFactory(cellData ->
+            new SimpleObjectProperty<>(cellData.getValue().getCantidad()));
 
         // Usuario que realizó el movimiento
-        TableColumn<Movimiento, String> colUsuario = new TableColumn<>("Usuario");
+        TableColumn<HistorialMovimientos.Vista, String> colUsuario = new TableColumn<>("Usuario");
         colUsuario.setCellValueFactory(cellData ->
             new SimpleStringProperty(cellData.getValue().getUsuario().getNombre()));
 
         // Justificación (solo para ajustes)
-        TableColumn<Movimiento, String> colJustificacion = new TableColumn<>("Justificación");
+        TableColumn<HistorialMovimientos.Vista, String> colJustificacion = new TableColumn<>("Justificación");
         colJustificacion.setCellValueFactory(cellData -> {
-            if (cellData.getValue() instanceof Ajuste ajuste) {
-                return new SimpleStringProperty(ajuste.getJustificacion());
-            } else {
-                return new SimpleStringProperty(""); // vacío para ingresos y egresos
-            }
+            String justificacion = cellData.getValue().getJustificacion();
+            return new SimpleStringProperty(justificacion != null ? justificacion : ""); // vacío para ingresos y egresos
         });
 
         // Se agregan todas las columnas a la tabla
@@ -96,8 +95,45 @@ public class VentanaHistorial {
             colJustificacion
         );
 
-        // Se cargan los movimientos actuales en la tabla
-        tabla.setItems(FXCollections.observableArrayList(sistema.getMovimientos()));
+        // Criterio de orden del historial para cada columna
+        colTipo.setUserData(HistorialMovimientos.Orden.TIPO);
+        colFecha.setUserData(HistorialMovimientos.Orden.FECHA);
+        colProducto.setUserData(HistorialMovimientos.Orden.PRODUCTO);
+        colCodigo.setUserData(HistorialMovimientos.Orden.CODIGO);
+        colCantidad.setUserData(HistorialMovimientos.Orden.CANTIDAD);
+        colUsuario.setUserData(HistorialMovimientos.Orden.USUARIO);
+        colJustificacion.setUserData(HistorialMovimientos.Orden.JUSTIFICACION);
+
+        // Se muestran los movimientos sin copiarlos: las filas son posiciones del historial.
+        // Ordenar por columna ordena un arreglo de posiciones dentro del historial (por la primera columna elegida)
+        FilasHistorial filas = new FilasHistorial(sistema.getMovimientos());
+        tabla.setItems(filas);
+        tabla.setSortPolicy(t -> {
+            TableColumn<HistorialMovimientos.Vista, ?> columna = t.getSortOrder().isEmpty() ? null : t.getSortOrder().get(0);
+            filas.ordenar(columna == null ? null : (HistorialMovimientos.Orden) columna.getUserData(),
+                columna == null || columna.getSortType() == TableColumn.SortType.ASCENDING);
+            return true;
+        });
+
+        // Agrega las filas nuevas mientras la ventana está abierta (movimientos propios y de otras terminales).
+        // Los avisos se agrupan: se actualiza una vez por tanda en el hilo de JavaFX
+        boolean[] pendiente = new boolean[1];
+        OyenteStock oyente = new OyenteStock() {
+            @Override
+            public void movimientoRegistrado(RegistroMovimiento movimiento) {
+                if (pendiente[0]) return;
+                pendiente[0] = true;
+                Platform.runLater(() -> {
+                    pendiente[0] = false;
+                    filas.actualizar();
+                });
+            }
+        };
+        stage.setOnShown(e -> {
+            filas.actualizar();
+            sistema.agregarOyenteStock(oyente);
+        });
+        stage.setOnHidden(e -> sistema.quitarOyenteStock(oyente));
 
         // --- Contenedor principal (VBox) ---
         VBox layout = new VBox(10, tabla); // espacio vertical de 10px entre componentes
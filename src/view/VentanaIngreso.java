@@ -3,12 +3,13 @@ package view;
 import gametechstock.Ingreso;
 import gametechstock.Movimiento;
 import gametechstock.Producto;
+import gametechstock.RegistroSeries;
 import gametechstock.SistemaStock;
-import javafx.collections.FXCollections;
+import java.math.BigDecimal;
+import java.util.List;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -39,29 +40,42 @@ public class VentanaIngreso {
         // --- Tabla que muestra los productos existentes ---
         TableView<Producto> tablaProductos = new TableView<>();
 
-        // Columna con el nombre del producto
-        TableColumn<Producto, String> colNombre = new TableColumn<>("Nombre");
-        colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
+        // Columnas sin reflexión; el stock es la propiedad compartida del modelo y se actualiza sola
+        ModeloProductos modelo = ModeloProductos.de(sistema);
+        tablaProductos.getColumns().addAll(List.of(
+            Columnas.texto("Nombre", Producto::getNombre),
+            Columnas.texto("Código", Producto::getCodigo),
+            Columnas.observable("Stock", modelo::stockProperty)));
 
-        // Columna con el código del producto
-        TableColumn<Producto, String> colCodigo = new TableColumn<>("Código");
-        colCodigo.setCellValueFactory(new PropertyValueFactory<>("codigo"));
-
-        // Columna con el stock actual del producto
-        TableColumn<Producto, Integer> colStock = new TableColumn<>("Stock");
-        colStock.setCellValueFactory(new PropertyValueFactory<>("stockActual"));
-
-        // Se agregan todas las columnas a la tabla
-        tablaProductos.getColumns().addAll(colNombre, colCodigo, colStock);
-
-        // Se cargan los productos del sistema a la tabla
-        tablaProductos.setItems(FXCollections.observableArrayList(sistema.getProductos()));
+        // Se muestra la lista compartida de productos (vista filtrada, sin copiarla)
+        ModeloProductos.Vista productos = modelo.vista(tablaProductos, sistema);
         tablaProductos.setPrefHeight(200);
 
+        // --- Buscador de productos (nombre, código o categoría, sin importar acentos) ---
+        TextField txtBuscar = new TextField();
+        txtBuscar.setPromptText("Buscar por nombre, código o categoría");
+        txtBuscar.textProperty().addListener((obs, anterior, texto) -> productos.buscar(texto));
+
         // --- Campo para ingresar la cantidad ---
         TextField txtCantidad = new TextField();
         txtCantidad.setPromptText("Cantidad a ingresar");
 
+        // --- Campo opcional para el costo unitario (forma la capa de costo FIFO del ingreso) ---
+        TextField txtCosto = new TextField();
+        txtCosto.setPromptText("Costo unitario (opcional, ej: 1250.50)");
+
+        // --- Números de serie (solo productos que los requieren, ver RegistroSeries) ---
+        TextArea txtSeries = new TextArea();
+        txtSeries.setPromptText("Números de serie, uno por línea (si no se indica cantidad, se usa la cantidad de series)");
+        txtSeries.setPrefRowCount(3);
+        txtSeries.setVisible(false);
+        txtSeries.setManaged(false);
+        tablaProductos.getSelectionModel().selectedItemProperty().addListener((obs, anterior, p) -> {
+            boolean conSerie = sistema.getSeries().requiereSerie(p);
+            txtSeries.setVisible(conSerie);
+            txtSeries.setManaged(conSerie);
+        });
+
         // --- Mensaje de estado y botón ---
         Label mensaje = new Label();
         Button btnRegistrar = new Button("Registrar Ingreso");
@@ -70,29 +84,37 @@ public class VentanaIngreso {
         btnRegistrar.setOnAction(e -> {
             Producto producto = tablaProductos.getSelectionModel().getSelectedItem(); // producto seleccionado
             String input = txtCantidad.getText(); // cantidad ingresada
+            boolean conSerie = sistema.getSeries().requiereSerie(producto);
 
-            // Validación: ambos campos deben estar completos
-            if (producto == null || input.isEmpty()) {
+            // Validación: ambos campos deben estar completos (con series, la cantidad puede salir de ellas)
+            if (producto == null || (input.isEmpty() && !conSerie)) {
                 mensaje.setStyle("-fx-text-fill: red;");
                 mensaje.setText("Debe seleccionar un producto e ingresar una cantidad.");
                 return;
             }
 
             try {
-                int cantidad = Integer.parseInt(input); // intenta convertir a entero
+                List<String> series = conSerie ? RegistroSeries.leerSeries(txtSeries.getText()) : null;
+                int cantidad = input.isEmpty() ? series.size() : Integer.parseInt(input); // intenta convertir a entero
+
+                // Costo unitario opcional (sin costo, el ingreso se valúa al último costo del producto)
+                BigDecimal costo = null;
+                if (!txtCosto.getText().isBlank()) {
+                    costo = new BigDecimal(txtCosto.getText().trim().replace(',', '.'));
+                    if (costo.signum() < 0) throw new Exception("El costo unitario no puede ser negativo.");
+                }
 
                 // Se crea y aplica un nuevo ingreso
-                Movimiento ingreso = new Ingreso(cantidad, producto, sistema.getUsuarioActual());
-                ingreso.aplicar(); // actualiza stock del producto
+                Movimiento ingreso = new Ingreso(cantidad, producto, sistema.getUsuarioActual(), costo);
+                if (conSerie) ingreso.setSeries(series); // Con series: se validan junto con el ingreso
 
-                // Agrega el movimiento a la lista de movimientos del sistema
-                sistema.getMovimientos().add(ingreso);
+                // Valida, guarda y registra el movimiento; si el guardado falla, el stock queda como estaba
+                sistema.aplicarLote(List.of(ingreso));
+                if (conSerie) txtSeries.clear();
 
                 mensaje.setStyle("-fx-text-fill: green;");
                 mensaje.setText("Ingreso registrado correctamente.");
 
-                tablaProductos.refresh(); // actualiza la tabla visualmente
-
                 // Alerta si el stock queda en estado crítico luego del ingreso
                 if (producto.esCritico()) {
                     Alert alerta = new Alert(Alert.AlertType.WARNING);
@@ -105,7 +127,7 @@ public class VentanaIngreso {
             } catch (NumberFormatException ex) {
                 // El valor ingresado no es un número válido
                 mensaje.setStyle("-fx-text-fill: red;");
-                mensaje.setText("La cantidad debe ser un número válido.");
+                mensaje.setText("La cantidad y el costo deben ser números válidos.");
             } catch (Exception ex) {
                 // Error general (ej: reglas de negocio)
                 mensaje.setStyle("-fx-text-fill: red;");
@@ -113,13 +135,16 @@ public class VentanaIngreso {
             }
         });
 
+        // --- Modo escáner: acumula lecturas y las registra juntas ---
+        TitledPane panelEscaner = new PanelEscaner(sistema, "INGRESO").crear();
+
         // --- Contenedor principal de la interfaz (VBox) ---
-        VBox layout = new VBox(10, tablaProductos, txtCantidad, btnRegistrar, mensaje);
+        VBox layout = new VBox(10, txtBuscar, tablaProductos, txtCantidad, txtCosto, txtSeries, btnRegistrar, mensaje, panelEscaner);
         layout.setPadding(new Insets(20));
         layout.setStyle("-fx-alignment: center;");
 
         // Se muestra la ventana
-        stage.setScene(new Scene(layout, 500, 400));
+        stage.setScene(new Scene(layout, 500, 660));
         stage.show();
     }
 }
@@ -1,8 +1,12 @@
 package view;
 
 import ConexionBD.UsuarioDAO;
+import gametechstock.DiarioAuditoria;
 import gametechstock.SistemaStock;
+import gametechstock.TrazaInicio;
 import gametechstock.Usuario;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -18,12 +22,25 @@ public class VentanaLogin {
     // Referencia al sistema de stock para validar usuarios y continuar la sesión
     private final SistemaStock sistema;
 
+    // Carga de datos en curso (el menú se abre recién cuando termina)
+    private final CompletableFuture<Void> carga;
+
     /**
-     * Constructor que recibe el sistema activo.
+     * Constructor que recibe el sistema activo, con los datos ya cargados.
      * @param sistema instancia del sistema de stock actual
      */
     public VentanaLogin(SistemaStock sistema) {
+        this(sistema, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Constructor que recibe el sistema activo y la carga de datos que se está haciendo en segundo plano.
+     * @param sistema instancia del sistema de stock actual
+     * @param carga carga de datos en curso
+     */
+    public VentanaLogin(SistemaStock sistema, CompletableFuture<Void> carga) {
         this.sistema = sistema;
+        this.carga = carga;
     }
 
     /**
@@ -54,12 +71,27 @@ public class VentanaLogin {
 
             // Valida credenciales
             Usuario u = UsuarioDAO.validarUsuario(usuario, clave);
+            DiarioAuditoria.registrarLogin(usuario, u); // La sesión del diario la fija setUsuarioActual
 
             if (u != null) {
-                // Si es válido, guarda el usuario y abre el menú principal
+                // Si es válido, guarda el usuario y abre el menú principal (cuando terminó la carga de datos)
                 sistema.setUsuarioActual(u);
-                new VentanaMenu(sistema).mostrar(new Stage()); // abre nueva ventana
-                stage.close(); // cierra la ventana de login
+                if (!carga.isDone()) {
+                    loginBtn.setDisable(true);
+                    errorLabel.setStyle("-fx-text-fill: black;");
+                    errorLabel.setText("Cargando datos...");
+                }
+                carga.whenComplete((r, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        loginBtn.setDisable(false);
+                        errorLabel.setStyle("-fx-text-fill: red;");
+                        errorLabel.setText("No se pudieron cargar los datos: " + error.getMessage());
+                        return;
+                    }
+                    new VentanaMenu(sistema).mostrar(new Stage()); // abre nueva ventana
+                    TrazaInicio.marcar("Menú visible");
+                    stage.close(); // cierra la ventana de login
+                }));
             } else {
                 // Si es inválido, muestra mensaje de error
                 errorLabel.setText("Credenciales incorrectas. Intente nuevamente.");
@@ -1,14 +1,26 @@
 package view;
 
+import ConexionBD.ArchivoMovimientos;
+import ConexionBD.ExportacionIncremental;
 import ConexionBD.ProductoDAO;
 import ConexionBD.MovimientoDAO;
-import ConexionBD.UsuarioDAO;
+import gametechstock.Configuracion;
+import gametechstock.RolUsuario;
 import gametechstock.SistemaStock;
+import gametechstock.TrazaInicio;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import java.io.File;
+import monitoreo.GrabacionContinua;
 
 /**
  * Ventana del menú principal del sistema GametechStock.
@@ -19,6 +31,9 @@ public class VentanaMenu {
     // Referencia al sistema de stock (modelo central)
     private final SistemaStock sistema;
 
+    // Ventanas ya construidas, por nombre: se construyen la primera vez que se abren y después se reutilizan
+    private final Map<String, Stage> ventanas = new HashMap<>();
+
     /**
      * Constructor que recibe el sistema actual.
      * @param sistema instancia del sistema de stock
@@ -39,40 +54,87 @@ public class VentanaMenu {
         Button btnEgreso = new Button("Registrar Egreso");
         Button btnStock = new Button("Consultar Stock");
         Button btnAjuste = new Button("Ajustar Stock");
+        Button btnConteo = new Button("Conteo físico de inventario");
+        Button btnRemito = new Button("Cargar remito");
+        Button btnAsignar = new Button("Asignar ola de pedidos");
+        Button btnReservas = new Button("Reservas de stock");
         Button btnHistorial = new Button("Ver historial de movimientos");
         Button btnNuevo = new Button("Agregar Producto");
         Button btnListProd = new Button("Generar lista de productos");
         Button btnListMov = new Button("Generar lista de movimientos");
+        Button btnDelta = new Button("Exportar cambios (incremental)");
+        Button btnAnalisis = new Button("Análisis de inventario");
+        Button btnCompras = new Button("Sugerencias de compra");
+        Button btnValuacion = new Button("Valoración de inventario (FIFO)");
+        Button btnSeries = new Button("Consultar números de serie");
+        Button btnArchivar = new Button("Archivar movimientos antiguos");
+        Button btnGrabacion = new Button("Guardar grabación de rendimiento");
         Button btnSalir = new Button("Cerrar Sesión");
 
         // --- Acciones de los botones ---
         // Abre ventana para registrar ingreso de productos
-        btnIngreso.setOnAction(e -> new VentanaIngreso(sistema).mostrar(new Stage()));
+        btnIngreso.setOnAction(e -> abrir("ingreso", s -> new VentanaIngreso(sistema).mostrar(s)));
 
         // Abre ventana para registrar egreso de productos
-        btnEgreso.setOnAction(e -> new VentanaEgreso(sistema).mostrar(new Stage()));
+        btnEgreso.setOnAction(e -> abrir("egreso", s -> new VentanaEgreso(sistema).mostrar(s)));
 
         // Abre ventana para consultar el stock de productos
-        btnStock.setOnAction(e -> new VentanaStock(sistema).mostrar(new Stage()));
+        btnStock.setOnAction(e -> abrir("stock", s -> new VentanaStock(sistema).mostrar(s)));
 
         // Abre ventana para ajustar el stock manualmente
-        btnAjuste.setOnAction(e -> new VentanaAjuste(sistema).mostrar(new Stage()));
+        btnAjuste.setOnAction(e -> abrir("ajuste", s -> new VentanaAjuste(sistema).mostrar(s)));
+
+        // Abre el conteo físico: congela el stock y registra todos los ajustes juntos
+        btnConteo.setOnAction(e -> abrir("conteo", s -> new VentanaConteo(sistema).mostrar(s)));
+
+        // Abre ventana para cargar un remito con varias líneas
+        btnRemito.setOnAction(e -> abrir("remito", s -> new VentanaRemito(sistema).mostrar(s)));
+
+        // Abre la asignación de stock a pedidos: reparte lo escaso y registra todos los egresos juntos
+        btnAsignar.setOnAction(e -> abrir("asignacion", s -> new VentanaAsignacion(sistema).mostrar(s)));
+
+        // Abre las reservas de stock: aparta unidades para un pedido hasta que se despache o venza
+        btnReservas.setOnAction(e -> abrir("reservas", s -> new VentanaReservas(sistema).mostrar(s)));
 
         // Abre ventana para ver el historial de movimientos (ingresos, egresos, ajustes)
-        btnHistorial.setOnAction(e -> new VentanaHistorial(sistema).mostrar(new Stage()));
+        btnHistorial.setOnAction(e -> abrir("historial", s -> new VentanaHistorial(sistema).mostrar(s)));
 
         // Abre ventana para crear archivo csv de lista de productos
-        btnListProd.setOnAction(e -> ProductoDAO.exportarProductosCSV());
+        btnListProd.setOnAction(e -> exportarProductos(stage));
         
         // Abre ventana para crear archivo csv de lista de movimientos
-        btnListMov.setOnAction(e -> MovimientoDAO.exportarMovimientosCSV(ProductoDAO.obtenerProductos(),UsuarioDAO.obtenerUsuarios()));
+        btnListMov.setOnAction(e -> exportarMovimientos(stage));
         
+        // Exporta solo los movimientos y productos que cambiaron desde la última exportación
+        btnDelta.setOnAction(e -> exportarCambios());
+
         // Abre ventana para agregar un nuevo producto al sistema
-        btnNuevo.setOnAction(e -> new VentanaNuevoProducto(sistema).mostrar(new Stage()));
+        btnNuevo.setOnAction(e -> abrir("nuevo", s -> new VentanaNuevoProducto(sistema).mostrar(s)));
+
+        // Abre la ventana de indicadores de inventario (ABC, rotación, stock muerto)
+        btnAnalisis.setOnAction(e -> abrir("analisis", s -> new VentanaAnalisis(sistema).mostrar(s)));
+
+        // Abre la lista de compras sugeridas según el pronóstico de demanda
+        btnCompras.setOnAction(e -> abrir("compras", s -> new VentanaCompras(sistema).mostrar(s)));
+
+        // Abre la valoración del inventario y el costo de ventas por capas FIFO
+        btnValuacion.setOnAction(e -> abrir("valuacion", s -> new VentanaValuacion(sistema).mostrar(s)));
+
+        // Abre la consulta de números de serie (dónde está cada unidad y en qué movimiento salió)
+        btnSeries.setOnAction(e -> abrir("series", s -> new VentanaSeries(sistema).mostrar(s)));
+
+        // Mueve los movimientos antiguos al archivo frío (solo administradores)
+        btnArchivar.setOnAction(e -> archivarMovimientos());
+
+        // Vuelca los últimos minutos de la grabación de JFR a un archivo para analizarlo
+        btnGrabacion.setOnAction(e -> guardarGrabacion());
 
         // Cierra la ventana actual (equivale a cerrar sesión)
         btnSalir.setOnAction(e -> stage.close());
 
+        // Al cerrar sesión se cierran también las ventanas abiertas desde el menú
+        stage.setOnHidden(e -> ventanas.values().forEach(Stage::close));
+
         // --- Layout de la ventana ---
         VBox layout = new VBox(12); // separación entre botones
         layout.setPadding(new Insets(20));
@@ -80,11 +142,150 @@ public class VentanaMenu {
 
         // Agrega todos los botones al layout
         layout.getChildren().addAll(
-            btnIngreso, btnEgreso, btnStock, btnAjuste, btnHistorial, btnNuevo, btnListProd, btnListMov, btnSalir
+            btnIngreso, btnEgreso, btnStock, btnAjuste, btnConteo, btnRemito, btnAsignar, btnReservas, btnHistorial, btnNuevo, btnListProd, btnListMov, btnDelta, btnAnalisis, btnCompras, btnValuacion, btnSeries, btnGrabacion
         );
 
+        // Opciones de mantenimiento disponibles solo para administradores
+        if (sistema.getUsuarioActual().getRol() == RolUsuario.ADMINISTRADOR) {
+            layout.getChildren().add(btnArchivar);
+        }
+        layout.getChildren().add(btnSalir);
+
         // Configura y muestra la escena
-        stage.setScene(new Scene(layout, 300, 350));
+        stage.setScene(new Scene(layout, 300, 800));
         stage.show();
     }
+
+    /**
+     * Muestra una ventana del menú: la construye la primera vez y después vuelve a mostrar la misma
+     * (o la trae al frente si ya está abierta), sin rearmar su escena en cada clic.
+     * @param nombre nombre de la ventana en la caché
+     * @param construir arma la escena en el Stage recibido y lo muestra
+     */
+    private void abrir(String nombre, Consumer<Stage> construir) {
+        Stage ventana = ventanas.get(nombre);
+        if (ventana == null) {
+            ventana = new Stage();
+            ventanas.put(nombre, ventana);
+            construir.accept(ventana);
+            TrazaInicio.marcar("Ventana " + nombre + " construida");
+        } else if (ventana.isShowing()) {
+            ventana.toFront();
+        } else {
+            ventana.show();
+        }
+    }
+
+    /**
+     * Pide una carpeta y escribe en ella productos.csv con la lista completa de productos.
+     */
+    private void exportarProductos(Stage stage) {
+        File carpeta = elegirCarpeta(stage);
+        if (carpeta == null) return; // El usuario canceló
+
+        try {
+            int filas = ProductoDAO.escribirProductosCSV(new File(carpeta, "productos.csv"));
+            informar("Exportación exitosa", "Lista de productos exportada (" + filas + " productos).");
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            informarError("No se pudo exportar la lista de productos", ex);
+        }
+    }
+
+    /**
+     * Pide una carpeta y escribe en ella movimientos.csv con todos los movimientos (incluidos los archivados).
+     */
+    private void exportarMovimientos(Stage stage) {
+        File carpeta = elegirCarpeta(stage);
+        if (carpeta == null) return; // El usuario canceló
+
+        try {
+            long filas = MovimientoDAO.escribirMovimientosCSV(new File(carpeta, "movimientos.csv"), null, null);
+            informar("Exportación exitosa", "Movimientos exportados correctamente (" + filas + " movimientos).");
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            informarError("No se pudieron exportar los movimientos", ex);
+        }
+    }
+
+    /**
+     * Abre el selector de carpeta para las exportaciones.
+     * @return carpeta elegida, o null si se canceló
+     */
+    private File elegirCarpeta(Stage stage) {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Seleccionar carpeta para guardar el CSV");
+        return chooser.showDialog(stage);
+    }
+
+    /**
+     * Muestra un mensaje informativo.
+     */
+    private void informar(String titulo, String mensaje) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(titulo);
+        alert.setHeaderText(null);
+        alert.setContentText(mensaje);
+        alert.showAndWait();
+    }
+
+    /**
+     * Muestra un mensaje de error con la causa.
+     */
+    private void informarError(String encabezado, Exception ex) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Error");
+        alert.setHeaderText(encabezado);
+        alert.setContentText(ex.getMessage());
+        alert.showAndWait();
+    }
+
+    /**
+     * Exporta los cambios desde la última exportación a la carpeta configurada (exportacion.directorio).
+     */
+    private void exportarCambios() {
+        try {
+            informar("Exportación incremental", ExportacionIncremental.exportar());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            informarError("No se pudieron exportar los cambios", ex);
+        }
+    }
+
+    /**
+     * Guarda lo grabado por la grabación continua de JFR en la carpeta configurada (monitoreo.directorio).
+     */
+    private void guardarGrabacion() {
+        try {
+            File archivo = GrabacionContinua.volcar();
+            informar("Grabación de rendimiento", "Grabación guardada en " + archivo.getAbsolutePath()
+                    + ".\nSe abre con JDK Mission Control (jmc) o con: jfr print " + archivo.getName());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            informarError("No se pudo guardar la grabación de rendimiento", ex);
+        }
+    }
+
+    /**
+     * Archiva los movimientos más antiguos que el horizonte configurado (archivo.horizonteDias),
+     * previa confirmación del usuario.
+     */
+    private void archivarMovimientos() {
+        int dias = Configuracion.getInt("archivo.horizonteDias", 365);
+
+        Alert confirmar = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmar.setTitle("Archivar movimientos");
+        confirmar.setHeaderText("Se archivarán los movimientos de más de " + dias + " días.");
+        confirmar.setContentText("Los movimientos archivados se seguirán viendo en el historial y en las exportaciones.");
+        if (confirmar.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+
+        try {
+            informar("Archivo de movimientos", ArchivoMovimientos.archivar(dias));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            informarError("No se pudieron archivar los movimientos", ex);
+        }
+    }
 }
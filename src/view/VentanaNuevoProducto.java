@@ -99,13 +99,13 @@ public class VentanaNuevoProducto {
                 MovimientoDAO.guardarMovimiento(ajuste);
 
                 // Agregar el movimiento a la lista en memoria
-                sistema.getMovimientos().add(ajuste);
+                sistema.registrarMovimiento(ajuste);
                 
                 // Esta línea es clave para que el producto en memoria tenga el stock correcto
                 nuevo.setStockActual(stockActual);
 
-                // Agregar a la lista en memoria si todo fue bien
-                sistema.getProductos().add(nuevo);
+                // Agregar a la lista en memoria (y al índice de búsqueda) si todo fue bien
+                sistema.agregarProducto(nuevo);
 
                 mensaje.setStyle("-fx-text-fill: green;");
                 mensaje.setText("Producto creado con código: " + nuevo.getCodigo());
@@ -0,0 +1,173 @@
+package view;
+
+import gametechstock.Movimiento;
+import gametechstock.Producto;
+import gametechstock.Remito;
+import gametechstock.SistemaStock;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana para cargar un remito completo (ingreso, egreso o ajuste) con varias líneas.
+ * Las líneas se arman en memoria y se aplican todas juntas al confirmar, en una sola transacción.
+ */
+public class VentanaRemito {
+
+    // Referencia al sistema central de stock
+    private final SistemaStock sistema;
+
+    // Remito en carga (se crea de nuevo al cambiar el tipo o después de confirmar)
+    private Remito remito;
+
+    /**
+     * Constructor que recibe el sistema de stock activo.
+     * @param sistema instancia de SistemaStock
+     */
+    public VentanaRemito(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de carga de remitos.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Carga de Remito");
+
+        // --- Cabecera del remito ---
+        ComboBox<String> cmbTipo = new ComboBox<>(FXCollections.observableArrayList("INGRESO", "EGRESO", "AJUSTE"));
+        cmbTipo.setValue("INGRESO");
+        TextField txtNumero = new TextField();
+        txtNumero.setPromptText("Número de remito");
+        TextField txtObservaciones = new TextField();
+        txtObservaciones.setPromptText("Observaciones");
+        HBox.setHgrow(txtObservaciones, Priority.ALWAYS);
+        HBox cabecera = new HBox(8, cmbTipo, txtNumero, txtObservaciones);
+
+        // --- Tabla de productos con buscador ---
+        TableView<Producto> tablaProductos = new TableView<>();
+        ModeloProductos modelo = ModeloProductos.de(sistema);
+        tablaProductos.getColumns().addAll(List.of(
+            Columnas.texto("Código", Producto::getCodigo),
+            Columnas.texto("Nombre", Producto::getNombre),
+            Columnas.observable("Stock", modelo::stockProperty)));
+        ModeloProductos.Vista productos = modelo.vista(tablaProductos, sistema);
+        tablaProductos.setPrefHeight(180);
+
+        TextField txtBuscar = new TextField();
+        txtBuscar.setPromptText("Buscar por nombre, código o categoría");
+        txtBuscar.textProperty().addListener((obs, anterior, texto) -> productos.buscar(texto));
+
+        // --- Carga de una línea ---
+        TextField txtCantidad = new TextField();
+        txtCantidad.setPromptText("Cantidad");
+        txtCantidad.setPrefWidth(90);
+        TextField txtJustificacion = new TextField();
+        txtJustificacion.setPromptText("Justificación (ajustes)");
+        Button btnAgregar = new Button("Agregar línea");
+        HBox carga = new HBox(8, txtCantidad, txtJustificacion, btnAgregar);
+
+        // --- Líneas del remito ---
+        TableView<Remito.Linea> tablaLineas = new TableView<>();
+        tablaLineas.getColumns().addAll(List.of(
+            Columnas.texto("Código", l -> l.getProducto().getCodigo()),
+            Columnas.texto("Nombre", l -> l.getProducto().getNombre()),
+            Columnas.numero("Cantidad", Remito.Linea::getCantidad),
+            Columnas.texto("Justificación", l -> l.getJustificacion() != null ? l.getJustificacion() : "")));
+        tablaLineas.setPrefHeight(180);
+
+        Button btnQuitar = new Button("Quitar línea");
+        Button btnConfirmar = new Button("Confirmar remito");
+        Label resumen = new Label();
+        Label mensaje = new Label();
+
+        // Crea un remito nuevo con la cabecera actual
+        Runnable nuevoRemito = () -> {
+            remito = new Remito(cmbTipo.getValue(), txtNumero.getText(), txtObservaciones.getText(), sistema.getUsuarioActual());
+            tablaLineas.getItems().clear();
+        };
+        Runnable actualizarResumen = () ->
+            resumen.setText(remito.getLineas().size() + " líneas - " + remito.getUnidades() + " unidades");
+
+        nuevoRemito.run();
+        actualizarResumen.run();
+
+        // Cambiar el tipo descarta las líneas cargadas (cambia el sentido de todos los movimientos)
+        cmbTipo.setOnAction(e -> {
+            nuevoRemito.run();
+            actualizarResumen.run();
+            mensaje.setText("");
+        });
+
+        // Agrega la línea del producto seleccionado
+        btnAgregar.setOnAction(e -> {
+            try {
+                int cantidad = Integer.parseInt(txtCantidad.getText().trim());
+                Producto producto = tablaProductos.getSelectionModel().getSelectedItem();
+                String motivo = txtJustificacion.getText().isBlank() ? txtObservaciones.getText() : txtJustificacion.getText();
+                tablaLineas.getItems().add(remito.agregarLinea(producto, cantidad, motivo));
+
+                txtCantidad.clear();
+                txtJustificacion.clear();
+                actualizarResumen.run();
+                mensaje.setText("");
+            } catch (NumberFormatException ex) {
+                mensaje.setStyle("-fx-text-fill: red;");
+                mensaje.setText("La cantidad debe ser un número válido.");
+            } catch (Exception ex) {
+                mensaje.setStyle("-fx-text-fill: red;");
+                mensaje.setText(ex.getMessage());
+            }
+        });
+        txtCantidad.setOnAction(e -> btnAgregar.fire());
+
+        // Quita la línea seleccionada
+        btnQuitar.setOnAction(e -> {
+            Remito.Linea linea = tablaLineas.getSelectionModel().getSelectedItem();
+            if (linea != null) {
+                remito.quitarLinea(linea);
+                tablaLineas.getItems().remove(linea);
+                actualizarResumen.run();
+            }
+        });
+
+        // Aplica todas las líneas juntas: si una falla, no se registra ninguna
+        btnConfirmar.setOnAction(e -> {
+            try {
+                // El número y las observaciones pueden haberse editado después de cargar líneas
+                remito.setNumero(txtNumero.getText());
+                remito.setObservaciones(txtObservaciones.getText());
+
+                List<Movimiento> registrados = sistema.aplicarRemito(remito);
+
+                long criticos = registrados.stream().map(Movimiento::getProducto).distinct().filter(Producto::esCritico).count();
+                mensaje.setStyle("-fx-text-fill: green;");
+                mensaje.setText("Remito " + remito.getId() + " registrado con " + registrados.size() + " movimientos."
+                        + (criticos > 0 ? " " + criticos + " productos quedaron en stock crítico." : ""));
+
+                txtNumero.clear();
+                txtObservaciones.clear();
+                nuevoRemito.run();
+                actualizarResumen.run();
+            } catch (Exception ex) {
+                mensaje.setStyle("-fx-text-fill: red;");
+                mensaje.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, cabecera, txtBuscar, tablaProductos, carga, tablaLineas,
+                new HBox(10, btnQuitar, btnConfirmar, resumen), mensaje);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 650, 640));
+        stage.show();
+    }
+}
@@ -0,0 +1,174 @@
+package view;
+
+import gametechstock.OyenteStock;
+import gametechstock.Producto;
+import gametechstock.ReservasStock;
+import gametechstock.ReservasStock.Reserva;
+import gametechstock.SistemaStock;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de reservas de stock.
+ * Aparta unidades de un producto para un pedido hasta que se despachen (egreso) o se liberen;
+ * si nadie las despacha, vencen solas y vuelven al stock disponible (ver ReservasStock).
+ */
+public class VentanaReservas {
+
+    // Formato del vencimiento en la tabla
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("dd/MM HH:mm:ss");
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaReservas(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de reservas.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Reservas de stock");
+        ReservasStock reservas = sistema.getReservas();
+
+        // --- Nueva reserva ---
+        TextField txtCodigo = new TextField();
+        txtCodigo.setPromptText("Código");
+        TextField txtCantidad = new TextField();
+        txtCantidad.setPromptText("Cantidad");
+        txtCantidad.setPrefWidth(80);
+        TextField txtMinutos = new TextField(String.valueOf(ReservasStock.MINUTOS_POR_DEFECTO));
+        txtMinutos.setPrefWidth(60);
+        TextField txtReferencia = new TextField();
+        txtReferencia.setPromptText("Pedido / cliente");
+        Button btnReservar = new Button("Reservar");
+        Label lblDisponible = new Label();
+
+        // --- Tabla de reservas vigentes ---
+        TableView<Reserva> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.numero("Id", Reserva::id),
+            Columnas.texto("Código", r -> r.producto().getCodigo()),
+            Columnas.texto("Producto", r -> r.producto().getNombre()),
+            Columnas.numero("Cantidad", Reserva::cantidad),
+            Columnas.texto("Vence", r -> r.vence().format(HORA)),
+            Columnas.texto("Referencia", r -> r.referencia() != null ? r.referencia() : "")));
+        ObservableList<Reserva> filas = FXCollections.observableArrayList();
+        tabla.setItems(filas);
+
+        Button btnDespachar = new Button("Despachar (registrar egreso)");
+        Button btnLiberar = new Button("Liberar");
+        Label estado = new Label();
+
+        // Stock del producto escrito: actual, reservado y disponible
+        Runnable mostrarDisponible = () -> {
+            Producto p = sistema.buscarProductoPorCodigo(txtCodigo.getText().trim());
+            lblDisponible.setText(p == null ? "" : p.getNombre() + " - stock: " + p.getStockActual()
+                    + ", reservado: " + p.getStockReservado() + ", disponible: " + p.getStockDisponible());
+        };
+
+        // Vuelve a listar las reservas vigentes (las más próximas a vencer primero)
+        Runnable actualizar = () -> {
+            filas.setAll(reservas.listar(null));
+            mostrarDisponible.run();
+        };
+
+        txtCodigo.textProperty().addListener((obs, anterior, nuevo) -> mostrarDisponible.run());
+
+        btnReservar.setOnAction(e -> {
+            Producto p = sistema.buscarProductoPorCodigo(txtCodigo.getText().trim());
+            if (p == null) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("No existe el producto " + txtCodigo.getText().trim() + ".");
+                return;
+            }
+            try {
+                Reserva r = reservas.reservar(p, Integer.parseInt(txtCantidad.getText().trim()),
+                        Integer.parseInt(txtMinutos.getText().trim()), txtReferencia.getText());
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Reserva " + r.id() + " hasta " + r.vence().format(HORA) + ".");
+                txtCantidad.clear();
+                txtReferencia.clear();
+                actualizar.run();
+            } catch (NumberFormatException ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Cantidad y minutos deben ser números enteros.");
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+        });
+
+        btnDespachar.setOnAction(e -> {
+            Reserva r = tabla.getSelectionModel().getSelectedItem();
+            if (r == null) return;
+            try {
+                reservas.despachar(r);
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Reserva " + r.id() + " despachada: egreso de " + r.cantidad() + " unidades registrado.");
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+            actualizar.run();
+        });
+
+        btnLiberar.setOnAction(e -> {
+            Reserva r = tabla.getSelectionModel().getSelectedItem();
+            if (r == null) return;
+            try {
+                reservas.liberar(r);
+                estado.setStyle("-fx-text-fill: green;");
+                estado.setText("Reserva " + r.id() + " liberada.");
+            } catch (Exception ex) {
+                estado.setStyle("-fx-text-fill: red;");
+                estado.setText("Error: " + ex.getMessage());
+            }
+            actualizar.run();
+        });
+
+        // Las reservas que vencen y los cambios de stock llegan como cambios de producto, a veces
+        // muchos seguidos: se agrupan en una sola actualización de la tabla
+        boolean[] pendiente = new boolean[1];
+        OyenteStock oyente = new OyenteStock() {
+            @Override
+            public void productoActualizado(Producto producto) {
+                if (pendiente[0]) return;
+                pendiente[0] = true;
+                Platform.runLater(() -> {
+                    pendiente[0] = false;
+                    actualizar.run();
+                });
+            }
+        };
+        stage.setOnShown(e -> {
+            actualizar.run();
+            sistema.agregarOyenteStock(oyente);
+        });
+        stage.setOnHidden(e -> sistema.quitarOyenteStock(oyente));
+
+        // --- Layout principal ---
+        HBox nueva = new HBox(10, new Label("Producto:"), txtCodigo, txtCantidad, new Label("Minutos:"), txtMinutos,
+                txtReferencia, btnReservar);
+        VBox layout = new VBox(10, nueva, lblDisponible, tabla, new HBox(10, btnDespachar, btnLiberar), estado);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 820, 560));
+        stage.show();
+    }
+}
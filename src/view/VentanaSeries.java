@@ -0,0 +1,91 @@
+package view;
+
+import gametechstock.Producto;
+import gametechstock.RegistroSeries;
+import gametechstock.RegistroSeries.Serie;
+import gametechstock.SistemaStock;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de consulta de números de serie.
+ * Responde dónde está una serie (en stock o egresada) y en qué movimientos entró y salió,
+ * consultando el registro en memoria (ver RegistroSeries), sin ir a la base de datos.
+ */
+public class VentanaSeries {
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaSeries(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de consulta.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Números de serie");
+
+        // --- Búsqueda de una serie ---
+        TextField txtSerie = new TextField();
+        txtSerie.setPromptText("Número de serie (escanear o escribir)");
+        Button btnBuscar = new Button("Buscar");
+        Label resultado = new Label();
+
+        Runnable buscar = () -> {
+            Serie s = sistema.getSeries().buscar(txtSerie.getText());
+            if (s == null) {
+                resultado.setText("La serie no está registrada.");
+                return;
+            }
+            resultado.setText("Producto: " + s.productoCodigo()
+                    + "\nEstado: " + (s.enStock() ? "en stock" : "egresada")
+                    + "\nMovimiento de ingreso: " + s.movimientoIngreso()
+                    + (s.enStock() ? "" : "\nMovimiento de egreso: " + s.movimientoEgreso()));
+            txtSerie.selectAll();
+        };
+        btnBuscar.setOnAction(e -> buscar.run());
+        txtSerie.setOnAction(e -> buscar.run()); // Enter (o el lector de códigos) busca directamente
+
+        // --- Series en stock de un producto ---
+        ComboBox<Producto> cmbProducto = new ComboBox<>();
+        cmbProducto.setPromptText("Producto con número de serie");
+        ListView<String> listaSeries = new ListView<>();
+        Label total = new Label();
+
+        cmbProducto.setOnAction(e -> {
+            Producto p = cmbProducto.getValue();
+            List<String> enStock = p == null ? List.of() : sistema.getSeries().enStock(p);
+            listaSeries.setItems(FXCollections.observableArrayList(enStock));
+            total.setText(p == null ? "" : enStock.size() + " series en stock (stock del producto: " + p.getStockActual() + ")");
+        });
+
+        // Se actualiza cada vez que se abre la ventana (el menú la reutiliza)
+        stage.setOnShown(e -> {
+            RegistroSeries series = sistema.getSeries();
+            cmbProducto.setItems(FXCollections.observableArrayList(
+                    sistema.getProductos().stream().filter(series::requiereSerie).toList()));
+            resultado.setText(series.size() + " series registradas.");
+        });
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, new HBox(10, txtSerie, btnBuscar), resultado, new Separator(),
+                cmbProducto, listaSeries, total);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 450, 500));
+        stage.show();
+    }
+}
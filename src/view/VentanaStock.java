@@ -2,14 +2,14 @@ package view;
 
 import gametechstock.Producto;
 import gametechstock.SistemaStock;
+import java.util.List;
+import javafx.beans.binding.Bindings;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.util.Comparator;
-
 /**
  * Ventana que permite consultar el stock actual de todos los productos registrados.
  * El usuario puede ordenar la lista por nombre o por código de producto.
@@ -38,41 +38,27 @@ public class VentanaStock {
         rbCodigo.setToggleGroup(ordenGroup);
         rbNombre.setSelected(true); // opción predeterminada
 
-        // --- Área de texto donde se mostrará el stock ---
-        TextArea stockArea = new TextArea();
-        stockArea.setEditable(false); // solo lectura
-        stockArea.setStyle("-fx-font-family: monospace;"); // fuente monoespaciada para alinear columnas
-
-        // --- Botón para mostrar los productos en el área de texto ---
-        Button btnMostrar = new Button("Mostrar productos");
-
-        // Acción del botón
-        btnMostrar.setOnAction(e -> {
-            stockArea.clear(); // limpia el contenido anterior
-            var productos = sistema.getProductos(); // obtiene productos actuales
+        // --- Tabla de stock sobre el modelo compartido (se actualiza sola con cada movimiento) ---
+        ModeloProductos modelo = ModeloProductos.de(sistema);
+        TableView<Producto> tabla = new TableView<>();
+        TableColumn<Producto, String> colNombre = Columnas.texto("Nombre", Producto::getNombre);
+        TableColumn<Producto, String> colCodigo = Columnas.texto("Código", Producto::getCodigo);
+        colNombre.setComparator(String.CASE_INSENSITIVE_ORDER);
+        tabla.getColumns().addAll(List.of(colNombre,
+            Columnas.observable("Stock", modelo::stockProperty),
+            colCodigo,
+            Columnas.observable("Estado", p -> Bindings.when(modelo.criticoProperty(p)).then("⚠️ CRÍTICO").otherwise(""))));
 
-            // Ordena la lista según la opción seleccionada
-            if (rbNombre.isSelected()) {
-                productos.sort(Comparator.comparing(Producto::getNombre, String.CASE_INSENSITIVE_ORDER));
-            } else {
-                productos.sort(Comparator.comparing(Producto::getCodigo));
-            }
+        // Vista ordenada de la lista compartida (la lista del sistema no se reordena)
+        modelo.vista(tabla, sistema);
 
-            // Recorre y muestra los productos en el TextArea
-            for (Producto p : productos) {
-                String linea = String.format(
-                        "%-30s - Stock: %3d [%s]%s\n",
-                        p.getNombre(),
-                        p.getStockActual(),
-                        p.getCodigo(),
-                        p.esCritico() ? " ⚠️ CRÍTICO" : ""
-                );
-                stockArea.appendText(linea);
-            }
-        });
+        // Los radio buttons eligen la columna de orden (también se puede ordenar con los encabezados)
+        Runnable ordenar = () -> tabla.getSortOrder().setAll(List.of(rbNombre.isSelected() ? colNombre : colCodigo));
+        ordenGroup.selectedToggleProperty().addListener((obs, anterior, elegido) -> ordenar.run());
+        ordenar.run();
 
         // --- Layout de la ventana (VBox) ---
-        VBox layout = new VBox(10, rbNombre, rbCodigo, btnMostrar, stockArea);
+        VBox layout = new VBox(10, rbNombre, rbCodigo, tabla);
         layout.setPadding(new Insets(20));
         layout.setStyle("-fx-alignment: top-left;");
 
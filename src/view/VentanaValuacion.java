@@ -0,0 +1,99 @@
+package view;
+
+import gametechstock.SistemaStock;
+import gametechstock.ValuacionFIFO;
+import gametechstock.ValuacionFIFO.Linea;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Ventana de valoración del inventario por costo FIFO.
+ * Muestra, para cada producto, las unidades y el valor de sus capas de costo, el costo de ventas
+ * y la merma acumulados. Los valores ya están calculados (ver ValuacionFIFO), así que el informe es inmediato.
+ */
+public class VentanaValuacion {
+
+    // Referencia al sistema de stock
+    private final SistemaStock sistema;
+
+    /**
+     * Constructor que recibe el sistema activo.
+     * @param sistema instancia del sistema de stock
+     */
+    public VentanaValuacion(SistemaStock sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Muestra la ventana de valoración.
+     * @param stage ventana proporcionada por JavaFX
+     */
+    public void mostrar(Stage stage) {
+        stage.setTitle("Valoración de Inventario (FIFO)");
+
+        // --- Tabla de valoración ---
+        TableView<Linea> tabla = new TableView<>();
+        tabla.getColumns().addAll(List.of(
+            Columnas.texto("Código", l -> l.producto().getCodigo()),
+            Columnas.texto("Nombre", l -> l.producto().getNombre()),
+            Columnas.numero("Stock", l -> l.producto().getStockActual()),
+            Columnas.numero("Unidades en capas", Linea::unidades),
+            Columnas.numero("Capas", Linea::capas),
+            Columnas.numero("Costo promedio", l -> importe(l.costoPromedio())),
+            Columnas.numero("Valor", l -> importe(l.valor())),
+            Columnas.numero("Costo de ventas", l -> importe(l.costoVentas())),
+            Columnas.numero("Merma", l -> importe(l.merma())),
+            Columnas.numero("Unidades sin costo", Linea::unidadesSinCosto)));
+
+        ObservableList<Linea> todas = FXCollections.observableArrayList();
+        FilteredList<Linea> visibles = new FilteredList<>(todas, l -> l.unidades() > 0);
+        tabla.setItems(visibles);
+
+        // --- Controles ---
+        CheckBox chkConStock = new CheckBox("Mostrar solo productos con stock");
+        chkConStock.setSelected(true);
+        chkConStock.selectedProperty().addListener((obs, antes, solo) ->
+            visibles.setPredicate(solo ? l -> l.unidades() > 0 : l -> true));
+
+        Button btnActualizar = new Button("Actualizar");
+        Label totales = new Label();
+
+        Runnable actualizar = () -> {
+            ValuacionFIFO valuacion = sistema.getValuacion();
+            todas.setAll(valuacion.informe(sistema.getProductos()));
+            long sinCosto = todas.stream().filter(l -> l.unidadesSinCosto() > 0).count();
+            totales.setText("Valor del inventario: " + valuacion.getValorTotal().setScale(2, RoundingMode.HALF_UP)
+                    + "   Costo de ventas: " + valuacion.getCostoVentasTotal().setScale(2, RoundingMode.HALF_UP)
+                    + "   Merma: " + valuacion.getMermaTotal().setScale(2, RoundingMode.HALF_UP)
+                    + (sinCosto > 0 ? "\n" + sinCosto + " productos tienen ingresos sin costo (valuados a 0 hasta el primer costo)." : ""));
+        };
+        btnActualizar.setOnAction(e -> actualizar.run());
+
+        // Se actualiza cada vez que se abre la ventana (el menú la reutiliza)
+        stage.setOnShown(e -> actualizar.run());
+
+        // --- Layout principal ---
+        VBox layout = new VBox(10, new HBox(10, chkConStock, btnActualizar), tabla, totales);
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 1000, 520));
+        stage.show();
+    }
+
+    /**
+     * Importe con dos decimales para mostrar (0 si no hay costo, así la columna se puede ordenar).
+     */
+    private static Number importe(BigDecimal valor) {
+        return valor == null ? BigDecimal.ZERO : valor.setScale(2, RoundingMode.HALF_UP);
+    }
+}